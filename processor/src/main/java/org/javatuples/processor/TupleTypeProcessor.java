@@ -0,0 +1,453 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+
+/**
+ * <p>
+ * Annotation processor generating the classes for interfaces annotated with
+ * <tt>org.javatuples.TupleType</tt>. See that annotation for a description
+ * of the generated code.
+ * </p>
+ * <p>
+ * The processor ships in its own <tt>javatuples-processor</tt> artifact,
+ * which has no dependencies and is meant to be put on the annotation
+ * processor path of the compiler, not on the classpath:
+ * </p>
+ * <pre>
+ *     javac -processorpath javatuples-processor.jar -cp javatuples.jar ...
+ * </pre>
+ * <p>
+ * It needs a Java 6 or newer compiler. The generated code only uses Java 5
+ * language features, and no reflection.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleTypeProcessor extends AbstractProcessor {
+
+    private static final String ANNOTATION_NAME = "org.javatuples.TupleType";
+
+    private static final int MAX_SIZE = 10;
+
+    private static final String GENERATED_PREFIX = "$";
+
+    private static final String[] TUPLE_CLASSES =
+        new String[] {
+                "Unit", "Tuple2", "Tuple3", "Tuple4", "Tuple5",
+                "Tuple6", "Tuple7", "Tuple8", "Tuple9", "Tuple10" };
+
+    private static final Set<String> RESERVED_NAMES =
+        new HashSet<String>(Arrays.asList(
+                "equals", "hashCode", "toString", "toTuple", "writeTo", "getClass", "notify", "notifyAll", "wait"));
+
+
+
+    public TupleTypeProcessor() {
+        super();
+    }
+
+
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(ANNOTATION_NAME);
+    }
+
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+
+    @Override
+    public boolean process(final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv) {
+
+        final TypeElement annotation = this.processingEnv.getElementUtils().getTypeElement(ANNOTATION_NAME);
+        if (annotation == null) {
+            return false;
+        }
+        for (final Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@TupleType can only be applied to interfaces");
+                continue;
+            }
+            final TypeElement type = (TypeElement) element;
+            final List<ExecutableElement> components = getComponents(type);
+            if (components == null) {
+                continue;
+            }
+            try {
+                generate(type, components);
+            } catch (final IOException e) {
+                error(type, "Cannot generate tuple class: " + e.getMessage());
+            }
+        }
+        return true;
+
+    }
+
+
+
+
+    private List<ExecutableElement> getComponents(final TypeElement type) {
+
+        if (!type.getTypeParameters().isEmpty()) {
+            error(type, "@TupleType interfaces cannot have type parameters");
+            return null;
+        }
+
+        final List<ExecutableElement> components = new ArrayList<ExecutableElement>();
+        boolean valid = true;
+        for (final ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+            if (method.getModifiers().contains(Modifier.STATIC)) {
+                continue;
+            }
+            if (!method.getParameters().isEmpty() || method.getReturnType().getKind() == TypeKind.VOID ||
+                    !method.getTypeParameters().isEmpty()) {
+                error(method, "@TupleType methods must take no parameters and return a value");
+                valid = false;
+            } else if (RESERVED_NAMES.contains(method.getSimpleName().toString())) {
+                error(method, "Method name is reserved in tuple types: " + method.getSimpleName());
+                valid = false;
+            } else if (method.getSimpleName().toString().startsWith(GENERATED_PREFIX)) {
+                // Generated parameters and locals start with it
+                error(method, "Method names starting with '" + GENERATED_PREFIX + "' are reserved in tuple types: " +
+                        method.getSimpleName());
+                valid = false;
+            } else if (method.getReturnType().getKind() == TypeKind.TYPEVAR) {
+                error(method, "@TupleType methods cannot return type variables");
+                valid = false;
+            }
+            components.add(method);
+        }
+
+        if (components.isEmpty() || components.size() > MAX_SIZE) {
+            error(type, "@TupleType interfaces must declare between 1 and " + MAX_SIZE + " methods");
+            valid = false;
+        }
+        return valid ? components : null;
+
+    }
+
+
+
+
+    private void generate(final TypeElement type, final List<ExecutableElement> components) throws IOException {
+
+        final String packageName = getPackage(type).getQualifiedName().toString();
+        final String specifiedName = getSpecifiedName(type);
+        final String className =
+            (specifiedName.length() == 0) ? (type.getSimpleName() + "Tuple") : specifiedName;
+        final String qualifiedClassName = (packageName.length() == 0) ? className : (packageName + "." + className);
+
+        final int size = components.size();
+        final String[] names = new String[size];
+        final String[] types = new String[size];
+        final String[] boxedTypes = new String[size];
+        final TypeKind[] kinds = new TypeKind[size];
+        for (int i = 0; i < size; i++) {
+            final TypeMirror returnType = components.get(i).getReturnType();
+            names[i] = components.get(i).getSimpleName().toString();
+            types[i] = returnType.toString();
+            kinds[i] = returnType.getKind();
+            boxedTypes[i] = kinds[i].isPrimitive() ? boxedName(kinds[i]) : types[i];
+        }
+
+        final String tupleClass = "org.javatuples." + TUPLE_CLASSES[size - 1];
+        final StringBuilder tupleTypeBuilder = new StringBuilder(tupleClass).append('<');
+        for (int i = 0; i < size; i++) {
+            tupleTypeBuilder.append((i > 0) ? "," : "").append(boxedTypes[i]);
+        }
+        final String tupleType = tupleTypeBuilder.append('>').toString();
+
+        final StringBuilder src = new StringBuilder();
+
+        if (packageName.length() > 0) {
+            src.append("package ").append(packageName).append(";\n\n");
+        }
+        src.append("/**\n * Tuple type generated from {@link ").append(type.getQualifiedName()).append("}.\n */\n");
+        // Casts of decoded values to parameterized component types, and
+        // components of types which are not Serializable
+        src.append("@SuppressWarnings({\"unchecked\", \"serial\"})\n");
+        src.append("public final class ").append(className);
+        src.append(" implements ").append(type.getQualifiedName()).append(", java.io.Serializable {\n\n");
+        src.append("    private static final long serialVersionUID = 1L;\n\n");
+
+        for (int i = 0; i < size; i++) {
+            src.append("    private final ").append(types[i]).append(' ').append(names[i]).append(";\n");
+        }
+        src.append("\n");
+
+        // Constructor
+        src.append("    public ").append(className).append('(');
+        for (int i = 0; i < size; i++) {
+            src.append((i > 0) ? ", " : "").append("final ").append(types[i]).append(' ').append(names[i]);
+        }
+        src.append(") {\n        super();\n");
+        for (int i = 0; i < size; i++) {
+            src.append("        this.").append(names[i]).append(" = ").append(names[i]).append(";\n");
+        }
+        src.append("    }\n\n");
+
+        // Accessors
+        for (int i = 0; i < size; i++) {
+            src.append("    public ").append(types[i]).append(' ').append(names[i]).append("() {\n");
+            src.append("        return this.").append(names[i]).append(";\n    }\n\n");
+        }
+
+        // Conversion from and to tuples
+        src.append("    public static ").append(className).append(" fromTuple(final ").append(tupleType)
+           .append(" $tuple) {\n");
+        src.append("        return new ").append(className).append('(');
+        for (int i = 0; i < size; i++) {
+            src.append((i > 0) ? ", " : "").append("$tuple.getValue").append(i).append("()");
+            if (kinds[i].isPrimitive()) {
+                src.append('.').append(kinds[i].name().toLowerCase(Locale.ENGLISH)).append("Value()");
+            }
+        }
+        src.append(");\n    }\n\n");
+
+        src.append("    public ").append(tupleType).append(" toTuple() {\n");
+        src.append("        return ").append(tupleClass).append(".with(");
+        for (int i = 0; i < size; i++) {
+            src.append((i > 0) ? ", " : "").append(boxed(kinds[i], boxedTypes[i], "this." + names[i]));
+        }
+        src.append(");\n    }\n\n");
+
+        // Binary codec: values which need Java serialization are written as
+        // TupleCodec.writeValue does, and read only with a class filter
+        src.append("    public void writeTo(final java.io.DataOutput $out) throws java.io.IOException {\n");
+        for (int i = 0; i < size; i++) {
+            src.append("        ");
+            if (kinds[i].isPrimitive()) {
+                src.append("$out.write").append(dataMethodSuffix(kinds[i])).append("(this.").append(names[i]).append(");\n");
+            } else {
+                src.append("org.javatuples.TupleCodec.writeValue($out, this.").append(names[i]).append(");\n");
+            }
+        }
+        src.append("    }\n\n");
+
+        src.append("    public static ").append(className)
+           .append(" readFrom(final java.io.DataInput $in) throws java.io.IOException {\n");
+        src.append("        return readFrom($in, null);\n    }\n\n");
+
+        src.append("    public static ").append(className)
+           .append(" readFrom(final java.io.DataInput $in, final org.javatuples.TupleCodec.ClassFilter $filter)")
+           .append(" throws java.io.IOException {\n");
+        for (int i = 0; i < size; i++) {
+            src.append("        final ").append(types[i]).append(' ').append(names[i]).append(" = ");
+            if (kinds[i].isPrimitive()) {
+                src.append("$in.read").append(dataMethodSuffix(kinds[i])).append("();\n");
+            } else {
+                if (!types[i].equals("java.lang.Object")) {
+                    src.append('(').append(types[i]).append(") ");
+                }
+                src.append("org.javatuples.TupleCodec.readValue($in, $filter);\n");
+            }
+        }
+        src.append("        return new ").append(className).append('(');
+        for (int i = 0; i < size; i++) {
+            src.append((i > 0) ? ", " : "").append(names[i]);
+        }
+        src.append(");\n    }\n\n");
+
+        // equals, hashCode and toString, with the same results as the tuple's
+        src.append("    @Override\n    public boolean equals(final Object $obj) {\n");
+        src.append("        if (this == $obj) {\n            return true;\n        }\n");
+        src.append("        if ($obj == null || $obj.getClass() != ").append(className).append(".class) {\n");
+        src.append("            return false;\n        }\n");
+        src.append("        final ").append(className).append(" $other = (").append(className).append(") $obj;\n");
+        src.append("        return ");
+        for (int i = 0; i < size; i++) {
+            src.append((i > 0) ? "\n            && " : "").append(equalsExpression(kinds[i], names[i]));
+        }
+        src.append(";\n    }\n\n");
+
+        src.append("    @Override\n    public int hashCode() {\n        int $hash = 1;\n");
+        for (int i = 0; i < size; i++) {
+            if (kinds[i] == TypeKind.LONG || kinds[i] == TypeKind.DOUBLE) {
+                src.append("        final long $bits").append(i).append(" = ")
+                   .append((kinds[i] == TypeKind.LONG) ?
+                           "this." + names[i] : "Double.doubleToLongBits(this." + names[i] + ")")
+                   .append(";\n");
+            }
+            src.append("        $hash = 31 * $hash + ").append(hashExpression(kinds[i], names[i], i)).append(";\n");
+        }
+        src.append("        return 31 + $hash;\n    }\n\n");
+
+        src.append("    @Override\n    public String toString() {\n");
+        src.append("        return new StringBuilder().append('[')");
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                src.append(".append(\", \")");
+            }
+            src.append(".append(this.").append(names[i]).append(')');
+        }
+        src.append(".append(']').toString();\n    }\n\n");
+
+        src.append("}\n");
+
+        final Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedClassName, type).openWriter();
+        try {
+            writer.write(src.toString());
+        } finally {
+            writer.close();
+        }
+
+    }
+
+
+
+
+    private static String boxedName(final TypeKind kind) {
+        switch (kind) {
+            case BOOLEAN:
+                return "Boolean";
+            case BYTE:
+                return "Byte";
+            case SHORT:
+                return "Short";
+            case CHAR:
+                return "Character";
+            case INT:
+                return "Integer";
+            case LONG:
+                return "Long";
+            case FLOAT:
+                return "Float";
+            default:
+                return "Double";
+        }
+    }
+
+
+    private static String boxed(final TypeKind kind, final String boxedType, final String expression) {
+        return kind.isPrimitive() ? (boxedType + ".valueOf(" + expression + ")") : expression;
+    }
+
+
+    private static String dataMethodSuffix(final TypeKind kind) {
+        final String name = kind.name();
+        return name.charAt(0) + name.substring(1).toLowerCase(Locale.ENGLISH);
+    }
+
+
+    private static String equalsExpression(final TypeKind kind, final String name) {
+        final String field = "this." + name;
+        final String otherField = "$other." + name;
+        switch (kind) {
+            case FLOAT:
+                return "Float.floatToIntBits(" + field + ") == Float.floatToIntBits(" + otherField + ")";
+            case DOUBLE:
+                return "Double.doubleToLongBits(" + field + ") == Double.doubleToLongBits(" + otherField + ")";
+            default:
+                if (kind.isPrimitive()) {
+                    return field + " == " + otherField;
+                }
+                return "(" + field + " == null ? " + otherField + " == null : " + field + ".equals(" + otherField + "))";
+        }
+    }
+
+
+    private static String hashExpression(final TypeKind kind, final String name, final int pos) {
+        final String field = "this." + name;
+        switch (kind) {
+            case BOOLEAN:
+                return "(" + field + " ? 1231 : 1237)";
+            case BYTE:
+            case SHORT:
+            case CHAR:
+            case INT:
+                // Widened to int by the enclosing expression
+                return field;
+            case FLOAT:
+                return "Float.floatToIntBits(" + field + ")";
+            case LONG:
+            case DOUBLE:
+                return "(int) ($bits" + pos + " ^ ($bits" + pos + " >>> 32))";
+            default:
+                return "(" + field + " == null ? 0 : " + field + ".hashCode())";
+        }
+    }
+
+
+    private static PackageElement getPackage(final Element element) {
+        Element current = element;
+        while (current.getKind() != ElementKind.PACKAGE) {
+            current = current.getEnclosingElement();
+        }
+        return (PackageElement) current;
+    }
+
+
+    // The annotation class is not on the processor path, so its values are
+    // read from the mirror
+    private static String getSpecifiedName(final TypeElement type) {
+        for (final AnnotationMirror mirror : type.getAnnotationMirrors()) {
+            final TypeElement annotationType = (TypeElement) mirror.getAnnotationType().asElement();
+            if (!annotationType.getQualifiedName().contentEquals(ANNOTATION_NAME)) {
+                continue;
+            }
+            for (final Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+                    mirror.getElementValues().entrySet()) {
+                if (entry.getKey().getSimpleName().contentEquals("name")) {
+                    return (String) entry.getValue().getValue();
+                }
+            }
+        }
+        return "";
+    }
+
+
+    private void error(final Element element, final String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
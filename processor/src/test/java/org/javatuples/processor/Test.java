@@ -0,0 +1,137 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.javatuples.processor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.javatuples.Tuple2;
+import org.javatuples.Tuple5;
+import org.javatuples.TupleCodec;
+import org.javatuples.TupleType;
+
+public class Test extends TestCase {
+
+
+    @TupleType
+    public interface Reading {
+        int sensor();
+        String unit();
+        double value();
+        boolean valid();
+        long timestamp();
+    }
+
+
+    public void testTupleType() throws Exception {
+
+        final ReadingTuple reading = new ReadingTuple(7, "C", 21.5, true, 1234567890123L);
+        assertEquals(7, reading.sensor());
+        assertEquals("C", reading.unit());
+        assertEquals(21.5, reading.value(), 0.0);
+
+        final Tuple5<Integer,String,Double,Boolean,Long> tuple = reading.toTuple();
+        assertEquals(
+                Tuple5.with(Integer.valueOf(7), "C", Double.valueOf(21.5), Boolean.TRUE, Long.valueOf(1234567890123L)),
+                tuple);
+        assertEquals(reading, ReadingTuple.fromTuple(tuple));
+        assertEquals(tuple.hashCode(), reading.hashCode());
+        assertEquals(tuple.toString(), reading.toString());
+        assertFalse(reading.equals(new ReadingTuple(7, "C", 21.5, false, 1234567890123L)));
+        assertFalse(reading.equals(new ReadingTuple(7, null, 21.5, true, 1234567890123L)));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        reading.writeTo(out);
+        new ReadingTuple(-1, null, Double.NaN, false, -1L).writeTo(out);
+        out.close();
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(reading, ReadingTuple.readFrom(in));
+        assertEquals(new ReadingTuple(-1, null, Double.NaN, false, -1L), ReadingTuple.readFrom(in));
+
+    }
+
+
+    @TupleType(name = "Coordinates")
+    public interface Position {
+        double latitude();
+        double longitude();
+    }
+
+
+    public void testTupleTypeName() throws Exception {
+
+        final Coordinates coordinates = new Coordinates(41.4, 2.2);
+        assertEquals(Tuple2.with(Double.valueOf(41.4), Double.valueOf(2.2)), coordinates.toTuple());
+        assertTrue(coordinates instanceof Position);
+
+    }
+
+
+
+    // Component names used by the generated code for its own variables
+    @TupleType
+    public interface Transfer {
+        int in();
+        int out();
+        String tuple();
+        String other();
+        long hash();
+        Object obj();
+        BigDecimal amount();
+        List<String> filter();
+    }
+
+
+    public void testTupleTypeCodec() throws Exception {
+
+        final TransferTuple transfer =
+            new TransferTuple(1, 2, "t", "o", 3L, "x", new BigDecimal("10.50"), Arrays.asList("a", "b"));
+        assertEquals(3L, transfer.hash());
+        assertEquals(transfer.toTuple().hashCode(), transfer.hashCode());
+        assertEquals(transfer, TransferTuple.fromTuple(transfer.toTuple()));
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        transfer.writeTo(out);
+        out.close();
+
+        // BigDecimal and the list need Java serialization
+        try {
+            TransferTuple.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+            fail();
+        } catch (final IOException e) {
+            // expected
+        }
+        assertEquals(transfer,
+                TransferTuple.readFrom(
+                        new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), TupleCodec.ALL_CLASSES));
+
+    }
+
+}
@@ -144,12 +144,18 @@ public final class KeyValue<A,B>
     public KeyValue(
             final A key, 
             final B value) {
-        super(key, value);
+        super();
         this.key = key;
         this.value = value;
     }
 
 
+    @Override
+    Object[] createValueArray() {
+        return new Object[] { this.key, this.value };
+    }
+
+
     public A getKey() {
         return this.key;
     }
@@ -146,12 +146,18 @@ public final class LabelValue<A,B>
     public LabelValue(
             final A label, 
             final B value) {
-        super(label, value);
+        super();
         this.label = label;
         this.value = value;
     }
 
 
+    @Override
+    Object[] createValueArray() {
+        return new Object[] { this.label, this.value };
+    }
+
+
     public A getLabel() {
         return this.label;
     }
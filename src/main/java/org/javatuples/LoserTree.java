@@ -0,0 +1,185 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * <p>
+ * K-way merge of sorted iterators through a tournament tree of losers.
+ * </p>
+ * <p>
+ * Internal nodes <tt>1..k-1</tt> of the tree store the index of the source
+ * that lost the match played at that node, and node <tt>0</tt> stores the
+ * overall winner. Leaves (sources) are the implicit nodes <tt>k..2k-1</tt>.
+ * After the winner is consumed only the path from its leaf to the root is
+ * replayed, so each element costs <tt>log2(k)</tt> comparisons and no
+ * allocations. Ties are won by the source with the lowest index, which
+ * makes the merge stable.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+final class LoserTree<T> implements Iterator<T> {
+
+    private final Iterator<? extends T>[] sources;
+    private final Comparator<? super T> comparator;
+    private final Object[] heads;
+    private final boolean[] live;
+    private final int[] tree;
+    private final int k;
+
+
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    LoserTree(final List<? extends Iterator<? extends T>> sources, final Comparator<? super T> comparator) {
+
+        super();
+
+        if (sources == null) {
+            throw new IllegalArgumentException("Sources cannot be null");
+        }
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
+        }
+
+        this.k = sources.size();
+        this.sources = sources.toArray(new Iterator[this.k]);
+        this.comparator = comparator;
+        this.heads = new Object[this.k];
+        this.live = new boolean[this.k];
+        this.tree = new int[Math.max(this.k, 1)];
+
+        for (int i = 0; i < this.k; i++) {
+            if (this.sources[i] == null) {
+                throw new IllegalArgumentException("Sources cannot contain null iterators");
+            }
+            pull(i);
+        }
+
+        if (this.k > 1) {
+            this.tree[0] = build(1);
+        }
+
+    }
+
+
+
+    public boolean hasNext() {
+        return this.k > 0 && this.live[this.tree[0]];
+    }
+
+
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        final int winner = this.tree[0];
+        final T result = head(winner);
+        pull(winner);
+        replay(winner);
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Return the next element without consuming it.
+     * </p>
+     *
+     * @return the next element
+     */
+    T peek() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return head(this.tree[0]);
+    }
+
+
+    public void remove() {
+        throw new UnsupportedOperationException("Merged elements cannot be removed");
+    }
+
+
+
+
+    private int build(final int node) {
+        if (node >= this.k) {
+            return node - this.k;
+        }
+        final int left = build(2 * node);
+        final int right = build(2 * node + 1);
+        if (beats(left, right)) {
+            this.tree[node] = right;
+            return left;
+        }
+        this.tree[node] = left;
+        return right;
+    }
+
+
+    private void replay(final int source) {
+        int winner = source;
+        for (int node = (source + this.k) >>> 1; node > 0; node >>>= 1) {
+            final int loser = this.tree[node];
+            if (beats(loser, winner)) {
+                this.tree[node] = winner;
+                winner = loser;
+            }
+        }
+        this.tree[0] = winner;
+    }
+
+
+    private boolean beats(final int a, final int b) {
+        if (!this.live[a]) {
+            return false;
+        }
+        if (!this.live[b]) {
+            return true;
+        }
+        final int comparison = this.comparator.compare(head(a), head(b));
+        return comparison < 0 || (comparison == 0 && a < b);
+    }
+
+
+    private void pull(final int source) {
+        if (this.sources[source].hasNext()) {
+            this.heads[source] = this.sources[source].next();
+            this.live[source] = true;
+        } else {
+            this.heads[source] = null;
+            this.live[source] = false;
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private T head(final int source) {
+        return (T) this.heads[source];
+    }
+
+}
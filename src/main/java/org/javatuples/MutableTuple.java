@@ -0,0 +1,179 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>
+ * Fixed-size container of values which, unlike tuples, can be modified in
+ * place. Mutable tuples are meant to be preallocated and reused on paths
+ * where creating a tuple per item would be too costly (see
+ * {@link TupleRingBuffer}); {@link #toTuple()} creates an immutable copy
+ * when a value has to escape.
+ * </p>
+ * <p>
+ * Mutable tuples are not tuples: they do not extend {@link Tuple}, and they
+ * use identity for <tt>equals</tt> and <tt>hashCode</tt>, as their
+ * contents change. They are not thread-safe.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class MutableTuple {
+
+    private final Object[] values;
+
+
+
+    /**
+     * <p>
+     * Create a mutable tuple with all its values set to <tt>null</tt>.
+     * </p>
+     *
+     * @param size the number of values, at least one
+     */
+    public MutableTuple(final int size) {
+        super();
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be at least 1. Is " + size);
+        }
+        this.values = new Object[size];
+    }
+
+
+
+    public int getSize() {
+        return this.values.length;
+    }
+
+
+    /**
+     * <p>
+     * Get the value at a position.
+     * </p>
+     *
+     * @param pos the position
+     * @return the value
+     */
+    public Object get(final int pos) {
+        checkPosition(pos);
+        return this.values[pos];
+    }
+
+
+    /**
+     * <p>
+     * Get the value at a position, cast to the type expected by the caller.
+     * </p>
+     *
+     * @param <X> the expected type of the value
+     * @param pos the position
+     * @return the value
+     */
+    @SuppressWarnings("unchecked")
+    public <X> X getAs(final int pos) {
+        checkPosition(pos);
+        return (X) this.values[pos];
+    }
+
+
+    /**
+     * <p>
+     * Set the value at a position.
+     * </p>
+     *
+     * @param pos the position
+     * @param value the value
+     * @return this mutable tuple
+     */
+    public MutableTuple set(final int pos, final Object value) {
+        checkPosition(pos);
+        this.values[pos] = value;
+        return this;
+    }
+
+
+    /**
+     * <p>
+     * Set all the values of this mutable tuple, from a tuple of the same
+     * size.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return this mutable tuple
+     */
+    public MutableTuple setAll(final Tuple tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        if (tuple.getSize() != this.values.length) {
+            throw new IllegalArgumentException(
+                    "Tuple has " + tuple.getSize() + " values. Should have " + this.values.length);
+        }
+        tuple.toArray(this.values, 0);
+        return this;
+    }
+
+
+    /**
+     * <p>
+     * Set all the values to <tt>null</tt>, so that they can be garbage
+     * collected.
+     * </p>
+     *
+     * @return this mutable tuple
+     */
+    public MutableTuple clear() {
+        Arrays.fill(this.values, null);
+        return this;
+    }
+
+
+    /**
+     * <p>
+     * Create an immutable tuple with the current values, of the class
+     * matching its size.
+     * </p>
+     *
+     * @return the tuple
+     */
+    public Tuple toTuple() {
+        return TupleFactory.fromArray(this.values);
+    }
+
+
+    @Override
+    public String toString() {
+        return Arrays.asList(this.values).toString();
+    }
+
+
+
+    private void checkPosition(final int pos) {
+        if (pos < 0 || pos >= this.values.length) {
+            throw new IllegalArgumentException(
+                    "Cannot access position " + pos + " in a mutable tuple of size " + this.values.length);
+        }
+    }
+
+}
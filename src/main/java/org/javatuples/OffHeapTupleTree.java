@@ -0,0 +1,905 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+
+/**
+ * <p>
+ * Read-only B+tree mapping tuples to byte arrays, stored outside of the Java
+ * heap: in direct buffers, or in a memory-mapped file which can be opened
+ * again later without rebuilding the tree.
+ * </p>
+ * <p>
+ * Keys are stored with {@link TupleKeyEncoding}, and ordered by their
+ * encoding. Trees are bulk-loaded with a {@link Builder}, from keys in
+ * ascending order, filling every page completely: only one key per page is
+ * kept in the heap while building. Once built, trees support point lookups,
+ * range scans and prefix scans, and can be read by any number of threads.
+ * </p>
+ * <p>
+ * Pages are made of a small header, an array of slot offsets in key order
+ * and the entries themselves, so lookups are binary searches within each
+ * page. Leaf pages are stored consecutively, in key order, so range scans
+ * read memory sequentially.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class OffHeapTupleTree implements Closeable {
+
+    public static final int DEFAULT_PAGE_SIZE = 16384;
+    public static final int MIN_PAGE_SIZE = 512;
+    public static final int MAX_PAGE_SIZE = 65536;
+
+    private static final int MAGIC = 0x54555054;
+    private static final int VERSION = 1;
+
+    // Header page (page 0)
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_PAGE_SIZE = 8;
+    private static final int HEADER_ROOT = 12;
+    private static final int HEADER_HEIGHT = 16;
+    private static final int HEADER_PAGE_COUNT = 20;
+    private static final int HEADER_ENTRY_COUNT = 24;
+
+    // Leaf and internal pages: type, entry count, next leaf, slot offsets
+    private static final byte LEAF = 1;
+    private static final byte INTERNAL = 2;
+    private static final int PAGE_TYPE = 0;
+    private static final int PAGE_COUNT = 1;
+    private static final int PAGE_NEXT = 3;
+    private static final int PAGE_SLOTS = 7;
+
+    private static final int MEMORY_CHUNK_BYTES = 1 << 24;
+    private static final int MAPPED_CHUNK_BYTES = 1 << 30;
+
+    private final Pages pages;
+    private final int root;
+    private final int height;
+    private final long size;
+    private final RandomAccessFile file;
+
+
+
+    /**
+     * <p>
+     * Create a builder for a tree stored in direct buffers.
+     * </p>
+     *
+     * @param pageSize the page size, between 512 and 65536 bytes
+     * @return the builder
+     */
+    public static Builder newBuilder(final int pageSize) {
+        checkPageSize(pageSize);
+        return new Builder(new Pages(pageSize, MEMORY_CHUNK_BYTES), null);
+    }
+
+
+    /**
+     * <p>
+     * Create a builder for a tree stored in a file, which is created or
+     * truncated. The tree is memory-mapped once built, and can be opened
+     * again with {@link #open(File)}.
+     * </p>
+     * <p>
+     * The builder keeps the file open until the tree is built. If it is not,
+     * e.g. because adding an entry fails, the builder must be closed:
+     * </p>
+     * <pre>
+     *     final OffHeapTupleTree.Builder builder = OffHeapTupleTree.newBuilder(file, pageSize);
+     *     try {
+     *         ...
+     *         tree = builder.build();
+     *     } finally {
+     *         builder.close();
+     *     }
+     * </pre>
+     *
+     * @param file the file
+     * @param pageSize the page size, between 512 and 65536 bytes
+     * @return the builder
+     * @throws IOException if the file cannot be created
+     */
+    public static Builder newBuilder(final File file, final int pageSize) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        checkPageSize(pageSize);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(0L);
+        } catch (final IOException e) {
+            raf.close();
+            throw e;
+        }
+        return new Builder(new Pages(pageSize, MAPPED_CHUNK_BYTES), raf);
+    }
+
+
+    /**
+     * <p>
+     * Build a tree in direct buffers from the entries of a map, in any order.
+     * </p>
+     *
+     * @param map the entries
+     * @return the tree
+     */
+    public static OffHeapTupleTree bulkLoad(final Map<? extends Tuple, byte[]> map) {
+        if (map == null) {
+            throw new IllegalArgumentException("Map cannot be null");
+        }
+        final Map<ByteKey,byte[]> encoded = new TreeMap<ByteKey,byte[]>();
+        for (final Map.Entry<? extends Tuple, byte[]> entry : map.entrySet()) {
+            encoded.put(new ByteKey(TupleKeyEncoding.encode(entry.getKey())), entry.getValue());
+        }
+        final Builder builder = newBuilder(DEFAULT_PAGE_SIZE);
+        for (final Map.Entry<ByteKey,byte[]> entry : encoded.entrySet()) {
+            builder.addEncoded(entry.getKey().bytes, entry.getValue());
+        }
+        return builder.build();
+    }
+
+
+    /**
+     * <p>
+     * Open a tree previously built into a file. The file is memory-mapped
+     * read-only.
+     * </p>
+     *
+     * @param file the file
+     * @return the tree
+     * @throws IOException if the file cannot be read or does not contain a tree
+     */
+    public static OffHeapTupleTree open(final File file) throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_ENTRY_COUNT + 8);
+            readFully(raf.getChannel(), header, 0L);
+            if (header.getInt(HEADER_MAGIC) != MAGIC) {
+                throw new IOException("Not a tuple tree file: " + file);
+            }
+            if (header.getInt(HEADER_VERSION) != VERSION) {
+                throw new IOException("Unsupported tuple tree version: " + header.getInt(HEADER_VERSION));
+            }
+            final int pageSize = header.getInt(HEADER_PAGE_SIZE);
+            final Pages pages = new Pages(pageSize, MAPPED_CHUNK_BYTES);
+            pages.map(raf.getChannel(), header.getInt(HEADER_PAGE_COUNT), FileChannel.MapMode.READ_ONLY);
+            return new OffHeapTupleTree(pages, header.getInt(HEADER_ROOT), header.getInt(HEADER_HEIGHT),
+                    header.getLong(HEADER_ENTRY_COUNT), raf);
+        } catch (final IOException e) {
+            raf.close();
+            throw e;
+        } catch (final RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+
+
+    private OffHeapTupleTree(final Pages pages, final int root, final int height, final long size,
+            final RandomAccessFile file) {
+        super();
+        this.pages = pages;
+        this.root = root;
+        this.height = height;
+        this.size = size;
+        this.file = file;
+    }
+
+
+
+    /**
+     * <p>
+     * Return the number of entries in the tree.
+     * </p>
+     *
+     * @return the number of entries
+     */
+    public long size() {
+        return this.size;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of levels of the tree, leaves included.
+     * </p>
+     *
+     * @return the height
+     */
+    public int getHeight() {
+        return this.height;
+    }
+
+
+    public int getPageSize() {
+        return this.pages.pageSize;
+    }
+
+
+    /**
+     * <p>
+     * Return the value mapped to a key.
+     * </p>
+     *
+     * @param key the key
+     * @return a new array with the value, or <tt>null</tt> if the key is not
+     *         in the tree
+     */
+    public byte[] get(final Tuple key) {
+        final byte[] encoded = TupleKeyEncoding.encode(key);
+        final int leaf = findLeaf(encoded);
+        final ByteBuffer buffer = this.pages.buffer(leaf);
+        final int base = this.pages.base(leaf);
+        final int slot = searchSlot(buffer, base, encoded);
+        if (slot >= count(buffer, base)) {
+            return null;
+        }
+        final int entry = base + slotOffset(buffer, base, slot);
+        if (compareKey(buffer, entry, encoded) != 0) {
+            return null;
+        }
+        return readValue(buffer, entry);
+    }
+
+
+    public boolean containsKey(final Tuple key) {
+        return get(key) != null;
+    }
+
+
+    /**
+     * <p>
+     * Scan the entries with keys between two bounds, in key order.
+     * </p>
+     *
+     * @param from the lower bound, inclusive, or <tt>null</tt>
+     * @param to the upper bound, exclusive, or <tt>null</tt>
+     * @return a lazy iterable of entries
+     */
+    public Iterable<KeyValue<Tuple,byte[]>> range(final Tuple from, final Tuple to) {
+        final byte[] fromKey = (from == null ? null : TupleKeyEncoding.encode(from));
+        final byte[] toKey = (to == null ? null : TupleKeyEncoding.encode(to));
+        return new Iterable<KeyValue<Tuple,byte[]>>() {
+            public Iterator<KeyValue<Tuple,byte[]>> iterator() {
+                return new Scan(fromKey, toKey, null);
+            }
+        };
+    }
+
+
+    /**
+     * <p>
+     * Scan the entries with keys starting with the specified values, in key
+     * order.
+     * </p>
+     *
+     * @param prefix the values of the prefix
+     * @return a lazy iterable of entries
+     */
+    public Iterable<KeyValue<Tuple,byte[]>> prefix(final Object... prefix) {
+        final byte[] prefixKey = TupleKeyEncoding.encodePrefix(prefix);
+        return new Iterable<KeyValue<Tuple,byte[]>>() {
+            public Iterator<KeyValue<Tuple,byte[]>> iterator() {
+                return new Scan(prefixKey, null, prefixKey);
+            }
+        };
+    }
+
+
+    /**
+     * <p>
+     * Close the file of a file-based tree. Memory is released when the tree
+     * is garbage collected.
+     * </p>
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        if (this.file != null) {
+            this.file.close();
+        }
+    }
+
+
+
+    private int findLeaf(final byte[] key) {
+        int page = this.root;
+        for (int level = 1; level < this.height; level++) {
+            final ByteBuffer buffer = this.pages.buffer(page);
+            final int base = this.pages.base(page);
+            // The child covering the key is the last one whose first key is
+            // not greater than it (or the first child)
+            int slot = searchSlot(buffer, base, key);
+            if (slot == count(buffer, base) ||
+                    compareKey(buffer, base + slotOffset(buffer, base, slot) + 4, key) != 0) {
+                slot = Math.max(0, slot - 1);
+            }
+            page = buffer.getInt(base + slotOffset(buffer, base, slot));
+        }
+        return page;
+    }
+
+
+    /*
+     * First slot of the page whose key is not less than the specified key.
+     */
+    private static int searchSlot(final ByteBuffer buffer, final int base, final byte[] key) {
+        final boolean leaf = (buffer.get(base + PAGE_TYPE) == LEAF);
+        int low = 0;
+        int high = count(buffer, base);
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            final int entry = base + slotOffset(buffer, base, mid) + (leaf ? 0 : 4);
+            if (compareKey(buffer, entry, key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+
+    private static int count(final ByteBuffer buffer, final int base) {
+        return buffer.getChar(base + PAGE_COUNT);
+    }
+
+
+    private static int slotOffset(final ByteBuffer buffer, final int base, final int slot) {
+        return buffer.getChar(base + PAGE_SLOTS + 2 * slot);
+    }
+
+
+    /*
+     * Compare the key stored at a position (length followed by bytes) with
+     * another key, without copying it.
+     */
+    private static int compareKey(final ByteBuffer buffer, final int pos, final byte[] key) {
+        final int length = buffer.getChar(pos);
+        final int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            final int b1 = buffer.get(pos + 2 + i) & 0xFF;
+            final int b2 = key[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return length - key.length;
+    }
+
+
+    private static boolean startsWith(final ByteBuffer buffer, final int pos, final byte[] prefix) {
+        if (buffer.getChar(pos) < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(pos + 2 + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static byte[] readKey(final ByteBuffer buffer, final int entry) {
+        final byte[] key = new byte[buffer.getChar(entry)];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(entry + 2);
+        view.get(key);
+        return key;
+    }
+
+
+    private static byte[] readValue(final ByteBuffer buffer, final int entry) {
+        final int valuePos = entry + 2 + buffer.getChar(entry);
+        final byte[] value = new byte[buffer.getInt(valuePos)];
+        final ByteBuffer view = buffer.duplicate();
+        view.position(valuePos + 4);
+        view.get(value);
+        return value;
+    }
+
+
+    private static void checkPageSize(final int pageSize) {
+        if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException(
+                    "Page size must be between " + MIN_PAGE_SIZE + " and " + MAX_PAGE_SIZE + ". Is " + pageSize);
+        }
+    }
+
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position)
+            throws IOException {
+        long pos = position;
+        while (buffer.hasRemaining()) {
+            final int read = channel.read(buffer, pos);
+            if (read < 0) {
+                throw new IOException("Unexpected end of tuple tree file");
+            }
+            pos += read;
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     * Bulk loader of trees. Entries must be added in ascending order of their
+     * encoded keys (see {@link TupleKeyEncoding#compare(byte[], byte[])}),
+     * without duplicates.
+     * </p>
+     * <p>
+     * Keys cannot be longer than a quarter of the page size, and every entry
+     * must fit in a page.
+     * </p>
+     * <p>
+     * Closing a builder before the tree is built aborts it, closing its file
+     * if it has one. Closing it afterwards does nothing, as the file then
+     * belongs to the tree.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public static final class Builder implements Closeable {
+
+        private final Pages pages;
+        private final RandomAccessFile file;
+        private final ByteBuffer page;
+
+        // Entries of the leaf being filled, and the first key of every leaf
+        private final List<byte[]> pendingKeys = new ArrayList<byte[]>();
+        private final List<byte[]> pendingValues = new ArrayList<byte[]>();
+        private int pendingBytes = PAGE_SLOTS;
+        private final List<byte[]> firstKeys = new ArrayList<byte[]>();
+        private final List<Integer> leafPages = new ArrayList<Integer>();
+
+        private byte[] lastKey = null;
+        private long entryCount = 0L;
+        private int pageCount = 1;
+        // Set when the tree is built, or when building fails or is aborted
+        private boolean finished = false;
+
+
+        Builder(final Pages pages, final RandomAccessFile file) {
+            super();
+            this.pages = pages;
+            this.file = file;
+            this.page = ByteBuffer.allocate(pages.pageSize);
+        }
+
+
+        /**
+         * <p>
+         * Add an entry.
+         * </p>
+         *
+         * @param key the key, greater than the previous one
+         * @param value the value
+         * @return this builder
+         */
+        public Builder add(final Tuple key, final byte[] value) {
+            addEncoded(TupleKeyEncoding.encode(key), value);
+            return this;
+        }
+
+
+        void addEncoded(final byte[] key, final byte[] value) {
+            checkNotFinished();
+            if (value == null) {
+                throw new IllegalArgumentException("Value cannot be null");
+            }
+            if (key.length > this.pages.pageSize / 4) {
+                throw new IllegalArgumentException("Encoded key of " + key.length +
+                        " bytes is longer than a quarter of the page size");
+            }
+            if (this.lastKey != null && TupleKeyEncoding.compare(this.lastKey, key) >= 0) {
+                throw new IllegalArgumentException("Keys must be added in strictly ascending order");
+            }
+            final int entryBytes = 2 + 2 + key.length + 4 + value.length;
+            if (PAGE_SLOTS + entryBytes > this.pages.pageSize) {
+                throw new IllegalArgumentException("Entry of " + entryBytes + " bytes does not fit in a page");
+            }
+            if (this.pendingBytes + entryBytes > this.pages.pageSize) {
+                writeLeaf(this.pageCount + 1);
+            }
+            this.pendingKeys.add(key);
+            this.pendingValues.add(value);
+            this.pendingBytes += entryBytes;
+            this.lastKey = key;
+            this.entryCount++;
+        }
+
+
+        /**
+         * <p>
+         * Finish the tree. The builder cannot be used any more.
+         * </p>
+         *
+         * @return the tree
+         */
+        public OffHeapTupleTree build() {
+            checkNotFinished();
+            this.finished = true;
+            boolean success = false;
+            try {
+                writeLeaf(-1);
+                // Build internal levels from the first key of every page of
+                // the level below, until a single root page remains
+                List<byte[]> levelKeys = this.firstKeys;
+                List<Integer> levelPages = this.leafPages;
+                int height = 1;
+                while (levelPages.size() > 1) {
+                    final List<byte[]> parentKeys = new ArrayList<byte[]>();
+                    final List<Integer> parentPages = new ArrayList<Integer>();
+                    int start = 0;
+                    while (start < levelPages.size()) {
+                        int end = start;
+                        int bytes = PAGE_SLOTS;
+                        while (end < levelPages.size() &&
+                                bytes + 2 + 4 + 2 + levelKeys.get(end).length <= this.pages.pageSize) {
+                            bytes += 2 + 4 + 2 + levelKeys.get(end).length;
+                            end++;
+                        }
+                        parentKeys.add(levelKeys.get(start));
+                        parentPages.add(Integer.valueOf(writeInternal(levelKeys, levelPages, start, end)));
+                        start = end;
+                    }
+                    levelKeys = parentKeys;
+                    levelPages = parentPages;
+                    height++;
+                }
+                final int root = levelPages.get(0).intValue();
+
+                this.page.clear();
+                this.page.putInt(HEADER_MAGIC, MAGIC);
+                this.page.putInt(HEADER_VERSION, VERSION);
+                this.page.putInt(HEADER_PAGE_SIZE, this.pages.pageSize);
+                this.page.putInt(HEADER_ROOT, root);
+                this.page.putInt(HEADER_HEIGHT, height);
+                this.page.putInt(HEADER_PAGE_COUNT, this.pageCount);
+                this.page.putLong(HEADER_ENTRY_COUNT, this.entryCount);
+                writePage(0);
+
+                if (this.file != null) {
+                    this.file.getChannel().force(true);
+                    this.pages.map(this.file.getChannel(), this.pageCount, FileChannel.MapMode.READ_ONLY);
+                } else {
+                    this.pages.trim(this.pageCount);
+                }
+                final OffHeapTupleTree tree = new OffHeapTupleTree(this.pages, root, height, this.entryCount, this.file);
+                success = true;
+                return tree;
+            } catch (final IOException e) {
+                throw new TupleIOException("Could not write tuple tree", e);
+            } finally {
+                if (!success) {
+                    closeFileQuietly();
+                }
+            }
+        }
+
+
+        /**
+         * <p>
+         * Abort the builder if the tree has not been built, closing its file
+         * if it has one. The incomplete file is left as it is. Does nothing
+         * once the tree is built.
+         * </p>
+         *
+         * @throws IOException if the file cannot be closed
+         */
+        public void close() throws IOException {
+            if (this.finished) {
+                return;
+            }
+            this.finished = true;
+            if (this.file != null) {
+                this.file.close();
+            }
+        }
+
+
+        private void writeLeaf(final int nextLeaf) {
+            final int pageId = this.pageCount++;
+            clearPage(LEAF, this.pendingKeys.size());
+            this.page.putInt(PAGE_NEXT, nextLeaf);
+            int pos = PAGE_SLOTS + 2 * this.pendingKeys.size();
+            for (int i = 0; i < this.pendingKeys.size(); i++) {
+                final byte[] key = this.pendingKeys.get(i);
+                final byte[] value = this.pendingValues.get(i);
+                this.page.putChar(PAGE_SLOTS + 2 * i, (char) pos);
+                this.page.position(pos);
+                this.page.putChar((char) key.length);
+                this.page.put(key);
+                this.page.putInt(value.length);
+                this.page.put(value);
+                pos = this.page.position();
+            }
+            writePageOrFail(pageId);
+            if (this.pendingKeys.isEmpty()) {
+                this.firstKeys.add(new byte[0]);
+            } else {
+                this.firstKeys.add(this.pendingKeys.get(0));
+            }
+            this.leafPages.add(Integer.valueOf(pageId));
+            this.pendingKeys.clear();
+            this.pendingValues.clear();
+            this.pendingBytes = PAGE_SLOTS;
+        }
+
+
+        private int writeInternal(final List<byte[]> keys, final List<Integer> children,
+                final int start, final int end) {
+            final int pageId = this.pageCount++;
+            clearPage(INTERNAL, end - start);
+            this.page.putInt(PAGE_NEXT, -1);
+            int pos = PAGE_SLOTS + 2 * (end - start);
+            for (int i = start; i < end; i++) {
+                final byte[] key = keys.get(i);
+                this.page.putChar(PAGE_SLOTS + 2 * (i - start), (char) pos);
+                this.page.position(pos);
+                this.page.putInt(children.get(i).intValue());
+                this.page.putChar((char) key.length);
+                this.page.put(key);
+                pos = this.page.position();
+            }
+            writePageOrFail(pageId);
+            return pageId;
+        }
+
+
+        private void clearPage(final byte type, final int count) {
+            this.page.clear();
+            Arrays.fill(this.page.array(), (byte) 0);
+            this.page.put(PAGE_TYPE, type);
+            this.page.putChar(PAGE_COUNT, (char) count);
+        }
+
+
+        private void writePageOrFail(final int pageId) {
+            try {
+                writePage(pageId);
+            } catch (final IOException e) {
+                throw new TupleIOException("Could not write tuple tree page " + pageId, e);
+            }
+        }
+
+
+        private void writePage(final int pageId) throws IOException {
+            this.page.clear();
+            if (this.file == null) {
+                this.pages.ensureAllocated(pageId);
+                final ByteBuffer target = this.pages.buffer(pageId).duplicate();
+                target.position(this.pages.base(pageId));
+                target.put(this.page);
+            } else {
+                long pos = (long) pageId * this.pages.pageSize;
+                while (this.page.hasRemaining()) {
+                    pos += this.file.getChannel().write(this.page, pos);
+                }
+            }
+        }
+
+
+        private void closeFileQuietly() {
+            if (this.file != null) {
+                try {
+                    this.file.close();
+                } catch (final IOException e) {
+                    // Already failing: the original exception is more useful
+                }
+            }
+        }
+
+
+        private void checkNotFinished() {
+            if (this.finished) {
+                throw new IllegalStateException("Tree has already been built, or the builder has been closed");
+            }
+        }
+
+    }
+
+
+
+
+    /*
+     * Iterator over the entries of consecutive leaves, starting at the first
+     * key not less than "from", and stopping before "to" or at the first key
+     * not starting with "prefix".
+     */
+    private final class Scan implements Iterator<KeyValue<Tuple,byte[]>> {
+
+        private final byte[] to;
+        private final byte[] prefix;
+        private int leaf;
+        private int slot;
+        private KeyValue<Tuple,byte[]> next;
+
+
+        Scan(final byte[] from, final byte[] to, final byte[] prefix) {
+            super();
+            this.to = to;
+            this.prefix = prefix;
+            if (from == null) {
+                this.leaf = findLeaf(new byte[0]);
+                this.slot = 0;
+            } else {
+                this.leaf = findLeaf(from);
+                this.slot = searchSlot(
+                        OffHeapTupleTree.this.pages.buffer(this.leaf), OffHeapTupleTree.this.pages.base(this.leaf), from);
+            }
+            this.next = advance();
+        }
+
+
+        private KeyValue<Tuple,byte[]> advance() {
+            while (this.leaf >= 0) {
+                final ByteBuffer buffer = OffHeapTupleTree.this.pages.buffer(this.leaf);
+                final int base = OffHeapTupleTree.this.pages.base(this.leaf);
+                if (this.slot < count(buffer, base)) {
+                    final int entry = base + slotOffset(buffer, base, this.slot++);
+                    if (this.to != null && compareKey(buffer, entry, this.to) >= 0) {
+                        break;
+                    }
+                    if (this.prefix != null && !startsWith(buffer, entry, this.prefix)) {
+                        break;
+                    }
+                    return KeyValue.with(TupleKeyEncoding.decode(readKey(buffer, entry)), readValue(buffer, entry));
+                }
+                this.leaf = buffer.getInt(base + PAGE_NEXT);
+                this.slot = 0;
+            }
+            this.leaf = -1;
+            return null;
+        }
+
+
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+
+        public KeyValue<Tuple,byte[]> next() {
+            if (this.next == null) {
+                throw new NoSuchElementException();
+            }
+            final KeyValue<Tuple,byte[]> result = this.next;
+            this.next = advance();
+            return result;
+        }
+
+
+        public void remove() {
+            throw new UnsupportedOperationException("Tuple trees are read-only");
+        }
+
+    }
+
+
+
+
+    /*
+     * Pages, grouped in chunks of direct or mapped buffers (a single buffer
+     * cannot be larger than 2 GB).
+     */
+    private static final class Pages {
+
+        final int pageSize;
+        private final int pagesPerChunk;
+        private final List<ByteBuffer> chunks = new ArrayList<ByteBuffer>();
+
+
+        Pages(final int pageSize, final int chunkBytes) {
+            super();
+            this.pageSize = pageSize;
+            this.pagesPerChunk = Math.max(1, chunkBytes / pageSize);
+        }
+
+
+        ByteBuffer buffer(final int pageId) {
+            return this.chunks.get(pageId / this.pagesPerChunk);
+        }
+
+
+        int base(final int pageId) {
+            return (pageId % this.pagesPerChunk) * this.pageSize;
+        }
+
+
+        void ensureAllocated(final int pageId) {
+            while (this.chunks.size() <= pageId / this.pagesPerChunk) {
+                this.chunks.add(ByteBuffer.allocateDirect(this.pagesPerChunk * this.pageSize));
+            }
+        }
+
+
+        /*
+         * Replace the last chunk by a buffer with only the pages in use.
+         */
+        void trim(final int pageCount) {
+            final int lastChunk = this.chunks.size() - 1;
+            final int usedBytes = (pageCount - lastChunk * this.pagesPerChunk) * this.pageSize;
+            final ByteBuffer chunk = this.chunks.get(lastChunk);
+            if (usedBytes < chunk.capacity()) {
+                final ByteBuffer used = chunk.duplicate();
+                used.position(0);
+                used.limit(usedBytes);
+                final ByteBuffer trimmed = ByteBuffer.allocateDirect(usedBytes);
+                trimmed.put(used);
+                this.chunks.set(lastChunk, trimmed);
+            }
+        }
+
+
+        void map(final FileChannel channel, final int pageCount, final FileChannel.MapMode mode)
+                throws IOException {
+            this.chunks.clear();
+            for (int first = 0; first < pageCount; first += this.pagesPerChunk) {
+                final int chunkPages = Math.min(this.pagesPerChunk, pageCount - first);
+                this.chunks.add(channel.map(mode, (long) first * this.pageSize, (long) chunkPages * this.pageSize));
+            }
+        }
+
+    }
+
+
+
+
+    private static final class ByteKey implements Comparable<ByteKey> {
+
+        final byte[] bytes;
+
+
+        ByteKey(final byte[] bytes) {
+            super();
+            this.bytes = bytes;
+        }
+
+
+        public int compareTo(final ByteKey o) {
+            return TupleKeyEncoding.compare(this.bytes, o.bytes);
+        }
+
+    }
+
+}
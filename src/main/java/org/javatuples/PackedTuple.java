@@ -0,0 +1,579 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+
+/**
+ * <p>
+ * Bit-packed representation of tuples of small bounded values (booleans,
+ * enums, characters and integral numbers within a range).
+ * </p>
+ * <p>
+ * A <tt>PackedTuple</tt> is a layout: it is defined once with the type (and,
+ * for numbers, the range) of every position, and then used for packing
+ * tuples into primitive <tt>long</tt> values and unpacking them back:
+ * </p>
+ * <pre>
+ *     final PackedTuple layout =
+ *         PackedTuple.with(
+ *             PackedTuple.booleanField(), PackedTuple.enumField(Day.class),
+ *             PackedTuple.shortField(), PackedTuple.intField(0, 1000));
+ *     final long packed = layout.pack(Tuple4.with(Boolean.TRUE, Day.MONDAY, Short.valueOf(s), Integer.valueOf(i)));
+ *     final long i = layout.getLong(packed, 3);
+ * </pre>
+ * <p>
+ * Layouts of up to 64 bits pack tuples into a single <tt>long</tt>
+ * (see {@link #pack(Tuple)}). Layouts of up to 128 bits pack them into two
+ * (see {@link #packHigh(Tuple)} and {@link #packLow(Tuple)}). Accessing
+ * individual positions of a packed tuple never allocates.
+ * </p>
+ * <p>
+ * Packing preserves both equality and ordering: two tuples are equal if and
+ * only if their packed forms are equal, and {@link #compare(long, long)}
+ * orders packed forms exactly as {@link Tuple#compareTo(Tuple)} orders the
+ * tuples (position 0 is stored in the most significant bits, and every value
+ * is stored as its unsigned offset from the minimum of its range).
+ * </p>
+ * <p>
+ * <tt>null</tt> values cannot be packed.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class PackedTuple {
+
+    private static final int MAX_SIZE = 10;
+
+    private static final int BOOLEAN = 0;
+    private static final int ENUM = 1;
+    private static final int BYTE = 2;
+    private static final int SHORT = 3;
+    private static final int CHARACTER = 4;
+    private static final int INTEGER = 5;
+    private static final int LONG = 6;
+
+    private final Field[] fields;
+    private final int[] shifts;
+    private final int bits;
+
+
+
+    /**
+     * <p>
+     * Type and range of a position in a packed tuple.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public static final class Field {
+
+        private final int kind;
+        private final long min;
+        private final long max;
+        private final int bits;
+        private final Object[] constants;
+
+
+        Field(final int kind, final long min, final long max, final Object[] constants) {
+            super();
+            this.kind = kind;
+            this.min = min;
+            this.max = max;
+            this.bits = 64 - Long.numberOfLeadingZeros(max - min);
+            this.constants = constants;
+        }
+
+
+        public int getBits() {
+            return this.bits;
+        }
+
+
+        long toBits(final Object value, final int pos) {
+
+            if (value == null) {
+                throw new IllegalArgumentException("Cannot pack null value at position " + pos);
+            }
+
+            final long v;
+            switch (this.kind) {
+                case BOOLEAN:
+                    return ((Boolean) value).booleanValue() ? 1L : 0L;
+                case ENUM:
+                    if (!((Enum<?>) this.constants[0]).getDeclaringClass().isInstance(value)) {
+                        throw new IllegalArgumentException(
+                                "Value at position " + pos + " is not of the declared enum type: " + value);
+                    }
+                    return ((Enum<?>) value).ordinal();
+                case CHARACTER:
+                    return ((Character) value).charValue();
+                case BYTE:
+                    v = ((Byte) value).byteValue();
+                    break;
+                case SHORT:
+                    v = ((Short) value).shortValue();
+                    break;
+                case INTEGER:
+                    v = ((Integer) value).intValue();
+                    break;
+                default:
+                    v = ((Long) value).longValue();
+            }
+            return offset(v, pos);
+
+        }
+
+
+        long offset(final long value, final int pos) {
+            if (value < this.min || value > this.max) {
+                throw new IllegalArgumentException(
+                        "Value at position " + pos + " is out of the declared range [" +
+                        this.min + ", " + this.max + "]: " + value);
+            }
+            return value - this.min;
+        }
+
+
+        long toLong(final long fieldBits) {
+            return fieldBits + this.min;
+        }
+
+
+        Object toValue(final long fieldBits) {
+            switch (this.kind) {
+                case BOOLEAN:
+                    return Boolean.valueOf(fieldBits != 0L);
+                case ENUM:
+                    return this.constants[(int) fieldBits];
+                case CHARACTER:
+                    return Character.valueOf((char) fieldBits);
+                case BYTE:
+                    return Byte.valueOf((byte) (fieldBits + this.min));
+                case SHORT:
+                    return Short.valueOf((short) (fieldBits + this.min));
+                case INTEGER:
+                    return Integer.valueOf((int) (fieldBits + this.min));
+                default:
+                    return Long.valueOf(fieldBits + this.min);
+            }
+        }
+
+    }
+
+
+
+
+    public static Field booleanField() {
+        return new Field(BOOLEAN, 0L, 1L, null);
+    }
+
+
+    public static <E extends Enum<E>> Field enumField(final Class<E> enumClass) {
+        if (enumClass == null) {
+            throw new IllegalArgumentException("Enum class cannot be null");
+        }
+        final E[] constants = enumClass.getEnumConstants();
+        if (constants == null || constants.length == 0) {
+            throw new IllegalArgumentException("Class " + enumClass.getName() + " is not an enum with constants");
+        }
+        return new Field(ENUM, 0L, constants.length - 1, constants);
+    }
+
+
+    public static Field byteField() {
+        return new Field(BYTE, Byte.MIN_VALUE, Byte.MAX_VALUE, null);
+    }
+
+
+    public static Field byteField(final byte min, final byte max) {
+        checkRange(min, max);
+        return new Field(BYTE, min, max, null);
+    }
+
+
+    public static Field shortField() {
+        return new Field(SHORT, Short.MIN_VALUE, Short.MAX_VALUE, null);
+    }
+
+
+    public static Field shortField(final short min, final short max) {
+        checkRange(min, max);
+        return new Field(SHORT, min, max, null);
+    }
+
+
+    public static Field charField() {
+        return new Field(CHARACTER, Character.MIN_VALUE, Character.MAX_VALUE, null);
+    }
+
+
+    public static Field intField(final int min, final int max) {
+        checkRange(min, max);
+        return new Field(INTEGER, min, max, null);
+    }
+
+
+    public static Field longField(final long min, final long max) {
+        checkRange(min, max);
+        return new Field(LONG, min, max, null);
+    }
+
+
+    private static void checkRange(final long min, final long max) {
+        if (min > max) {
+            throw new IllegalArgumentException("Invalid range: minimum " + min + " is greater than maximum " + max);
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     * Create a layout. The total number of bits of all fields cannot be
+     * greater than 128.
+     * </p>
+     *
+     * @param fields the fields, one per position
+     * @return the layout
+     */
+    public static PackedTuple with(final Field... fields) {
+        return new PackedTuple(fields);
+    }
+
+
+    private PackedTuple(final Field[] fields) {
+
+        super();
+
+        if (fields == null || fields.length == 0 || fields.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Packed tuples must have between 1 and " + MAX_SIZE + " fields");
+        }
+
+        int totalBits = 0;
+        for (final Field field : fields) {
+            if (field == null) {
+                throw new IllegalArgumentException("Fields cannot be null");
+            }
+            totalBits += field.bits;
+        }
+        if (totalBits > 128) {
+            throw new IllegalArgumentException("Packed tuples cannot have more than 128 bits. Has " + totalBits);
+        }
+
+        this.fields = fields.clone();
+        this.bits = totalBits;
+        this.shifts = new int[fields.length];
+        int remaining = totalBits;
+        for (int i = 0; i < fields.length; i++) {
+            remaining -= fields[i].bits;
+            this.shifts[i] = remaining;
+        }
+
+    }
+
+
+
+    public int getSize() {
+        return this.fields.length;
+    }
+
+
+    /**
+     * <p>
+     * Return the total number of bits of a packed tuple.
+     * </p>
+     *
+     * @return the number of bits
+     */
+    public int getBits() {
+        return this.bits;
+    }
+
+
+    /**
+     * <p>
+     * Return whether tuples fit in a single <tt>long</tt> with this layout.
+     * </p>
+     *
+     * @return <tt>true</tt> if the layout has 64 bits or less
+     */
+    public boolean isSingleLong() {
+        return this.bits <= 64;
+    }
+
+
+
+
+    /**
+     * <p>
+     * Pack a tuple into a single <tt>long</tt>. Only valid for layouts of 64
+     * bits or less.
+     * </p>
+     *
+     * @param tuple the tuple to be packed
+     * @return the packed tuple
+     */
+    public long pack(final Tuple tuple) {
+        checkSingleLong();
+        return packLow(tuple);
+    }
+
+
+    /**
+     * <p>
+     * Return the high 64 bits of a packed tuple.
+     * </p>
+     *
+     * @param tuple the tuple to be packed
+     * @return the high bits (always <tt>0</tt> for layouts of 64 bits or less)
+     */
+    public long packHigh(final Tuple tuple) {
+        checkTuple(tuple);
+        long high = 0L;
+        for (int i = 0; i < this.fields.length; i++) {
+            final int shift = this.shifts[i];
+            final int width = this.fields[i].bits;
+            if (shift + width <= 64) {
+                continue;
+            }
+            final long fieldBits = this.fields[i].toBits(tuple.getValue(i), i);
+            high |= (shift >= 64) ? (fieldBits << (shift - 64)) : (fieldBits >>> (64 - shift));
+        }
+        return high;
+    }
+
+
+    /**
+     * <p>
+     * Return the low 64 bits of a packed tuple.
+     * </p>
+     *
+     * @param tuple the tuple to be packed
+     * @return the low bits
+     */
+    public long packLow(final Tuple tuple) {
+        checkTuple(tuple);
+        long low = 0L;
+        for (int i = 0; i < this.fields.length; i++) {
+            final int shift = this.shifts[i];
+            if (shift >= 64) {
+                continue;
+            }
+            low |= this.fields[i].toBits(tuple.getValue(i), i) << shift;
+        }
+        return low;
+    }
+
+
+
+
+    /**
+     * <p>
+     * Unpack a tuple packed into a single <tt>long</tt>.
+     * </p>
+     *
+     * @param packed the packed tuple
+     * @return the tuple
+     */
+    public Tuple unpack(final long packed) {
+        checkSingleLong();
+        return unpack(0L, packed);
+    }
+
+
+    /**
+     * <p>
+     * Unpack a tuple packed into two <tt>long</tt> values.
+     * </p>
+     *
+     * @param high the high bits of the packed tuple
+     * @param low the low bits of the packed tuple
+     * @return the tuple
+     */
+    public Tuple unpack(final long high, final long low) {
+        final Object[] values = new Object[this.fields.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = this.fields[i].toValue(fieldBits(high, low, i));
+        }
+        return TupleFactory.adopt(values);
+    }
+
+
+    /**
+     * <p>
+     * Return the value at a position of a tuple packed into a single
+     * <tt>long</tt>, as a number: <tt>0</tt> or <tt>1</tt> for booleans, the
+     * ordinal for enums, the character code for characters.
+     * </p>
+     *
+     * @param packed the packed tuple
+     * @param pos the position
+     * @return the value
+     */
+    public long getLong(final long packed, final int pos) {
+        return getLong(0L, packed, pos);
+    }
+
+
+    /**
+     * <p>
+     * Return the value at a position of a tuple packed into two <tt>long</tt>
+     * values, as a number. See {@link #getLong(long, int)}.
+     * </p>
+     *
+     * @param high the high bits of the packed tuple
+     * @param low the low bits of the packed tuple
+     * @param pos the position
+     * @return the value
+     */
+    public long getLong(final long high, final long low, final int pos) {
+        checkPosition(pos);
+        return this.fields[pos].toLong(fieldBits(high, low, pos));
+    }
+
+
+    /**
+     * <p>
+     * Return the value at a position of a tuple packed into a single
+     * <tt>long</tt>, as an object of the type of the field.
+     * </p>
+     *
+     * @param packed the packed tuple
+     * @param pos the position
+     * @return the value
+     */
+    public Object getValue(final long packed, final int pos) {
+        checkPosition(pos);
+        return this.fields[pos].toValue(fieldBits(0L, packed, pos));
+    }
+
+
+    /**
+     * <p>
+     * Return a copy of a tuple packed into a single <tt>long</tt>, with the
+     * value at the specified position replaced. The value is specified as a
+     * number, as returned by {@link #getLong(long, int)}.
+     * </p>
+     *
+     * @param packed the packed tuple
+     * @param pos the position
+     * @param value the new value
+     * @return the new packed tuple
+     */
+    public long setLong(final long packed, final int pos, final long value) {
+        checkSingleLong();
+        checkPosition(pos);
+        final Field field = this.fields[pos];
+        final long fieldBits = field.offset(value, pos);
+        final long mask = mask(field.bits) << this.shifts[pos];
+        return (packed & ~mask) | (fieldBits << this.shifts[pos]);
+    }
+
+
+
+
+    /**
+     * <p>
+     * Compare two tuples packed into single <tt>long</tt> values, with the same
+     * result the comparison of the unpacked tuples would have.
+     * </p>
+     *
+     * @param packed1 the first packed tuple
+     * @param packed2 the second packed tuple
+     * @return a negative number, zero or a positive number
+     */
+    public static int compare(final long packed1, final long packed2) {
+        // Unsigned comparison
+        final long v1 = packed1 ^ Long.MIN_VALUE;
+        final long v2 = packed2 ^ Long.MIN_VALUE;
+        return (v1 < v2) ? -1 : ((v1 == v2) ? 0 : 1);
+    }
+
+
+    /**
+     * <p>
+     * Compare two tuples packed into two <tt>long</tt> values each.
+     * See {@link #compare(long, long)}.
+     * </p>
+     *
+     * @param high1 the high bits of the first packed tuple
+     * @param low1 the low bits of the first packed tuple
+     * @param high2 the high bits of the second packed tuple
+     * @param low2 the low bits of the second packed tuple
+     * @return a negative number, zero or a positive number
+     */
+    public static int compare(final long high1, final long low1, final long high2, final long low2) {
+        final int comparison = compare(high1, high2);
+        return (comparison != 0) ? comparison : compare(low1, low2);
+    }
+
+
+
+
+    private long fieldBits(final long high, final long low, final int pos) {
+        final int shift = this.shifts[pos];
+        final int width = this.fields[pos].bits;
+        final long raw;
+        if (shift >= 64) {
+            raw = high >>> (shift - 64);
+        } else if (shift + width <= 64) {
+            raw = low >>> shift;
+        } else {
+            // Field spans both longs
+            raw = (low >>> shift) | (high << (64 - shift));
+        }
+        return raw & mask(width);
+    }
+
+
+    private static long mask(final int width) {
+        return (width >= 64) ? -1L : ((1L << width) - 1L);
+    }
+
+
+    private void checkTuple(final Tuple tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        if (tuple.getSize() != this.fields.length) {
+            throw new IllegalArgumentException(
+                    "Cannot pack a tuple of size " + tuple.getSize() + " with a layout of size " + this.fields.length);
+        }
+    }
+
+
+    private void checkPosition(final int pos) {
+        if (pos < 0 || pos >= this.fields.length) {
+            throw new IllegalArgumentException(
+                    "Cannot retrieve position " + pos + " in a packed tuple of size " + this.fields.length);
+        }
+    }
+
+
+    private void checkSingleLong() {
+        if (this.bits > 64) {
+            throw new IllegalStateException(
+                    "Layout has " + this.bits + " bits and does not fit in a single long: use the high/low methods");
+        }
+    }
+
+}
@@ -0,0 +1,301 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>
+ * Hash map with tuples as keys, stored in their packed form
+ * (see {@link PackedTuple}). Keys are kept in a primitive <tt>long[]</tt>
+ * open-addressing table, so neither the key tuples nor any entry objects are
+ * retained, and operations on packed keys never allocate.
+ * </p>
+ * <p>
+ * Only layouts of 64 bits or less are supported. This class is not
+ * thread-safe.
+ * </p>
+ *
+ * @param <V> the type of the values
+ *
+ * @since 1.3
+ *
+ */
+public final class PackedTupleMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private final PackedTuple layout;
+
+    private long[] keys;
+    private boolean[] used;
+    private Object[] values;
+    private int size;
+
+
+
+    public PackedTupleMap(final PackedTuple layout) {
+        this(layout, DEFAULT_CAPACITY);
+    }
+
+
+    public PackedTupleMap(final PackedTuple layout, final int expectedSize) {
+        super();
+        if (layout == null) {
+            throw new IllegalArgumentException("Layout cannot be null");
+        }
+        if (!layout.isSingleLong()) {
+            throw new IllegalArgumentException(
+                    "Layout has " + layout.getBits() + " bits: only layouts of 64 bits or less are supported");
+        }
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative");
+        }
+        this.layout = layout;
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expectedSize * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+
+
+    public PackedTuple getLayout() {
+        return this.layout;
+    }
+
+
+    public int size() {
+        return this.size;
+    }
+
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+
+
+
+    public V get(final Tuple key) {
+        return get(this.layout.pack(key));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V get(final long packedKey) {
+        final int slot = find(packedKey);
+        return (slot < 0) ? null : (V) this.values[slot];
+    }
+
+
+    public boolean containsKey(final Tuple key) {
+        return containsKey(this.layout.pack(key));
+    }
+
+
+    public boolean containsKey(final long packedKey) {
+        return find(packedKey) >= 0;
+    }
+
+
+    public V put(final Tuple key, final V value) {
+        return put(this.layout.pack(key), value);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V put(final long packedKey, final V value) {
+        final int mask = this.keys.length - 1;
+        int slot = PackedTupleMap.hash(packedKey) & mask;
+        while (this.used[slot]) {
+            if (this.keys[slot] == packedKey) {
+                final V previous = (V) this.values[slot];
+                this.values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        this.used[slot] = true;
+        this.keys[slot] = packedKey;
+        this.values[slot] = value;
+        this.size++;
+        if (this.size * 2 > this.keys.length) {
+            rehash(this.keys.length << 1);
+        }
+        return null;
+    }
+
+
+    public V remove(final Tuple key) {
+        return remove(this.layout.pack(key));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public V remove(final long packedKey) {
+
+        int slot = find(packedKey);
+        if (slot < 0) {
+            return null;
+        }
+        final V previous = (V) this.values[slot];
+
+        // Backward-shift deletion: move later entries of the same probe
+        // sequence into the freed slot, so that no tombstones are needed
+        final int mask = this.keys.length - 1;
+        int next = (slot + 1) & mask;
+        while (this.used[next]) {
+            final int home = PackedTupleMap.hash(this.keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                this.keys[slot] = this.keys[next];
+                this.values[slot] = this.values[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.used[slot] = false;
+        this.values[slot] = null;
+        this.size--;
+        return previous;
+
+    }
+
+
+    public void clear() {
+        for (int i = 0; i < this.keys.length; i++) {
+            this.used[i] = false;
+            this.values[i] = null;
+        }
+        this.size = 0;
+    }
+
+
+
+
+    /**
+     * <p>
+     * Return the packed keys in this map, in no particular order.
+     * </p>
+     *
+     * @return a new array with the packed keys
+     */
+    public long[] packedKeys() {
+        final long[] result = new long[this.size];
+        int count = 0;
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.used[i]) {
+                result[count++] = this.keys[i];
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Return the keys in this map, unpacked, in no particular order.
+     * </p>
+     *
+     * @return a new list with the keys
+     */
+    public List<Tuple> keys() {
+        final List<Tuple> result = new ArrayList<Tuple>(this.size);
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.used[i]) {
+                result.add(this.layout.unpack(this.keys[i]));
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Return the values in this map, in the same order as the keys returned
+     * by {@link #packedKeys()} and {@link #keys()}.
+     * </p>
+     *
+     * @return a new list with the values
+     */
+    @SuppressWarnings("unchecked")
+    public List<V> values() {
+        final List<V> result = new ArrayList<V>(this.size);
+        for (int i = 0; i < this.keys.length; i++) {
+            if (this.used[i]) {
+                result.add((V) this.values[i]);
+            }
+        }
+        return result;
+    }
+
+
+
+
+    private int find(final long packedKey) {
+        final int mask = this.keys.length - 1;
+        int slot = PackedTupleMap.hash(packedKey) & mask;
+        while (this.used[slot]) {
+            if (this.keys[slot] == packedKey) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    private void rehash(final int capacity) {
+        final long[] oldKeys = this.keys;
+        final boolean[] oldUsed = this.used;
+        final Object[] oldValues = this.values;
+        allocate(capacity);
+        final int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = PackedTupleMap.hash(oldKeys[i]) & mask;
+                while (this.used[slot]) {
+                    slot = (slot + 1) & mask;
+                }
+                this.used[slot] = true;
+                this.keys[slot] = oldKeys[i];
+                this.values[slot] = oldValues[i];
+            }
+        }
+    }
+
+
+    private void allocate(final int capacity) {
+        this.keys = new long[capacity];
+        this.used = new boolean[capacity];
+        this.values = new Object[capacity];
+    }
+
+
+    private static int hash(final long key) {
+        // Packed keys often differ only in a few low or high bits: mix them all
+        final long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/**
+ * <p>
+ * Internal helpers for the operations that can split their work into
+ * partitions and run them on a caller-supplied {@link ExecutorService}.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+final class ParallelTasks {
+
+
+
+    /**
+     * <p>
+     * Compute the boundaries of <tt>partitions</tt> contiguous ranges
+     * covering <tt>[0, size)</tt>. The returned array has one more element
+     * than the effective number of partitions, which is never greater than
+     * <tt>size</tt> (and never less than one).
+     * </p>
+     *
+     * @param size the number of elements to be partitioned
+     * @param partitions the desired number of partitions
+     * @return the partition boundaries
+     */
+    static int[] bounds(final int size, final int partitions) {
+        if (partitions <= 0) {
+            throw new IllegalArgumentException("Number of partitions must be positive. Is " + partitions);
+        }
+        final int count = Math.max(1, Math.min(partitions, size));
+        final int[] bounds = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            bounds[i] = (int) (((long) size * i) / count);
+        }
+        return bounds;
+    }
+
+
+
+    /**
+     * <p>
+     * Submit all tasks to the executor and wait for their results, which are
+     * returned in the same order as the tasks. Runtime exceptions and errors
+     * thrown by a task are rethrown in the calling thread.
+     * </p>
+     *
+     * @param executor the executor the tasks will be submitted to
+     * @param tasks the tasks to be executed
+     * @return the task results
+     */
+    static <R> List<R> invokeAll(final ExecutorService executor, final List<? extends Callable<R>> tasks) {
+
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+
+        final List<Future<R>> futures = new ArrayList<Future<R>>(tasks.size());
+        try {
+
+            for (final Callable<R> task : tasks) {
+                futures.add(executor.submit(task));
+            }
+
+            final List<R> results = new ArrayList<R>(tasks.size());
+            for (final Future<R> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for parallel tuple tasks", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Parallel tuple task failed", cause);
+        } finally {
+            for (final Future<R> future : futures) {
+                future.cancel(true);
+            }
+        }
+
+    }
+
+
+
+    private ParallelTasks() {
+        super();
+    }
+
+}
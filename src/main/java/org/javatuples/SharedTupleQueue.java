@@ -0,0 +1,657 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+
+
+/**
+ * <p>
+ * Bounded queue of tuples in a memory-mapped file, for exchanging tuples
+ * between processes on the same host without sockets. One process creates
+ * the queue file with {@link #create(File, int, int, WaitStrategy)}, and
+ * the other one attaches to it with {@link #attach(File, WaitStrategy)}.
+ * Using a file in a memory file system (see {@link #getDefaultDirectory()})
+ * keeps the queue out of the disk entirely. On Java 6 and later, the file
+ * is made readable and writable by its owner only, so all the processes
+ * must run as the same user. On Java 5, it keeps the permissions given by
+ * the umask of the creating process, which should be <tt>077</tt>.
+ * </p>
+ * <p>
+ * Tuples are written in fixed-size slots of a ring, with
+ * {@link TupleCodec}, and the producer and consumer sequences are kept in
+ * separate cache lines of the file header. A tuple is published by writing
+ * its slot and then advancing the producer sequence, and a slot is released
+ * by advancing the consumer sequence once read, so in the common case
+ * neither side takes any lock or makes any system call.
+ * </p>
+ * <p>
+ * There can be one consuming process, and one producing process, each of
+ * them with any number of threads (calls are serialized within a process).
+ * Several producing processes can share a queue if all of them, including
+ * the creating one if it produces, set <tt>multiProcessProducers</tt>, at
+ * the cost of taking a file lock for every tuple. File locks are held on
+ * behalf of the whole JVM, so every process must use a single queue object
+ * for producing.
+ * </p>
+ * <p>
+ * Every access to a sequence is separated from the accesses to the slots by
+ * a full fence, made of a volatile store and a volatile load of a field of
+ * the queue, so that a slot is written before the producer sequence which
+ * publishes it, and read before the consumer sequence which releases it.
+ * The Java memory model does not cover mapped memory, but the JVM
+ * implements these fences with processor barriers, which do. The sequences
+ * are 8-byte aligned, so reading and writing them is atomic on 64-bit
+ * JVMs. Tuples cannot contain values which need Java serialization, and
+ * these are rejected when read as well as when written.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class SharedTupleQueue implements Closeable {
+
+    private static final int MAGIC = 0x54555351;
+    private static final int VERSION = 1;
+
+    // Header: sequences in separate cache lines, to avoid false sharing
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_SLOT_COUNT = 8;
+    private static final int HEADER_SLOT_SIZE = 12;
+    private static final int HEADER_TAIL = 64;
+    private static final int HEADER_HEAD = 128;
+    private static final int HEADER_BYTES = 192;
+    private static final int SLOT_LENGTH_BYTES = 4;
+
+    // Fence of create and attach, which run once per queue
+    private static final Fence HEADER_FENCE = new Fence();
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final int slotSize;
+    private final WaitStrategy waitStrategy;
+    private final boolean multiProcessProducers;
+
+    // Guarded by producerLock
+    private final Object producerLock = new Object();
+    private long cachedHead = 0L;
+    private final Fence producerFence = new Fence();
+    private final SlotOutputStream slotOut;
+    private final DataOutputStream dataOut;
+
+    // Guarded by consumerLock
+    private final Object consumerLock = new Object();
+    private long cachedTail = 0L;
+    private final Fence consumerFence = new Fence();
+    private final SlotInputStream slotIn;
+    private final DataInputStream dataIn;
+
+
+
+    /**
+     * <p>
+     * Return the directory of a memory file system (<tt>/dev/shm</tt>) if
+     * there is one, or the temporary directory otherwise.
+     * </p>
+     *
+     * @return the directory
+     */
+    public static File getDefaultDirectory() {
+        final File shm = new File("/dev/shm");
+        if (shm.isDirectory() && shm.canWrite()) {
+            return shm;
+        }
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+
+
+    public static SharedTupleQueue create(
+            final File file, final int slotCount, final int slotSize, final WaitStrategy waitStrategy)
+            throws IOException {
+        return create(file, slotCount, slotSize, waitStrategy, false);
+    }
+
+
+    /**
+     * <p>
+     * Create a queue file, replacing any existing one, and map it. The
+     * existing file is deleted, and the new one is created exclusively and
+     * made readable and writable by its owner only, on Java 6 and later.
+     * Until then, and always on Java 5, it has the permissions given by the
+     * umask of the process, so the umask should be <tt>077</tt>, and the
+     * file should be created in a directory which other users cannot write
+     * to, or in a sticky one like <tt>/dev/shm</tt>, where they cannot
+     * replace it.
+     * </p>
+     *
+     * @param file the file
+     * @param slotCount the capacity of the queue, in tuples
+     * @param slotSize the maximum size of an encoded tuple, in bytes
+     * @param waitStrategy the wait strategy of blocking calls
+     * @param multiProcessProducers whether other processes produce to the
+     *        queue too (all of them must set it)
+     * @return the queue
+     * @throws IOException if the file cannot be created
+     */
+    public static SharedTupleQueue create(
+            final File file, final int slotCount, final int slotSize, final WaitStrategy waitStrategy,
+            final boolean multiProcessProducers)
+            throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        if (slotCount <= 0) {
+            throw new IllegalArgumentException("Slot count must be positive. Is " + slotCount);
+        }
+        if (slotSize <= SLOT_LENGTH_BYTES) {
+            throw new IllegalArgumentException("Slot size must be greater than " + SLOT_LENGTH_BYTES + ". Is " + slotSize);
+        }
+        final long length = HEADER_BYTES + (long) slotCount * slotSize;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Queue cannot be larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete existing file: " + file);
+        }
+        if (!file.createNewFile()) {
+            throw new IOException("File has been created by someone else meanwhile: " + file);
+        }
+        restrictToOwner(file);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, length);
+            buffer.putInt(HEADER_SLOT_COUNT, slotCount);
+            buffer.putInt(HEADER_SLOT_SIZE, slotSize);
+            buffer.putInt(HEADER_VERSION, VERSION);
+            // Written last, after a fence: attaching processes check it
+            HEADER_FENCE.full();
+            buffer.putInt(HEADER_MAGIC, MAGIC);
+            return new SharedTupleQueue(raf, buffer, waitStrategy, multiProcessProducers);
+        } catch (final IOException e) {
+            raf.close();
+            throw e;
+        } catch (final RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+
+    public static SharedTupleQueue attach(final File file, final WaitStrategy waitStrategy) throws IOException {
+        return attach(file, waitStrategy, false);
+    }
+
+
+    /**
+     * <p>
+     * Attach to an existing queue file.
+     * </p>
+     *
+     * @param file the file
+     * @param waitStrategy the wait strategy of blocking calls
+     * @param multiProcessProducers whether other processes produce to the
+     *        queue too (all of them must set it)
+     * @return the queue
+     * @throws IOException if the file cannot be mapped or is not a queue
+     */
+    public static SharedTupleQueue attach(
+            final File file, final WaitStrategy waitStrategy, final boolean multiProcessProducers)
+            throws IOException {
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
+        }
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, raf.length());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(HEADER_MAGIC) != MAGIC) {
+                throw new IOException("Not a tuple queue file: " + file);
+            }
+            // The rest of the header is read after the magic
+            HEADER_FENCE.full();
+            if (buffer.getInt(HEADER_VERSION) != VERSION) {
+                throw new IOException("Unsupported tuple queue version: " + buffer.getInt(HEADER_VERSION));
+            }
+            return new SharedTupleQueue(raf, buffer, waitStrategy, multiProcessProducers);
+        } catch (final IOException e) {
+            raf.close();
+            throw e;
+        } catch (final RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+
+
+    private SharedTupleQueue(final RandomAccessFile file, final MappedByteBuffer buffer,
+            final WaitStrategy waitStrategy, final boolean multiProcessProducers) {
+        super();
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Wait strategy cannot be null");
+        }
+        this.file = file;
+        this.buffer = buffer;
+        this.slotCount = buffer.getInt(HEADER_SLOT_COUNT);
+        this.slotSize = buffer.getInt(HEADER_SLOT_SIZE);
+        this.waitStrategy = waitStrategy;
+        this.multiProcessProducers = multiProcessProducers;
+        this.slotOut = new SlotOutputStream(buffer);
+        this.dataOut = new DataOutputStream(this.slotOut);
+        this.slotIn = new SlotInputStream(buffer);
+        this.dataIn = new DataInputStream(this.slotIn);
+    }
+
+
+
+    public int getCapacity() {
+        return this.slotCount;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of tuples in the queue. The result can be outdated
+     * as soon as it is returned.
+     * </p>
+     *
+     * @return the number of tuples
+     */
+    public int size() {
+        final long head = getSequence(HEADER_HEAD);
+        final long tail = getSequence(HEADER_TAIL);
+        return (int) Math.max(0L, Math.min(this.slotCount, tail - head));
+    }
+
+
+    /**
+     * <p>
+     * Add a tuple if the queue has room for it.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return <tt>true</tt> if the tuple was added, <tt>false</tt> if the
+     *         queue was full
+     */
+    public boolean offer(final Tuple tuple) {
+        return produce(tuple, false);
+    }
+
+
+    /**
+     * <p>
+     * Add a tuple, waiting for room if the queue is full.
+     * </p>
+     *
+     * @param tuple the tuple
+     */
+    public void put(final Tuple tuple) {
+        produce(tuple, true);
+    }
+
+
+    /**
+     * <p>
+     * Remove the first tuple of the queue, if there is one.
+     * </p>
+     *
+     * @return the tuple, or <tt>null</tt> if the queue was empty
+     */
+    public Tuple poll() {
+        return consume(false);
+    }
+
+
+    /**
+     * <p>
+     * Remove the first tuple of the queue, waiting for one if the queue is
+     * empty.
+     * </p>
+     *
+     * @return the tuple
+     */
+    public Tuple take() {
+        return consume(true);
+    }
+
+
+    /**
+     * <p>
+     * Unmap the queue (when the mapping is garbage collected) and close its
+     * file. The file is not deleted.
+     * </p>
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        this.file.close();
+    }
+
+
+
+    private boolean produce(final Tuple tuple, final boolean wait) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        synchronized (this.producerLock) {
+            FileLock fileLock = null;
+            try {
+                if (this.multiProcessProducers) {
+                    fileLock = this.file.getChannel().lock(HEADER_TAIL, 8L, false);
+                }
+                final long tail = getSequence(HEADER_TAIL);
+                int attempt = 0;
+                while (tail - this.cachedHead >= this.slotCount) {
+                    this.cachedHead = getSequence(HEADER_HEAD);
+                    if (tail - this.cachedHead < this.slotCount) {
+                        // The consumer has finished reading the slot
+                        this.producerFence.full();
+                        break;
+                    }
+                    if (!wait) {
+                        return false;
+                    }
+                    this.waitStrategy.idle(attempt++);
+                }
+
+                final int slot = slotOffset(tail);
+                this.slotOut.reset(slot + SLOT_LENGTH_BYTES, this.slotSize - SLOT_LENGTH_BYTES);
+                try {
+                    TupleCodec.write(this.dataOut, tuple, false);
+                    this.dataOut.flush();
+                } catch (final SlotOverflowException e) {
+                    throw new IllegalArgumentException(
+                            "Encoded tuple is larger than the slot size (" + this.slotSize + " bytes)");
+                }
+                this.buffer.putInt(slot, this.slotOut.getWritten());
+
+                // The slot is written before the tail is advanced
+                this.producerFence.full();
+                putSequence(HEADER_TAIL, tail + 1);
+                return true;
+            } catch (final IOException e) {
+                throw new TupleIOException("Could not write to tuple queue", e);
+            } finally {
+                if (fileLock != null) {
+                    try {
+                        fileLock.release();
+                    } catch (final IOException e) {
+                        throw new TupleIOException("Could not release tuple queue lock", e);
+                    }
+                }
+            }
+        }
+    }
+
+
+    private Tuple consume(final boolean wait) {
+        synchronized (this.consumerLock) {
+            final long head = getSequence(HEADER_HEAD);
+            int attempt = 0;
+            while (head >= this.cachedTail) {
+                this.cachedTail = getSequence(HEADER_TAIL);
+                if (head < this.cachedTail) {
+                    // The slot is read after the tail which published it
+                    this.consumerFence.full();
+                    break;
+                }
+                if (!wait) {
+                    return null;
+                }
+                this.waitStrategy.idle(attempt++);
+            }
+
+            final int slot = slotOffset(head);
+            this.slotIn.reset(slot + SLOT_LENGTH_BYTES, this.buffer.getInt(slot));
+            final Tuple tuple;
+            try {
+                // Never deserializes Java objects written by other processes
+                tuple = TupleCodec.read(this.dataIn);
+            } catch (final IOException e) {
+                throw new TupleIOException("Could not read from tuple queue", e);
+            }
+
+            // The slot is read before it is handed back
+            this.consumerFence.full();
+            putSequence(HEADER_HEAD, head + 1);
+            return tuple;
+        }
+    }
+
+
+    private long getSequence(final int offset) {
+        return this.buffer.getLong(offset);
+    }
+
+
+    private void putSequence(final int offset, final long sequence) {
+        this.buffer.putLong(offset, sequence);
+    }
+
+
+    private static void restrictToOwner(final File file) throws IOException {
+        // File.setReadable, setWritable and setExecutable were added in
+        // Java 6: on Java 5, the file keeps the permissions of the umask
+        final Method setReadable;
+        final Method setWritable;
+        final Method setExecutable;
+        try {
+            setReadable = File.class.getMethod("setReadable", Boolean.TYPE, Boolean.TYPE);
+            setWritable = File.class.getMethod("setWritable", Boolean.TYPE, Boolean.TYPE);
+            setExecutable = File.class.getMethod("setExecutable", Boolean.TYPE, Boolean.TYPE);
+        } catch (final NoSuchMethodException e) {
+            return;
+        }
+        // Every call is made, even if a previous one failed
+        final boolean restricted =
+                setPermission(file, setReadable, false, false) & setPermission(file, setWritable, false, false) &
+                setPermission(file, setExecutable, false, false) &
+                setPermission(file, setReadable, true, true) & setPermission(file, setWritable, true, true);
+        // File systems without permissions, e.g. on Windows, have nothing to
+        // restrict
+        if (!restricted && File.separatorChar == '/') {
+            throw new IOException("Could not make file accessible to its owner only: " + file);
+        }
+    }
+
+
+    private static boolean setPermission(final File file, final Method setter,
+            final boolean permitted, final boolean ownerOnly) throws IOException {
+        try {
+            return ((Boolean) setter.invoke(file, Boolean.valueOf(permitted), Boolean.valueOf(ownerOnly))).booleanValue();
+        } catch (final Exception e) {
+            final IOException exception = new IOException("Could not set permissions of file: " + file);
+            exception.initCause(e);
+            throw exception;
+        }
+    }
+
+
+    private int slotOffset(final long sequence) {
+        return HEADER_BYTES + (int) (sequence % this.slotCount) * this.slotSize;
+    }
+
+
+
+
+    /*
+     * Full fence: no memory access is moved across a volatile store followed
+     * by a volatile load. Padded so that the fences of the producer and of
+     * the consumer are in separate cache lines.
+     */
+    private static final class Fence {
+
+        private volatile int value;
+        @SuppressWarnings("unused")
+        private long p1, p2, p3, p4, p5, p6, p7;
+
+
+        Fence() {
+            super();
+        }
+
+
+        void full() {
+            // Earlier accesses stay before the store, later ones after the
+            // load, and the store stays before the load
+            this.value = 1;
+            @SuppressWarnings("unused")
+            final int value = this.value;
+        }
+
+    }
+
+
+
+
+    private static final class SlotOverflowException extends IOException {
+
+        private static final long serialVersionUID = 6028381374561907402L;
+
+        SlotOverflowException() {
+            super("Slot overflow");
+        }
+
+    }
+
+
+
+
+    /*
+     * Stream writing directly into a slot of the mapped buffer.
+     */
+    private static final class SlotOutputStream extends OutputStream {
+
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int start;
+        private int end;
+
+
+        SlotOutputStream(final MappedByteBuffer buffer) {
+            super();
+            this.buffer = buffer;
+        }
+
+
+        void reset(final int offset, final int capacity) {
+            this.position = offset;
+            this.start = offset;
+            this.end = offset + capacity;
+        }
+
+
+        int getWritten() {
+            return this.position - this.start;
+        }
+
+
+        @Override
+        public void write(final int b) throws IOException {
+            if (this.position >= this.end) {
+                throw new SlotOverflowException();
+            }
+            this.buffer.put(this.position++, (byte) b);
+        }
+
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+            if (this.position + len > this.end) {
+                throw new SlotOverflowException();
+            }
+            for (int i = 0; i < len; i++) {
+                this.buffer.put(this.position++, b[off + i]);
+            }
+        }
+
+    }
+
+
+
+
+    /*
+     * Stream reading directly from a slot of the mapped buffer.
+     */
+    private static final class SlotInputStream extends InputStream {
+
+        private final MappedByteBuffer buffer;
+        private int position;
+        private int end;
+
+
+        SlotInputStream(final MappedByteBuffer buffer) {
+            super();
+            this.buffer = buffer;
+        }
+
+
+        void reset(final int offset, final int length) {
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+
+        @Override
+        public int read() {
+            if (this.position >= this.end) {
+                return -1;
+            }
+            return this.buffer.get(this.position++) & 0xFF;
+        }
+
+
+        @Override
+        public int read(final byte[] b, final int off, final int len) {
+            if (len == 0) {
+                return 0;
+            }
+            final int count = Math.min(len, this.end - this.position);
+            if (count <= 0) {
+                return -1;
+            }
+            for (int i = 0; i < count; i++) {
+                b[off + i] = this.buffer.get(this.position++);
+            }
+            return count;
+        }
+
+
+        @Override
+        public int available() {
+            return this.end - this.position;
+        }
+
+    }
+
+}
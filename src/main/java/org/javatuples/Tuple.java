@@ -19,13 +19,20 @@
  */
 package org.javatuples;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
 
 
 /**
@@ -42,8 +49,18 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
 
     private static final long serialVersionUID = 5431085632328343101L;
     
-    private final Object[] valueArray;
-    private final List<Object> valueList;
+    // Serialized form kept from older versions, which also stored the values
+    // as a list
+    private static final ObjectStreamField[] serialPersistentFields = new ObjectStreamField[] {
+        new ObjectStreamField("valueArray", Object[].class),
+        new ObjectStreamField("valueList", List.class)
+    };
+    
+    // Set by the constructor, or created on first use by the classes which
+    // keep their values in fields (see createValueArray())
+    private volatile Object[] valueArray;
+    // Only set by toStringCached()
+    private transient String cachedString;
     
     
 
@@ -56,7 +73,6 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
     protected Tuple(@SuppressWarnings("unused") final int size, final Object... values) {
         super();
         this.valueArray = values;
-        this.valueList = Arrays.asList(values);
     }
 
 
@@ -64,7 +80,38 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
     protected Tuple(final Object... values) {
         super();
         this.valueArray = values;
-        this.valueList = Arrays.asList(values);
+    }
+    
+    
+    /*
+     * For the classes which keep their values in fields: not creating the
+     * array of values until it is needed lets the JIT scalar-replace a tuple
+     * which does not escape the compiled method, as it cannot eliminate an
+     * array referenced by another object.
+     */
+    Tuple() {
+        super();
+    }
+    
+
+
+    /**
+     * <p>
+     * Create a tuple of the class matching the number of values:
+     * <tt>Unit</tt> for one value, <tt>Tuple2</tt> for two, etc. and
+     * {@link TupleN} for more than ten.
+     * </p>
+     * 
+     * @param values the values of the tuple, at least one
+     * @return the tuple
+     * 
+     * @since 1.3
+     */
+    public static Tuple of(final Object... values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values cannot be null");
+        }
+        return TupleFactory.fromArray(values);
     }
     
 
@@ -94,41 +141,186 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
                     "Cannot retrieve position " + pos + " in " + this.getClass().getSimpleName() + 
                     ". Positions for this class start with 0 and end with " + (getSize() - 1));
         }
-        return this.valueArray[pos];
+        return values()[pos];
     }
     
 
     
     public final Iterator<Object> iterator() {
-        return this.valueList.iterator();
+        return new ValueIterator(values());
     }
     
     
     @Override
     public final String toString() {
-        return this.valueList.toString();
+        return appendTo(new StringBuilder(16 * getSize())).toString();
     }
-    
-    
-    public final boolean contains(final Object value) {
-        for (final Object val : this.valueList) {
-            if (val == null) {
-                if (value == null) {
-                    return true;
-                }
+
+
+    /**
+     * <p>
+     * Return the same as {@link #toString()}, but computing it only the first
+     * time this method is called on this tuple. Meant for tuples which are
+     * logged repeatedly, and only correct if their values do not change their
+     * string representation afterwards.
+     * </p>
+     * 
+     * @return the string representation of the tuple
+     * 
+     * @since 1.3
+     */
+    public final String toStringCached() {
+        // Racy single-check: at worst, several threads compute equal strings
+        String str = this.cachedString;
+        if (str == null) {
+            str = toString();
+            this.cachedString = str;
+        }
+        return str;
+    }
+
+
+    /**
+     * <p>
+     * Append the string representation of this tuple (the same returned by
+     * {@link #toString()}) to a <tt>StringBuilder</tt>, without creating any
+     * intermediate strings for the tuple itself or for nested tuples.
+     * </p>
+     * 
+     * @param strBuilder the builder to append to
+     * @return the same builder
+     * 
+     * @since 1.3
+     */
+    public final StringBuilder appendTo(final StringBuilder strBuilder) {
+        strBuilder.append(getBoundName()).append('[');
+        final Object[] values = values();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                strBuilder.append(", ");
+            }
+            final Object value = values[i];
+            if (value instanceof Tuple) {
+                ((Tuple) value).appendTo(strBuilder);
             } else {
-                if (val.equals(value)) {
-                    return true;
-                }
+                strBuilder.append(value);
             }
         }
-        return false;
+        return strBuilder.append(']');
+    }
+
+
+    /**
+     * <p>
+     * Append the string representation of this tuple (the same returned by
+     * {@link #toString()}) to any <tt>Appendable</tt>, like a
+     * <tt>Writer</tt>.
+     * </p>
+     * 
+     * @param <A> the type of the appendable
+     * @param appendable the appendable to append to
+     * @return the same appendable
+     * @throws IOException if the appendable fails
+     * 
+     * @since 1.3
+     */
+    public final <A extends Appendable> A appendTo(final A appendable) throws IOException {
+        return appendTo(appendable, null);
+    }
+
+
+    /**
+     * <p>
+     * Append the string representation of this tuple to a
+     * <tt>StringBuilder</tt>, formatting its values with the specified
+     * formatter.
+     * </p>
+     * 
+     * @param strBuilder the builder to append to
+     * @param formatter the formatter, or <tt>null</tt> for default formatting
+     * @return the same builder
+     * 
+     * @since 1.3
+     */
+    public final StringBuilder appendTo(final StringBuilder strBuilder, final TupleFormatter formatter) {
+        try {
+            appendTo((Appendable) strBuilder, formatter);
+            return strBuilder;
+        } catch (final IOException e) {
+            // StringBuilder never throws IOException, but formatters might
+            throw new TupleIOException("Could not format tuple", e);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Append the string representation of this tuple to any
+     * <tt>Appendable</tt>, formatting its values with the specified
+     * formatter.
+     * </p>
+     * 
+     * @param <A> the type of the appendable
+     * @param appendable the appendable to append to
+     * @param formatter the formatter, or <tt>null</tt> for default formatting
+     * @return the same appendable
+     * @throws IOException if the appendable or the formatter fail
+     * 
+     * @since 1.3
+     */
+    public final <A extends Appendable> A appendTo(
+            final A appendable, final TupleFormatter formatter) throws IOException {
+        appendable.append(getBoundName()).append('[');
+        final Object[] values = values();
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                appendable.append(", ");
+            }
+            final Object value = values[i];
+            if (formatter != null) {
+                formatter.formatValue(appendable, i, value);
+            } else if (value instanceof Tuple) {
+                ((Tuple) value).appendTo(appendable, null);
+            } else if (value instanceof CharSequence) {
+                appendable.append((CharSequence) value);
+            } else {
+                appendable.append(String.valueOf(value));
+            }
+        }
+        appendable.append(']');
+        return appendable;
+    }
+    
+    
+    public final boolean contains(final Object value) {
+        return indexOf(value) >= 0;
     }
     
     
+    /**
+     * <p>
+     * Check whether this tuple contains all the elements of a collection.
+     * </p>
+     * <p>
+     * A {@link HashSet} or {@link LinkedHashSet} with more elements than this
+     * tuple has values is rejected without looking at its elements. Other sets
+     * may consider distinct elements which are equal, e.g. when they compare
+     * them by identity or with a comparator, so they are always iterated. For
+     * filtering many tuples against the same values, see {@link TupleMatcher}.
+     * </p>
+     * 
+     * @param collection the collection
+     * @return <tt>true</tt> if every element of the collection is in this tuple
+     */
     public final boolean containsAll(final Collection<?> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("Collection cannot be null");
+        }
+        if (isEqualitySet(collection) && collection.size() > getSize()) {
+            return false;
+        }
         for (final Object value : collection) {
-            if (!contains(value)) {
+            if (indexOf(value) < 0) {
                 return false;
             }
         }
@@ -140,37 +332,124 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
         if (values == null) {
             throw new IllegalArgumentException("Values array cannot be null");
         }
-        for (final Object value : values) {
-            if (!contains(value)) {
+        for (int i = 0; i < values.length; i++) {
+            if (indexOf(values[i]) < 0) {
                 return false;
             }
         }
         return true;
     }
+    
+    
+    /**
+     * <p>
+     * Check whether this tuple contains any of the elements of a collection.
+     * When the collection is a {@link HashSet} or {@link LinkedHashSet}, it is
+     * queried once per value of this tuple instead of being iterated. Other
+     * sets are iterated, as their <tt>contains</tt> method may not be based on
+     * <tt>equals</tt>.
+     * </p>
+     * 
+     * @param collection the collection
+     * @return <tt>true</tt> if at least one element of the collection is in
+     *         this tuple
+     * 
+     * @since 1.3
+     */
+    public final boolean containsAny(final Collection<?> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("Collection cannot be null");
+        }
+        if (isEqualitySet(collection)) {
+            final Object[] values = values();
+            for (int i = 0; i < values.length; i++) {
+                if (collection.contains(values[i])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (final Object value : collection) {
+            if (indexOf(value) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    
+    /**
+     * <p>
+     * Check whether this tuple contains any of the specified values.
+     * </p>
+     * 
+     * @param values the values
+     * @return <tt>true</tt> if at least one of the values is in this tuple
+     * 
+     * @since 1.3
+     */
+    public final boolean containsAny(final Object... values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values array cannot be null");
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (indexOf(values[i]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    
+    /**
+     * <p>
+     * Check whether this tuple and another one have at least one value in
+     * common, at any positions.
+     * </p>
+     * 
+     * @param other the other tuple
+     * @return <tt>true</tt> if both tuples share a value
+     * 
+     * @since 1.3
+     */
+    public final boolean intersects(final Tuple other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        final Object[] otherValues = other.values();
+        for (int i = 0; i < otherValues.length; i++) {
+            if (indexOf(otherValues[i]) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
 
     
     
     public final int indexOf(final Object value) {
-        int i = 0;
-        for (final Object val : this.valueList) {
-            if (val == null) {
-                if (value == null) {
+        final Object[] values = values();
+        if (value == null) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] == null) {
                     return i;
                 }
-            } else {
-                if (val.equals(value)) {
+            }
+        } else {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null && values[i].equals(value)) {
                     return i;
                 }
             }
-            i++;
         }
         return -1;
     }
     
     
     public final int lastIndexOf(final Object value) {
-        for (int i = getSize() - 1; i >= 0; i--) {
-            final Object val = this.valueList.get(i);
+        final Object[] values = values();
+        for (int i = values.length - 1; i >= 0; i--) {
+            final Object val = values[i];
             if (val == null) {
                 if (value == null) {
                     return i;
@@ -188,25 +467,102 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
     
     
     
+    /**
+     * <p>
+     * Return an unmodifiable list with the values of this tuple. As tuples are
+     * immutable, this is the same as {@link #asList()}.
+     * </p>
+     * 
+     * @return the list of values
+     */
     public final List<Object> toList() {
-        return Collections.unmodifiableList(new ArrayList<Object>(this.valueList));
+        return asList();
+    }
+    
+    
+    
+    /**
+     * <p>
+     * Return an unmodifiable, random access list view of the values of this
+     * tuple. Values are not copied.
+     * </p>
+     * 
+     * @return the list of values
+     * 
+     * @since 1.3
+     */
+    public final List<Object> asList() {
+        final Object[] values = values();
+        return new ValueView(values, 0, values.length);
+    }
+    
+    
+    
+    /**
+     * <p>
+     * Return an unmodifiable, random access list view of the values of this
+     * tuple between the specified positions. Values are not copied.
+     * </p>
+     * 
+     * @param from the first position, inclusive
+     * @param to the last position, exclusive
+     * @return the list of values
+     * 
+     * @since 1.3
+     */
+    public final List<Object> slice(final int from, final int to) {
+        final Object[] values = values();
+        if (from < 0 || to > values.length || from > to) {
+            throw new IllegalArgumentException(
+                    "Invalid slice [" + from + ", " + to + ") in a tuple of size " + values.length);
+        }
+        return new ValueView(values, from, to);
     }
     
     
     
     public final Object[] toArray() {
-        return this.valueArray.clone();
+        return values().clone();
+    }
+    
+    
+    
+    /**
+     * <p>
+     * Copy the values of this tuple into an existing array.
+     * </p>
+     * 
+     * @param dest the array to copy the values into
+     * @param offset the position of the array where the first value will be copied
+     * @return the position of the array after the last copied value
+     *         (<tt>offset + getSize()</tt>)
+     * 
+     * @since 1.3
+     */
+    public final int toArray(final Object[] dest, final int offset) {
+        if (dest == null) {
+            throw new IllegalArgumentException("Destination array cannot be null");
+        }
+        final Object[] values = values();
+        final int length = values.length;
+        if (offset < 0 || offset > dest.length - length) {
+            throw new IllegalArgumentException(
+                    "Cannot copy " + length + " values at position " + offset +
+                    " of an array of length " + dest.length);
+        }
+        System.arraycopy(values, 0, dest, offset, length);
+        return offset + length;
     }
     
     
 
     @Override
     public final int hashCode() {
+        // Same value as when this was computed from a list of the values
         final int prime = 31;
-        int result = 1;
-        result = prime * result
-                + ((this.valueList == null) ? 0 : this.valueList.hashCode());
-        return result;
+        final int hash = prime + Arrays.hashCode(values());
+        final int boundSign = getBoundSign();
+        return (boundSign == 0 ? hash : prime * hash + boundSign);
     }
 
 
@@ -223,7 +579,8 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
             return false;
         }
         final Tuple other = (Tuple) obj;
-        return this.valueList.equals(other.valueList);
+        // A lower and an upper prefix bound with the same values differ
+        return getBoundSign() == other.getBoundSign() && Arrays.equals(values(), other.values());
     }
 
 
@@ -232,13 +589,14 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
     @SuppressWarnings({ "rawtypes", "unchecked" })
     public int compareTo(final Tuple o) {
         
-        final int tLen = this.valueArray.length;
-        final Object[] oValues = o.valueArray;
+        final Object[] tValues = values();
+        final int tLen = tValues.length;
+        final Object[] oValues = o.values();
         final int oLen = oValues.length;
         
         for (int i = 0; i < tLen && i < oLen; i++) {
             
-            final Comparable tElement = (Comparable)this.valueArray[i];
+            final Comparable tElement = (Comparable)tValues[i];
             final Comparable oElement = (Comparable)oValues[i];
             
             final int comparison = tElement.compareTo(oElement);
@@ -248,10 +606,162 @@ public abstract class Tuple implements Iterable<Object>, Serializable, Comparabl
             
         }
         
-        return (Integer.valueOf(tLen)).compareTo(Integer.valueOf(oLen));
+        return compareBounds(this, o);
         
     }
     
     
+    /*
+     * Order of two tuples whose common first values are equal, by their sizes
+     * and bound signs. Prefix bounds (see TuplePrefixes) sort just before or
+     * just after every tuple starting with their values.
+     */
+    static int compareBounds(final Tuple t, final Tuple o) {
+        final int tLen = t.getSize();
+        final int oLen = o.getSize();
+        final int tBound = t.getBoundSign();
+        final int oBound = o.getBoundSign();
+        if (tLen == oLen) {
+            return (tBound < oBound ? -1 : (tBound == oBound ? 0 : 1));
+        }
+        if (tLen < oLen) {
+            return (tBound > 0 ? 1 : -1);
+        }
+        return (oBound > 0 ? -1 : 1);
+    }
+    
+    
+    int getBoundSign() {
+        return 0;
+    }
+    
+    
+    // Prefix bounds print as "lowerBound[a, b]" or "upperBound[a, b]", so
+    // that they cannot be mistaken for tuples
+    private String getBoundName() {
+        final int boundSign = getBoundSign();
+        return (boundSign == 0 ? "" : (boundSign < 0 ? "lowerBound" : "upperBound"));
+    }
+    
+    
+    /*
+     * Create the array of values of the classes which use the Tuple()
+     * constructor.
+     */
+    Object[] createValueArray() {
+        throw new IllegalStateException("No values for " + getClass().getName());
+    }
+    
+    
+    /*
+     * Only these sets are known to hold no two equal elements and to look them
+     * up with equals. Subclasses may override this, so the class must match.
+     */
+    private static boolean isEqualitySet(final Collection<?> collection) {
+        final Class<?> collectionClass = collection.getClass();
+        return collectionClass == HashSet.class || collectionClass == LinkedHashSet.class;
+    }
+    
+    
+    private Object[] values() {
+        Object[] values = this.valueArray;
+        if (values == null) {
+            // Several threads may create the array, but they create equal ones
+            values = createValueArray();
+            this.valueArray = values;
+        }
+        return values;
+    }
+    
+    
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        final ObjectOutputStream.PutField fields = out.putFields();
+        final Object[] values = values();
+        fields.put("valueArray", values);
+        fields.put("valueList", Arrays.asList(values));
+        out.writeFields();
+    }
+
+
+    /*
+     * Read-only view of a range of the values of a tuple.
+     */
+    private static final class ValueView extends AbstractList<Object> implements RandomAccess {
+
+        private final Object[] values;
+        private final int from;
+        private final int to;
+
+        ValueView(final Object[] values, final int from, final int to) {
+            super();
+            this.values = values;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Object get(final int index) {
+            if (index < 0 || index >= this.to - this.from) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (this.to - this.from));
+            }
+            return this.values[this.from + index];
+        }
+
+        @Override
+        public int size() {
+            return this.to - this.from;
+        }
+
+        @Override
+        public List<Object> subList(final int fromIndex, final int toIndex) {
+            if (fromIndex < 0 || toIndex > this.to - this.from || fromIndex > toIndex) {
+                throw new IndexOutOfBoundsException(
+                        "Invalid sublist [" + fromIndex + ", " + toIndex + ") of a list of size " + size());
+            }
+            return new ValueView(this.values, this.from + fromIndex, this.from + toIndex);
+        }
+
+        @Override
+        public Object[] toArray() {
+            final Object[] result = new Object[this.to - this.from];
+            System.arraycopy(this.values, this.from, result, 0, result.length);
+            return result;
+        }
+
+    }
+
+    
+    /*
+     * Iterator over the values of a tuple, kept small so that it can be
+     * scalar-replaced when iterating in a compiled method.
+     */
+    private static final class ValueIterator implements Iterator<Object> {
+
+        private final Object[] values;
+        private int next = 0;
+
+        ValueIterator(final Object[] values) {
+            super();
+            this.values = values;
+        }
+
+        public boolean hasNext() {
+            return this.next < this.values.length;
+        }
+
+        public Object next() {
+            if (this.next >= this.values.length) {
+                throw new NoSuchElementException();
+            }
+            return this.values[this.next++];
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+    
+    
     
 }
@@ -21,6 +21,8 @@ package org.javatuples;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
 
 import org.javatuples.valueintf.IValue0;
 import org.javatuples.valueintf.IValue1;
@@ -118,6 +120,69 @@ public final class Tuple2<A,B>
         return fromIterable(iterable, index, false);
     }
 
+
+    /**
+     * <p>
+     * Create tuple from array, starting from the specified offset. Array
+     * can have more elements than the tuple to be created, but must have at
+     * least two elements from the offset on.
+     * </p>
+     * 
+     * @param <X> the array component type 
+     * @param array the array to be converted to a tuple
+     * @param offset the position of the first element in the array
+     * @return the tuple
+     * 
+     * @since 1.3
+     */
+    public static <X> Tuple2<X,X> fromArray(final X[] array, final int offset) {
+        if (array == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+        if (offset < 0 || offset > array.length - SIZE) {
+            throw new IllegalArgumentException(
+                    "Not enough elements for creating a Tuple2 (2 needed) from position " + offset +
+                    " of an array of size " + array.length);
+        }
+        return new Tuple2<X,X>(array[offset], array[offset + 1]);
+    }
+
+    
+    
+    /**
+     * <p>
+     * Create tuple from list, starting from the specified offset. List
+     * can have more elements than the tuple to be created, but must have at
+     * least two elements from the offset on.
+     * </p>
+     * <p>
+     * Unlike {@link #fromIterable(Iterable, int)}, elements before the offset
+     * are not iterated if the list supports fast random access.
+     * </p>
+     * 
+     * @param <X> the list component type 
+     * @param list the list to be converted to a tuple
+     * @param offset the position of the first element in the list
+     * @return the tuple
+     * 
+     * @since 1.3
+     */
+    public static <X> Tuple2<X,X> fromList(final List<X> list, final int offset) {
+        if (list == null) {
+            throw new IllegalArgumentException("List cannot be null");
+        }
+        if (offset < 0 || offset > list.size() - SIZE) {
+            throw new IllegalArgumentException(
+                    "Not enough elements for creating a Tuple2 (2 needed) from position " + offset +
+                    " of a list of size " + list.size());
+        }
+        if (list instanceof RandomAccess) {
+            return new Tuple2<X,X>(list.get(offset), list.get(offset + 1));
+        }
+        final Iterator<X> iter = list.listIterator(offset);
+        return new Tuple2<X,X>(iter.next(), iter.next());
+    }
+
     
     
 
@@ -128,6 +193,13 @@ public final class Tuple2<A,B>
             throw new IllegalArgumentException("Iterable cannot be null");
         }
 
+        if (!exactSize && iterable instanceof List<?> && iterable instanceof RandomAccess) {
+            final List<X> list = (List<X>) iterable;
+            if (index >= 0 && index <= list.size() - SIZE) {
+                return fromList(list, index);
+            }
+        }
+
         boolean tooFewElements = false; 
         
         X element0 = null;
@@ -176,12 +248,30 @@ public final class Tuple2<A,B>
     public Tuple2(
             final A value0, 
             final B value1) {
-        super(value0, value1);
+        super();
         this.val0 = value0;
         this.val1 = value1;
     }
 
 
+    @Override
+    Object[] createValueArray() {
+        return new Object[] { this.val0, this.val1 };
+    }
+
+
+    /*
+     * Adopts the array, which must have exactly 2 elements and must not be
+     * modified afterwards. See TupleFactory.
+     */
+    @SuppressWarnings("unchecked")
+    Tuple2(@SuppressWarnings("unused") final TupleFactory.Trusted trusted, final Object[] values) {
+        super(values);
+        this.val0 = (A) values[0];
+        this.val1 = (B) values[1];
+    }
+
+
     public A getValue0() {
         return this.val0;
     }
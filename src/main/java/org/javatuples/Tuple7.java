@@ -21,6 +21,8 @@ package org.javatuples;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
 
 import org.javatuples.valueintf.IValue0;
 import org.javatuples.valueintf.IValue1;
@@ -134,6 +136,74 @@ public final class Tuple7<A,B,C,D,E,F,G>
     public static <X> Tuple7<X,X,X,X,X,X,X> fromIterable(final Iterable<X> iterable, int index) {
         return fromIterable(iterable, index, false);
     }
+
+
+    /**
+     * <p>
+     * Create tuple from array, starting from the specified offset. Array
+     * can have more elements than the tuple to be created, but must have at
+     * least seven elements from the offset on.
+     * </p>
+     * 
+     * @param <X> the array component type 
+     * @param array the array to be converted to a tuple
+     * @param offset the position of the first element in the array
+     * @return the tuple
+     * 
+     * @since 1.3
+     */
+    public static <X> Tuple7<X,X,X,X,X,X,X> fromArray(final X[] array, final int offset) {
+        if (array == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+        if (offset < 0 || offset > array.length - SIZE) {
+            throw new IllegalArgumentException(
+                    "Not enough elements for creating a Tuple7 (7 needed) from position " + offset +
+                    " of an array of size " + array.length);
+        }
+        return new Tuple7<X,X,X,X,X,X,X>(
+                array[offset], array[offset + 1], array[offset + 2], array[offset + 3], array[offset + 4],
+                array[offset + 5], array[offset + 6]);
+    }
+
+    
+    
+    /**
+     * <p>
+     * Create tuple from list, starting from the specified offset. List
+     * can have more elements than the tuple to be created, but must have at
+     * least seven elements from the offset on.
+     * </p>
+     * <p>
+     * Unlike {@link #fromIterable(Iterable, int)}, elements before the offset
+     * are not iterated if the list supports fast random access.
+     * </p>
+     * 
+     * @param <X> the list component type 
+     * @param list the list to be converted to a tuple
+     * @param offset the position of the first element in the list
+     * @return the tuple
+     * 
+     * @since 1.3
+     */
+    public static <X> Tuple7<X,X,X,X,X,X,X> fromList(final List<X> list, final int offset) {
+        if (list == null) {
+            throw new IllegalArgumentException("List cannot be null");
+        }
+        if (offset < 0 || offset > list.size() - SIZE) {
+            throw new IllegalArgumentException(
+                    "Not enough elements for creating a Tuple7 (7 needed) from position " + offset +
+                    " of a list of size " + list.size());
+        }
+        if (list instanceof RandomAccess) {
+            return new Tuple7<X,X,X,X,X,X,X>(
+                    list.get(offset), list.get(offset + 1), list.get(offset + 2), list.get(offset + 3),
+                    list.get(offset + 4), list.get(offset + 5), list.get(offset + 6));
+        }
+        final Iterator<X> iter = list.listIterator(offset);
+        return new Tuple7<X,X,X,X,X,X,X>(
+                iter.next(), iter.next(), iter.next(), iter.next(), iter.next(), iter.next(), iter.next());
+    }
     
 
     
@@ -144,6 +214,13 @@ public final class Tuple7<A,B,C,D,E,F,G>
             throw new IllegalArgumentException("Iterable cannot be null");
         }
 
+        if (!exactSize && iterable instanceof List<?> && iterable instanceof RandomAccess) {
+            final List<X> list = (List<X>) iterable;
+            if (index >= 0 && index <= list.size() - SIZE) {
+                return fromList(list, index);
+            }
+        }
+
         boolean tooFewElements = false; 
         
         X element0 = null;
@@ -233,7 +310,7 @@ public final class Tuple7<A,B,C,D,E,F,G>
             final E value4,
             final F value5,
             final G value6) {
-        super(value0, value1, value2, value3, value4, value5, value6);
+        super();
         this.val0 = value0;
         this.val1 = value1;
         this.val2 = value2;
@@ -244,6 +321,29 @@ public final class Tuple7<A,B,C,D,E,F,G>
     }
 
 
+    @Override
+    Object[] createValueArray() {
+        return new Object[] { this.val0, this.val1, this.val2, this.val3, this.val4, this.val5, this.val6 };
+    }
+
+
+    /*
+     * Adopts the array, which must have exactly 7 elements and must not be
+     * modified afterwards. See TupleFactory.
+     */
+    @SuppressWarnings("unchecked")
+    Tuple7(@SuppressWarnings("unused") final TupleFactory.Trusted trusted, final Object[] values) {
+        super(values);
+        this.val0 = (A) values[0];
+        this.val1 = (B) values[1];
+        this.val2 = (C) values[2];
+        this.val3 = (D) values[3];
+        this.val4 = (E) values[4];
+        this.val5 = (F) values[5];
+        this.val6 = (G) values[6];
+    }
+
+
     public A getValue0() {
         return this.val0;
     }
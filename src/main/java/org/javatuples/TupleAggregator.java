@@ -0,0 +1,886 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ * <p>
+ * Group-by engine for tuples: groups a sequence of tuples by the values at
+ * one or more key positions, and computes aggregates over other positions
+ * for each group.
+ * </p>
+ * <p>
+ * Aggregators are immutable, and are defined by chaining calls:
+ * </p>
+ * <pre>
+ *     final TupleAggregator aggregator =
+ *         TupleAggregator.groupBy(0, 1).count().sum(2).max(3);
+ *     final List&lt;Tuple&gt; rows = aggregator.aggregate(tuples);
+ * </pre>
+ * <p>
+ * Each result row is a tuple containing the key values followed by the
+ * aggregates, in the order they were defined (so the example above returns
+ * <tt>Tuple5</tt> instances). The available aggregates are:
+ * </p>
+ * <ul>
+ *   <li><tt>count()</tt>: number of tuples in the group, as a <tt>Long</tt>.</li>
+ *   <li><tt>sum(pos)</tt>: sum of the numbers at <tt>pos</tt>, as a <tt>Long</tt>
+ *       if all of them were <tt>Byte</tt>, <tt>Short</tt>, <tt>Integer</tt> or
+ *       <tt>Long</tt>, and as a <tt>Double</tt> otherwise.</li>
+ *   <li><tt>min(pos)</tt>, <tt>max(pos)</tt>: smallest and largest values at
+ *       <tt>pos</tt>, which must be <tt>Comparable</tt>.</li>
+ *   <li><tt>avg(pos)</tt>: average of the numbers at <tt>pos</tt>, as a
+ *       <tt>Double</tt>.</li>
+ *   <li><tt>countDistinct(pos)</tt>: number of different values at <tt>pos</tt>,
+ *       as a <tt>Long</tt>.</li>
+ * </ul>
+ * <p>
+ * All aggregates but <tt>count()</tt> ignore <tt>null</tt> values, and
+ * <tt>sum</tt>, <tt>min</tt>, <tt>max</tt> and <tt>avg</tt> return <tt>null</tt>
+ * for groups without any non-null value.
+ * </p>
+ * <p>
+ * Groups are kept in an open-addressing hash table indexed by the key values
+ * themselves (no key tuple is created for looking a group up), and numeric
+ * aggregates are accumulated into primitive arrays indexed by group.
+ * </p>
+ * <p>
+ * If the number of groups can exceed the available memory, the aggregator
+ * can be configured with {@link #withSpilling(File, int)}: once the
+ * specified number of groups is in memory, tuples belonging to new groups
+ * are hash-partitioned into temporary files (using {@link TupleCodec}),
+ * which are then aggregated one at a time after the in-memory groups have
+ * been returned.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleAggregator {
+
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+    private static final int AVG = 4;
+    private static final int COUNT_DISTINCT = 5;
+
+    private static final int SPILL_BITS = 4;
+    private static final int SPILL_PARTITIONS = 1 << SPILL_BITS;
+    private static final int MAX_SPILL_DEPTH = 32 / SPILL_BITS;
+
+    private final int[] keyPositions;
+    private final int[] kinds;
+    private final int[] positions;
+    private final File spillDirectory;
+    private final int maxGroupsInMemory;
+
+
+
+    /**
+     * <p>
+     * Create an aggregator grouping by the values at the specified positions.
+     * If no positions are specified, all tuples belong to a single group.
+     * </p>
+     *
+     * @param keyPositions the positions of the grouping key
+     * @return the aggregator, without any aggregates yet
+     */
+    public static TupleAggregator groupBy(final int... keyPositions) {
+        if (keyPositions == null) {
+            throw new IllegalArgumentException("Key positions cannot be null");
+        }
+        for (final int keyPosition : keyPositions) {
+            checkPosition(keyPosition);
+        }
+        return new TupleAggregator(keyPositions.clone(), new int[0], new int[0], null, Integer.MAX_VALUE);
+    }
+
+
+
+    private TupleAggregator(
+            final int[] keyPositions, final int[] kinds, final int[] positions,
+            final File spillDirectory, final int maxGroupsInMemory) {
+        super();
+        this.keyPositions = keyPositions;
+        this.kinds = kinds;
+        this.positions = positions;
+        this.spillDirectory = spillDirectory;
+        this.maxGroupsInMemory = maxGroupsInMemory;
+    }
+
+
+
+    public TupleAggregator count() {
+        return withAggregate(COUNT, -1);
+    }
+
+
+    public TupleAggregator sum(final int pos) {
+        return withAggregate(SUM, checkPosition(pos));
+    }
+
+
+    public TupleAggregator min(final int pos) {
+        return withAggregate(MIN, checkPosition(pos));
+    }
+
+
+    public TupleAggregator max(final int pos) {
+        return withAggregate(MAX, checkPosition(pos));
+    }
+
+
+    public TupleAggregator avg(final int pos) {
+        return withAggregate(AVG, checkPosition(pos));
+    }
+
+
+    public TupleAggregator countDistinct(final int pos) {
+        return withAggregate(COUNT_DISTINCT, checkPosition(pos));
+    }
+
+
+    /**
+     * <p>
+     * Return an aggregator equivalent to this one, but which will keep at most
+     * <tt>maxGroupsInMemory</tt> groups in memory at a time, spilling the
+     * tuples of any other groups to temporary files in the specified
+     * directory. Spilling only applies to sequential aggregations.
+     * </p>
+     *
+     * @param directory the directory for temporary files, or <tt>null</tt> for
+     *        the default temporary directory
+     * @param maxGroupsInMemory the memory budget, as a number of groups
+     * @return the new aggregator
+     */
+    public TupleAggregator withSpilling(final File directory, final int maxGroupsInMemory) {
+        if (maxGroupsInMemory <= 0) {
+            throw new IllegalArgumentException("Maximum number of groups in memory must be positive");
+        }
+        return new TupleAggregator(this.keyPositions, this.kinds, this.positions, directory, maxGroupsInMemory);
+    }
+
+
+    private TupleAggregator withAggregate(final int kind, final int pos) {
+        final int aggregateCount = this.kinds.length;
+        final int[] newKinds = new int[aggregateCount + 1];
+        final int[] newPositions = new int[aggregateCount + 1];
+        System.arraycopy(this.kinds, 0, newKinds, 0, aggregateCount);
+        System.arraycopy(this.positions, 0, newPositions, 0, aggregateCount);
+        newKinds[aggregateCount] = kind;
+        newPositions[aggregateCount] = pos;
+        return new TupleAggregator(
+                this.keyPositions, newKinds, newPositions, this.spillDirectory, this.maxGroupsInMemory);
+    }
+
+
+    private static int checkPosition(final int pos) {
+        if (pos < 0) {
+            throw new IllegalArgumentException("Invalid tuple position: " + pos);
+        }
+        return pos;
+    }
+
+
+
+
+    /**
+     * <p>
+     * Aggregate all the tuples in an iterable.
+     * </p>
+     *
+     * @param tuples the tuples to be aggregated
+     * @return one result row per group
+     */
+    public List<Tuple> aggregate(final Iterable<? extends Tuple> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        return aggregate(tuples.iterator());
+    }
+
+
+    /**
+     * <p>
+     * Aggregate all the remaining tuples in an iterator.
+     * </p>
+     *
+     * @param tuples the tuples to be aggregated
+     * @return one result row per group
+     */
+    public List<Tuple> aggregate(final Iterator<? extends Tuple> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        checkResultSize();
+        final List<Tuple> result = new ArrayList<Tuple>();
+        aggregate(tuples, 0, result);
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Aggregate a list of tuples in parallel: the list is split into
+     * <tt>partitions</tt> contiguous ranges, each one is aggregated on the
+     * specified executor, and the partial aggregates are then merged.
+     * </p>
+     *
+     * @param tuples the tuples to be aggregated
+     * @param executor the executor the partitions will be aggregated on
+     * @param partitions the number of partitions to split the list into
+     * @return one result row per group
+     */
+    public List<Tuple> aggregate(
+            final List<? extends Tuple> tuples, final ExecutorService executor, final int partitions) {
+
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        checkResultSize();
+
+        final int[] bounds = ParallelTasks.bounds(tuples.size(), partitions);
+        final List<Callable<Groups>> tasks = new ArrayList<Callable<Groups>>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final List<? extends Tuple> partition = tuples.subList(bounds[i], bounds[i + 1]);
+            tasks.add(new Callable<Groups>() {
+                public Groups call() {
+                    final Groups groups = new Groups(TupleAggregator.this);
+                    for (final Tuple tuple : partition) {
+                        groups.accumulate(groups.findOrInsert(tuple, keyHash(tuple)), tuple);
+                    }
+                    return groups;
+                }
+            });
+        }
+
+        final List<Groups> partialGroups = ParallelTasks.invokeAll(executor, tasks);
+        final Groups groups = partialGroups.get(0);
+        for (int i = 1; i < partialGroups.size(); i++) {
+            groups.merge(partialGroups.get(i));
+        }
+
+        final List<Tuple> result = new ArrayList<Tuple>(groups.size);
+        groups.addResults(result);
+        return result;
+
+    }
+
+
+    private void checkResultSize() {
+        if (this.keyPositions.length + this.kinds.length == 0) {
+            throw new IllegalStateException("Aggregator must have at least one key position or aggregate");
+        }
+    }
+
+
+
+
+    private void aggregate(final Iterator<? extends Tuple> tuples, final int depth, final List<Tuple> result) {
+
+        Groups groups = new Groups(this);
+        SpillFiles spill = null;
+
+        try {
+
+            while (tuples.hasNext()) {
+
+                final Tuple tuple = tuples.next();
+                final int h = keyHash(tuple);
+
+                int group = groups.find(tuple, h);
+                if (group == -1) {
+                    if (groups.size >= this.maxGroupsInMemory && depth < MAX_SPILL_DEPTH) {
+                        if (spill == null) {
+                            spill = new SpillFiles(this.spillDirectory);
+                        }
+                        spill.write(spillPartition(h, depth), tuple);
+                        continue;
+                    }
+                    group = groups.insert(tuple, h);
+                }
+                groups.accumulate(group, tuple);
+
+            }
+
+            groups.addResults(result);
+            groups = null;
+
+            if (spill != null) {
+                for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                    final Iterator<Tuple> spilled = spill.read(i);
+                    if (spilled != null) {
+                        aggregate(spilled, depth + 1, result);
+                    }
+                }
+            }
+
+        } catch (final IOException e) {
+            throw new TupleIOException("Could not spill tuples to disk", e);
+        } finally {
+            if (spill != null) {
+                spill.delete();
+            }
+        }
+
+    }
+
+
+    /*
+     * Every spill level partitions by a different group of bits of the
+     * (re-mixed) key hash, so that a spilled partition is split again if it
+     * still does not fit in memory.
+     */
+    private static int spillPartition(final int h, final int depth) {
+        return ((h * 0x9E3779B9) >>> (32 - SPILL_BITS * (depth + 1))) & (SPILL_PARTITIONS - 1);
+    }
+
+
+    private int keyHash(final Tuple tuple) {
+        int h = 1;
+        for (final int keyPosition : this.keyPositions) {
+            final Object value = tuple.getValue(keyPosition);
+            h = 31 * h + (value == null ? 0 : value.hashCode());
+        }
+        return h;
+    }
+
+
+    private static boolean eq(final Object o1, final Object o2) {
+        return (o1 == null) ? (o2 == null) : o1.equals(o2);
+    }
+
+
+
+
+    /*
+     * Accumulation state: one entry per group, stored column-wise. Group keys
+     * live in a flat array (keyCount values per group) and the hash table
+     * slots contain group indexes + 1 (0 meaning empty).
+     */
+    private static final class Groups {
+
+        private final int[] keyPositions;
+        private final int[] kinds;
+        private final int[] positions;
+        private final int keyCount;
+
+        int size = 0;
+        private Object[] keys;
+        private int[] hashes;
+        private long[] counts;
+        private final long[][] longs;
+        private final double[][] doubles;
+        private final long[][] nonNulls;
+        private final boolean[][] floatings;
+        private final Object[][] objects;
+
+        private int[] slots;
+        private int mask;
+
+
+        Groups(final TupleAggregator aggregator) {
+
+            super();
+
+            this.keyPositions = aggregator.keyPositions;
+            this.kinds = aggregator.kinds;
+            this.positions = aggregator.positions;
+            this.keyCount = this.keyPositions.length;
+
+            final int capacity = 16;
+            this.keys = new Object[capacity * this.keyCount];
+            this.hashes = new int[capacity];
+            this.counts = new long[capacity];
+            this.longs = new long[this.kinds.length][];
+            this.doubles = new double[this.kinds.length][];
+            this.nonNulls = new long[this.kinds.length][];
+            this.floatings = new boolean[this.kinds.length][];
+            this.objects = new Object[this.kinds.length][];
+            for (int i = 0; i < this.kinds.length; i++) {
+                switch (this.kinds[i]) {
+                    case SUM:
+                    case AVG:
+                        this.longs[i] = new long[capacity];
+                        this.doubles[i] = new double[capacity];
+                        this.nonNulls[i] = new long[capacity];
+                        this.floatings[i] = new boolean[capacity];
+                        break;
+                    case MIN:
+                    case MAX:
+                    case COUNT_DISTINCT:
+                        this.objects[i] = new Object[capacity];
+                        break;
+                    default:
+                        // COUNT only needs the per-group counts
+                }
+            }
+
+            this.slots = new int[capacity * 2];
+            this.mask = this.slots.length - 1;
+
+        }
+
+
+        int find(final Tuple tuple, final int h) {
+            int slot = spread(h) & this.mask;
+            while (this.slots[slot] != 0) {
+                final int group = this.slots[slot] - 1;
+                if (this.hashes[group] == h && keyEquals(group, tuple)) {
+                    return group;
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return -1;
+        }
+
+
+        int findOrInsert(final Tuple tuple, final int h) {
+            final int group = find(tuple, h);
+            return (group != -1) ? group : insert(tuple, h);
+        }
+
+
+        int insert(final Tuple tuple, final int h) {
+            final int group = newGroup(h);
+            final int offset = group * this.keyCount;
+            for (int i = 0; i < this.keyCount; i++) {
+                this.keys[offset + i] = tuple.getValue(this.keyPositions[i]);
+            }
+            return group;
+        }
+
+
+        private boolean keyEquals(final int group, final Tuple tuple) {
+            final int offset = group * this.keyCount;
+            for (int i = 0; i < this.keyCount; i++) {
+                if (!eq(this.keys[offset + i], tuple.getValue(this.keyPositions[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        private int findOrInsertKey(final Object[] otherKeys, final int otherOffset, final int h) {
+            int slot = spread(h) & this.mask;
+            while (this.slots[slot] != 0) {
+                final int group = this.slots[slot] - 1;
+                if (this.hashes[group] == h) {
+                    final int offset = group * this.keyCount;
+                    boolean equal = true;
+                    for (int i = 0; i < this.keyCount && equal; i++) {
+                        equal = eq(this.keys[offset + i], otherKeys[otherOffset + i]);
+                    }
+                    if (equal) {
+                        return group;
+                    }
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            final int group = newGroup(h);
+            System.arraycopy(otherKeys, otherOffset, this.keys, group * this.keyCount, this.keyCount);
+            return group;
+        }
+
+
+        private int newGroup(final int h) {
+            if (this.size == this.hashes.length) {
+                grow();
+            }
+            final int group = this.size++;
+            this.hashes[group] = h;
+            int slot = spread(h) & this.mask;
+            while (this.slots[slot] != 0) {
+                slot = (slot + 1) & this.mask;
+            }
+            this.slots[slot] = group + 1;
+            return group;
+        }
+
+
+        private void grow() {
+
+            final int capacity = this.hashes.length * 2;
+
+            this.keys = copy(this.keys, capacity * this.keyCount);
+            this.hashes = copy(this.hashes, capacity);
+            this.counts = copy(this.counts, capacity);
+            for (int i = 0; i < this.kinds.length; i++) {
+                if (this.longs[i] != null) {
+                    this.longs[i] = copy(this.longs[i], capacity);
+                    this.doubles[i] = copy(this.doubles[i], capacity);
+                    this.nonNulls[i] = copy(this.nonNulls[i], capacity);
+                    this.floatings[i] = copy(this.floatings[i], capacity);
+                }
+                if (this.objects[i] != null) {
+                    this.objects[i] = copy(this.objects[i], capacity);
+                }
+            }
+
+            this.slots = new int[capacity * 2];
+            this.mask = this.slots.length - 1;
+            for (int group = 0; group < this.size; group++) {
+                int slot = spread(this.hashes[group]) & this.mask;
+                while (this.slots[slot] != 0) {
+                    slot = (slot + 1) & this.mask;
+                }
+                this.slots[slot] = group + 1;
+            }
+
+        }
+
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        void accumulate(final int group, final Tuple tuple) {
+
+            this.counts[group]++;
+
+            for (int i = 0; i < this.kinds.length; i++) {
+
+                final int kind = this.kinds[i];
+                if (kind == COUNT) {
+                    continue;
+                }
+
+                final Object value = tuple.getValue(this.positions[i]);
+                if (value == null) {
+                    continue;
+                }
+
+                switch (kind) {
+                    case SUM:
+                    case AVG:
+                        if (!(value instanceof Number)) {
+                            throw new IllegalArgumentException(
+                                    "Cannot aggregate non-numeric value at position " + this.positions[i] +
+                                    ": " + value);
+                        }
+                        if (isIntegral(value)) {
+                            this.longs[i][group] += ((Number) value).longValue();
+                        } else {
+                            this.doubles[i][group] += ((Number) value).doubleValue();
+                            this.floatings[i][group] = true;
+                        }
+                        this.nonNulls[i][group]++;
+                        break;
+                    case MIN: {
+                        final Object current = this.objects[i][group];
+                        if (current == null || ((Comparable) value).compareTo(current) < 0) {
+                            this.objects[i][group] = value;
+                        }
+                        break;
+                    }
+                    case MAX: {
+                        final Object current = this.objects[i][group];
+                        if (current == null || ((Comparable) value).compareTo(current) > 0) {
+                            this.objects[i][group] = value;
+                        }
+                        break;
+                    }
+                    default: {
+                        Set<Object> distinct = (Set<Object>) this.objects[i][group];
+                        if (distinct == null) {
+                            distinct = new HashSet<Object>();
+                            this.objects[i][group] = distinct;
+                        }
+                        distinct.add(value);
+                    }
+                }
+
+            }
+
+        }
+
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        void merge(final Groups other) {
+
+            for (int otherGroup = 0; otherGroup < other.size; otherGroup++) {
+
+                final int group =
+                        findOrInsertKey(other.keys, otherGroup * this.keyCount, other.hashes[otherGroup]);
+
+                this.counts[group] += other.counts[otherGroup];
+
+                for (int i = 0; i < this.kinds.length; i++) {
+                    switch (this.kinds[i]) {
+                        case SUM:
+                        case AVG:
+                            this.longs[i][group] += other.longs[i][otherGroup];
+                            this.doubles[i][group] += other.doubles[i][otherGroup];
+                            this.nonNulls[i][group] += other.nonNulls[i][otherGroup];
+                            this.floatings[i][group] |= other.floatings[i][otherGroup];
+                            break;
+                        case MIN:
+                        case MAX: {
+                            final Object current = this.objects[i][group];
+                            final Object value = other.objects[i][otherGroup];
+                            if (value != null) {
+                                final int comparison =
+                                        (current == null) ? 0 : ((Comparable) value).compareTo(current);
+                                if (current == null ||
+                                        (this.kinds[i] == MIN ? comparison < 0 : comparison > 0)) {
+                                    this.objects[i][group] = value;
+                                }
+                            }
+                            break;
+                        }
+                        case COUNT_DISTINCT: {
+                            final Set<Object> value = (Set<Object>) other.objects[i][otherGroup];
+                            if (value != null) {
+                                final Set<Object> current = (Set<Object>) this.objects[i][group];
+                                if (current == null) {
+                                    this.objects[i][group] = value;
+                                } else {
+                                    current.addAll(value);
+                                }
+                            }
+                            break;
+                        }
+                        default:
+                            // COUNT is merged with the per-group counts
+                    }
+                }
+
+            }
+
+        }
+
+
+        void addResults(final List<Tuple> result) {
+
+            for (int group = 0; group < this.size; group++) {
+
+                final Object[] values = new Object[this.keyCount + this.kinds.length];
+                System.arraycopy(this.keys, group * this.keyCount, values, 0, this.keyCount);
+
+                for (int i = 0; i < this.kinds.length; i++) {
+                    final Object value;
+                    switch (this.kinds[i]) {
+                        case COUNT:
+                            value = Long.valueOf(this.counts[group]);
+                            break;
+                        case SUM:
+                            if (this.nonNulls[i][group] == 0L) {
+                                value = null;
+                            } else if (this.floatings[i][group]) {
+                                value = Double.valueOf(this.longs[i][group] + this.doubles[i][group]);
+                            } else {
+                                value = Long.valueOf(this.longs[i][group]);
+                            }
+                            break;
+                        case AVG:
+                            value = (this.nonNulls[i][group] == 0L) ?
+                                    null :
+                                    Double.valueOf(
+                                            (this.longs[i][group] + this.doubles[i][group]) /
+                                            this.nonNulls[i][group]);
+                            break;
+                        case COUNT_DISTINCT: {
+                            final Set<?> distinct = (Set<?>) this.objects[i][group];
+                            value = Long.valueOf(distinct == null ? 0 : distinct.size());
+                            break;
+                        }
+                        default:
+                            value = this.objects[i][group];
+                    }
+                    values[this.keyCount + i] = value;
+                }
+
+                result.add(TupleFactory.adopt(values));
+
+            }
+
+        }
+
+
+        private static boolean isIntegral(final Object value) {
+            return value instanceof Integer || value instanceof Long ||
+                   value instanceof Short || value instanceof Byte;
+        }
+
+
+        private static int spread(final int h) {
+            return h ^ (h >>> 16);
+        }
+
+
+        private static Object[] copy(final Object[] array, final int length) {
+            final Object[] newArray = new Object[length];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+
+        private static int[] copy(final int[] array, final int length) {
+            final int[] newArray = new int[length];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+
+        private static long[] copy(final long[] array, final int length) {
+            final long[] newArray = new long[length];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+
+        private static double[] copy(final double[] array, final int length) {
+            final double[] newArray = new double[length];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+
+        private static boolean[] copy(final boolean[] array, final int length) {
+            final boolean[] newArray = new boolean[length];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            return newArray;
+        }
+
+    }
+
+
+
+
+    /*
+     * One temporary file per spill partition, created on first write.
+     */
+    private static final class SpillFiles {
+
+        private final File directory;
+        private final File[] files = new File[SPILL_PARTITIONS];
+        private final DataOutputStream[] outputs = new DataOutputStream[SPILL_PARTITIONS];
+        private final int[] counts = new int[SPILL_PARTITIONS];
+        private DataInputStream input = null;
+
+
+        SpillFiles(final File directory) {
+            super();
+            this.directory = directory;
+        }
+
+
+        void write(final int partition, final Tuple tuple) throws IOException {
+            if (this.outputs[partition] == null) {
+                this.files[partition] = File.createTempFile("javatuples-aggregate-", ".spill", this.directory);
+                this.outputs[partition] =
+                        new DataOutputStream(
+                                new BufferedOutputStream(new FileOutputStream(this.files[partition]), 65536));
+            }
+            TupleCodec.write(this.outputs[partition], tuple);
+            this.counts[partition]++;
+        }
+
+
+        Iterator<Tuple> read(final int partition) throws IOException {
+
+            final DataOutputStream output = this.outputs[partition];
+            if (output == null) {
+                return null;
+            }
+            output.close();
+            this.outputs[partition] = null;
+
+            closeInput();
+            final DataInputStream in =
+                    new DataInputStream(
+                            new BufferedInputStream(new FileInputStream(this.files[partition]), 65536));
+            this.input = in;
+            final int count = this.counts[partition];
+
+            return new Iterator<Tuple>() {
+
+                private int remaining = count;
+
+                public boolean hasNext() {
+                    return this.remaining > 0;
+                }
+
+                public Tuple next() {
+                    if (this.remaining <= 0) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        this.remaining--;
+                        return TupleCodec.read(in, TupleCodec.ALL_CLASSES);
+                    } catch (final IOException e) {
+                        throw new TupleIOException("Could not read spilled tuples", e);
+                    }
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+
+        }
+
+
+        private void closeInput() {
+            if (this.input != null) {
+                try {
+                    this.input.close();
+                } catch (final IOException ignored) {
+                    // Nothing else to do with it
+                }
+                this.input = null;
+            }
+        }
+
+
+        void delete() {
+            closeInput();
+            for (int i = 0; i < SPILL_PARTITIONS; i++) {
+                if (this.outputs[i] != null) {
+                    try {
+                        this.outputs[i].close();
+                    } catch (final IOException ignored) {
+                        // Nothing else to do with it
+                    }
+                    this.outputs[i] = null;
+                }
+                if (this.files[i] != null) {
+                    this.files[i].delete();
+                    this.files[i] = null;
+                }
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+
+/*
+ * Search key which sorts, in the natural ordering of tuples, just before
+ * (LOWER) or just after (UPPER) every tuple starting with its values. It
+ * never compares equal to a real tuple.
+ */
+final class TupleBound extends Tuple {
+
+    private static final long serialVersionUID = -3254874291390874325L;
+
+    static final int LOWER = -1;
+    static final int UPPER = 1;
+
+    private final int size;
+    private final int sign;
+
+
+
+    TupleBound(final Object[] prefix, final int sign) {
+        super(prefix);
+        this.size = prefix.length;
+        this.sign = sign;
+    }
+
+
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+
+    @Override
+    int getBoundSign() {
+        return this.sign;
+    }
+
+}
@@ -0,0 +1,610 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>
+ * Compact binary encoding of tuples, meant for temporary files, logs and
+ * other places where tuples are written and read back by this same library.
+ * </p>
+ * <p>
+ * Every tuple is written as a one-byte class tag followed by its values.
+ * Values of the most common types (<tt>null</tt>, booleans, numbers,
+ * characters, strings, byte arrays and nested tuples) get their own compact
+ * representation, integers and longs being written as variable-length
+ * quantities. Any other {@link Serializable} value is written using standard
+ * Java serialization.
+ * </p>
+ * <p>
+ * As deserializing arbitrary classes from untrusted data can execute code,
+ * Java-serialized values are only read back when the caller opts in by
+ * passing a {@link ClassFilter} accepting their classes. Otherwise, reading
+ * them fails with an <tt>IOException</tt>.
+ * </p>
+ * <p>
+ * Decoding a tuple returns an instance of the same class that was encoded,
+ * and so an equal tuple.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleCodec {
+
+    /**
+     * <p>
+     * Decides which classes may be deserialized when reading values that
+     * were written using Java serialization.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public interface ClassFilter {
+
+        /**
+         * <p>
+         * Return whether a class may be deserialized. It is called for every
+         * class found in the serialized data, before loading it.
+         * </p>
+         *
+         * @param className the name of the class
+         * @return whether the class may be deserialized
+         */
+        public boolean accept(final String className);
+
+    }
+
+
+    /**
+     * <p>
+     * Filter accepting all classes, only to be used for data written by
+     * this same process (e.g. temporary files).
+     * </p>
+     */
+    public static final ClassFilter ALL_CLASSES = new ClassFilter() {
+        public boolean accept(final String className) {
+            return true;
+        }
+    };
+
+    // Tuple class tags: 1 to 10 are Unit..Tuple10
+    private static final int TAG_KEY_VALUE = 11;
+    private static final int TAG_LABEL_VALUE = 12;
+    // TupleN, followed by its size
+    private static final int TAG_TUPLE_N = 13;
+
+    // Value type tags
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int BYTE = 3;
+    private static final int SHORT = 4;
+    private static final int CHARACTER = 5;
+    private static final int INTEGER = 6;
+    private static final int LONG = 7;
+    private static final int FLOAT = 8;
+    private static final int DOUBLE = 9;
+    private static final int STRING = 10;
+    private static final int BYTE_ARRAY = 11;
+    private static final int TUPLE = 12;
+    private static final int SERIALIZED = 13;
+
+    // Lengths read from the input are trusted only up to this size: larger
+    // arrays grow with the data actually read, so that a corrupt length
+    // ends with an EOFException instead of a huge allocation
+    private static final int TRUSTED_LENGTH = 64 * 1024;
+
+
+
+    /**
+     * <p>
+     * Encode a tuple into a new byte array.
+     * </p>
+     *
+     * @param tuple the tuple to be encoded
+     * @return the encoded bytes
+     */
+    public static byte[] encode(final Tuple tuple) {
+        return encode(tuple, true);
+    }
+
+
+    /*
+     * Encode a tuple, optionally rejecting values which would need Java
+     * serialization (for data which will be read without a class filter).
+     */
+    static byte[] encode(final Tuple tuple, final boolean allowSerialized) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        try {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * tuple.getSize());
+            final DataOutputStream out = new DataOutputStream(bytes);
+            write(out, tuple, allowSerialized);
+            out.flush();
+            return bytes.toByteArray();
+        } catch (final IOException e) {
+            // Cannot happen when writing to memory, but for serialized values
+            throw new TupleIOException("Could not encode tuple", e);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Decode a tuple previously encoded with {@link #encode(Tuple)}, which
+     * must not contain Java-serialized values.
+     * </p>
+     *
+     * @param bytes the encoded bytes
+     * @return the decoded tuple
+     */
+    public static Tuple decode(final byte[] bytes) {
+        return decode(bytes, null);
+    }
+
+
+    /**
+     * <p>
+     * Decode a tuple previously encoded with {@link #encode(Tuple)}.
+     * </p>
+     *
+     * @param bytes the encoded bytes
+     * @param filter the classes which Java-serialized values may have, or
+     *        <tt>null</tt> for not allowing any
+     * @return the decoded tuple
+     */
+    public static Tuple decode(final byte[] bytes, final ClassFilter filter) {
+        if (bytes == null) {
+            throw new IllegalArgumentException("Bytes cannot be null");
+        }
+        try {
+            return read(new DataInputStream(new ByteArrayInputStream(bytes)), filter);
+        } catch (final IOException e) {
+            throw new TupleIOException("Could not decode tuple", e);
+        }
+    }
+
+
+
+    /**
+     * <p>
+     * Write a tuple to a {@link DataOutput}.
+     * </p>
+     *
+     * @param out the output the tuple will be written to
+     * @param tuple the tuple to be written
+     * @throws IOException if the output fails
+     */
+    public static void write(final DataOutput out, final Tuple tuple) throws IOException {
+        write(out, tuple, true);
+    }
+
+
+    static void write(final DataOutput out, final Tuple tuple, final boolean allowSerialized) throws IOException {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        final int tag = classTag(tuple);
+        final int size = tuple.getSize();
+        out.writeByte(tag);
+        if (tag == TAG_TUPLE_N) {
+            writeVarInt(out, size);
+        }
+        for (int i = 0; i < size; i++) {
+            writeValue(out, tuple.getValue(i), allowSerialized);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Read a tuple from a {@link DataInput}. The tuple must not contain
+     * Java-serialized values.
+     * </p>
+     *
+     * @param in the input the tuple will be read from
+     * @return the tuple
+     * @throws IOException if the input fails or does not contain a tuple
+     */
+    public static Tuple read(final DataInput in) throws IOException {
+        return read(in, null);
+    }
+
+
+    /**
+     * <p>
+     * Read a tuple from a {@link DataInput}.
+     * </p>
+     *
+     * @param in the input the tuple will be read from
+     * @param filter the classes which Java-serialized values may have, or
+     *        <tt>null</tt> for not allowing any
+     * @return the tuple
+     * @throws IOException if the input fails or does not contain a tuple
+     */
+    public static Tuple read(final DataInput in, final ClassFilter filter) throws IOException {
+
+        final int tag = in.readUnsignedByte();
+
+        if (tag == TAG_KEY_VALUE) {
+            return new KeyValue<Object,Object>(readValue(in, filter), readValue(in, filter));
+        }
+        if (tag == TAG_LABEL_VALUE) {
+            return new LabelValue<Object,Object>(readValue(in, filter), readValue(in, filter));
+        }
+        final int size;
+        if (tag == TAG_TUPLE_N) {
+            size = readLength(in);
+            if (size <= 10) {
+                throw new IOException("Invalid TupleN size: " + size);
+            }
+        } else if (tag >= 1 && tag <= 10) {
+            size = tag;
+        } else {
+            throw new IOException("Unknown tuple class tag: " + tag);
+        }
+
+        if (size <= TRUSTED_LENGTH) {
+            final Object[] values = new Object[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = readValue(in, filter);
+            }
+            return TupleFactory.adopt(values);
+        }
+        final List<Object> values = new ArrayList<Object>(TRUSTED_LENGTH);
+        for (int i = 0; i < size; i++) {
+            values.add(readValue(in, filter));
+        }
+        return TupleFactory.adopt(values.toArray());
+
+    }
+
+
+
+    /**
+     * <p>
+     * Write a single value to a {@link DataOutput}, using the same encoding
+     * used for tuple values.
+     * </p>
+     *
+     * @param out the output the value will be written to
+     * @param value the value to be written
+     * @throws IOException if the output fails or the value cannot be encoded
+     */
+    public static void writeValue(final DataOutput out, final Object value) throws IOException {
+        writeValue(out, value, true);
+    }
+
+
+    private static void writeValue(final DataOutput out, final Object value, final boolean allowSerialized)
+            throws IOException {
+
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            final String str = (String) value;
+            final int len = str.length();
+            out.writeByte(STRING);
+            writeVarInt(out, len);
+            for (int i = 0; i < len; i++) {
+                writeVarInt(out, str.charAt(i));
+            }
+        } else if (value instanceof Integer) {
+            out.writeByte(INTEGER);
+            writeVarLong(out, ((Integer) value).intValue());
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            writeVarLong(out, ((Long) value).longValue());
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(((Double) value).doubleValue());
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value).booleanValue() ? TRUE : FALSE);
+        } else if (value instanceof Tuple) {
+            out.writeByte(TUPLE);
+            write(out, (Tuple) value, allowSerialized);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat(((Float) value).floatValue());
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort(((Short) value).shortValue());
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte(((Byte) value).byteValue());
+        } else if (value instanceof Character) {
+            out.writeByte(CHARACTER);
+            out.writeChar(((Character) value).charValue());
+        } else if (value instanceof byte[]) {
+            final byte[] bytes = (byte[]) value;
+            out.writeByte(BYTE_ARRAY);
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        } else if (value instanceof Serializable) {
+            if (!allowSerialized) {
+                throw new IOException(
+                        "Cannot encode value of class " + value.getClass().getName() +
+                        ": Java serialization is not allowed here");
+            }
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final ObjectOutputStream objOut = new ObjectOutputStream(bytes);
+            objOut.writeObject(value);
+            objOut.close();
+            out.writeByte(SERIALIZED);
+            writeVarInt(out, bytes.size());
+            out.write(bytes.toByteArray());
+        } else {
+            throw new IOException(
+                    "Cannot encode value of class " + value.getClass().getName() + ": it is not serializable");
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Read a single value written with {@link #writeValue(DataOutput, Object)},
+     * which must not be a Java-serialized value.
+     * </p>
+     *
+     * @param in the input the value will be read from
+     * @return the value
+     * @throws IOException if the input fails or does not contain a value
+     */
+    public static Object readValue(final DataInput in) throws IOException {
+        return readValue(in, null);
+    }
+
+
+    /**
+     * <p>
+     * Read a single value written with {@link #writeValue(DataOutput, Object)}.
+     * </p>
+     *
+     * @param in the input the value will be read from
+     * @param filter the classes which Java-serialized values may have, or
+     *        <tt>null</tt> for not allowing any
+     * @return the value
+     * @throws IOException if the input fails or does not contain a value
+     */
+    public static Object readValue(final DataInput in, final ClassFilter filter) throws IOException {
+
+        final int tag = in.readUnsignedByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case FALSE:
+                return Boolean.FALSE;
+            case TRUE:
+                return Boolean.TRUE;
+            case BYTE:
+                return Byte.valueOf(in.readByte());
+            case SHORT:
+                return Short.valueOf(in.readShort());
+            case CHARACTER:
+                return Character.valueOf(in.readChar());
+            case INTEGER:
+                return Integer.valueOf((int) readVarLong(in));
+            case LONG:
+                return Long.valueOf(readVarLong(in));
+            case FLOAT:
+                return Float.valueOf(in.readFloat());
+            case DOUBLE:
+                return Double.valueOf(in.readDouble());
+            case STRING: {
+                final int len = readLength(in);
+                final StringBuilder str = new StringBuilder(Math.min(len, TRUSTED_LENGTH));
+                for (int i = 0; i < len; i++) {
+                    str.append((char) readVarInt(in));
+                }
+                return str.toString();
+            }
+            case BYTE_ARRAY:
+                return readBytes(in, readLength(in));
+            case TUPLE:
+                return read(in, filter);
+            case SERIALIZED: {
+                if (filter == null) {
+                    throw new IOException("Cannot decode Java-serialized value: no class filter has been specified");
+                }
+                final byte[] bytes = readBytes(in, readLength(in));
+                final ObjectInputStream objIn =
+                        new FilteringObjectInputStream(new ByteArrayInputStream(bytes), filter);
+                try {
+                    return objIn.readObject();
+                } catch (final ClassNotFoundException e) {
+                    throw new IOException("Cannot decode serialized value: " + e.getMessage());
+                } finally {
+                    objIn.close();
+                }
+            }
+            default:
+                throw new IOException("Unknown value type tag: " + tag);
+        }
+
+    }
+
+
+
+
+    private static int classTag(final Tuple tuple) {
+        if (tuple instanceof KeyValue<?,?>) {
+            return TAG_KEY_VALUE;
+        }
+        if (tuple instanceof LabelValue<?,?>) {
+            return TAG_LABEL_VALUE;
+        }
+        final int size = tuple.getSize();
+        if (tuple instanceof TupleN) {
+            return TAG_TUPLE_N;
+        }
+        if (size < 1 || size > 10) {
+            throw new IllegalArgumentException(
+                    "Cannot encode tuple of class " + tuple.getClass().getName() + " and size " + size);
+        }
+        return size;
+    }
+
+
+
+    /*
+     * Unsigned variable-length quantity: 7 bits per byte, high bit set on
+     * every byte but the last one.
+     */
+    static void writeVarInt(final DataOutput out, final int value) throws IOException {
+        int v = value;
+        while ((v & ~0x7F) != 0) {
+            out.writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        out.writeByte(v);
+    }
+
+
+    private static int readLength(final DataInput in) throws IOException {
+        final int length = readVarInt(in);
+        if (length < 0) {
+            throw new IOException("Invalid length: " + (length & 0xFFFFFFFFL));
+        }
+        return length;
+    }
+
+
+    private static byte[] readBytes(final DataInput in, final int length) throws IOException {
+        if (length <= TRUSTED_LENGTH) {
+            final byte[] bytes = new byte[length];
+            in.readFully(bytes);
+            return bytes;
+        }
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(TRUSTED_LENGTH);
+        final byte[] chunk = new byte[TRUSTED_LENGTH];
+        int remaining = length;
+        while (remaining > 0) {
+            final int n = Math.min(remaining, chunk.length);
+            in.readFully(chunk, 0, n);
+            bytes.write(chunk, 0, n);
+            remaining -= n;
+        }
+        return bytes.toByteArray();
+    }
+
+
+    static int readVarInt(final DataInput in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length int");
+    }
+
+
+    /*
+     * Signed values are zigzag-encoded first, so that small negative numbers
+     * are also written in few bytes.
+     */
+    static void writeVarLong(final DataOutput out, final long value) throws IOException {
+        long v = (value << 1) ^ (value >> 63);
+        while ((v & ~0x7FL) != 0L) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+
+    static long readVarLong(final DataInput in) throws IOException {
+        long value = 0L;
+        for (int shift = 0; shift < 70; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (value >>> 1) ^ -(value & 1L);
+            }
+        }
+        throw new IOException("Malformed variable-length long");
+    }
+
+
+
+    /*
+     * Object input stream which checks every class against a filter before
+     * loading it.
+     */
+    private static final class FilteringObjectInputStream extends ObjectInputStream {
+
+        private final ClassFilter filter;
+
+
+        FilteringObjectInputStream(final InputStream in, final ClassFilter filter) throws IOException {
+            super(in);
+            this.filter = filter;
+        }
+
+
+        @Override
+        protected Class<?> resolveClass(final ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+            if (!this.filter.accept(desc.getName())) {
+                throw new InvalidClassException(desc.getName(), "Class not allowed by tuple codec filter");
+            }
+            return super.resolveClass(desc);
+        }
+
+
+        @Override
+        protected Class<?> resolveProxyClass(final String[] interfaces) throws IOException, ClassNotFoundException {
+            for (int i = 0; i < interfaces.length; i++) {
+                if (!this.filter.accept(interfaces[i])) {
+                    throw new InvalidClassException(interfaces[i], "Class not allowed by tuple codec filter");
+                }
+            }
+            return super.resolveProxyClass(interfaces);
+        }
+
+    }
+
+
+
+    private TupleCodec() {
+        super();
+    }
+
+}
@@ -0,0 +1,165 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+
+/**
+ * <p>
+ * Comparators for tuples.
+ * </p>
+ * <p>
+ * Unless a specific comparator is given for their values, comparators
+ * returned by this class compare values the same way
+ * {@link Tuple#compareTo(Tuple)} does: values must be {@link Comparable}
+ * and not <tt>null</tt>.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleComparators {
+
+    private static final Comparator<Tuple> NATURAL = new NaturalComparator();
+
+
+
+    /**
+     * <p>
+     * Return a comparator using the natural ordering of tuples, as defined
+     * by {@link Tuple#compareTo(Tuple)}.
+     * </p>
+     *
+     * @param <T> the type of the tuples to be compared
+     * @return the comparator
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static <T extends Tuple> Comparator<T> natural() {
+        return (Comparator) NATURAL;
+    }
+
+
+    /**
+     * <p>
+     * Return a comparator ordering tuples by the natural ordering of the
+     * values at a specific position.
+     * </p>
+     *
+     * @param <T> the type of the tuples to be compared
+     * @param pos the position of the values to be compared
+     * @return the comparator
+     */
+    public static <T extends Tuple> Comparator<T> byPosition(final int pos) {
+        return new PositionComparator<T>(pos, null);
+    }
+
+
+    /**
+     * <p>
+     * Return a comparator ordering tuples by the values at a specific
+     * position, compared with the specified comparator.
+     * </p>
+     *
+     * @param <T> the type of the tuples to be compared
+     * @param pos the position of the values to be compared
+     * @param valueComparator the comparator for the values at <tt>pos</tt>
+     * @return the comparator
+     */
+    public static <T extends Tuple> Comparator<T> byPosition(final int pos, final Comparator<?> valueComparator) {
+        if (valueComparator == null) {
+            throw new IllegalArgumentException("Value comparator cannot be null");
+        }
+        return new PositionComparator<T>(pos, valueComparator);
+    }
+
+
+
+
+    private static final class NaturalComparator implements Comparator<Tuple>, Serializable {
+
+        private static final long serialVersionUID = -6004372389848391427L;
+
+        NaturalComparator() {
+            super();
+        }
+
+        public int compare(final Tuple o1, final Tuple o2) {
+            return o1.compareTo(o2);
+        }
+
+    }
+
+
+    private static final class PositionComparator<T extends Tuple> implements Comparator<T>, Serializable {
+
+        private static final long serialVersionUID = 2237715427096395236L;
+
+        private final int pos;
+        private final Comparator<Object> valueComparator;
+
+        @SuppressWarnings("unchecked")
+        PositionComparator(final int pos, final Comparator<?> valueComparator) {
+            super();
+            if (pos < 0) {
+                throw new IllegalArgumentException("Position cannot be negative: " + pos);
+            }
+            this.pos = pos;
+            this.valueComparator = (Comparator<Object>) valueComparator;
+        }
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public int compare(final T o1, final T o2) {
+            final Object v1 = o1.getValue(this.pos);
+            final Object v2 = o2.getValue(this.pos);
+            if (this.valueComparator != null) {
+                return this.valueComparator.compare(v1, v2);
+            }
+            return ((Comparable) v1).compareTo(v2);
+        }
+
+        // Comparators on the same position are equal, so that selections and
+        // merges using separately created ones can be checked for compatibility
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof PositionComparator<?>)) {
+                return false;
+            }
+            final PositionComparator<?> other = (PositionComparator<?>) obj;
+            return this.pos == other.pos &&
+                    (this.valueComparator == null ?
+                            other.valueComparator == null : this.valueComparator.equals(other.valueComparator));
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.pos + (this.valueComparator == null ? 0 : this.valueComparator.hashCode());
+        }
+
+    }
+
+
+
+    private TupleComparators() {
+        super();
+    }
+
+}
@@ -0,0 +1,548 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ * <p>
+ * Sorts sequences of tuples that might not fit in memory.
+ * </p>
+ * <p>
+ * Tuples are added to an in-memory buffer of at most
+ * <tt>maxTuplesInMemory</tt> elements. Each time the buffer fills up it is
+ * sorted (in parallel, if an {@link ExecutorService} was specified) and
+ * written to a temporary file as a <em>run</em>, using the compact encoding
+ * of {@link TupleCodec}. Calling {@link #sort()} then returns an iterator
+ * that streams the result by merging all runs (and whatever remained in the
+ * buffer) through a tournament tree of losers.
+ * </p>
+ * <p>
+ * As tuples are read back from disk, values should be of the types that
+ * {@link TupleCodec} supports or be serializable. Sorting is stable.
+ * </p>
+ * <p>
+ * Sorters are meant to be used once, and must be closed in order to delete
+ * their temporary files:
+ * </p>
+ * <pre>
+ *     final TupleExternalSorter&lt;Tuple3&lt;String,Long,Double&gt;&gt; sorter =
+ *         new TupleExternalSorter&lt;Tuple3&lt;String,Long,Double&gt;&gt;(comparator, 1000000, null, executor);
+ *     try {
+ *         sorter.addAll(tuples);
+ *         final Iterator&lt;Tuple3&lt;String,Long,Double&gt;&gt; sorted = sorter.sort();
+ *         ...
+ *     } finally {
+ *         sorter.close();
+ *     }
+ * </pre>
+ * <p>
+ * Instances of this class are not thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the tuples being sorted
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleExternalSorter<T extends Tuple> implements Closeable {
+
+    // Maximum number of runs merged at the same time (and so, open files)
+    private static final int MAX_FAN_IN = 64;
+
+    // Buffers smaller than this are always sorted in the calling thread
+    private static final int PARALLEL_THRESHOLD = 8192;
+
+    private static final int IO_BUFFER_SIZE = 65536;
+
+    private final Comparator<? super T> comparator;
+    private final int maxTuplesInMemory;
+    private final File directory;
+    private final ExecutorService executor;
+
+    private Tuple[] buffer;
+    private int buffered = 0;
+    private final List<Run> runs = new ArrayList<Run>();
+    private final List<Closeable> openInputs = new ArrayList<Closeable>();
+    private boolean sorted = false;
+    private boolean closed = false;
+
+    private long tuplesSorted = 0L;
+    private long tuplesSpilled = 0L;
+    private long bytesSpilled = 0L;
+    private int runsSpilled = 0;
+    private int mergePasses = 0;
+    private long sortNanos = 0L;
+
+
+
+    /**
+     * <p>
+     * Create a sorter using the natural ordering of tuples, the default
+     * temporary directory and no parallelism.
+     * </p>
+     *
+     * @param maxTuplesInMemory the memory budget, as a number of tuples
+     */
+    public TupleExternalSorter(final int maxTuplesInMemory) {
+        this(null, maxTuplesInMemory, null, null);
+    }
+
+
+    /**
+     * <p>
+     * Create a sorter.
+     * </p>
+     *
+     * @param comparator the comparator, or <tt>null</tt> for the natural
+     *        ordering of tuples
+     * @param maxTuplesInMemory the memory budget, as a number of tuples
+     * @param directory the directory for temporary files, or <tt>null</tt> for
+     *        the default temporary directory
+     * @param executor the executor runs will be sorted on, or <tt>null</tt> for
+     *        sorting them in the calling thread
+     */
+    public TupleExternalSorter(
+            final Comparator<? super T> comparator, final int maxTuplesInMemory,
+            final File directory, final ExecutorService executor) {
+        super();
+        if (maxTuplesInMemory <= 0) {
+            throw new IllegalArgumentException("Maximum number of tuples in memory must be positive");
+        }
+        if (comparator != null) {
+            this.comparator = comparator;
+        } else {
+            this.comparator = TupleComparators.<T>natural();
+        }
+        this.maxTuplesInMemory = maxTuplesInMemory;
+        this.directory = directory;
+        this.executor = executor;
+        this.buffer = new Tuple[Math.min(maxTuplesInMemory, 1024)];
+    }
+
+
+
+    public void add(final T tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Cannot sort null tuples");
+        }
+        if (this.sorted || this.closed) {
+            throw new IllegalStateException("Cannot add tuples to a sorter after sort() or close() have been called");
+        }
+        if (this.buffered == this.buffer.length) {
+            if (this.buffered == this.maxTuplesInMemory) {
+                spill();
+            } else {
+                final Tuple[] newBuffer =
+                        new Tuple[(int) Math.min((long) this.maxTuplesInMemory, 2L * this.buffer.length)];
+                System.arraycopy(this.buffer, 0, newBuffer, 0, this.buffered);
+                this.buffer = newBuffer;
+            }
+        }
+        this.buffer[this.buffered++] = tuple;
+        this.tuplesSorted++;
+    }
+
+
+    public void addAll(final Iterable<? extends T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        for (final T tuple : tuples) {
+            add(tuple);
+        }
+    }
+
+
+
+    /**
+     * <p>
+     * Finish adding tuples, and return an iterator on all of them, sorted.
+     * This method can only be called once.
+     * </p>
+     *
+     * @return the sorted tuples
+     */
+    public Iterator<T> sort() {
+
+        if (this.sorted || this.closed) {
+            throw new IllegalStateException("Sorter has already been sorted or closed");
+        }
+        this.sorted = true;
+
+        final long start = System.nanoTime();
+        try {
+
+            final Iterator<T> inMemory = sortBuffer();
+            if (this.runs.isEmpty()) {
+                return inMemory;
+            }
+
+            // Reduce the number of runs until they can all be merged at once, one
+            // level at a time: each pass replaces every group of MAX_FAN_IN
+            // consecutive runs by their merge, in place, so that each tuple is
+            // rewritten once per pass and the relative order of runs (and so, the
+            // stability of the sort) is kept
+            while (this.runs.size() + 1 > MAX_FAN_IN) {
+                for (int i = 0; i < this.runs.size() - 1; i++) {
+                    final int end = Math.min(i + MAX_FAN_IN, this.runs.size());
+                    final List<Run> merged = new ArrayList<Run>(this.runs.subList(i, end));
+                    final List<Iterator<T>> sources = new ArrayList<Iterator<T>>(merged.size());
+                    for (final Run source : merged) {
+                        sources.add(source.open());
+                    }
+                    final Run run = writeRun(new LoserTree<T>(sources, this.comparator));
+                    this.runs.subList(i, end).clear();
+                    this.runs.add(i, run);
+                    for (final Run source : merged) {
+                        source.delete();
+                    }
+                }
+                this.mergePasses++;
+            }
+
+            final List<Iterator<T>> sources = new ArrayList<Iterator<T>>(this.runs.size() + 1);
+            for (final Run run : this.runs) {
+                sources.add(run.open());
+            }
+            sources.add(inMemory);
+            this.mergePasses++;
+            return new LoserTree<T>(sources, this.comparator);
+
+        } catch (final IOException e) {
+            throw new TupleIOException("Could not merge sorted runs", e);
+        } finally {
+            this.sortNanos += System.nanoTime() - start;
+        }
+
+    }
+
+
+
+    /**
+     * <p>
+     * Close all temporary files and delete them. Iterators returned by
+     * {@link #sort()} cannot be used after calling this method.
+     * </p>
+     */
+    public void close() {
+        this.closed = true;
+        this.buffer = null;
+        for (final Closeable input : this.openInputs) {
+            try {
+                input.close();
+            } catch (final IOException ignored) {
+                // Nothing else to do with it
+            }
+        }
+        this.openInputs.clear();
+        for (final Run run : this.runs) {
+            run.delete();
+        }
+        this.runs.clear();
+    }
+
+
+
+    public Statistics getStatistics() {
+        return new Statistics(
+                this.tuplesSorted, this.tuplesSpilled, this.bytesSpilled,
+                this.runsSpilled, this.mergePasses, this.sortNanos);
+    }
+
+
+
+
+    private void spill() {
+        final long start = System.nanoTime();
+        try {
+            this.runs.add(writeRun(sortBuffer()));
+            this.runsSpilled++;
+            this.tuplesSpilled += this.buffered;
+            this.buffered = 0;
+        } catch (final IOException e) {
+            throw new TupleIOException("Could not spill sorted run", e);
+        } finally {
+            this.sortNanos += System.nanoTime() - start;
+        }
+    }
+
+
+    /*
+     * Sorts the buffer and returns an iterator on it. Large buffers are split
+     * into one chunk per available processor, chunks are sorted on the
+     * executor, and the returned iterator merges them.
+     */
+    private Iterator<T> sortBuffer() {
+
+        final Tuple[] array = this.buffer;
+        final int size = this.buffered;
+        @SuppressWarnings("unchecked")
+        final Comparator<Object> cmp = (Comparator<Object>) this.comparator;
+
+        if (this.executor == null || size < PARALLEL_THRESHOLD) {
+            Arrays.sort(array, 0, size, cmp);
+            return new ArrayIterator<T>(array, 0, size);
+        }
+
+        final int[] bounds = ParallelTasks.bounds(size, Runtime.getRuntime().availableProcessors());
+        final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    Arrays.sort(array, from, to, cmp);
+                    return null;
+                }
+            });
+        }
+        ParallelTasks.invokeAll(this.executor, tasks);
+
+        final List<Iterator<T>> chunks = new ArrayList<Iterator<T>>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            chunks.add(new ArrayIterator<T>(array, bounds[i], bounds[i + 1]));
+        }
+        return new LoserTree<T>(chunks, this.comparator);
+
+    }
+
+
+    private Run writeRun(final Iterator<T> sortedTuples) throws IOException {
+        final File file = File.createTempFile("javatuples-sort-", ".run", this.directory);
+        final Run run = new Run(file);
+        final DataOutputStream out =
+                new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), IO_BUFFER_SIZE));
+        try {
+            while (sortedTuples.hasNext()) {
+                final T tuple = sortedTuples.next();
+                TupleCodec.write(out, tuple);
+                run.count++;
+            }
+        } catch (final IOException e) {
+            out.close();
+            run.delete();
+            throw e;
+        }
+        out.close();
+        this.bytesSpilled += file.length();
+        return run;
+    }
+
+
+
+
+    private final class Run {
+
+        private final File file;
+        int count = 0;
+
+
+        Run(final File file) {
+            super();
+            this.file = file;
+        }
+
+
+        Iterator<T> open() throws IOException {
+
+            final DataInputStream in =
+                    new DataInputStream(new BufferedInputStream(new FileInputStream(this.file), IO_BUFFER_SIZE));
+            TupleExternalSorter.this.openInputs.add(in);
+            final int total = this.count;
+
+            return new Iterator<T>() {
+
+                private int remaining = total;
+
+                public boolean hasNext() {
+                    return this.remaining > 0;
+                }
+
+                @SuppressWarnings("unchecked")
+                public T next() {
+                    if (this.remaining <= 0) {
+                        throw new NoSuchElementException();
+                    }
+                    try {
+                        final T tuple = (T) TupleCodec.read(in, TupleCodec.ALL_CLASSES);
+                        if (--this.remaining == 0) {
+                            in.close();
+                        }
+                        return tuple;
+                    } catch (final IOException e) {
+                        throw new TupleIOException("Could not read sorted run " + Run.this.file, e);
+                    }
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            };
+
+        }
+
+
+        void delete() {
+            this.file.delete();
+        }
+
+    }
+
+
+
+
+    private static final class ArrayIterator<T> implements Iterator<T> {
+
+        private final Object[] array;
+        private final int to;
+        private int index;
+
+
+        ArrayIterator(final Object[] array, final int from, final int to) {
+            super();
+            this.array = array;
+            this.index = from;
+            this.to = to;
+        }
+
+
+        public boolean hasNext() {
+            return this.index < this.to;
+        }
+
+
+        @SuppressWarnings("unchecked")
+        public T next() {
+            if (this.index >= this.to) {
+                throw new NoSuchElementException();
+            }
+            return (T) this.array[this.index++];
+        }
+
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     * Counters describing the work done by a sorter. Times only include the
+     * sorting and spilling of runs and the intermediate merge passes, not the
+     * final merge (which happens while the result is being iterated).
+     * </p>
+     *
+     * @since 1.3
+     *
+     */
+    public static final class Statistics {
+
+        private final long tuplesSorted;
+        private final long tuplesSpilled;
+        private final long bytesSpilled;
+        private final int runsSpilled;
+        private final int mergePasses;
+        private final long sortNanos;
+
+
+        Statistics(
+                final long tuplesSorted, final long tuplesSpilled, final long bytesSpilled,
+                final int runsSpilled, final int mergePasses, final long sortNanos) {
+            super();
+            this.tuplesSorted = tuplesSorted;
+            this.tuplesSpilled = tuplesSpilled;
+            this.bytesSpilled = bytesSpilled;
+            this.runsSpilled = runsSpilled;
+            this.mergePasses = mergePasses;
+            this.sortNanos = sortNanos;
+        }
+
+
+        public long getTuplesSorted() {
+            return this.tuplesSorted;
+        }
+
+        public long getTuplesSpilled() {
+            return this.tuplesSpilled;
+        }
+
+        public long getBytesSpilled() {
+            return this.bytesSpilled;
+        }
+
+        public int getRunsSpilled() {
+            return this.runsSpilled;
+        }
+
+        public int getMergePasses() {
+            return this.mergePasses;
+        }
+
+        public long getSortNanos() {
+            return this.sortNanos;
+        }
+
+
+        /**
+         * <p>
+         * Return the number of tuples sorted per second of sorting time.
+         * </p>
+         *
+         * @return the throughput, in tuples per second
+         */
+        public double getThroughput() {
+            return (this.sortNanos == 0L) ? 0.0 : (this.tuplesSorted * 1000000000.0) / this.sortNanos;
+        }
+
+
+        @Override
+        public String toString() {
+            return "[tuplesSorted=" + this.tuplesSorted + ", tuplesSpilled=" + this.tuplesSpilled +
+                   ", bytesSpilled=" + this.bytesSpilled + ", runsSpilled=" + this.runsSpilled +
+                   ", mergePasses=" + this.mergePasses + ", sortMillis=" + (this.sortNanos / 1000000L) +
+                   ", tuplesPerSecond=" + (long) getThroughput() + "]";
+        }
+
+    }
+
+}
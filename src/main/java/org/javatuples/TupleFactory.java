@@ -0,0 +1,302 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+
+/**
+ * <p>
+ * Creation of tuples whose size is only known at runtime, like rows read
+ * from a database or decoded from a network frame.
+ * </p>
+ * <p>
+ * All methods return a tuple of the class matching the number of values
+ * (<tt>Unit</tt> for one value, <tt>Tuple2</tt> for two, etc. and
+ * {@link TupleN} for more than ten). Tuples are created directly from the
+ * source values, with no intermediate arrays or collections: the only array
+ * allocated is the one the tuple keeps its values in, and
+ * {@link #adopt(Object[])} does not even allocate that one.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleFactory {
+
+
+
+    /*
+     * Marker for the package-private constructors of tuple classes which
+     * adopt the array they receive instead of copying it.
+     */
+    enum Trusted { ADOPT }
+
+
+
+
+    /**
+     * <p>
+     * Create a tuple with the values in an array. The array is not modified
+     * nor kept by the tuple.
+     * </p>
+     *
+     * @param values the values of the tuple, at least one
+     * @return the tuple
+     */
+    public static Tuple fromArray(final Object[] values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+        return fromArray(values, 0, values.length);
+    }
+
+
+    /**
+     * <p>
+     * Create a tuple with the values in a range of an array. The array is not
+     * modified nor kept by the tuple.
+     * </p>
+     *
+     * @param src the array containing the values
+     * @param offset the position of the first value in the array
+     * @param length the number of values, at least one
+     * @return the tuple
+     */
+    public static Tuple fromArray(final Object[] src, final int offset, final int length) {
+
+        if (src == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+        if (offset < 0 || length < 0 || offset > src.length - length) {
+            throw new IllegalArgumentException(
+                    "Invalid range: offset " + offset + " and length " + length +
+                    " in an array of length " + src.length);
+        }
+
+        final int o = offset;
+        switch (length) {
+            case 0:
+                throw new IllegalArgumentException("Cannot create a tuple with no elements");
+            case 1:
+                return new Unit<Object>(src[o]);
+            case 2:
+                return new Tuple2<Object,Object>(src[o], src[o + 1]);
+            case 3:
+                return new Tuple3<Object,Object,Object>(src[o], src[o + 1], src[o + 2]);
+            case 4:
+                return new Tuple4<Object,Object,Object,Object>(src[o], src[o + 1], src[o + 2], src[o + 3]);
+            case 5:
+                return new Tuple5<Object,Object,Object,Object,Object>(
+                        src[o], src[o + 1], src[o + 2], src[o + 3], src[o + 4]);
+            case 6:
+                return new Tuple6<Object,Object,Object,Object,Object,Object>(
+                        src[o], src[o + 1], src[o + 2], src[o + 3], src[o + 4], src[o + 5]);
+            case 7:
+                return new Tuple7<Object,Object,Object,Object,Object,Object,Object>(
+                        src[o], src[o + 1], src[o + 2], src[o + 3], src[o + 4], src[o + 5], src[o + 6]);
+            case 8:
+                return new Tuple8<Object,Object,Object,Object,Object,Object,Object,Object>(
+                        src[o], src[o + 1], src[o + 2], src[o + 3], src[o + 4], src[o + 5], src[o + 6],
+                        src[o + 7]);
+            case 9:
+                return new Tuple9<Object,Object,Object,Object,Object,Object,Object,Object,Object>(
+                        src[o], src[o + 1], src[o + 2], src[o + 3], src[o + 4], src[o + 5], src[o + 6],
+                        src[o + 7], src[o + 8]);
+            case 10:
+                return new Tuple10<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object>(
+                        src[o], src[o + 1], src[o + 2], src[o + 3], src[o + 4], src[o + 5], src[o + 6],
+                        src[o + 7], src[o + 8], src[o + 9]);
+            default:
+                final Object[] values = new Object[length];
+                System.arraycopy(src, offset, values, 0, length);
+                return new TupleN(values);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Create a tuple which takes ownership of an array, using it for storing
+     * its values without copying it. The caller must not modify the array
+     * afterwards.
+     * </p>
+     *
+     * @param values the values of the tuple, at least one
+     * @return the tuple
+     */
+    public static Tuple adopt(final Object[] values) {
+
+        if (values == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+
+        final Trusted t = Trusted.ADOPT;
+        switch (values.length) {
+            case 0:
+                throw new IllegalArgumentException("Cannot create a tuple with no elements");
+            case 1:
+                return new Unit<Object>(t, values);
+            case 2:
+                return new Tuple2<Object,Object>(t, values);
+            case 3:
+                return new Tuple3<Object,Object,Object>(t, values);
+            case 4:
+                return new Tuple4<Object,Object,Object,Object>(t, values);
+            case 5:
+                return new Tuple5<Object,Object,Object,Object,Object>(t, values);
+            case 6:
+                return new Tuple6<Object,Object,Object,Object,Object,Object>(t, values);
+            case 7:
+                return new Tuple7<Object,Object,Object,Object,Object,Object,Object>(t, values);
+            case 8:
+                return new Tuple8<Object,Object,Object,Object,Object,Object,Object,Object>(t, values);
+            case 9:
+                return new Tuple9<Object,Object,Object,Object,Object,Object,Object,Object,Object>(t, values);
+            case 10:
+                return new Tuple10<Object,Object,Object,Object,Object,Object,Object,Object,Object,Object>(t, values);
+            default:
+                return new TupleN(values);
+        }
+
+    }
+
+
+
+    /**
+     * <p>
+     * Create a tuple with the values in a range of a list. If the list
+     * supports fast random access, elements before the range are not
+     * iterated.
+     * </p>
+     *
+     * @param list the list containing the values
+     * @param offset the position of the first value in the list
+     * @param length the number of values, at least one
+     * @return the tuple
+     */
+    public static Tuple fromList(final List<?> list, final int offset, final int length) {
+
+        if (list == null) {
+            throw new IllegalArgumentException("List cannot be null");
+        }
+        final int size = list.size();
+        if (offset < 0 || length < 0 || offset > size - length) {
+            throw new IllegalArgumentException(
+                    "Invalid range: offset " + offset + " and length " + length +
+                    " in a list of size " + size);
+        }
+
+        final Object[] values = new Object[length];
+        if (list instanceof RandomAccess) {
+            for (int i = 0; i < length; i++) {
+                values[i] = list.get(offset + i);
+            }
+        } else {
+            final Iterator<?> iter = list.listIterator(offset);
+            for (int i = 0; i < length; i++) {
+                values[i] = iter.next();
+            }
+        }
+        return adopt(values);
+
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples of <tt>arity</tt> consecutive elements of a list,
+     * starting at positions <tt>0</tt>, <tt>step</tt>, <tt>2 * step</tt>, etc.
+     * Windows not fitting completely in the list are not returned.
+     * </p>
+     * <p>
+     * Tuples are created lazily while iterating, and every one of them is
+     * created directly from its range of the list, with no iteration from
+     * the start of the list (lists without fast random access are copied to
+     * an array once, when iteration starts).
+     * </p>
+     *
+     * @param list the list
+     * @param arity the size of the tuples
+     * @param step the distance between the first elements of consecutive
+     *        tuples
+     * @return a lazy iterable of tuples
+     */
+    public static Iterable<Tuple> window(final List<?> list, final int arity, final int step) {
+
+        if (list == null) {
+            throw new IllegalArgumentException("List cannot be null");
+        }
+        if (arity < 1) {
+            throw new IllegalArgumentException("Arity must be at least 1");
+        }
+        if (step < 1) {
+            throw new IllegalArgumentException("Step must be at least 1");
+        }
+
+        return new Iterable<Tuple>() {
+
+            public Iterator<Tuple> iterator() {
+
+                final List<?> source =
+                    (list instanceof RandomAccess) ? list : Arrays.asList(list.toArray());
+
+                return new Iterator<Tuple>() {
+
+                    private int offset = 0;
+
+                    public boolean hasNext() {
+                        // offset becomes negative if it overflows after a huge step
+                        return this.offset >= 0 && this.offset <= source.size() - arity;
+                    }
+
+                    public Tuple next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        final Tuple tuple = fromList(source, this.offset, arity);
+                        this.offset += step;
+                        return tuple;
+                    }
+
+                    public void remove() {
+                        throw new UnsupportedOperationException("Windows cannot be removed");
+                    }
+
+                };
+
+            }
+
+        };
+
+    }
+
+
+
+    private TupleFactory() {
+        super();
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.IOException;
+
+
+/**
+ * <p>
+ * Custom formatting of the values of a tuple, used by
+ * {@link Tuple#appendTo(Appendable, TupleFormatter)} and
+ * {@link Tuple#appendTo(StringBuilder, TupleFormatter)}. The brackets and
+ * separators around values are still written by the tuple, so formatters only
+ * need to deal with values (for example, for masking some positions, quoting
+ * strings or formatting numbers).
+ * </p>
+ * <p>
+ * Implementations should write directly to the output, without creating
+ * intermediate strings, if they are going to be used on hot paths.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public interface TupleFormatter {
+
+    /**
+     * <p>
+     * Write a value of a tuple.
+     * </p>
+     *
+     * @param out the output
+     * @param pos the position of the value in the tuple
+     * @param value the value, which can be <tt>null</tt>
+     * @throws IOException if the output fails
+     */
+    public void formatValue(final Appendable out, final int pos, final Object value) throws IOException;
+
+}
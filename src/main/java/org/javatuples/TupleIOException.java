@@ -0,0 +1,51 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.IOException;
+
+
+/**
+ * <p>
+ * Unchecked exception wrapping an {@link IOException} raised while tuples
+ * were being written to or read from disk by an operation whose signature
+ * cannot declare it (for example, inside an iterator).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public class TupleIOException extends RuntimeException {
+
+    private static final long serialVersionUID = -2915209271373591718L;
+
+
+
+    public TupleIOException(final String message, final IOException cause) {
+        super(message, cause);
+    }
+
+
+    @Override
+    public IOException getCause() {
+        return (IOException) super.getCause();
+    }
+
+}
@@ -0,0 +1,555 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+
+/**
+ * <p>
+ * Secondary index over a collection of tuples, on the values found at one
+ * or more positions (the <em>key</em> of each tuple).
+ * </p>
+ * <p>
+ * <em>Hash</em> indexes answer equality queries on the whole key.
+ * <em>Sorted</em> indexes also answer prefix queries (on the first values of
+ * the key) and range queries, returning tuples in key order. Sorted indexes
+ * need key values implementing {@link Comparable}; <tt>null</tt> key values
+ * are allowed, and sort before any other value.
+ * </p>
+ * <p>
+ * Tuples are stored in the index and identified by an int <em>row id</em>,
+ * returned on insertion and valid until the row is deleted (ids of deleted
+ * rows are reused). For each distinct key, the index keeps a posting list of
+ * row ids in an <tt>int[]</tt>, in insertion order, instead of a collection
+ * of boxed references.
+ * </p>
+ * <p>
+ * Indexes are not thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the indexed tuples
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleIndex<T extends Tuple> {
+
+    private static final Object[] NO_ROWS = new Object[0];
+
+    private final int[] positions;
+    private final boolean sorted;
+    private final Map<Tuple,RowIds> postings;
+
+    private Object[] rows = NO_ROWS;
+    private int rowCount = 0;
+    private int size = 0;
+    private final RowIds freeRowIds = new RowIds();
+
+
+
+    /**
+     * <p>
+     * Create an empty hash index on the specified positions.
+     * </p>
+     *
+     * @param <T> the type of the indexed tuples
+     * @param positions the positions forming the key, at least one
+     * @return the index
+     */
+    public static <T extends Tuple> TupleIndex<T> hash(final int... positions) {
+        return new TupleIndex<T>(positions, false);
+    }
+
+
+    /**
+     * <p>
+     * Create a hash index on the specified positions, containing the
+     * specified tuples.
+     * </p>
+     *
+     * @param <T> the type of the indexed tuples
+     * @param tuples the tuples to insert, with consecutive row ids starting at 0
+     * @param positions the positions forming the key, at least one
+     * @return the index
+     */
+    public static <T extends Tuple> TupleIndex<T> hash(final Iterable<? extends T> tuples, final int... positions) {
+        final TupleIndex<T> index = new TupleIndex<T>(positions, false);
+        index.insertAll(tuples);
+        return index;
+    }
+
+
+    /**
+     * <p>
+     * Create an empty sorted index on the specified positions.
+     * </p>
+     *
+     * @param <T> the type of the indexed tuples
+     * @param positions the positions forming the key, at least one
+     * @return the index
+     */
+    public static <T extends Tuple> TupleIndex<T> sorted(final int... positions) {
+        return new TupleIndex<T>(positions, true);
+    }
+
+
+    /**
+     * <p>
+     * Create a sorted index on the specified positions, containing the
+     * specified tuples.
+     * </p>
+     *
+     * @param <T> the type of the indexed tuples
+     * @param tuples the tuples to insert, with consecutive row ids starting at 0
+     * @param positions the positions forming the key, at least one
+     * @return the index
+     */
+    public static <T extends Tuple> TupleIndex<T> sorted(final Iterable<? extends T> tuples, final int... positions) {
+        final TupleIndex<T> index = new TupleIndex<T>(positions, true);
+        index.insertAll(tuples);
+        return index;
+    }
+
+
+
+    private TupleIndex(final int[] positions, final boolean sorted) {
+        super();
+        if (positions == null || positions.length == 0) {
+            throw new IllegalArgumentException("At least one position is needed");
+        }
+        for (int i = 0; i < positions.length; i++) {
+            if (positions[i] < 0) {
+                throw new IllegalArgumentException("Positions cannot be negative. Is " + positions[i]);
+            }
+        }
+        this.positions = positions.clone();
+        this.sorted = sorted;
+        if (sorted) {
+            this.postings = new TreeMap<Tuple,RowIds>(KeyComparator.INSTANCE);
+        } else {
+            this.postings = new HashMap<Tuple,RowIds>();
+        }
+    }
+
+
+
+    public boolean isSorted() {
+        return this.sorted;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of tuples in this index.
+     * </p>
+     *
+     * @return the number of tuples
+     */
+    public int size() {
+        return this.size;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of distinct keys in this index.
+     * </p>
+     *
+     * @return the number of keys
+     */
+    public int getKeyCount() {
+        return this.postings.size();
+    }
+
+
+
+    /**
+     * <p>
+     * Insert a tuple.
+     * </p>
+     *
+     * @param tuple the tuple, which must have all the key positions
+     * @return the row id of the tuple
+     */
+    public int insert(final T tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        final Tuple key = keyOf(tuple);
+        // Looked up before allocating the row: sorted indexes throw
+        // ClassCastException for keys which cannot be compared
+        RowIds rowIds = this.postings.get(key);
+        if (rowIds == null) {
+            rowIds = new RowIds();
+            this.postings.put(key, rowIds);
+        }
+        final int rowId;
+        if (this.freeRowIds.size > 0) {
+            rowId = this.freeRowIds.ids[--this.freeRowIds.size];
+        } else {
+            if (this.rowCount == this.rows.length) {
+                final Object[] newRows = new Object[Math.max(16, this.rows.length * 2)];
+                System.arraycopy(this.rows, 0, newRows, 0, this.rowCount);
+                this.rows = newRows;
+            }
+            rowId = this.rowCount++;
+        }
+        this.rows[rowId] = tuple;
+        rowIds.add(rowId);
+        this.size++;
+        return rowId;
+    }
+
+
+    public void insertAll(final Iterable<? extends T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        for (final T tuple : tuples) {
+            insert(tuple);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Delete a row.
+     * </p>
+     *
+     * @param rowId the row id
+     * @return <tt>true</tt> if the row existed
+     */
+    public boolean delete(final int rowId) {
+        if (rowId < 0 || rowId >= this.rowCount || this.rows[rowId] == null) {
+            return false;
+        }
+        final Tuple key = keyOf((Tuple) this.rows[rowId]);
+        final RowIds rowIds = this.postings.get(key);
+        rowIds.remove(rowId);
+        if (rowIds.size == 0) {
+            this.postings.remove(key);
+        }
+        this.rows[rowId] = null;
+        this.freeRowIds.add(rowId);
+        this.size--;
+        return true;
+    }
+
+
+    /**
+     * <p>
+     * Delete the first inserted row equal to a tuple.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return <tt>true</tt> if a row was deleted
+     */
+    public boolean remove(final Tuple tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        final RowIds rowIds = this.postings.get(keyOf(tuple));
+        if (rowIds == null) {
+            return false;
+        }
+        for (int i = 0; i < rowIds.size; i++) {
+            if (tuple.equals(this.rows[rowIds.ids[i]])) {
+                return delete(rowIds.ids[i]);
+            }
+        }
+        return false;
+    }
+
+
+    public void clear() {
+        this.postings.clear();
+        Arrays.fill(this.rows, 0, this.rowCount, null);
+        this.rowCount = 0;
+        this.size = 0;
+        this.freeRowIds.size = 0;
+    }
+
+
+    /**
+     * <p>
+     * Return the tuple stored with a row id.
+     * </p>
+     *
+     * @param rowId the row id
+     * @return the tuple, or <tt>null</tt> if there is no such row
+     */
+    @SuppressWarnings("unchecked")
+    public T getRow(final int rowId) {
+        if (rowId < 0 || rowId >= this.rowCount) {
+            return null;
+        }
+        return (T) this.rows[rowId];
+    }
+
+
+
+    /**
+     * <p>
+     * Return the row ids of the tuples with the specified key, in insertion
+     * order.
+     * </p>
+     *
+     * @param key the values of the key, one per indexed position
+     * @return a new array with the row ids (empty if there are none)
+     */
+    public int[] findRowIds(final Object... key) {
+        final RowIds rowIds = this.postings.get(fullKey(key));
+        if (rowIds == null) {
+            return new int[0];
+        }
+        final int[] result = new int[rowIds.size];
+        System.arraycopy(rowIds.ids, 0, result, 0, rowIds.size);
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples with the specified key, in insertion order.
+     * </p>
+     *
+     * @param key the values of the key, one per indexed position
+     * @return a new list with the tuples
+     */
+    public List<T> find(final Object... key) {
+        final List<T> result = new ArrayList<T>();
+        addRows(result, this.postings.get(fullKey(key)));
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples whose key starts with the specified values, in key
+     * order. Only available in sorted indexes.
+     * </p>
+     *
+     * @param prefix the first values of the key, at least one
+     * @return a new list with the tuples
+     */
+    public List<T> findPrefix(final Object... prefix) {
+        checkSorted();
+        checkPrefix(prefix);
+        return collect(sortedPostings().subMap(TuplePrefixes.lowerBound(prefix), TuplePrefixes.upperBound(prefix)));
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples whose key is between the specified bounds, in key
+     * order. Only available in sorted indexes.
+     * </p>
+     * <p>
+     * Bounds can be prefixes of the key: an inclusive prefix bound includes
+     * all the keys starting with it, and an exclusive one excludes them.
+     * </p>
+     *
+     * @param from the lower bound, or <tt>null</tt> for no lower bound
+     * @param fromInclusive whether keys equal to the lower bound are included
+     * @param to the upper bound, or <tt>null</tt> for no upper bound
+     * @param toInclusive whether keys equal to the upper bound are included
+     * @return a new list with the tuples
+     */
+    public List<T> findRange(
+            final Object[] from, final boolean fromInclusive, final Object[] to, final boolean toInclusive) {
+        checkSorted();
+        final SortedMap<Tuple,RowIds> sortedPostings = sortedPostings();
+        Tuple lower = null;
+        Tuple upper = null;
+        if (from != null) {
+            checkPrefix(from);
+            lower = (fromInclusive ? TuplePrefixes.lowerBound(from) : TuplePrefixes.upperBound(from));
+        }
+        if (to != null) {
+            checkPrefix(to);
+            upper = (toInclusive ? TuplePrefixes.upperBound(to) : TuplePrefixes.lowerBound(to));
+        }
+        // Bound keys never compare equal to stored keys, so the inclusive or
+        // exclusive behaviour of the map views does not matter
+        if (lower != null && upper != null) {
+            if (KeyComparator.INSTANCE.compare(lower, upper) >= 0) {
+                return new ArrayList<T>();
+            }
+            return collect(sortedPostings.subMap(lower, upper));
+        }
+        if (lower != null) {
+            return collect(sortedPostings.tailMap(lower));
+        }
+        if (upper != null) {
+            return collect(sortedPostings.headMap(upper));
+        }
+        return collect(sortedPostings);
+    }
+
+
+
+    private Tuple keyOf(final Tuple tuple) {
+        final Object[] values = new Object[this.positions.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = tuple.getValue(this.positions[i]);
+        }
+        return Tuple.of(values);
+    }
+
+
+    private Tuple fullKey(final Object[] key) {
+        if (key == null || key.length != this.positions.length) {
+            throw new IllegalArgumentException(
+                    "Keys of this index have " + this.positions.length + " values");
+        }
+        return Tuple.of(key);
+    }
+
+
+    private void checkPrefix(final Object[] prefix) {
+        if (prefix == null || prefix.length == 0 || prefix.length > this.positions.length) {
+            throw new IllegalArgumentException(
+                    "Key prefixes must have between 1 and " + this.positions.length + " values");
+        }
+    }
+
+
+    private void checkSorted() {
+        if (!this.sorted) {
+            throw new UnsupportedOperationException("Prefix and range queries need a sorted index");
+        }
+    }
+
+
+    private SortedMap<Tuple,RowIds> sortedPostings() {
+        return (SortedMap<Tuple,RowIds>) this.postings;
+    }
+
+
+    private List<T> collect(final Map<Tuple,RowIds> selectedPostings) {
+        final List<T> result = new ArrayList<T>();
+        for (final RowIds rowIds : selectedPostings.values()) {
+            addRows(result, rowIds);
+        }
+        return result;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void addRows(final List<T> result, final RowIds rowIds) {
+        if (rowIds == null) {
+            return;
+        }
+        for (int i = 0; i < rowIds.size; i++) {
+            result.add((T) this.rows[rowIds.ids[i]]);
+        }
+    }
+
+
+
+
+    /*
+     * Growable list of row ids. Most keys in a secondary index have very few
+     * rows, so it starts with room for one.
+     */
+    private static final class RowIds {
+
+        int[] ids = new int[1];
+        int size = 0;
+
+
+        RowIds() {
+            super();
+        }
+
+
+        void add(final int rowId) {
+            if (this.size == this.ids.length) {
+                final int[] newIds = new int[this.ids.length * 2];
+                System.arraycopy(this.ids, 0, newIds, 0, this.size);
+                this.ids = newIds;
+            }
+            this.ids[this.size++] = rowId;
+        }
+
+
+        void remove(final int rowId) {
+            for (int i = 0; i < this.size; i++) {
+                if (this.ids[i] == rowId) {
+                    System.arraycopy(this.ids, i + 1, this.ids, i, this.size - i - 1);
+                    this.size--;
+                    return;
+                }
+            }
+        }
+
+    }
+
+
+
+
+    /*
+     * Natural ordering of the keys, except that null values sort before any
+     * other value. Prefix queries use the bounds of TuplePrefixes as keys.
+     */
+    private static final class KeyComparator implements Comparator<Tuple> {
+
+        static final KeyComparator INSTANCE = new KeyComparator();
+
+
+        private KeyComparator() {
+            super();
+        }
+
+
+        @SuppressWarnings("unchecked")
+        public int compare(final Tuple o1, final Tuple o2) {
+            final int length = Math.min(o1.getSize(), o2.getSize());
+            for (int i = 0; i < length; i++) {
+                final Object value1 = o1.getValue(i);
+                final Object value2 = o2.getValue(i);
+                if (value1 == null || value2 == null) {
+                    if (value1 != null) {
+                        return 1;
+                    }
+                    if (value2 != null) {
+                        return -1;
+                    }
+                    continue;
+                }
+                final int comparison = ((Comparable<Object>) value1).compareTo(value2);
+                if (comparison != 0) {
+                    return comparison;
+                }
+            }
+            return Tuple.compareBounds(o1, o2);
+        }
+
+    }
+
+}
@@ -0,0 +1,563 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ * <p>
+ * Hash joins between two inputs of tuples, matching them on the value
+ * found at a specific position of each tuple.
+ * </p>
+ * <p>
+ * The <em>right</em> input is the build side: it is read completely and
+ * stored in a compact hash table (arrays of ints, no per-entry objects).
+ * The <em>left</em> input is the probe side: it is streamed, and each of its
+ * tuples is looked up in the hash table as the result is iterated.
+ * </p>
+ * <p>
+ * Inner and left joins return, for each match, a tuple containing the values
+ * of the left tuple followed by the values of the right tuple (exactly as
+ * <tt>left.add(right)</tt> would), created directly with the right arity.
+ * All right tuples must therefore have the same size. Results with more
+ * than ten values are {@link TupleN} instances. Semi joins return the
+ * matching left tuples themselves.
+ * </p>
+ * <p>
+ * Left joins pad left tuples without a match with as many <tt>null</tt>
+ * values as the right tuples have. If the right input can be empty, their
+ * size must be specified (<tt>rightSize</tt>), so that results always have
+ * the same size.
+ * </p>
+ * <p>
+ * <tt>null</tt> keys never match anything, on either side.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleJoins {
+
+    private static final int INNER = 0;
+    private static final int LEFT = 1;
+    private static final int SEMI = 2;
+
+
+
+    /**
+     * <p>
+     * Inner join: one result per matching (left, right) pair.
+     * </p>
+     *
+     * @param left the probe side, streamed
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @return a lazy iterable of concatenated tuples
+     */
+    public static Iterable<Tuple> innerJoin(
+            final Iterable<? extends Tuple> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos) {
+        return join(INNER, left, leftKeyPos, new HashTable(right, rightKeyPos, -1));
+    }
+
+
+    /**
+     * <p>
+     * Left (outer) join: like an inner join, but left tuples without any
+     * match are also returned, padded with <tt>null</tt> values in place of
+     * the right tuple. The right input cannot be empty, as the size of its
+     * tuples would be unknown: see
+     * {@link #leftJoin(Iterable, int, Iterable, int, int)}.
+     * </p>
+     *
+     * @param left the probe side, streamed
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @return a lazy iterable of concatenated tuples
+     */
+    public static Iterable<Tuple> leftJoin(
+            final Iterable<? extends Tuple> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos) {
+        return join(LEFT, left, leftKeyPos, leftJoinTable(right, rightKeyPos, -1));
+    }
+
+
+    /**
+     * <p>
+     * Left (outer) join with right tuples of a known size, which pads left
+     * tuples without any match with <tt>rightSize</tt> <tt>null</tt> values,
+     * also if the right input is empty.
+     * </p>
+     *
+     * @param left the probe side, streamed
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @param rightSize the size of all the right tuples
+     * @return a lazy iterable of concatenated tuples
+     */
+    public static Iterable<Tuple> leftJoin(
+            final Iterable<? extends Tuple> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos, final int rightSize) {
+        checkRightSize(rightSize);
+        return join(LEFT, left, leftKeyPos, leftJoinTable(right, rightKeyPos, rightSize));
+    }
+
+
+    /**
+     * <p>
+     * Semi join: the left tuples having at least one match in the right
+     * input, each returned once.
+     * </p>
+     *
+     * @param <T> the type of the left tuples
+     * @param left the probe side, streamed
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @return a lazy iterable of the matching left tuples
+     */
+    public static <T extends Tuple> Iterable<T> semiJoin(
+            final Iterable<T> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos) {
+        return join(SEMI, left, leftKeyPos, new HashTable(right, rightKeyPos, -1));
+    }
+
+
+
+    /**
+     * <p>
+     * Parallel version of {@link #innerJoin(Iterable, int, Iterable, int)}:
+     * the left list is split into <tt>partitions</tt> contiguous ranges which
+     * are probed concurrently on the specified executor. The result keeps the
+     * order a sequential join would produce.
+     * </p>
+     *
+     * @param left the probe side
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @param executor the executor the probe partitions will run on
+     * @param partitions the number of partitions to split the left list into
+     * @return the list of concatenated tuples
+     */
+    public static List<Tuple> innerJoin(
+            final List<? extends Tuple> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos,
+            final ExecutorService executor, final int partitions) {
+        return parallelJoin(INNER, left, leftKeyPos, new HashTable(right, rightKeyPos, -1), executor, partitions);
+    }
+
+
+    /**
+     * <p>
+     * Parallel version of {@link #leftJoin(Iterable, int, Iterable, int)}.
+     * See {@link #innerJoin(List, int, Iterable, int, ExecutorService, int)}.
+     * </p>
+     *
+     * @param left the probe side
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @param executor the executor the probe partitions will run on
+     * @param partitions the number of partitions to split the left list into
+     * @return the list of concatenated tuples
+     */
+    public static List<Tuple> leftJoin(
+            final List<? extends Tuple> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos,
+            final ExecutorService executor, final int partitions) {
+        return parallelJoin(LEFT, left, leftKeyPos, leftJoinTable(right, rightKeyPos, -1), executor, partitions);
+    }
+
+
+    /**
+     * <p>
+     * Parallel version of {@link #leftJoin(Iterable, int, Iterable, int, int)}.
+     * See {@link #innerJoin(List, int, Iterable, int, ExecutorService, int)}.
+     * </p>
+     *
+     * @param left the probe side
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @param rightSize the size of all the right tuples
+     * @param executor the executor the probe partitions will run on
+     * @param partitions the number of partitions to split the left list into
+     * @return the list of concatenated tuples
+     */
+    public static List<Tuple> leftJoin(
+            final List<? extends Tuple> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos, final int rightSize,
+            final ExecutorService executor, final int partitions) {
+        checkRightSize(rightSize);
+        return parallelJoin(
+                LEFT, left, leftKeyPos, leftJoinTable(right, rightKeyPos, rightSize), executor, partitions);
+    }
+
+
+    /**
+     * <p>
+     * Parallel version of {@link #semiJoin(Iterable, int, Iterable, int)}.
+     * See {@link #innerJoin(List, int, Iterable, int, ExecutorService, int)}.
+     * </p>
+     *
+     * @param <T> the type of the left tuples
+     * @param left the probe side
+     * @param leftKeyPos the position of the join key in left tuples
+     * @param right the build side, stored in the hash table
+     * @param rightKeyPos the position of the join key in right tuples
+     * @param executor the executor the probe partitions will run on
+     * @param partitions the number of partitions to split the left list into
+     * @return the list of matching left tuples
+     */
+    public static <T extends Tuple> List<T> semiJoin(
+            final List<T> left, final int leftKeyPos,
+            final Iterable<? extends Tuple> right, final int rightKeyPos,
+            final ExecutorService executor, final int partitions) {
+        return parallelJoin(SEMI, left, leftKeyPos, new HashTable(right, rightKeyPos, -1), executor, partitions);
+    }
+
+
+
+
+    private static <R> Iterable<R> join(
+            final int mode, final Iterable<? extends Tuple> left, final int leftKeyPos, final HashTable table) {
+        if (left == null) {
+            throw new IllegalArgumentException("Left input cannot be null");
+        }
+        return new Iterable<R>() {
+            public Iterator<R> iterator() {
+                return new JoinIterator<R>(mode, left.iterator(), leftKeyPos, table);
+            }
+        };
+    }
+
+
+    private static <R> List<R> parallelJoin(
+            final int mode, final List<? extends Tuple> left, final int leftKeyPos, final HashTable table,
+            final ExecutorService executor, final int partitions) {
+
+        if (left == null) {
+            throw new IllegalArgumentException("Left input cannot be null");
+        }
+
+        final int[] bounds = ParallelTasks.bounds(left.size(), partitions);
+        final List<Callable<List<R>>> tasks = new ArrayList<Callable<List<R>>>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final List<? extends Tuple> partition = left.subList(bounds[i], bounds[i + 1]);
+            tasks.add(new Callable<List<R>>() {
+                public List<R> call() {
+                    final List<R> result = new ArrayList<R>(partition.size());
+                    final Iterator<R> iter = new JoinIterator<R>(mode, partition.iterator(), leftKeyPos, table);
+                    while (iter.hasNext()) {
+                        result.add(iter.next());
+                    }
+                    return result;
+                }
+            });
+        }
+
+        final List<List<R>> partialResults = ParallelTasks.invokeAll(executor, tasks);
+        int size = 0;
+        for (final List<R> partialResult : partialResults) {
+            size += partialResult.size();
+        }
+        final List<R> result = new ArrayList<R>(size);
+        for (final List<R> partialResult : partialResults) {
+            result.addAll(partialResult);
+        }
+        return result;
+
+    }
+
+
+
+    private static void checkRightSize(final int rightSize) {
+        if (rightSize < 0) {
+            throw new IllegalArgumentException("Right size cannot be negative. Is " + rightSize);
+        }
+    }
+
+
+    /*
+     * Left joins need the size of the right tuples for padding, so it must be
+     * specified or found in the right input.
+     */
+    private static HashTable leftJoinTable(
+            final Iterable<? extends Tuple> right, final int rightKeyPos, final int rightSize) {
+        final HashTable table = new HashTable(right, rightKeyPos, rightSize);
+        if (table.rowSize < 0) {
+            throw new IllegalArgumentException(
+                    "Right input is empty, so the size of the tuples to pad left tuples with is unknown. " +
+                    "It must be specified");
+        }
+        return table;
+    }
+
+
+    private static int hash(final Object key) {
+        final int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+
+
+
+    /*
+     * Build side of the join. Rows are chained by bucket through int arrays:
+     * buckets[hash & mask] holds the index of the first row of the bucket,
+     * next[row] the index of the following one (-1 ends the chain). Rows are
+     * chained in input order so that matches are returned in that order.
+     */
+    private static final class HashTable {
+
+        private final int keyPos;
+        // -1 if unknown (no rows, and not specified)
+        private final int rowSize;
+        private final Tuple[] rows;
+        private final int[] hashes;
+        private final int[] next;
+        private final int[] buckets;
+        private final int mask;
+
+
+        HashTable(final Iterable<? extends Tuple> input, final int keyPos, final int expectedRowSize) {
+
+            super();
+
+            if (input == null) {
+                throw new IllegalArgumentException("Right input cannot be null");
+            }
+
+            Tuple[] rowArray =
+                    new Tuple[(input instanceof Collection<?>) ? ((Collection<?>) input).size() : 16];
+            int rowCount = 0;
+            int size = expectedRowSize;
+            for (final Tuple row : input) {
+                if (row == null) {
+                    throw new IllegalArgumentException("Right input cannot contain null tuples");
+                }
+                if (size == -1) {
+                    size = row.getSize();
+                } else if (size != row.getSize()) {
+                    throw new IllegalArgumentException(
+                            "All tuples in the right input must have the same size. Found sizes " +
+                            size + " and " + row.getSize());
+                }
+                if (row.getValue(keyPos) == null) {
+                    continue;
+                }
+                if (rowCount == rowArray.length) {
+                    final Tuple[] newRowArray = new Tuple[Math.max(16, rowCount * 2)];
+                    System.arraycopy(rowArray, 0, newRowArray, 0, rowCount);
+                    rowArray = newRowArray;
+                }
+                rowArray[rowCount++] = row;
+            }
+
+            int capacity = 2;
+            while (capacity < rowCount * 2) {
+                capacity <<= 1;
+            }
+
+            this.keyPos = keyPos;
+            this.rowSize = size;
+            this.rows = rowArray;
+            this.hashes = new int[rowCount];
+            this.next = new int[rowCount];
+            this.buckets = new int[capacity];
+            this.mask = capacity - 1;
+
+            for (int i = 0; i < capacity; i++) {
+                this.buckets[i] = -1;
+            }
+            // Inserting at the head of each chain, so traverse backwards
+            for (int i = rowCount - 1; i >= 0; i--) {
+                final int h = hash(rowArray[i].getValue(keyPos));
+                final int bucket = h & this.mask;
+                this.hashes[i] = h;
+                this.next[i] = this.buckets[bucket];
+                this.buckets[bucket] = i;
+            }
+
+        }
+
+
+        int first(final Object key, final int h) {
+            return matchFrom(this.buckets[h & this.mask], key, h);
+        }
+
+
+        int next(final int row, final Object key, final int h) {
+            return matchFrom(this.next[row], key, h);
+        }
+
+
+        private int matchFrom(final int start, final Object key, final int h) {
+            int row = start;
+            while (row != -1) {
+                if (this.hashes[row] == h && key.equals(this.rows[row].getValue(this.keyPos))) {
+                    return row;
+                }
+                row = this.next[row];
+            }
+            return -1;
+        }
+
+    }
+
+
+
+
+    private static final class JoinIterator<R> implements Iterator<R> {
+
+        private final int mode;
+        private final Iterator<? extends Tuple> left;
+        private final int leftKeyPos;
+        private final HashTable table;
+
+        private Tuple current = null;
+        private Object currentKey = null;
+        private int currentHash = 0;
+        private int currentRow = -1;
+        private R nextResult = null;
+        private boolean hasNextResult = false;
+
+
+        JoinIterator(final int mode, final Iterator<? extends Tuple> left, final int leftKeyPos, final HashTable table) {
+            super();
+            this.mode = mode;
+            this.left = left;
+            this.leftKeyPos = leftKeyPos;
+            this.table = table;
+        }
+
+
+        public boolean hasNext() {
+            if (!this.hasNextResult) {
+                this.hasNextResult = advance();
+            }
+            return this.hasNextResult;
+        }
+
+
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final R result = this.nextResult;
+            this.nextResult = null;
+            this.hasNextResult = false;
+            return result;
+        }
+
+
+        public void remove() {
+            throw new UnsupportedOperationException("Join results cannot be removed");
+        }
+
+
+        @SuppressWarnings("unchecked")
+        private boolean advance() {
+
+            // Pending matches for the current left tuple (inner and left joins)
+            if (this.currentRow != -1) {
+                this.currentRow = this.table.next(this.currentRow, this.currentKey, this.currentHash);
+                if (this.currentRow != -1) {
+                    this.nextResult = (R) concat(this.current, this.table.rows[this.currentRow], this.table.rowSize);
+                    return true;
+                }
+            }
+
+            while (this.left.hasNext()) {
+
+                this.current = this.left.next();
+                this.currentKey = this.current.getValue(this.leftKeyPos);
+                if (this.currentKey != null) {
+                    this.currentHash = hash(this.currentKey);
+                    this.currentRow = this.table.first(this.currentKey, this.currentHash);
+                } else {
+                    this.currentRow = -1;
+                }
+
+                if (this.currentRow != -1) {
+                    if (this.mode == SEMI) {
+                        this.currentRow = -1;
+                        this.nextResult = (R) this.current;
+                    } else {
+                        this.nextResult = (R) concat(this.current, this.table.rows[this.currentRow], this.table.rowSize);
+                    }
+                    return true;
+                }
+                if (this.mode == LEFT) {
+                    this.nextResult = (R) concat(this.current, null, this.table.rowSize);
+                    return true;
+                }
+
+            }
+
+            this.current = null;
+            this.currentKey = null;
+            return false;
+
+        }
+
+    }
+
+
+
+
+    /*
+     * Creates the result tuple directly from the values of both sides, into
+     * the array the result will adopt. A null right tuple means padding with
+     * rightSize null values.
+     */
+    private static Tuple concat(final Tuple left, final Tuple right, final int rightSize) {
+        final int leftSize = left.getSize();
+        final Object[] values = new Object[leftSize + rightSize];
+        for (int i = 0; i < leftSize; i++) {
+            values[i] = left.getValue(i);
+        }
+        if (right != null) {
+            for (int i = 0; i < rightSize; i++) {
+                values[leftSize + i] = right.getValue(i);
+            }
+        }
+        return TupleFactory.adopt(values);
+    }
+
+
+
+
+    private TupleJoins() {
+        super();
+    }
+
+}
@@ -0,0 +1,365 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>
+ * Order-preserving binary encoding of tuples, for using them as keys of
+ * byte-oriented stores (see {@link OffHeapTupleTree}): comparing two encoded
+ * tuples byte by byte, as unsigned values, gives the same result as
+ * comparing the tuples value by value.
+ * </p>
+ * <p>
+ * Supported values are <tt>null</tt>, booleans, numbers (<tt>Byte</tt>,
+ * <tt>Short</tt>, <tt>Integer</tt>, <tt>Long</tt>, <tt>Float</tt>,
+ * <tt>Double</tt>), characters and strings. Values of the same class are
+ * ordered as in their natural ordering, except for strings, which are ordered
+ * by Unicode code point (they only differ from <tt>String.compareTo</tt> for
+ * characters outside the Basic Multilingual Plane). <tt>null</tt> sorts
+ * before anything else, and values of different classes are ordered by class.
+ * Strings must be valid UTF-16: strings with unpaired surrogates are
+ * rejected, as they have no UTF-8 encoding.
+ * </p>
+ * <p>
+ * Every value is self-delimiting, so the encoding of a tuple starts with the
+ * encoding of any of its prefixes (see {@link #encodePrefix(Object...)}).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleKeyEncoding {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final int NULL = 0x05;
+    private static final int FALSE = 0x10;
+    private static final int TRUE = 0x11;
+    private static final int BYTE = 0x20;
+    private static final int SHORT = 0x21;
+    private static final int INTEGER = 0x22;
+    private static final int LONG = 0x23;
+    private static final int FLOAT = 0x24;
+    private static final int DOUBLE = 0x25;
+    private static final int CHARACTER = 0x30;
+    private static final int STRING = 0x31;
+
+    // Strings end with 0x00 0x01, and 0x00 bytes inside them are written as
+    // 0x00 0xFF, so shorter strings sort before the longer ones they start
+    private static final int STRING_END = 0x01;
+    private static final int STRING_ZERO = 0xFF;
+
+
+
+    /**
+     * <p>
+     * Encode a tuple.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return the encoded tuple
+     */
+    public static byte[] encode(final Tuple tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        final Output out = new Output();
+        final int size = tuple.getSize();
+        for (int i = 0; i < size; i++) {
+            encodeValue(out, tuple.getValue(i));
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * <p>
+     * Encode the first values of a tuple. The result is a prefix of the
+     * encoding of every tuple starting with these values.
+     * </p>
+     *
+     * @param values the values
+     * @return the encoded values
+     */
+    public static byte[] encodePrefix(final Object... values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values array cannot be null");
+        }
+        final Output out = new Output();
+        for (int i = 0; i < values.length; i++) {
+            encodeValue(out, values[i]);
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * <p>
+     * Decode a tuple.
+     * </p>
+     *
+     * @param bytes the encoded tuple
+     * @return the tuple
+     */
+    public static Tuple decode(final byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            throw new IllegalArgumentException("Encoded tuple cannot be null or empty");
+        }
+        final List<Object> values = new ArrayList<Object>();
+        int pos = 0;
+        while (pos < bytes.length) {
+            final int tag = bytes[pos++] & 0xFF;
+            switch (tag) {
+                case NULL:
+                    values.add(null);
+                    break;
+                case FALSE:
+                    values.add(Boolean.FALSE);
+                    break;
+                case TRUE:
+                    values.add(Boolean.TRUE);
+                    break;
+                case BYTE:
+                    values.add(Byte.valueOf((byte) (readBits(bytes, pos, 1) ^ 0x80)));
+                    pos += 1;
+                    break;
+                case SHORT:
+                    values.add(Short.valueOf((short) (readBits(bytes, pos, 2) ^ 0x8000)));
+                    pos += 2;
+                    break;
+                case INTEGER:
+                    values.add(Integer.valueOf((int) readBits(bytes, pos, 4) ^ Integer.MIN_VALUE));
+                    pos += 4;
+                    break;
+                case LONG:
+                    values.add(Long.valueOf(readBits(bytes, pos, 8) ^ Long.MIN_VALUE));
+                    pos += 8;
+                    break;
+                case FLOAT: {
+                    final int bits = (int) readBits(bytes, pos, 4);
+                    values.add(Float.valueOf(Float.intBitsToFloat(bits < 0 ? bits ^ Integer.MIN_VALUE : ~bits)));
+                    pos += 4;
+                    break;
+                }
+                case DOUBLE: {
+                    final long bits = readBits(bytes, pos, 8);
+                    values.add(Double.valueOf(Double.longBitsToDouble(bits < 0 ? bits ^ Long.MIN_VALUE : ~bits)));
+                    pos += 8;
+                    break;
+                }
+                case CHARACTER:
+                    values.add(Character.valueOf((char) readBits(bytes, pos, 2)));
+                    pos += 2;
+                    break;
+                case STRING: {
+                    final Output str = new Output();
+                    while (true) {
+                        checkAvailable(bytes, pos, 1);
+                        final int b = bytes[pos++] & 0xFF;
+                        if (b != 0) {
+                            str.write(b);
+                            continue;
+                        }
+                        checkAvailable(bytes, pos, 1);
+                        final int escaped = bytes[pos++] & 0xFF;
+                        if (escaped == STRING_END) {
+                            break;
+                        }
+                        if (escaped != STRING_ZERO) {
+                            throw new IllegalArgumentException("Invalid string encoding at byte " + (pos - 1));
+                        }
+                        str.write(0);
+                    }
+                    try {
+                        values.add(UTF8.newDecoder()
+                                .onMalformedInput(CodingErrorAction.REPORT)
+                                .onUnmappableCharacter(CodingErrorAction.REPORT)
+                                .decode(ByteBuffer.wrap(str.bytes, 0, str.length)).toString());
+                    } catch (final CharacterCodingException e) {
+                        throw new IllegalArgumentException("Invalid UTF-8 string ending at byte " + pos);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown value type tag " + tag + " at byte " + (pos - 1));
+            }
+        }
+        return TupleFactory.adopt(values.toArray());
+    }
+
+
+    /**
+     * <p>
+     * Compare two encoded tuples, byte by byte as unsigned values.
+     * </p>
+     *
+     * @param bytes1 the first encoded tuple
+     * @param bytes2 the second encoded tuple
+     * @return a negative number, zero or a positive number as the first
+     *         tuple is less than, equal to or greater than the second
+     */
+    public static int compare(final byte[] bytes1, final byte[] bytes2) {
+        final int length = Math.min(bytes1.length, bytes2.length);
+        for (int i = 0; i < length; i++) {
+            final int b1 = bytes1[i] & 0xFF;
+            final int b2 = bytes2[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+        return bytes1.length - bytes2.length;
+    }
+
+
+
+    private static void encodeValue(final Output out, final Object value) {
+        if (value == null) {
+            out.write(NULL);
+        } else if (value instanceof String) {
+            out.write(STRING);
+            // Charset.encode would replace unpaired surrogates with '?', so
+            // that different strings would have the same encoding
+            final ByteBuffer utf8;
+            try {
+                utf8 = UTF8.newEncoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .encode(CharBuffer.wrap((String) value));
+            } catch (final CharacterCodingException e) {
+                throw new IllegalArgumentException("String key values cannot have unpaired surrogates");
+            }
+            while (utf8.hasRemaining()) {
+                final byte b = utf8.get();
+                out.write(b);
+                if (b == 0) {
+                    out.write(STRING_ZERO);
+                }
+            }
+            out.write(0);
+            out.write(STRING_END);
+        } else if (value instanceof Integer) {
+            out.write(INTEGER);
+            writeBits(out, ((Integer) value).intValue() ^ Integer.MIN_VALUE, 4);
+        } else if (value instanceof Long) {
+            out.write(LONG);
+            writeBits(out, ((Long) value).longValue() ^ Long.MIN_VALUE, 8);
+        } else if (value instanceof Boolean) {
+            out.write(((Boolean) value).booleanValue() ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            // Positive values get their sign bit set, negative ones get all
+            // their bits flipped, so that they sort in numeric order
+            final long bits = Double.doubleToLongBits(((Double) value).doubleValue());
+            out.write(DOUBLE);
+            writeBits(out, bits ^ ((bits >> 63) | Long.MIN_VALUE), 8);
+        } else if (value instanceof Float) {
+            final int bits = Float.floatToIntBits(((Float) value).floatValue());
+            out.write(FLOAT);
+            writeBits(out, bits ^ ((bits >> 31) | Integer.MIN_VALUE), 4);
+        } else if (value instanceof Short) {
+            out.write(SHORT);
+            writeBits(out, ((Short) value).shortValue() ^ 0x8000, 2);
+        } else if (value instanceof Byte) {
+            out.write(BYTE);
+            writeBits(out, ((Byte) value).byteValue() ^ 0x80, 1);
+        } else if (value instanceof Character) {
+            out.write(CHARACTER);
+            writeBits(out, ((Character) value).charValue(), 2);
+        } else {
+            throw new IllegalArgumentException(
+                    "Cannot encode key value of class " + value.getClass().getName());
+        }
+    }
+
+
+    private static void writeBits(final Output out, final long bits, final int byteCount) {
+        for (int i = byteCount - 1; i >= 0; i--) {
+            out.write((int) (bits >>> (i * 8)));
+        }
+    }
+
+
+    private static long readBits(final byte[] bytes, final int pos, final int byteCount) {
+        checkAvailable(bytes, pos, byteCount);
+        long bits = 0L;
+        for (int i = 0; i < byteCount; i++) {
+            bits = (bits << 8) | (bytes[pos + i] & 0xFF);
+        }
+        return bits;
+    }
+
+
+    private static void checkAvailable(final byte[] bytes, final int pos, final int byteCount) {
+        if (pos + byteCount > bytes.length) {
+            throw new IllegalArgumentException("Truncated encoded tuple");
+        }
+    }
+
+
+
+
+    /*
+     * Growable byte buffer, without the synchronization of
+     * ByteArrayOutputStream.
+     */
+    private static final class Output {
+
+        byte[] bytes = new byte[32];
+        int length = 0;
+
+
+        Output() {
+            super();
+        }
+
+
+        void write(final int b) {
+            if (this.length == this.bytes.length) {
+                final byte[] newBytes = new byte[this.bytes.length * 2];
+                System.arraycopy(this.bytes, 0, newBytes, 0, this.length);
+                this.bytes = newBytes;
+            }
+            this.bytes[this.length++] = (byte) b;
+        }
+
+
+        byte[] toByteArray() {
+            final byte[] result = new byte[this.length];
+            System.arraycopy(this.bytes, 0, result, 0, this.length);
+            return result;
+        }
+
+    }
+
+
+
+    private TupleKeyEncoding() {
+        super();
+    }
+
+}
@@ -0,0 +1,722 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+
+/**
+ * <p>
+ * Durable log of key-value updates, which keeps the latest value of every
+ * key in memory and rebuilds it when opened again.
+ * </p>
+ * <p>
+ * Updates are appended to segment files in a directory, each one as a
+ * record with its length and a CRC32 checksum, encoded with
+ * {@link TupleCodec} (keys and values must therefore be encodable by it,
+ * without needing Java serialization, as the log files are not trusted to
+ * deserialize arbitrary classes). Appending a <tt>null</tt> value removes the key.
+ * </p>
+ * <p>
+ * <b>Group commit</b>: with synchronous appends, {@link #append(Object, Object)}
+ * returns only when the update is on disk. Threads appending concurrently
+ * share the same <tt>fsync</tt>: one of them writes every pending record
+ * and syncs the file while the others wait, so the number of syncs grows
+ * much slower than the number of writers. With asynchronous appends,
+ * records are written and synced in batches, when enough of them are
+ * pending or when {@link #flush()} is called.
+ * </p>
+ * <p>
+ * <b>Snapshots</b>: every few segments (and on {@link #snapshot()}), the
+ * latest value of every key is written to a snapshot file, and older
+ * segments are deleted. Opening a log loads the latest snapshot and replays
+ * only the segments written after it, which are memory-mapped for reading.
+ * A record torn by a crash at the end of the last segment is discarded.
+ * </p>
+ * <p>
+ * Logs are thread-safe. The in-memory state includes updates as soon as
+ * they are appended, before they are durable.
+ * </p>
+ *
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleLog<K,V> implements Closeable {
+
+    public static final long DEFAULT_SEGMENT_BYTES = 64L * 1024 * 1024;
+    public static final int DEFAULT_SNAPSHOT_SEGMENTS = 4;
+
+    private static final long MAX_SEGMENT_BYTES = 1L << 30;
+    private static final int ASYNC_BATCH_BYTES = 256 * 1024;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int SNAPSHOT_MAGIC = 0x544C534E;
+
+    private static final String SEGMENT_PREFIX = "log-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long segmentBytes;
+    private final int snapshotSegments;
+    private final boolean syncOnAppend;
+
+    // Guarded by lock
+    private final Object lock = new Object();
+    private final Map<K,V> state = new HashMap<K,V>();
+    private List<byte[]> pending = new ArrayList<byte[]>();
+    private int pendingBytes = 0;
+    private long appended = 0L;
+    private long durable = 0L;
+    private long syncCount = 0L;
+    private boolean flushing = false;
+    private boolean closed = false;
+    private IOException failure = null;
+
+    // Only used by the thread holding the flushing role (or the constructor)
+    private long segmentId;
+    private RandomAccessFile segment;
+    private long segmentSize;
+    private int segmentsSinceSnapshot;
+    private final long replayedRecords;
+
+
+
+    /**
+     * <p>
+     * Open a log in a directory, which is created if needed, with the
+     * default segment size and snapshot interval and synchronous appends.
+     * </p>
+     *
+     * @param directory the directory of the log
+     * @throws IOException if the log cannot be read or created
+     */
+    public TupleLog(final File directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_SNAPSHOT_SEGMENTS, true);
+    }
+
+
+    /**
+     * <p>
+     * Open a log in a directory, which is created if needed.
+     * </p>
+     *
+     * @param directory the directory of the log
+     * @param segmentBytes the size after which a new segment is started
+     * @param snapshotSegments the number of segments after which a snapshot
+     *        is written, or 0 for writing snapshots only on request
+     * @param syncOnAppend whether appends wait until updates are durable
+     * @throws IOException if the log cannot be read or created
+     */
+    public TupleLog(final File directory, final long segmentBytes, final int snapshotSegments,
+            final boolean syncOnAppend) throws IOException {
+
+        super();
+
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null");
+        }
+        if (segmentBytes <= 0L || segmentBytes > MAX_SEGMENT_BYTES) {
+            throw new IllegalArgumentException(
+                    "Segment size must be between 1 and " + MAX_SEGMENT_BYTES + " bytes. Is " + segmentBytes);
+        }
+        if (snapshotSegments < 0) {
+            throw new IllegalArgumentException("Snapshot interval cannot be negative. Is " + snapshotSegments);
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create log directory " + directory);
+        }
+
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.snapshotSegments = snapshotSegments;
+        this.syncOnAppend = syncOnAppend;
+
+        // Recovery: latest snapshot, then the segments written after it
+        final long[] snapshotIds = listIds(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        long firstSegmentId = 0L;
+        if (snapshotIds.length > 0) {
+            firstSegmentId = snapshotIds[snapshotIds.length - 1];
+            readSnapshot(snapshotFile(firstSegmentId));
+        }
+        long replayed = 0L;
+        long lastSegmentId = -1L;
+        final long[] segmentIds = listIds(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i < segmentIds.length; i++) {
+            if (segmentIds[i] >= firstSegmentId) {
+                replayed += replaySegment(segmentFile(segmentIds[i]), i == segmentIds.length - 1);
+                lastSegmentId = segmentIds[i];
+                this.segmentsSinceSnapshot++;
+            }
+        }
+        this.replayedRecords = replayed;
+        deleteObsoleteFiles(firstSegmentId);
+
+        if (lastSegmentId < 0L) {
+            openSegment(firstSegmentId);
+            this.segmentsSinceSnapshot = 1;
+        } else {
+            openSegment(lastSegmentId);
+        }
+
+    }
+
+
+
+    /**
+     * <p>
+     * Append an update. With synchronous appends, this method returns when
+     * the update is durable.
+     * </p>
+     *
+     * @param key the key
+     * @param value the new value of the key, or <tt>null</tt> for removing it
+     */
+    public void append(final K key, final V value) {
+
+        final byte[] payload = TupleCodec.encode(KeyValue.with(key, value), false);
+        final byte[] record = new byte[RECORD_HEADER_BYTES + payload.length];
+        final ByteBuffer recordBuffer = ByteBuffer.wrap(record);
+        recordBuffer.putInt(payload.length);
+        recordBuffer.putInt(checksum(payload, 0, payload.length));
+        recordBuffer.put(payload);
+
+        final long ticket;
+        final boolean commit;
+        synchronized (this.lock) {
+            checkUsable();
+            this.pending.add(record);
+            this.pendingBytes += record.length;
+            apply(key, value);
+            ticket = ++this.appended;
+            commit = this.syncOnAppend || this.pendingBytes >= ASYNC_BATCH_BYTES;
+        }
+        if (commit) {
+            commit(ticket);
+        }
+
+    }
+
+
+    public void append(final KeyValue<K,V> update) {
+        if (update == null) {
+            throw new IllegalArgumentException("Update cannot be null");
+        }
+        append(update.getKey(), update.getValue());
+    }
+
+
+    /**
+     * <p>
+     * Return the latest value of a key.
+     * </p>
+     *
+     * @param key the key
+     * @return the value, or <tt>null</tt> if the key has no value
+     */
+    public V get(final K key) {
+        synchronized (this.lock) {
+            return this.state.get(key);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Return a copy of the latest value of every key.
+     * </p>
+     *
+     * @return a new map with the values
+     */
+    public Map<K,V> getState() {
+        synchronized (this.lock) {
+            return new HashMap<K,V>(this.state);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Make every update appended so far durable.
+     * </p>
+     */
+    public void flush() {
+        final long ticket;
+        synchronized (this.lock) {
+            checkUsable();
+            ticket = this.appended;
+        }
+        commit(ticket);
+    }
+
+
+    /**
+     * <p>
+     * Write a snapshot now, and delete the segments it makes obsolete.
+     * </p>
+     */
+    public void snapshot() {
+        acquireFlushing();
+        try {
+            synchronized (this.lock) {
+                checkUsable();
+            }
+            writePending();
+            rollSegment(true);
+        } catch (final IOException e) {
+            fail(e);
+        } finally {
+            releaseFlushing();
+        }
+    }
+
+
+    /**
+     * <p>
+     * Return the number of records replayed from segments when the log was
+     * opened (not counting the ones loaded from the snapshot).
+     * </p>
+     *
+     * @return the number of replayed records
+     */
+    public long getReplayedRecords() {
+        return this.replayedRecords;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of times the log has been synced to disk since it
+     * was opened. Compared with the number of appends, it shows how many
+     * appends every sync is shared by.
+     * </p>
+     *
+     * @return the number of syncs
+     */
+    public long getSyncCount() {
+        synchronized (this.lock) {
+            return this.syncCount;
+        }
+    }
+
+
+    /**
+     * <p>
+     * Make every update durable and close the log.
+     * </p>
+     *
+     * @throws IOException if the log cannot be written or closed
+     */
+    public void close() throws IOException {
+        acquireFlushing();
+        try {
+            final IOException previousFailure;
+            synchronized (this.lock) {
+                if (this.closed) {
+                    return;
+                }
+                this.closed = true;
+                previousFailure = this.failure;
+            }
+            if (previousFailure != null) {
+                // Nothing more can be written, but the file must be released
+                try {
+                    this.segment.close();
+                } catch (final IOException e) {
+                    // The original failure is more useful
+                }
+                throw previousFailure;
+            }
+            try {
+                writePending();
+            } finally {
+                this.segment.close();
+            }
+        } finally {
+            releaseFlushing();
+        }
+    }
+
+
+
+    /*
+     * Wait until the update with the specified ticket is durable, writing
+     * the pending records if no other thread is doing it.
+     */
+    private void commit(final long ticket) {
+        while (true) {
+            synchronized (this.lock) {
+                if (this.durable >= ticket) {
+                    return;
+                }
+                checkFailure();
+                if (this.flushing) {
+                    waitForLock();
+                    continue;
+                }
+                this.flushing = true;
+            }
+            try {
+                writePending();
+            } catch (final IOException e) {
+                fail(e);
+            } finally {
+                releaseFlushing();
+            }
+        }
+    }
+
+
+    private void writePending() throws IOException {
+
+        final List<byte[]> batch;
+        final long batchEnd;
+        final int batchBytes;
+        synchronized (this.lock) {
+            batch = this.pending;
+            batchEnd = this.appended;
+            batchBytes = this.pendingBytes;
+            this.pending = new ArrayList<byte[]>();
+            this.pendingBytes = 0;
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        final ByteBuffer buffer = ByteBuffer.allocate(batchBytes);
+        for (final byte[] record : batch) {
+            buffer.put(record);
+        }
+        buffer.flip();
+        final FileChannel channel = this.segment.getChannel();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+        this.segmentSize += batchBytes;
+
+        synchronized (this.lock) {
+            this.durable = batchEnd;
+            this.syncCount++;
+            this.lock.notifyAll();
+        }
+
+        if (this.segmentSize >= this.segmentBytes) {
+            rollSegment(this.snapshotSegments > 0 && this.segmentsSinceSnapshot >= this.snapshotSegments);
+        }
+
+    }
+
+
+    private void rollSegment(final boolean writeSnapshot) throws IOException {
+        this.segment.close();
+        openSegment(this.segmentId + 1);
+        this.segmentsSinceSnapshot++;
+        if (writeSnapshot) {
+            // Updates appended meanwhile may be both in the snapshot and in
+            // the new segment: replaying them again is harmless
+            final Map<K,V> snapshotState;
+            synchronized (this.lock) {
+                snapshotState = new HashMap<K,V>(this.state);
+            }
+            writeSnapshot(snapshotState, this.segmentId);
+            deleteObsoleteFiles(this.segmentId);
+            this.segmentsSinceSnapshot = 1;
+        }
+    }
+
+
+    private void openSegment(final long id) throws IOException {
+        this.segmentId = id;
+        this.segment = new RandomAccessFile(segmentFile(id), "rw");
+        this.segmentSize = this.segment.length();
+        this.segment.getChannel().position(this.segmentSize);
+    }
+
+
+    private void writeSnapshot(final Map<K,V> snapshotState, final long id) throws IOException {
+        final File temp = new File(this.directory, SNAPSHOT_PREFIX + formatId(id) + TEMP_SUFFIX);
+        final FileOutputStream fileOut = new FileOutputStream(temp);
+        try {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut, 65536));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(snapshotState.size());
+            for (final Map.Entry<K,V> entry : snapshotState.entrySet()) {
+                final byte[] payload = TupleCodec.encode(KeyValue.with(entry.getKey(), entry.getValue()), false);
+                out.writeInt(payload.length);
+                out.writeInt(checksum(payload, 0, payload.length));
+                out.write(payload);
+            }
+            out.flush();
+            fileOut.getFD().sync();
+        } finally {
+            fileOut.close();
+        }
+        if (!temp.renameTo(snapshotFile(id))) {
+            throw new IOException("Could not rename snapshot " + temp);
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void readSnapshot(final File file) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, raf.length());
+            if (buffer.remaining() < 8 || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not a tuple log snapshot: " + file);
+            }
+            final int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                final byte[] payload = readRecord(buffer);
+                if (payload == null) {
+                    throw new IOException("Corrupt tuple log snapshot: " + file);
+                }
+                final KeyValue<K,V> update = (KeyValue<K,V>) TupleCodec.decode(payload);
+                this.state.put(update.getKey(), update.getValue());
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private long replaySegment(final File file, final boolean last) throws IOException {
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            final long length = raf.length();
+            long valid = 0L;
+            long records = 0L;
+            if (length > 0L) {
+                final MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0L, length);
+                byte[] payload = readRecord(buffer);
+                while (payload != null) {
+                    final KeyValue<K,V> update = (KeyValue<K,V>) TupleCodec.decode(payload);
+                    apply(update.getKey(), update.getValue());
+                    valid = buffer.position();
+                    records++;
+                    payload = readRecord(buffer);
+                }
+            }
+            if (valid < length) {
+                if (!last) {
+                    throw new IOException("Corrupt record at byte " + valid + " of tuple log segment " + file);
+                }
+                // Record torn by a crash while it was being appended
+                raf.getChannel().truncate(valid);
+            }
+            return records;
+        } finally {
+            raf.close();
+        }
+    }
+
+
+    /*
+     * Read the record at the position of the buffer, or return null (leaving
+     * the position unspecified) if it is incomplete or corrupt.
+     */
+    private static byte[] readRecord(final ByteBuffer buffer) {
+        if (buffer.remaining() < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        final int length = buffer.getInt();
+        final int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            return null;
+        }
+        final byte[] payload = new byte[length];
+        buffer.get(payload);
+        if (checksum(payload, 0, length) != checksum) {
+            return null;
+        }
+        return payload;
+    }
+
+
+    private void apply(final K key, final V value) {
+        if (value == null) {
+            this.state.remove(key);
+        } else {
+            this.state.put(key, value);
+        }
+    }
+
+
+    private void deleteObsoleteFiles(final long firstSegmentId) {
+        final String[] names = this.directory.list();
+        if (names == null) {
+            return;
+        }
+        for (final String name : names) {
+            final boolean obsolete;
+            if (name.endsWith(TEMP_SUFFIX)) {
+                obsolete = true;
+            } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                obsolete = parseId(name, SEGMENT_PREFIX, SEGMENT_SUFFIX) < firstSegmentId;
+            } else if (name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX)) {
+                obsolete = parseId(name, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < firstSegmentId;
+            } else {
+                obsolete = false;
+            }
+            if (obsolete) {
+                new File(this.directory, name).delete();
+            }
+        }
+    }
+
+
+    private long[] listIds(final String prefix, final String suffix) {
+        final String[] names = this.directory.list();
+        if (names == null) {
+            return new long[0];
+        }
+        final long[] ids = new long[names.length];
+        int count = 0;
+        for (final String name : names) {
+            if (name.startsWith(prefix) && name.endsWith(suffix)) {
+                final long id = parseId(name, prefix, suffix);
+                if (id >= 0L) {
+                    ids[count++] = id;
+                }
+            }
+        }
+        final long[] result = new long[count];
+        System.arraycopy(ids, 0, result, 0, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+
+    private static long parseId(final String name, final String prefix, final String suffix) {
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (final NumberFormatException e) {
+            return -1L;
+        }
+    }
+
+
+    private static String formatId(final long id) {
+        return String.format("%020d", Long.valueOf(id));
+    }
+
+
+    private File segmentFile(final long id) {
+        return new File(this.directory, SEGMENT_PREFIX + formatId(id) + SEGMENT_SUFFIX);
+    }
+
+
+    private File snapshotFile(final long id) {
+        return new File(this.directory, SNAPSHOT_PREFIX + formatId(id) + SNAPSHOT_SUFFIX);
+    }
+
+
+    private static int checksum(final byte[] bytes, final int offset, final int length) {
+        final CRC32 crc = new CRC32();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+
+    private void acquireFlushing() {
+        synchronized (this.lock) {
+            while (this.flushing) {
+                waitForLock();
+            }
+            this.flushing = true;
+        }
+    }
+
+
+    private void releaseFlushing() {
+        synchronized (this.lock) {
+            this.flushing = false;
+            this.lock.notifyAll();
+        }
+    }
+
+
+    /*
+     * Must be called holding the lock.
+     */
+    private void waitForLock() {
+        try {
+            this.lock.wait();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TupleIOException("Interrupted while waiting for the tuple log",
+                    new InterruptedIOException(e.getMessage()));
+        }
+    }
+
+
+    private void fail(final IOException e) {
+        synchronized (this.lock) {
+            if (this.failure == null) {
+                this.failure = e;
+            }
+        }
+        throw new TupleIOException("Could not write tuple log", e);
+    }
+
+
+    /*
+     * Must be called holding the lock.
+     */
+    private void checkFailure() {
+        if (this.failure != null) {
+            throw new TupleIOException("Tuple log failed previously", this.failure);
+        }
+    }
+
+
+    /*
+     * Must be called holding the lock.
+     */
+    private void checkUsable() {
+        if (this.closed) {
+            throw new IllegalStateException("Tuple log is closed");
+        }
+        checkFailure();
+    }
+
+}
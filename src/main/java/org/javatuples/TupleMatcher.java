@@ -0,0 +1,234 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * Reusable predicate which checks tuples against a fixed set of values (for
+ * example, a whitelist). The values are hashed once when the matcher is
+ * created, so checking a tuple costs one hash lookup per tuple value, no
+ * matter how many values the matcher has, and filtering any number of tuples
+ * stays linear.
+ * </p>
+ * <p>
+ * Matchers are immutable and can be shared between threads. <tt>null</tt> is
+ * a valid value.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleMatcher {
+
+    private final Set<Object> values;
+
+
+
+    /**
+     * <p>
+     * Create a matcher for the elements of a collection, which is copied.
+     * </p>
+     *
+     * @param values the values
+     * @return the matcher
+     */
+    public static TupleMatcher of(final Collection<?> values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values cannot be null");
+        }
+        return new TupleMatcher(new HashSet<Object>(values));
+    }
+
+
+    public static TupleMatcher of(final Object... values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values array cannot be null");
+        }
+        return new TupleMatcher(new HashSet<Object>(Arrays.asList(values)));
+    }
+
+
+
+    private TupleMatcher(final Set<Object> values) {
+        super();
+        this.values = values;
+    }
+
+
+
+    /**
+     * <p>
+     * Return the number of distinct values of this matcher.
+     * </p>
+     *
+     * @return the number of values
+     */
+    public int getSize() {
+        return this.values.size();
+    }
+
+
+    /**
+     * <p>
+     * Check whether a value is one of the values of this matcher.
+     * </p>
+     *
+     * @param value the value
+     * @return <tt>true</tt> if the value is in this matcher
+     */
+    public boolean matches(final Object value) {
+        return this.values.contains(value);
+    }
+
+
+    /**
+     * <p>
+     * Check whether at least one value of a tuple is in this matcher.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return <tt>true</tt> if any value of the tuple is in this matcher
+     */
+    public boolean matchesAny(final Tuple tuple) {
+        checkTuple(tuple);
+        final int size = tuple.getSize();
+        for (int i = 0; i < size; i++) {
+            if (this.values.contains(tuple.getValue(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * <p>
+     * Check whether every value of a tuple is in this matcher.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return <tt>true</tt> if all the values of the tuple are in this matcher
+     */
+    public boolean matchesAll(final Tuple tuple) {
+        checkTuple(tuple);
+        final int size = tuple.getSize();
+        for (int i = 0; i < size; i++) {
+            if (!this.values.contains(tuple.getValue(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * <p>
+     * Check whether the value at a position of a tuple is in this matcher.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @param pos the position
+     * @return <tt>true</tt> if the value at the position is in this matcher
+     */
+    public boolean matchesAt(final Tuple tuple, final int pos) {
+        checkTuple(tuple);
+        return this.values.contains(tuple.getValue(pos));
+    }
+
+
+    /**
+     * <p>
+     * Check whether a tuple contains every value of this matcher. This is
+     * the same as <tt>tuple.containsAll(values)</tt>.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return <tt>true</tt> if all the values of this matcher are in the tuple
+     */
+    public boolean isContainedIn(final Tuple tuple) {
+        checkTuple(tuple);
+        return tuple.containsAll(this.values);
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples which have at least one value in this matcher, in
+     * iteration order.
+     * </p>
+     *
+     * @param <T> the type of the tuples
+     * @param tuples the tuples
+     * @return a new list with the matching tuples
+     */
+    public <T extends Tuple> List<T> filterAny(final Iterable<T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        final List<T> result = new ArrayList<T>();
+        for (final T tuple : tuples) {
+            if (matchesAny(tuple)) {
+                result.add(tuple);
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples whose values are all in this matcher, in iteration
+     * order.
+     * </p>
+     *
+     * @param <T> the type of the tuples
+     * @param tuples the tuples
+     * @return a new list with the matching tuples
+     */
+    public <T extends Tuple> List<T> filterAll(final Iterable<T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        final List<T> result = new ArrayList<T>();
+        for (final T tuple : tuples) {
+            if (matchesAll(tuple)) {
+                result.add(tuple);
+            }
+        }
+        return result;
+    }
+
+
+
+    private static void checkTuple(final Tuple tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+    }
+
+}
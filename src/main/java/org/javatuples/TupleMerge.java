@@ -0,0 +1,196 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+
+/**
+ * <p>
+ * Streaming merge of several iterators of tuples, each of them already
+ * sorted by the same comparator, into a single sorted iterator.
+ * </p>
+ * <p>
+ * The merge is performed with a tournament tree of losers: each returned
+ * tuple costs <tt>log2(k)</tt> comparisons for <tt>k</tt> sources (about half
+ * of what a binary heap needs) and no allocations. Tuples comparing as equal
+ * are returned in source order, so the merge is stable.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleMerge {
+
+
+
+    /**
+     * <p>
+     * Merges tuples with the same key (that is, tuples for which the merge
+     * comparator returns <tt>0</tt>) into one.
+     * </p>
+     *
+     * @param <T> the type of the tuples being merged
+     *
+     * @since 1.3
+     */
+    public interface Combiner<T> {
+
+        /**
+         * <p>
+         * Combine two tuples with the same key. The returned tuple must have
+         * that same key too.
+         * </p>
+         *
+         * @param accumulated the result of combining the previous tuples with
+         *        this key (or the first of them)
+         * @param next the next tuple with this key, in merge order
+         * @return the combined tuple
+         */
+        public T combine(final T accumulated, final T next);
+
+    }
+
+
+
+
+    /**
+     * <p>
+     * Merge sources sorted by the natural ordering of tuples.
+     * </p>
+     *
+     * @param <T> the type of the tuples being merged
+     * @param sources the sorted sources
+     * @return the merged iterator
+     */
+    public static <T extends Tuple> Iterator<T> merge(final List<? extends Iterator<? extends T>> sources) {
+        return new LoserTree<T>(sources, TupleComparators.<T>natural());
+    }
+
+
+    /**
+     * <p>
+     * Merge sources sorted by the specified comparator.
+     * </p>
+     *
+     * @param <T> the type of the tuples being merged
+     * @param sources the sorted sources
+     * @param comparator the comparator the sources are sorted by
+     * @return the merged iterator
+     */
+    public static <T extends Tuple> Iterator<T> merge(
+            final List<? extends Iterator<? extends T>> sources, final Comparator<? super T> comparator) {
+        return new LoserTree<T>(sources, comparator);
+    }
+
+
+    /**
+     * <p>
+     * Merge sources sorted by the specified comparator, returning only the
+     * first one of every run of tuples comparing as equal.
+     * </p>
+     *
+     * @param <T> the type of the tuples being merged
+     * @param sources the sorted sources
+     * @param comparator the comparator the sources are sorted by
+     * @return the merged iterator, without duplicates
+     */
+    public static <T extends Tuple> Iterator<T> mergeDistinct(
+            final List<? extends Iterator<? extends T>> sources, final Comparator<? super T> comparator) {
+        return new CombiningIterator<T>(new LoserTree<T>(sources, comparator), comparator, null);
+    }
+
+
+    /**
+     * <p>
+     * Merge sources sorted by the specified comparator, combining every run
+     * of tuples comparing as equal into a single one.
+     * </p>
+     *
+     * @param <T> the type of the tuples being merged
+     * @param sources the sorted sources
+     * @param comparator the comparator the sources are sorted by
+     * @param combiner the combiner for tuples comparing as equal
+     * @return the merged iterator, without duplicates
+     */
+    public static <T extends Tuple> Iterator<T> merge(
+            final List<? extends Iterator<? extends T>> sources, final Comparator<? super T> comparator,
+            final Combiner<T> combiner) {
+        if (combiner == null) {
+            throw new IllegalArgumentException("Combiner cannot be null");
+        }
+        return new CombiningIterator<T>(new LoserTree<T>(sources, comparator), comparator, combiner);
+    }
+
+
+
+
+    private static final class CombiningIterator<T> implements Iterator<T> {
+
+        private final LoserTree<T> tree;
+        private final Comparator<? super T> comparator;
+        private final Combiner<T> combiner;
+
+
+        CombiningIterator(final LoserTree<T> tree, final Comparator<? super T> comparator, final Combiner<T> combiner) {
+            super();
+            this.tree = tree;
+            this.comparator = comparator;
+            this.combiner = combiner;
+        }
+
+
+        public boolean hasNext() {
+            return this.tree.hasNext();
+        }
+
+
+        public T next() {
+            if (!this.tree.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final T first = this.tree.next();
+            T result = first;
+            while (this.tree.hasNext() && this.comparator.compare(this.tree.peek(), first) == 0) {
+                final T next = this.tree.next();
+                if (this.combiner != null) {
+                    result = this.combiner.combine(result, next);
+                }
+            }
+            return result;
+        }
+
+
+        public void remove() {
+            throw new UnsupportedOperationException("Merged elements cannot be removed");
+        }
+
+    }
+
+
+
+    private TupleMerge() {
+        super();
+    }
+
+}
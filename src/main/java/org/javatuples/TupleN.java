@@ -0,0 +1,132 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * <p>
+ * A tuple of more than ten elements, of any size known only at runtime.
+ * </p>
+ * <p>
+ * Values are kept in a single backing array. Tuples of ten elements or less
+ * are always represented by their specific classes (<tt>Unit</tt> to
+ * <tt>Tuple10</tt>), so that there is only one class of tuple for every size
+ * and equality works as expected: use {@link Tuple#of(Object...)} for
+ * creating tuples of any size.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleN extends Tuple {
+
+    private static final long serialVersionUID = 4207291655862460716L;
+
+    static final int MIN_SIZE = 11;
+
+    private final int size;
+
+
+
+    /**
+     * <p>
+     * Create tuple from array. Array has to have more than ten elements. The
+     * array is copied.
+     * </p>
+     *
+     * @param array the array to be converted to a tuple
+     * @return the tuple
+     */
+    public static TupleN fromArray(final Object[] array) {
+        if (array == null) {
+            throw new IllegalArgumentException("Array cannot be null");
+        }
+        return new TupleN(array.clone());
+    }
+
+
+    /**
+     * <p>
+     * Create tuple from collection. Collection has to have more than ten
+     * elements.
+     * </p>
+     *
+     * @param collection the collection to be converted to a tuple
+     * @return the tuple
+     */
+    public static TupleN fromCollection(final Collection<?> collection) {
+        if (collection == null) {
+            throw new IllegalArgumentException("Collection cannot be null");
+        }
+        return new TupleN(collection.toArray());
+    }
+
+
+    /**
+     * <p>
+     * Create tuple from iterable. Iterable has to have more than ten
+     * elements.
+     * </p>
+     *
+     * @param iterable the iterable to be converted to a tuple
+     * @return the tuple
+     */
+    public static TupleN fromIterable(final Iterable<?> iterable) {
+        if (iterable == null) {
+            throw new IllegalArgumentException("Iterable cannot be null");
+        }
+        if (iterable instanceof Collection<?>) {
+            return fromCollection((Collection<?>) iterable);
+        }
+        final List<Object> values = new ArrayList<Object>();
+        for (final Object value : iterable) {
+            values.add(value);
+        }
+        return new TupleN(values.toArray());
+    }
+
+
+
+
+    /*
+     * Adopts the array, which must not be modified afterwards.
+     */
+    TupleN(final Object[] values) {
+        super(values);
+        if (values.length < MIN_SIZE) {
+            throw new IllegalArgumentException(
+                    "TupleN must have more than " + (MIN_SIZE - 1) + " elements. Size is " + values.length +
+                    ": use Tuple.of(...) for creating tuples of any size");
+        }
+        this.size = values.length;
+    }
+
+
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+}
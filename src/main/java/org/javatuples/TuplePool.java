@@ -0,0 +1,464 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * <p>
+ * Per-thread pool of {@link MutableTuple} objects, for hot code paths which
+ * need temporary tuples that never escape. Tuples are leased, and the lease
+ * must be released in a <tt>finally</tt> block once the tuple is no longer
+ * used:
+ * </p>
+ * <pre>
+ *     final TuplePool.Lease lease = pool.acquire(3);
+ *     try {
+ *         final MutableTuple tuple = lease.getTuple();
+ *         ...
+ *     } finally {
+ *         lease.release();
+ *     }
+ * </pre>
+ * <p>
+ * Every thread has its own idle tuples for every arity, so acquiring and
+ * releasing takes no lock. Released tuples are cleared. Leases must be
+ * released by the thread which acquired them.
+ * </p>
+ * <p>
+ * Every acquisition returns a new lease, so that a stale lease, which is
+ * released or used again after its tuple has been leased to someone else,
+ * fails instead of affecting the new holder. Once the pool is warm, this
+ * small lease is the only allocation, and the JIT can remove it when the
+ * lease does not escape the compiled method.
+ * </p>
+ * <p>
+ * Pooling is not a speed optimization: allocating a short-lived tuple is
+ * cheaper than leasing one, and often free when the JIT scalar-replaces a
+ * tuple which does not escape the compiled method (see
+ * <tt>TuplePoolBenchmark</tt> in the test sources). It only helps when the
+ * allocation rate itself is the problem, e.g. for keeping garbage collection
+ * pauses down on a latency-sensitive path.
+ * </p>
+ * <p>
+ * In debug mode, which is much slower, the pool records where every lease
+ * was acquired, reports the leases which are garbage collected without
+ * having been released (see {@link #checkLeaks()}), checks that leases are
+ * released by their thread, and includes the site of the first release when
+ * a lease is released twice.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TuplePool {
+
+    private static final int DEFAULT_MAX_IDLE = 16;
+
+    private final int maxIdle;
+    private final boolean debug;
+
+    private final ThreadLocal<Local> locals;
+    // Counters of every thread that has used the pool, for statistics
+    private final List<Counters> counters = new ArrayList<Counters>();
+
+    // Debug mode only: trackers of the leases currently acquired
+    private final Set<LeakTracker> trackers = new HashSet<LeakTracker>();
+    private final ReferenceQueue<Lease> leaked = new ReferenceQueue<Lease>();
+    private final List<Throwable> leakSites = new ArrayList<Throwable>();
+    private long leakCount = 0L;
+
+
+
+    /**
+     * <p>
+     * Create a pool keeping up to 16 idle tuples per thread and arity, not
+     * in debug mode.
+     * </p>
+     */
+    public TuplePool() {
+        this(DEFAULT_MAX_IDLE, false);
+    }
+
+
+    /**
+     * <p>
+     * Create a pool.
+     * </p>
+     *
+     * @param maxIdle the maximum number of idle tuples kept per thread and
+     *        arity. Tuples released beyond it are left to the garbage
+     *        collector.
+     * @param debug whether to detect leaks and misuse, at a high cost
+     */
+    public TuplePool(final int maxIdle, final boolean debug) {
+        super();
+        if (maxIdle < 1) {
+            throw new IllegalArgumentException("Maximum number of idle tuples must be at least 1. Is " + maxIdle);
+        }
+        this.maxIdle = maxIdle;
+        this.debug = debug;
+        this.locals = new ThreadLocal<Local>() {
+            @Override
+            protected Local initialValue() {
+                final Counters threadCounters = new Counters();
+                synchronized (TuplePool.this.counters) {
+                    TuplePool.this.counters.add(threadCounters);
+                }
+                return new Local(threadCounters);
+            }
+        };
+    }
+
+
+
+    public boolean isDebug() {
+        return this.debug;
+    }
+
+
+    /**
+     * <p>
+     * Lease a mutable tuple of the specified size from the pool of the
+     * current thread, creating it if there is no idle one.
+     * </p>
+     *
+     * @param arity the size of the tuple
+     * @return the lease, to be released by the same thread
+     */
+    public Lease acquire(final int arity) {
+        if (arity < 1) {
+            throw new IllegalArgumentException("Arity must be at least 1. Is " + arity);
+        }
+        final Local local = this.locals.get();
+        Slot slot = local.pop(arity);
+        if (slot != null) {
+            local.counters.hits++;
+        } else {
+            local.counters.misses++;
+            slot = new Slot(local, new MutableTuple(arity));
+        }
+        final Lease lease = new Lease(this, slot);
+        if (this.debug) {
+            track(lease);
+        }
+        return lease;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of leases which found an idle tuple, in all the
+     * threads. The value is approximate while other threads use the pool.
+     * </p>
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        long hits = 0L;
+        synchronized (this.counters) {
+            for (final Counters threadCounters : this.counters) {
+                hits += threadCounters.hits;
+            }
+        }
+        return hits;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of leases which had to create a tuple, in all the
+     * threads. The value is approximate while other threads use the pool.
+     * </p>
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        long misses = 0L;
+        synchronized (this.counters) {
+            for (final Counters threadCounters : this.counters) {
+                misses += threadCounters.misses;
+            }
+        }
+        return misses;
+    }
+
+
+    /**
+     * <p>
+     * Return the number of leases which have been detected as garbage
+     * collected without having been released. Always zero if the pool is
+     * not in debug mode.
+     * </p>
+     *
+     * @return the number of leaks
+     */
+    public long getLeakCount() {
+        synchronized (this.trackers) {
+            pollLeaks();
+            return this.leakCount;
+        }
+    }
+
+
+    /**
+     * <p>
+     * Check that no leak has been detected since the last check. Leaks are
+     * only detected after the garbage collector has reclaimed the leases.
+     * </p>
+     *
+     * @throws IllegalStateException if there are leaks, with the site where
+     *         the first leaked lease was acquired as its cause
+     */
+    public void checkLeaks() {
+        final List<Throwable> sites;
+        synchronized (this.trackers) {
+            pollLeaks();
+            if (this.leakSites.isEmpty()) {
+                return;
+            }
+            sites = new ArrayList<Throwable>(this.leakSites);
+            this.leakSites.clear();
+        }
+        throw new IllegalStateException(
+                sites.size() + " leased tuple(s) garbage collected without having been released", sites.get(0));
+    }
+
+
+
+    private void track(final Lease lease) {
+        final LeakTracker tracker =
+                new LeakTracker(lease, this.leaked, new Throwable("Tuple leased by " + Thread.currentThread()));
+        synchronized (this.trackers) {
+            pollLeaks();
+            this.trackers.add(tracker);
+        }
+        lease.tracker = tracker;
+    }
+
+
+    private void untrack(final Lease lease) {
+        synchronized (this.trackers) {
+            this.trackers.remove(lease.tracker);
+        }
+        lease.tracker.clear();
+        lease.tracker = null;
+    }
+
+
+    // Must be called while holding the lock of "trackers"
+    private void pollLeaks() {
+        LeakTracker tracker = (LeakTracker) this.leaked.poll();
+        while (tracker != null) {
+            if (this.trackers.remove(tracker)) {
+                this.leakCount++;
+                this.leakSites.add(tracker.site);
+            }
+            tracker = (LeakTracker) this.leaked.poll();
+        }
+    }
+
+
+
+
+    /**
+     * <p>
+     * Lease of a pooled mutable tuple.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public static final class Lease {
+
+        private final TuplePool pool;
+        private final Slot slot;
+        // The lease is valid while the slot has the same generation
+        private final int generation;
+
+        // Debug mode only
+        LeakTracker tracker = null;
+        Throwable releaseSite = null;
+
+
+        Lease(final TuplePool pool, final Slot slot) {
+            super();
+            this.pool = pool;
+            this.slot = slot;
+            this.generation = slot.generation;
+        }
+
+
+        /**
+         * <p>
+         * Return the leased tuple, which must not be used after the lease is
+         * released.
+         * </p>
+         *
+         * @return the tuple
+         */
+        public MutableTuple getTuple() {
+            if (this.generation != this.slot.generation) {
+                throw new IllegalStateException("Lease has been released");
+            }
+            return this.slot.tuple;
+        }
+
+
+        /**
+         * <p>
+         * Clear the tuple and return it to the pool.
+         * </p>
+         *
+         * @throws IllegalStateException if the lease has already been
+         *         released or, in debug mode, if it is released by another
+         *         thread than the one which acquired it
+         */
+        public void release() {
+            if (this.generation != this.slot.generation) {
+                throw new IllegalStateException("Lease has already been released", this.releaseSite);
+            }
+            if (this.pool.debug) {
+                if (this.slot.local != this.pool.locals.get()) {
+                    throw new IllegalStateException(
+                            "Lease must be released by the thread which acquired it", this.tracker.site);
+                }
+                this.pool.untrack(this);
+                this.releaseSite = new Throwable("Tuple released by " + Thread.currentThread());
+            }
+            this.slot.generation++;
+            this.slot.tuple.clear();
+            this.slot.local.push(this.slot, this.pool.maxIdle);
+        }
+
+    }
+
+
+
+
+    /*
+     * Pooled tuple, with the number of times it has been released.
+     */
+    private static final class Slot {
+
+        final Local local;
+        final MutableTuple tuple;
+        int generation = 0;
+
+
+        Slot(final Local local, final MutableTuple tuple) {
+            super();
+            this.local = local;
+            this.tuple = tuple;
+        }
+
+    }
+
+
+    /*
+     * Idle slots of a thread, as one stack per arity.
+     */
+    private static final class Local {
+
+        final Counters counters;
+        private Slot[][] stacks = new Slot[8][];
+        private int[] sizes = new int[8];
+
+
+        Local(final Counters counters) {
+            super();
+            this.counters = counters;
+        }
+
+
+        Slot pop(final int arity) {
+            if (arity >= this.sizes.length || this.sizes[arity] == 0) {
+                return null;
+            }
+            final int size = --this.sizes[arity];
+            final Slot slot = this.stacks[arity][size];
+            this.stacks[arity][size] = null;
+            return slot;
+        }
+
+
+        void push(final Slot slot, final int maxIdle) {
+            final int arity = slot.tuple.getSize();
+            if (arity >= this.sizes.length) {
+                final int length = Math.max(arity + 1, this.sizes.length * 2);
+                final Slot[][] newStacks = new Slot[length][];
+                System.arraycopy(this.stacks, 0, newStacks, 0, this.stacks.length);
+                final int[] newSizes = new int[length];
+                System.arraycopy(this.sizes, 0, newSizes, 0, this.sizes.length);
+                this.stacks = newStacks;
+                this.sizes = newSizes;
+            }
+            if (this.stacks[arity] == null) {
+                this.stacks[arity] = new Slot[maxIdle];
+            }
+            final int size = this.sizes[arity];
+            if (size < maxIdle) {
+                this.stacks[arity][size] = slot;
+                this.sizes[arity] = size + 1;
+            }
+        }
+
+    }
+
+
+    /*
+     * Statistics of a thread, kept apart from its idle slots so that these
+     * can be garbage collected when the thread dies.
+     */
+    private static final class Counters {
+
+        long hits = 0L;
+        long misses = 0L;
+
+
+        Counters() {
+            super();
+        }
+
+    }
+
+
+    /*
+     * Reference to an acquired lease in debug mode. It is enqueued if the
+     * lease is garbage collected before being released.
+     */
+    private static final class LeakTracker extends WeakReference<Lease> {
+
+        final Throwable site;
+
+
+        LeakTracker(final Lease lease, final ReferenceQueue<Lease> queue, final Throwable site) {
+            super(lease, queue);
+            this.site = site;
+        }
+
+    }
+
+}
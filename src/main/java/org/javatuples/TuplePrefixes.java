@@ -0,0 +1,135 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+
+/**
+ * <p>
+ * Prefix queries on sorted sets and maps of tuples, such as
+ * <tt>TreeSet&lt;Tuple3&lt;A,B,C&gt;&gt;</tt>: "all the tuples whose first two
+ * values are (a, b)".
+ * </p>
+ * <p>
+ * Queries use bound keys which, in the natural ordering of tuples, sort
+ * just before or just after every tuple starting with the values of a prefix,
+ * and never compare equal to any tuple. They only work on sets and maps
+ * using the natural ordering of tuples (no comparator).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TuplePrefixes {
+
+
+
+    /**
+     * <p>
+     * Return a key which sorts just before every tuple starting with the
+     * specified values (and after every smaller tuple).
+     * </p>
+     *
+     * @param prefix the values of the prefix
+     * @return the bound key, for use as a search key only
+     */
+    public static Tuple lowerBound(final Object... prefix) {
+        return bound(prefix, TupleBound.LOWER);
+    }
+
+
+    /**
+     * <p>
+     * Return a key which sorts just after every tuple starting with the
+     * specified values (and before every greater tuple).
+     * </p>
+     *
+     * @param prefix the values of the prefix
+     * @return the bound key, for use as a search key only
+     */
+    public static Tuple upperBound(final Object... prefix) {
+        return bound(prefix, TupleBound.UPPER);
+    }
+
+
+    /**
+     * <p>
+     * Return a view of the tuples of a sorted set starting with the
+     * specified values.
+     * </p>
+     *
+     * @param <T> the type of the tuples
+     * @param set the set, which must use the natural ordering of tuples
+     * @param prefix the values of the prefix
+     * @return the view, backed by the set
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends Tuple> SortedSet<T> withPrefix(final SortedSet<T> set, final Object... prefix) {
+        if (set == null) {
+            throw new IllegalArgumentException("Set cannot be null");
+        }
+        if (set.comparator() != null) {
+            throw new IllegalArgumentException("Prefix queries need the natural ordering of tuples");
+        }
+        return set.subSet((T) lowerBound(prefix), (T) upperBound(prefix));
+    }
+
+
+    /**
+     * <p>
+     * Return a view of the entries of a sorted map whose keys start with the
+     * specified values.
+     * </p>
+     *
+     * @param <K> the type of the keys
+     * @param <V> the type of the values
+     * @param map the map, which must use the natural ordering of tuples
+     * @param prefix the values of the prefix
+     * @return the view, backed by the map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Tuple,V> SortedMap<K,V> withPrefix(final SortedMap<K,V> map, final Object... prefix) {
+        if (map == null) {
+            throw new IllegalArgumentException("Map cannot be null");
+        }
+        if (map.comparator() != null) {
+            throw new IllegalArgumentException("Prefix queries need the natural ordering of tuples");
+        }
+        return map.subMap((K) lowerBound(prefix), (K) upperBound(prefix));
+    }
+
+
+
+    private static Tuple bound(final Object[] prefix, final int sign) {
+        if (prefix == null) {
+            throw new IllegalArgumentException("Prefix cannot be null");
+        }
+        return new TupleBound(prefix.clone(), sign);
+    }
+
+
+
+    private TuplePrefixes() {
+        super();
+    }
+
+}
@@ -0,0 +1,342 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.RandomAccess;
+
+
+/**
+ * <p>
+ * Lazy generators of tuples: Cartesian products of several sequences, and
+ * combinations of the elements of a list.
+ * </p>
+ * <p>
+ * Generators are returned as read-only, random access lists which create
+ * every tuple when it is accessed, computing its elements from its index.
+ * Nothing is materialized, so huge parameter grids can be enumerated, and
+ * they can be split into independent ranges (see {@link List#subList(int, int)})
+ * to be processed in parallel, or materialized in parallel with
+ * {@link TupleZip#materialize(java.util.List, java.util.concurrent.ExecutorService, int)}.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleProducts {
+
+    private static final int MAX_COMBINATION_SIZE = 10;
+
+
+
+
+    /**
+     * <p>
+     * Return the Cartesian product of two sequences, in the order of the
+     * equivalent nested loops (the last sequence varies fastest).
+     * Sequences which are not random access lists are copied.
+     * </p>
+     *
+     * @param <A> the type of the first sequence elements
+     * @param <B> the type of the second sequence elements
+     * @param a the first sequence
+     * @param b the second sequence
+     * @return a lazy list with all the pairs
+     */
+    @SuppressWarnings("unchecked")
+    public static <A,B> List<Tuple2<A,B>> cartesian(final Iterable<A> a, final Iterable<B> b) {
+        return (List<Tuple2<A,B>>) (List<?>) new Product(new List<?>[] { list(a), list(b) });
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public static <A,B,C> List<Tuple3<A,B,C>> cartesian(
+            final Iterable<A> a, final Iterable<B> b, final Iterable<C> c) {
+        return (List<Tuple3<A,B,C>>) (List<?>) new Product(new List<?>[] { list(a), list(b), list(c) });
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public static <A,B,C,D> List<Tuple4<A,B,C,D>> cartesian(
+            final Iterable<A> a, final Iterable<B> b, final Iterable<C> c, final Iterable<D> d) {
+        return (List<Tuple4<A,B,C,D>>) (List<?>) new Product(new List<?>[] { list(a), list(b), list(c), list(d) });
+    }
+
+
+    /**
+     * <p>
+     * Return the Cartesian product of any number of sequences. The tuples
+     * are of the class matching the number of sequences.
+     * </p>
+     *
+     * @param sequences the sequences, at least one
+     * @return a lazy list with all the tuples
+     */
+    public static List<Tuple> cartesian(final List<? extends Iterable<?>> sequences) {
+        if (sequences == null || sequences.isEmpty()) {
+            throw new IllegalArgumentException("At least one sequence is needed");
+        }
+        final List<?>[] lists = new List<?>[sequences.size()];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = list(sequences.get(i));
+        }
+        return new Product(lists);
+    }
+
+
+
+
+    /**
+     * <p>
+     * Return all the combinations of <tt>k</tt> elements of a list, as
+     * tuples of size <tt>k</tt>. Combinations are returned in lexicographic
+     * order of the positions of their elements in the list, and the elements
+     * of every tuple keep the order they have in the list.
+     * </p>
+     * <p>
+     * Accessing a combination by index computes it directly from the index,
+     * while iterating computes every combination from the previous one.
+     * </p>
+     *
+     * @param list the list, which is copied if it is not random access
+     * @param k the size of the combinations, between 1 and 10
+     * @return a lazy list with all the combinations (empty if <tt>k</tt> is
+     *         greater than the size of the list)
+     */
+    public static List<Tuple> combinations(final List<?> list, final int k) {
+        if (k < 1 || k > MAX_COMBINATION_SIZE) {
+            throw new IllegalArgumentException(
+                    "Combination size must be between 1 and " + MAX_COMBINATION_SIZE + ". Is " + k);
+        }
+        return new Combinations(list(list), k);
+    }
+
+
+
+
+    private static List<?> list(final Iterable<?> iterable) {
+        if (iterable == null) {
+            throw new IllegalArgumentException("Sequences cannot be null");
+        }
+        if (iterable instanceof List<?> && iterable instanceof RandomAccess) {
+            return (List<?>) iterable;
+        }
+        final List<Object> list = new ArrayList<Object>();
+        for (final Object element : iterable) {
+            list.add(element);
+        }
+        return list;
+    }
+
+
+    private static long binomial(final int n, final int k) {
+        if (k < 0 || k > n) {
+            return 0L;
+        }
+        // Only called with k of at most 10 and results fitting in an int, so
+        // the intermediate products cannot overflow
+        long result = 1L;
+        for (int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+        }
+        return result;
+    }
+
+
+
+
+    private static final class Product extends AbstractList<Tuple> implements RandomAccess {
+
+        private final List<?>[] lists;
+        private final int size;
+
+
+        Product(final List<?>[] lists) {
+            super();
+            long size = 1L;
+            for (final List<?> list : lists) {
+                size *= list.size();
+                if (size > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Cartesian product is too large: more than " +
+                            Integer.MAX_VALUE + " tuples");
+                }
+            }
+            this.lists = lists;
+            this.size = (int) size;
+        }
+
+
+        @Override
+        public Tuple get(final int index) {
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+            // Mixed-radix decomposition of the index, last list varying fastest
+            final Object[] values = new Object[this.lists.length];
+            int remaining = index;
+            for (int i = this.lists.length - 1; i >= 0; i--) {
+                final int radix = this.lists[i].size();
+                values[i] = this.lists[i].get(remaining % radix);
+                remaining /= radix;
+            }
+            return TupleFactory.adopt(values);
+        }
+
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+    }
+
+
+
+
+    private static final class Combinations extends AbstractList<Tuple> implements RandomAccess {
+
+        private final List<?> list;
+        private final int k;
+        private final int size;
+
+
+        Combinations(final List<?> list, final int k) {
+            super();
+            final long size = binomialChecked(list.size(), k);
+            this.list = list;
+            this.k = k;
+            this.size = (int) size;
+        }
+
+
+        private static long binomialChecked(final int n, final int k) {
+            if (k > n) {
+                return 0L;
+            }
+            // Use the smaller side for fewer, smaller intermediate values
+            final int j = Math.min(k, n - k);
+            double approximate = 1.0;
+            for (int i = 0; i < j; i++) {
+                approximate = approximate * (n - i) / (i + 1);
+            }
+            if (approximate > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(
+                        "Too many combinations: more than " + Integer.MAX_VALUE + " tuples");
+            }
+            return binomial(n, j);
+        }
+
+
+        @Override
+        public Tuple get(final int index) {
+
+            if (index < 0 || index >= this.size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.size);
+            }
+
+            // Unranking: at every position, skip the blocks of combinations
+            // starting with smaller elements until the one containing index
+            final int n = this.list.size();
+            final Object[] values = new Object[this.k];
+            long rank = index;
+            int element = 0;
+            for (int i = 0; i < this.k; i++) {
+                long count = binomial(n - element - 1, this.k - i - 1);
+                while (rank >= count) {
+                    rank -= count;
+                    element++;
+                    count = binomial(n - element - 1, this.k - i - 1);
+                }
+                values[i] = this.list.get(element);
+                element++;
+            }
+            return TupleFactory.adopt(values);
+
+        }
+
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+
+        @Override
+        public Iterator<Tuple> iterator() {
+
+            final int n = this.list.size();
+            final int[] indices = new int[this.k];
+            for (int i = 0; i < indices.length; i++) {
+                indices[i] = i;
+            }
+
+            return new Iterator<Tuple>() {
+
+                private int returned = 0;
+
+                public boolean hasNext() {
+                    return this.returned < Combinations.this.size;
+                }
+
+                public Tuple next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    if (this.returned > 0) {
+                        // Advance to the next combination: increment the
+                        // rightmost index which can be incremented
+                        int i = indices.length - 1;
+                        while (indices[i] == n - indices.length + i) {
+                            i--;
+                        }
+                        indices[i]++;
+                        for (int j = i + 1; j < indices.length; j++) {
+                            indices[j] = indices[j - 1] + 1;
+                        }
+                    }
+                    this.returned++;
+                    final Object[] values = new Object[indices.length];
+                    for (int j = 0; j < values.length; j++) {
+                        values[j] = Combinations.this.list.get(indices[j]);
+                    }
+                    return TupleFactory.adopt(values);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException("Combinations cannot be removed");
+                }
+
+            };
+
+        }
+
+    }
+
+
+
+    private TupleProducts() {
+        super();
+    }
+
+}
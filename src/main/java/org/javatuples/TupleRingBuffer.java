@@ -0,0 +1,476 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * <p>
+ * Ring of preallocated {@link MutableTuple} slots for passing items between
+ * the stages of an in-process pipeline, in the style of the LMAX Disruptor.
+ * Once the ring is created, producing and consuming items allocates
+ * nothing and takes no lock: stages coordinate only through sequence
+ * numbers.
+ * </p>
+ * <p>
+ * Producers claim one or more consecutive sequences, fill the slots of
+ * these sequences and publish them. Consumers see slots in sequence order,
+ * in batches of everything available, and release them when done. Every
+ * consumer depends on the producers, or on other consumers (which it then
+ * follows, as a later stage of the pipeline), and producers never overwrite
+ * a slot before every consumer has released it.
+ * </p>
+ * <pre>
+ *     final TupleRingBuffer ring = new TupleRingBuffer(1024, 5, false, WaitStrategy.YIELD);
+ *     final TupleRingBuffer.Consumer parser = ring.newConsumer();
+ *     final TupleRingBuffer.Consumer writer = ring.newConsumer(parser);
+ *
+ *     // Producer thread
+ *     final long seq = ring.claim(1);
+ *     ring.get(seq).set(0, timestamp).set(1, payload)...;
+ *     ring.publish(seq, seq);
+ *
+ *     // Consumer threads
+ *     parser.processBatch(parseHandler, true);
+ *     writer.processBatch(writeHandler, true);
+ * </pre>
+ * <p>
+ * All consumers must be created before the first sequence is claimed.
+ * Slots keep their values after being consumed, so handlers of the last
+ * stage may want to {@link MutableTuple#clear()} them.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleRingBuffer {
+
+    /**
+     * <p>
+     * Receives the slots processed by
+     * {@link Consumer#processBatch(Handler, boolean)}.
+     * </p>
+     */
+    public interface Handler {
+
+        /**
+         * <p>
+         * Process a slot.
+         * </p>
+         *
+         * @param tuple the slot
+         * @param sequence the sequence of the slot
+         * @param endOfBatch whether it is the last slot of the batch
+         */
+        public void onTuple(final MutableTuple tuple, final long sequence, final boolean endOfBatch);
+
+    }
+
+    private static final long INITIAL = -1L;
+
+    private final MutableTuple[] slots;
+    private final int mask;
+    private final int indexShift;
+    private final boolean multiProducer;
+    private final WaitStrategy waitStrategy;
+
+    // Single producer: highest published sequence
+    private final Sequence cursor = new Sequence();
+    // Single producer: highest claimed sequence, not yet published
+    private long claimed = INITIAL;
+    // Multiple producers: highest claimed sequence, and round of the
+    // sequence last published in every slot
+    private final AtomicLong claimedSequence = new AtomicLong(INITIAL);
+    private final AtomicIntegerArray published;
+
+    // Sequences of all the consumers, which producers cannot overtake
+    private volatile Sequence[] gatingSequences = new Sequence[0];
+    // Single producer: last known minimum of the gating sequences
+    private long cachedGate = INITIAL;
+    private final Object consumerLock = new Object();
+
+
+
+    /**
+     * <p>
+     * Create a ring buffer.
+     * </p>
+     *
+     * @param capacity the number of slots, a power of two
+     * @param arity the size of the mutable tuples in the slots
+     * @param multiProducer whether several threads can claim sequences
+     * @param waitStrategy what waiting producers and consumers do
+     */
+    public TupleRingBuffer(final int capacity, final int arity, final boolean multiProducer,
+            final WaitStrategy waitStrategy) {
+        super();
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two. Is " + capacity);
+        }
+        if (waitStrategy == null) {
+            throw new IllegalArgumentException("Wait strategy cannot be null");
+        }
+        this.slots = new MutableTuple[capacity];
+        for (int i = 0; i < capacity; i++) {
+            this.slots[i] = new MutableTuple(arity);
+        }
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.multiProducer = multiProducer;
+        this.waitStrategy = waitStrategy;
+        if (multiProducer) {
+            this.published = new AtomicIntegerArray(capacity);
+            for (int i = 0; i < capacity; i++) {
+                this.published.set(i, -1);
+            }
+        } else {
+            this.published = null;
+        }
+    }
+
+
+
+    public int getCapacity() {
+        return this.slots.length;
+    }
+
+
+    /**
+     * <p>
+     * Create a consumer of the slots published by the producers.
+     * </p>
+     *
+     * @return the consumer
+     */
+    public Consumer newConsumer() {
+        return addConsumer(new Sequence[0]);
+    }
+
+
+    /**
+     * <p>
+     * Create a consumer of the slots released by other consumers: a later
+     * stage of the pipeline.
+     * </p>
+     *
+     * @param upstream the consumers this one depends on, at least one
+     * @return the consumer
+     */
+    public Consumer newConsumer(final Consumer... upstream) {
+        if (upstream == null || upstream.length == 0) {
+            throw new IllegalArgumentException("At least one upstream consumer is needed");
+        }
+        final Sequence[] dependencies = new Sequence[upstream.length];
+        for (int i = 0; i < upstream.length; i++) {
+            if (upstream[i] == null || upstream[i].getRing() != this) {
+                throw new IllegalArgumentException("Upstream consumers must belong to this ring buffer");
+            }
+            dependencies[i] = upstream[i].sequence;
+        }
+        return addConsumer(dependencies);
+    }
+
+
+    /**
+     * <p>
+     * Claim the next <tt>n</tt> sequences, waiting until their slots have
+     * been released by every consumer.
+     * </p>
+     *
+     * @param n the number of sequences, between 1 and the capacity
+     * @return the highest claimed sequence (the first one is
+     *         <tt>hi - n + 1</tt>)
+     */
+    public long claim(final int n) {
+        if (n < 1 || n > this.slots.length) {
+            throw new IllegalArgumentException("Can claim between 1 and " + this.slots.length + " sequences. Is " + n);
+        }
+        if (!this.multiProducer) {
+            final long hi = this.claimed + n;
+            awaitGate(hi);
+            this.claimed = hi;
+            return hi;
+        }
+        while (true) {
+            final long current = this.claimedSequence.get();
+            final long hi = current + n;
+            awaitGate(hi);
+            if (this.claimedSequence.compareAndSet(current, hi)) {
+                return hi;
+            }
+        }
+    }
+
+
+    /**
+     * <p>
+     * Return the slot of a claimed or available sequence.
+     * </p>
+     *
+     * @param sequence the sequence
+     * @return the slot
+     */
+    public MutableTuple get(final long sequence) {
+        return this.slots[(int) sequence & this.mask];
+    }
+
+
+    /**
+     * <p>
+     * Make the slots of a range of claimed sequences available to
+     * consumers.
+     * </p>
+     *
+     * @param lo the first sequence
+     * @param hi the last sequence
+     */
+    public void publish(final long lo, final long hi) {
+        if (lo > hi) {
+            throw new IllegalArgumentException("Invalid sequence range [" + lo + ", " + hi + "]");
+        }
+        if (!this.multiProducer) {
+            if (hi > this.claimed) {
+                throw new IllegalArgumentException("Sequence " + hi + " has not been claimed");
+            }
+            this.cursor.value = hi;
+            return;
+        }
+        for (long sequence = lo; sequence <= hi; sequence++) {
+            this.published.set((int) sequence & this.mask, (int) (sequence >>> this.indexShift));
+        }
+    }
+
+
+    /**
+     * <p>
+     * Claim a sequence, copy the values of a tuple to its slot and publish it.
+     * </p>
+     *
+     * @param tuple the tuple, of the size of the slots
+     * @return the sequence
+     */
+    public long publish(final Tuple tuple) {
+        final long sequence = claim(1);
+        get(sequence).setAll(tuple);
+        publish(sequence, sequence);
+        return sequence;
+    }
+
+
+
+    private Consumer addConsumer(final Sequence[] dependencies) {
+        synchronized (this.consumerLock) {
+            final Consumer consumer = new Consumer(dependencies);
+            final Sequence[] gating = new Sequence[this.gatingSequences.length + 1];
+            System.arraycopy(this.gatingSequences, 0, gating, 0, this.gatingSequences.length);
+            gating[gating.length - 1] = consumer.sequence;
+            this.gatingSequences = gating;
+            return consumer;
+        }
+    }
+
+
+    /*
+     * Wait until every consumer has released the sequence "hi - capacity".
+     */
+    private void awaitGate(final long hi) {
+        final long wrapPoint = hi - this.slots.length;
+        if (!this.multiProducer && wrapPoint <= this.cachedGate) {
+            return;
+        }
+        int attempt = 0;
+        long gate = minimum(this.gatingSequences, Long.MAX_VALUE);
+        while (wrapPoint > gate) {
+            this.waitStrategy.idle(attempt++);
+            gate = minimum(this.gatingSequences, Long.MAX_VALUE);
+        }
+        if (!this.multiProducer) {
+            this.cachedGate = gate;
+        }
+    }
+
+
+    /*
+     * Highest sequence published by the producers, starting at "next".
+     */
+    private long highestPublished(final long next) {
+        if (!this.multiProducer) {
+            return this.cursor.value;
+        }
+        final long claimedHi = this.claimedSequence.get();
+        for (long sequence = next; sequence <= claimedHi; sequence++) {
+            if (this.published.get((int) sequence & this.mask) != (int) (sequence >>> this.indexShift)) {
+                return sequence - 1;
+            }
+        }
+        return claimedHi;
+    }
+
+
+    private static long minimum(final Sequence[] sequences, final long defaultValue) {
+        long minimum = defaultValue;
+        for (int i = 0; i < sequences.length; i++) {
+            final long value = sequences[i].value;
+            if (value < minimum) {
+                minimum = value;
+            }
+        }
+        return minimum;
+    }
+
+
+
+
+    /**
+     * <p>
+     * A consumer, or pipeline stage, reading the slots of a ring buffer in
+     * sequence order. Every consumer must be used by a single thread.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public final class Consumer {
+
+        private final Sequence sequence = new Sequence();
+        private final Sequence[] dependencies;
+
+
+        Consumer(final Sequence[] dependencies) {
+            super();
+            this.dependencies = dependencies;
+        }
+
+
+        TupleRingBuffer getRing() {
+            return TupleRingBuffer.this;
+        }
+
+
+        /**
+         * <p>
+         * Return the last sequence released by this consumer.
+         * </p>
+         *
+         * @return the sequence, or -1 if none has been released
+         */
+        public long getSequence() {
+            return this.sequence.value;
+        }
+
+
+        /**
+         * <p>
+         * Return the highest sequence available to this consumer, which is
+         * not greater than {@link #getSequence()} if there is none.
+         * </p>
+         *
+         * @return the highest available sequence
+         */
+        public long available() {
+            final long next = this.sequence.value + 1;
+            final long published = highestPublished(next);
+            return minimum(this.dependencies, published);
+        }
+
+
+        /**
+         * <p>
+         * Wait until at least one sequence is available to this consumer.
+         * </p>
+         *
+         * @return the highest available sequence
+         */
+        public long waitFor() {
+            final long next = this.sequence.value + 1;
+            int attempt = 0;
+            long available = available();
+            while (available < next) {
+                TupleRingBuffer.this.waitStrategy.idle(attempt++);
+                available = available();
+            }
+            return available;
+        }
+
+
+        /**
+         * <p>
+         * Release every sequence up to the specified one, making their
+         * slots available to the following stages (or to producers).
+         * </p>
+         *
+         * @param sequence the last processed sequence
+         */
+        public void release(final long sequence) {
+            this.sequence.value = sequence;
+        }
+
+
+        /**
+         * <p>
+         * Process all the available slots and release them.
+         * </p>
+         *
+         * @param handler the handler of every slot
+         * @param wait whether to wait for at least one slot if none is
+         *        available
+         * @return the number of slots processed
+         */
+        public int processBatch(final Handler handler, final boolean wait) {
+            if (handler == null) {
+                throw new IllegalArgumentException("Handler cannot be null");
+            }
+            final long next = this.sequence.value + 1;
+            final long available = (wait ? waitFor() : available());
+            for (long seq = next; seq <= available; seq++) {
+                handler.onTuple(get(seq), seq, seq == available);
+            }
+            if (available >= next) {
+                release(available);
+                return (int) (available - next + 1);
+            }
+            return 0;
+        }
+
+    }
+
+
+
+
+    /*
+     * Sequence number padded to its own cache line, so that sequences
+     * updated by different threads do not invalidate each other.
+     */
+    @SuppressWarnings("unused")
+    private static final class Sequence {
+
+        private long p1, p2, p3, p4, p5, p6, p7;
+        volatile long value = INITIAL;
+        private long p9, p10, p11, p12, p13, p14, p15;
+
+
+        Sequence() {
+            super();
+        }
+
+    }
+
+}
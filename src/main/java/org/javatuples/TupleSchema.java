@@ -0,0 +1,926 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.javatuples.valueintf.IValue0;
+import org.javatuples.valueintf.IValue1;
+import org.javatuples.valueintf.IValue2;
+import org.javatuples.valueintf.IValue3;
+import org.javatuples.valueintf.IValue4;
+import org.javatuples.valueintf.IValue5;
+import org.javatuples.valueintf.IValue6;
+import org.javatuples.valueintf.IValue7;
+import org.javatuples.valueintf.IValue8;
+import org.javatuples.valueintf.IValue9;
+
+
+/**
+ * <p>
+ * Schema-specific tuples (rows) with unboxed storage for primitive values.
+ * </p>
+ * <p>
+ * A schema is defined once with the type of every position, primitive types
+ * being specified with their primitive classes:
+ * </p>
+ * <pre>
+ *     final TupleSchema schema = TupleSchema.define(int.class, String.class, double.class);
+ *     final TupleSchema.Row row = schema.newRow(Integer.valueOf(1), "one", Double.valueOf(1.0));
+ *     final double d = row.getDouble(2);
+ * </pre>
+ * <p>
+ * Values at primitive positions are stored in a <tt>long[]</tt>, and are
+ * never boxed unless they are read through {@link Row#getValue(int)}. Rows can
+ * be created without any boxing through {@link #builder()}. Equality, hash
+ * codes and ordering are computed directly on the unboxed values: hash codes
+ * and ordering are the same as those of the equivalent <tt>Tuple</tt>
+ * (see {@link Row#toTuple()}). Rows also implement the
+ * <tt>IValue0</tt>..<tt>IValueN</tt> interfaces for their size, so code
+ * reading values generically through them still works.
+ * </p>
+ * <p>
+ * Schemas also provide a binary codec ({@link #write(DataOutput, Row)} and
+ * {@link #read(DataInput)}) which writes primitive values with no tags or
+ * boxing.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleSchema {
+
+    private static final int MAX_SIZE = 10;
+
+    private static final int BOOLEAN = 0;
+    private static final int BYTE = 1;
+    private static final int SHORT = 2;
+    private static final int CHARACTER = 3;
+    private static final int INTEGER = 4;
+    private static final int LONG = 5;
+    private static final int FLOAT = 6;
+    private static final int DOUBLE = 7;
+    private static final int REFERENCE = 8;
+
+    private final Class<?>[] types;
+    private final int[] kinds;
+    // Index of every position in either the primitive or the reference array
+    private final int[] slots;
+    private final int primitiveCount;
+    private final int referenceCount;
+
+
+
+
+    /**
+     * <p>
+     * Define a schema.
+     * </p>
+     *
+     * @param types the types of the positions, between 1 and 10. Primitive
+     *        classes (like <tt>int.class</tt>) define unboxed positions.
+     * @return the schema
+     */
+    public static TupleSchema define(final Class<?>... types) {
+        return new TupleSchema(types);
+    }
+
+
+    private TupleSchema(final Class<?>[] types) {
+
+        super();
+
+        if (types == null || types.length == 0 || types.length > MAX_SIZE) {
+            throw new IllegalArgumentException("Schemas must have between 1 and " + MAX_SIZE + " types");
+        }
+
+        this.types = types.clone();
+        this.kinds = new int[types.length];
+        this.slots = new int[types.length];
+        int primitives = 0;
+        int references = 0;
+        for (int i = 0; i < types.length; i++) {
+            if (types[i] == null) {
+                throw new IllegalArgumentException("Types cannot be null");
+            }
+            this.kinds[i] = kindOf(types[i]);
+            this.slots[i] = (this.kinds[i] == REFERENCE) ? references++ : primitives++;
+        }
+        this.primitiveCount = primitives;
+        this.referenceCount = references;
+
+    }
+
+
+    private static int kindOf(final Class<?> type) {
+        if (type == boolean.class) {
+            return BOOLEAN;
+        } else if (type == byte.class) {
+            return BYTE;
+        } else if (type == short.class) {
+            return SHORT;
+        } else if (type == char.class) {
+            return CHARACTER;
+        } else if (type == int.class) {
+            return INTEGER;
+        } else if (type == long.class) {
+            return LONG;
+        } else if (type == float.class) {
+            return FLOAT;
+        } else if (type == double.class) {
+            return DOUBLE;
+        } else if (type == void.class) {
+            throw new IllegalArgumentException("Type void is not allowed in schemas");
+        }
+        return REFERENCE;
+    }
+
+
+
+
+    public int getSize() {
+        return this.types.length;
+    }
+
+
+    public Class<?> getType(final int pos) {
+        checkPosition(pos);
+        return this.types[pos];
+    }
+
+
+
+
+    /**
+     * <p>
+     * Create a row from (boxed) values. Values at primitive positions cannot
+     * be <tt>null</tt>.
+     * </p>
+     *
+     * @param values the values
+     * @return the row
+     */
+    public Row newRow(final Object... values) {
+        if (values == null || values.length != this.types.length) {
+            throw new IllegalArgumentException(
+                    "Schema of size " + this.types.length + " needs exactly " + this.types.length + " values");
+        }
+        final Builder builder = builder();
+        for (int i = 0; i < values.length; i++) {
+            builder.set(i, values[i]);
+        }
+        return builder.build();
+    }
+
+
+    /**
+     * <p>
+     * Create a row with the values of a tuple of the same size.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return the row
+     */
+    public Row fromTuple(final Tuple tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Tuple cannot be null");
+        }
+        return newRow(tuple.toArray());
+    }
+
+
+    /**
+     * <p>
+     * Create a builder for rows of this schema. Builders can be reused: every
+     * call to {@link Builder#build()} returns a new row with the values set
+     * at that moment.
+     * </p>
+     *
+     * @return the builder
+     */
+    public Builder builder() {
+        return new Builder(this);
+    }
+
+
+
+
+    /**
+     * <p>
+     * Write a row of this schema. Primitive values are written with their
+     * fixed-length <tt>DataOutput</tt> representation, and other values as in
+     * {@link TupleCodec#writeValue(DataOutput, Object)}.
+     * </p>
+     *
+     * @param out the output the row will be written to
+     * @param row the row
+     * @throws IOException if the output fails or a value cannot be encoded
+     */
+    public void write(final DataOutput out, final Row row) throws IOException {
+
+        if (row == null) {
+            throw new IllegalArgumentException("Row cannot be null");
+        }
+        if (row.schema != this && !row.schema.equals(this)) {
+            throw new IllegalArgumentException("Row does not belong to this schema");
+        }
+
+        for (int i = 0; i < this.kinds.length; i++) {
+            final int slot = this.slots[i];
+            final long bits = (this.kinds[i] == REFERENCE) ? 0L : row.primitives[slot];
+            switch (this.kinds[i]) {
+                case BOOLEAN:
+                    out.writeBoolean(bits != 0L);
+                    break;
+                case BYTE:
+                    out.writeByte((int) bits);
+                    break;
+                case SHORT:
+                    out.writeShort((int) bits);
+                    break;
+                case CHARACTER:
+                    out.writeChar((int) bits);
+                    break;
+                case INTEGER:
+                case FLOAT:
+                    out.writeInt((int) bits);
+                    break;
+                case LONG:
+                case DOUBLE:
+                    out.writeLong(bits);
+                    break;
+                default:
+                    TupleCodec.writeValue(out, row.references[slot]);
+            }
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Read a row of this schema written with {@link #write(DataOutput, Row)}.
+     * Values written using Java serialization are rejected.
+     * </p>
+     *
+     * @param in the input the row will be read from
+     * @return the row
+     * @throws IOException if the input fails or contains invalid data
+     */
+    public Row read(final DataInput in) throws IOException {
+        return read(in, null);
+    }
+
+
+    /**
+     * <p>
+     * Read a row of this schema written with {@link #write(DataOutput, Row)}.
+     * </p>
+     *
+     * @param in the input the row will be read from
+     * @param filter the classes which Java-serialized values may have, or
+     *        <tt>null</tt> for not allowing any
+     * @return the row
+     * @throws IOException if the input fails or contains invalid data
+     */
+    public Row read(final DataInput in, final TupleCodec.ClassFilter filter) throws IOException {
+
+        final long[] primitives = new long[this.primitiveCount];
+        final Object[] references = new Object[this.referenceCount];
+
+        for (int i = 0; i < this.kinds.length; i++) {
+            final int slot = this.slots[i];
+            switch (this.kinds[i]) {
+                case BOOLEAN:
+                    primitives[slot] = in.readBoolean() ? 1L : 0L;
+                    break;
+                case BYTE:
+                    primitives[slot] = in.readByte();
+                    break;
+                case SHORT:
+                    primitives[slot] = in.readShort();
+                    break;
+                case CHARACTER:
+                    primitives[slot] = in.readChar();
+                    break;
+                case INTEGER:
+                case FLOAT:
+                    primitives[slot] = in.readInt();
+                    break;
+                case LONG:
+                case DOUBLE:
+                    primitives[slot] = in.readLong();
+                    break;
+                default:
+                    references[slot] = TupleCodec.readValue(in, filter);
+            }
+        }
+
+        return createRow(primitives, references);
+
+    }
+
+
+
+
+    Row createRow(final long[] primitives, final Object[] references) {
+        switch (this.types.length) {
+            case 1:
+                return new Row1(this, primitives, references);
+            case 2:
+                return new Row2(this, primitives, references);
+            case 3:
+                return new Row3(this, primitives, references);
+            case 4:
+                return new Row4(this, primitives, references);
+            case 5:
+                return new Row5(this, primitives, references);
+            case 6:
+                return new Row6(this, primitives, references);
+            case 7:
+                return new Row7(this, primitives, references);
+            case 8:
+                return new Row8(this, primitives, references);
+            case 9:
+                return new Row9(this, primitives, references);
+            default:
+                return new Row10(this, primitives, references);
+        }
+    }
+
+
+    private void checkPosition(final int pos) {
+        if (pos < 0 || pos >= this.types.length) {
+            throw new IllegalArgumentException(
+                    "Cannot retrieve position " + pos + " in a schema of size " + this.types.length);
+        }
+    }
+
+
+    private int checkKind(final int pos, final int minKind, final int maxKind) {
+        checkPosition(pos);
+        final int kind = this.kinds[pos];
+        if (kind < minKind || kind > maxKind) {
+            throw new IllegalArgumentException(
+                    "Position " + pos + " is of type " + this.types[pos].getName() +
+                    ", which cannot be accessed this way");
+        }
+        return this.slots[pos];
+    }
+
+
+
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.types);
+    }
+
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        return Arrays.equals(this.types, ((TupleSchema) obj).types);
+    }
+
+
+    @Override
+    public String toString() {
+        final StringBuilder strBuilder = new StringBuilder("TupleSchema[");
+        for (int i = 0; i < this.types.length; i++) {
+            if (i > 0) {
+                strBuilder.append(", ");
+            }
+            strBuilder.append(this.types[i].getName());
+        }
+        return strBuilder.append(']').toString();
+    }
+
+
+
+
+    /**
+     * <p>
+     * Builder for rows of a schema, allowing to set primitive values without
+     * boxing them.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public static final class Builder {
+
+        private final TupleSchema schema;
+        private final long[] primitives;
+        private final Object[] references;
+
+
+        Builder(final TupleSchema schema) {
+            super();
+            this.schema = schema;
+            this.primitives = new long[schema.primitiveCount];
+            this.references = new Object[schema.referenceCount];
+        }
+
+
+        public Builder setBoolean(final int pos, final boolean value) {
+            this.primitives[this.schema.checkKind(pos, BOOLEAN, BOOLEAN)] = value ? 1L : 0L;
+            return this;
+        }
+
+
+        public Builder setInt(final int pos, final int value) {
+            final int slot = this.schema.checkKind(pos, BYTE, LONG);
+            this.primitives[slot] = checkRange(pos, value);
+            return this;
+        }
+
+
+        public Builder setLong(final int pos, final long value) {
+            final int slot = this.schema.checkKind(pos, BYTE, LONG);
+            this.primitives[slot] = checkRange(pos, value);
+            return this;
+        }
+
+
+        public Builder setFloat(final int pos, final float value) {
+            this.primitives[this.schema.checkKind(pos, FLOAT, FLOAT)] = Float.floatToIntBits(value);
+            return this;
+        }
+
+
+        public Builder setDouble(final int pos, final double value) {
+            final int slot = this.schema.checkKind(pos, FLOAT, DOUBLE);
+            if (this.schema.kinds[pos] == FLOAT) {
+                this.primitives[slot] = Float.floatToIntBits((float) value);
+            } else {
+                this.primitives[slot] = Double.doubleToLongBits(value);
+            }
+            return this;
+        }
+
+
+        /**
+         * <p>
+         * Set the value at a position. Values at primitive positions must be
+         * the corresponding wrapper objects.
+         * </p>
+         *
+         * @param pos the position
+         * @param value the value
+         * @return this builder
+         */
+        public Builder set(final int pos, final Object value) {
+
+            this.schema.checkPosition(pos);
+            final int kind = this.schema.kinds[pos];
+
+            if (kind == REFERENCE) {
+                if (value != null && !this.schema.types[pos].isInstance(value)) {
+                    throw new IllegalArgumentException(
+                            "Value at position " + pos + " is not of type " + this.schema.types[pos].getName() +
+                            ": " + value);
+                }
+                this.references[this.schema.slots[pos]] = value;
+                return this;
+            }
+
+            if (value == null) {
+                throw new IllegalArgumentException(
+                        "Value at primitive position " + pos + " cannot be null");
+            }
+            try {
+                switch (kind) {
+                    case BOOLEAN:
+                        return setBoolean(pos, ((Boolean) value).booleanValue());
+                    case BYTE:
+                        return setInt(pos, ((Byte) value).byteValue());
+                    case SHORT:
+                        return setInt(pos, ((Short) value).shortValue());
+                    case CHARACTER:
+                        return setInt(pos, ((Character) value).charValue());
+                    case INTEGER:
+                        return setInt(pos, ((Integer) value).intValue());
+                    case LONG:
+                        return setLong(pos, ((Long) value).longValue());
+                    case FLOAT:
+                        return setFloat(pos, ((Float) value).floatValue());
+                    default:
+                        return setDouble(pos, ((Double) value).doubleValue());
+                }
+            } catch (final ClassCastException e) {
+                throw new IllegalArgumentException(
+                        "Value at position " + pos + " is not of type " + this.schema.types[pos].getName() +
+                        ": " + value);
+            }
+
+        }
+
+
+        public Row build() {
+            return this.schema.createRow(this.primitives.clone(), this.references.clone());
+        }
+
+
+        private long checkRange(final int pos, final long value) {
+            final long min;
+            final long max;
+            switch (this.schema.kinds[pos]) {
+                case BYTE:
+                    min = Byte.MIN_VALUE;
+                    max = Byte.MAX_VALUE;
+                    break;
+                case SHORT:
+                    min = Short.MIN_VALUE;
+                    max = Short.MAX_VALUE;
+                    break;
+                case CHARACTER:
+                    min = Character.MIN_VALUE;
+                    max = Character.MAX_VALUE;
+                    break;
+                case INTEGER:
+                    min = Integer.MIN_VALUE;
+                    max = Integer.MAX_VALUE;
+                    break;
+                default:
+                    return value;
+            }
+            if (value < min || value > max) {
+                throw new IllegalArgumentException(
+                        "Value at position " + pos + " is out of range for type " +
+                        this.schema.types[pos].getName() + ": " + value);
+            }
+            return value;
+        }
+
+    }
+
+
+
+
+    /**
+     * <p>
+     * Row of a schema. Rows are immutable.
+     * </p>
+     *
+     * @since 1.3
+     */
+    public abstract static class Row implements Comparable<Row> {
+
+        final TupleSchema schema;
+        final long[] primitives;
+        final Object[] references;
+
+
+        Row(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super();
+            this.schema = schema;
+            this.primitives = primitives;
+            this.references = references;
+        }
+
+
+        public final TupleSchema getSchema() {
+            return this.schema;
+        }
+
+
+        public final int getSize() {
+            return this.schema.types.length;
+        }
+
+
+        public final boolean getBoolean(final int pos) {
+            return this.primitives[this.schema.checkKind(pos, BOOLEAN, BOOLEAN)] != 0L;
+        }
+
+
+        /**
+         * <p>
+         * Return the value at a <tt>byte</tt>, <tt>short</tt>, <tt>char</tt>
+         * or <tt>int</tt> position.
+         * </p>
+         *
+         * @param pos the position
+         * @return the value
+         */
+        public final int getInt(final int pos) {
+            return (int) this.primitives[this.schema.checkKind(pos, BYTE, INTEGER)];
+        }
+
+
+        /**
+         * <p>
+         * Return the value at an integral (<tt>byte</tt>, <tt>short</tt>,
+         * <tt>char</tt>, <tt>int</tt> or <tt>long</tt>) position.
+         * </p>
+         *
+         * @param pos the position
+         * @return the value
+         */
+        public final long getLong(final int pos) {
+            return this.primitives[this.schema.checkKind(pos, BYTE, LONG)];
+        }
+
+
+        public final float getFloat(final int pos) {
+            return Float.intBitsToFloat((int) this.primitives[this.schema.checkKind(pos, FLOAT, FLOAT)]);
+        }
+
+
+        /**
+         * <p>
+         * Return the value at a <tt>float</tt> or <tt>double</tt> position.
+         * </p>
+         *
+         * @param pos the position
+         * @return the value
+         */
+        public final double getDouble(final int pos) {
+            final int slot = this.schema.checkKind(pos, FLOAT, DOUBLE);
+            if (this.schema.kinds[pos] == FLOAT) {
+                return Float.intBitsToFloat((int) this.primitives[slot]);
+            }
+            return Double.longBitsToDouble(this.primitives[slot]);
+        }
+
+
+        /**
+         * <p>
+         * Return the value at a position, boxing it if the position is
+         * primitive.
+         * </p>
+         *
+         * @param pos the position
+         * @return the value
+         */
+        public final Object getValue(final int pos) {
+            this.schema.checkPosition(pos);
+            final int slot = this.schema.slots[pos];
+            final long bits = (this.schema.kinds[pos] == REFERENCE) ? 0L : this.primitives[slot];
+            switch (this.schema.kinds[pos]) {
+                case BOOLEAN:
+                    return Boolean.valueOf(bits != 0L);
+                case BYTE:
+                    return Byte.valueOf((byte) bits);
+                case SHORT:
+                    return Short.valueOf((short) bits);
+                case CHARACTER:
+                    return Character.valueOf((char) bits);
+                case INTEGER:
+                    return Integer.valueOf((int) bits);
+                case LONG:
+                    return Long.valueOf(bits);
+                case FLOAT:
+                    return Float.valueOf(Float.intBitsToFloat((int) bits));
+                case DOUBLE:
+                    return Double.valueOf(Double.longBitsToDouble(bits));
+                default:
+                    return this.references[slot];
+            }
+        }
+
+
+        /**
+         * <p>
+         * Return the values of this row as a tuple of the class matching its
+         * size (<tt>Unit</tt>, <tt>Tuple2</tt>, etc.)
+         * </p>
+         *
+         * @return the tuple
+         */
+        public final Tuple toTuple() {
+            return TupleFactory.adopt(toArray());
+        }
+
+
+        public final Object[] toArray() {
+            final Object[] values = new Object[getSize()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = getValue(i);
+            }
+            return values;
+        }
+
+
+
+
+        /**
+         * <p>
+         * Return the hash code of this row, which is the same as that of
+         * the equivalent tuple.
+         * </p>
+         *
+         * @return the hash code
+         */
+        @Override
+        public final int hashCode() {
+            int hash = 1;
+            for (int i = 0; i < this.schema.kinds.length; i++) {
+                hash = 31 * hash + valueHashCode(i);
+            }
+            return 31 + hash;
+        }
+
+
+        private int valueHashCode(final int pos) {
+            final int slot = this.schema.slots[pos];
+            switch (this.schema.kinds[pos]) {
+                case BOOLEAN:
+                    return (this.primitives[slot] != 0L) ? 1231 : 1237;
+                case BYTE:
+                case SHORT:
+                case CHARACTER:
+                case INTEGER:
+                case FLOAT:
+                    // Floats are stored as their canonical int bits
+                    return (int) this.primitives[slot];
+                case LONG:
+                case DOUBLE:
+                    final long bits = this.primitives[slot];
+                    return (int) (bits ^ (bits >>> 32));
+                default:
+                    final Object value = this.references[slot];
+                    return (value == null) ? 0 : value.hashCode();
+            }
+        }
+
+
+        @Override
+        public final boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Row)) {
+                return false;
+            }
+            final Row other = (Row) obj;
+            if (!this.schema.equals(other.schema)) {
+                return false;
+            }
+            // Floating point values are stored as canonical bits, so this has
+            // the same semantics as Float.equals and Double.equals
+            return Arrays.equals(this.primitives, other.primitives) &&
+                   Arrays.equals(this.references, other.references);
+        }
+
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        public final int compareTo(final Row o) {
+
+            final int tLen = getSize();
+            final int oLen = o.getSize();
+
+            for (int i = 0; i < tLen && i < oLen; i++) {
+
+                final int kind = this.schema.kinds[i];
+                final int comparison;
+                if (kind != o.schema.kinds[i] || kind == REFERENCE) {
+                    comparison = ((Comparable) getValue(i)).compareTo(o.getValue(i));
+                } else {
+                    final long tBits = this.primitives[this.schema.slots[i]];
+                    final long oBits = o.primitives[o.schema.slots[i]];
+                    if (kind == FLOAT) {
+                        comparison = Float.compare(Float.intBitsToFloat((int) tBits), Float.intBitsToFloat((int) oBits));
+                    } else if (kind == DOUBLE) {
+                        comparison = Double.compare(Double.longBitsToDouble(tBits), Double.longBitsToDouble(oBits));
+                    } else {
+                        comparison = (tBits < oBits) ? -1 : ((tBits == oBits) ? 0 : 1);
+                    }
+                }
+                if (comparison != 0) {
+                    return comparison;
+                }
+
+            }
+
+            return (tLen < oLen) ? -1 : ((tLen == oLen) ? 0 : 1);
+
+        }
+
+
+        @Override
+        public final String toString() {
+            return Arrays.asList(toArray()).toString();
+        }
+
+    }
+
+
+
+
+    private static class Row1 extends Row implements IValue0<Object> {
+        Row1(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue0() {
+            return getValue(0);
+        }
+    }
+
+    private static class Row2 extends Row1 implements IValue1<Object> {
+        Row2(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue1() {
+            return getValue(1);
+        }
+    }
+
+    private static class Row3 extends Row2 implements IValue2<Object> {
+        Row3(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue2() {
+            return getValue(2);
+        }
+    }
+
+    private static class Row4 extends Row3 implements IValue3<Object> {
+        Row4(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue3() {
+            return getValue(3);
+        }
+    }
+
+    private static class Row5 extends Row4 implements IValue4<Object> {
+        Row5(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue4() {
+            return getValue(4);
+        }
+    }
+
+    private static class Row6 extends Row5 implements IValue5<Object> {
+        Row6(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue5() {
+            return getValue(5);
+        }
+    }
+
+    private static class Row7 extends Row6 implements IValue6<Object> {
+        Row7(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue6() {
+            return getValue(6);
+        }
+    }
+
+    private static class Row8 extends Row7 implements IValue7<Object> {
+        Row8(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue7() {
+            return getValue(7);
+        }
+    }
+
+    private static class Row9 extends Row8 implements IValue8<Object> {
+        Row9(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue8() {
+            return getValue(8);
+        }
+    }
+
+    private static final class Row10 extends Row9 implements IValue9<Object> {
+        Row10(final TupleSchema schema, final long[] primitives, final Object[] references) {
+            super(schema, primitives, references);
+        }
+        public final Object getValue9() {
+            return getValue(9);
+        }
+    }
+
+}
@@ -0,0 +1,261 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+
+/**
+ * <p>
+ * Immutable sorted set of tuples, in their natural ordering, stored in a
+ * single sorted array.
+ * </p>
+ * <p>
+ * The set is bulk-loaded (sorted once) on creation, and searched by binary
+ * search. Compared to a <tt>TreeSet</tt>, it needs no node per tuple and
+ * scans ranges sequentially in memory. Sub-sets, including prefix queries
+ * (see {@link #withPrefix(Object...)}), are views sharing the same array.
+ * For sets that change often, use a <tt>TreeSet</tt> and
+ * {@link TuplePrefixes}.
+ * </p>
+ *
+ * @param <T> the type of the tuples
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleSortedSet<T extends Tuple> extends AbstractSet<T> implements SortedSet<T> {
+
+    private final Tuple[] tuples;
+    private final int from;
+    private final int to;
+
+
+
+    /**
+     * <p>
+     * Create a sorted set with the specified tuples. Duplicates are removed.
+     * </p>
+     *
+     * @param <T> the type of the tuples
+     * @param tuples the tuples, which cannot be <tt>null</tt>
+     * @return the set
+     */
+    public static <T extends Tuple> TupleSortedSet<T> of(final Collection<? extends T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        final Tuple[] sorted = tuples.toArray(new Tuple[tuples.size()]);
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] == null) {
+                throw new IllegalArgumentException("Tuples cannot be null");
+            }
+        }
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (size == 0 || sorted[size - 1].compareTo(sorted[i]) != 0) {
+                sorted[size++] = sorted[i];
+            }
+        }
+        final Tuple[] unique;
+        if (size == sorted.length) {
+            unique = sorted;
+        } else {
+            unique = new Tuple[size];
+            System.arraycopy(sorted, 0, unique, 0, size);
+        }
+        return new TupleSortedSet<T>(unique, 0, size);
+    }
+
+
+
+    private TupleSortedSet(final Tuple[] tuples, final int from, final int to) {
+        super();
+        this.tuples = tuples;
+        this.from = from;
+        this.to = to;
+    }
+
+
+
+    @Override
+    public int size() {
+        return this.to - this.from;
+    }
+
+
+    /**
+     * <p>
+     * Return the tuple at a position of this set, in sort order.
+     * </p>
+     *
+     * @param index the position
+     * @return the tuple
+     */
+    @SuppressWarnings("unchecked")
+    public T get(final int index) {
+        if (index < 0 || index >= this.to - this.from) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + (this.to - this.from));
+        }
+        return (T) this.tuples[this.from + index];
+    }
+
+
+    @Override
+    public boolean contains(final Object o) {
+        if (!(o instanceof Tuple)) {
+            return false;
+        }
+        final int index = search((Tuple) o);
+        return index < this.to && this.tuples[index].compareTo((Tuple) o) == 0;
+    }
+
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+
+            private int next = TupleSortedSet.this.from;
+
+            public boolean hasNext() {
+                return this.next < TupleSortedSet.this.to;
+            }
+
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (T) TupleSortedSet.this.tuples[this.next++];
+            }
+
+            public void remove() {
+                throw new UnsupportedOperationException("Tuple sorted sets are immutable");
+            }
+
+        };
+    }
+
+
+    public Comparator<? super T> comparator() {
+        return null;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public T first() {
+        if (this.from == this.to) {
+            throw new NoSuchElementException();
+        }
+        return (T) this.tuples[this.from];
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public T last() {
+        if (this.from == this.to) {
+            throw new NoSuchElementException();
+        }
+        return (T) this.tuples[this.to - 1];
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples between two keys, as a view. Keys can be prefix
+     * bounds created by {@link TuplePrefixes}. Keys out of the range of this
+     * set are limited to it.
+     * </p>
+     *
+     * @param fromElement the lower key, inclusive
+     * @param toElement the upper key, exclusive
+     * @return the view
+     */
+    public TupleSortedSet<T> subSet(final T fromElement, final T toElement) {
+        return range((Tuple) fromElement, (Tuple) toElement);
+    }
+
+
+    public TupleSortedSet<T> headSet(final T toElement) {
+        return range(null, (Tuple) toElement);
+    }
+
+
+    public TupleSortedSet<T> tailSet(final T fromElement) {
+        return range((Tuple) fromElement, null);
+    }
+
+
+    /**
+     * <p>
+     * Return the tuples starting with the specified values, as a view.
+     * </p>
+     *
+     * @param prefix the values of the prefix
+     * @return the view
+     */
+    public TupleSortedSet<T> withPrefix(final Object... prefix) {
+        return range(TuplePrefixes.lowerBound(prefix), TuplePrefixes.upperBound(prefix));
+    }
+
+
+
+    private TupleSortedSet<T> range(final Tuple fromElement, final Tuple toElement) {
+        int start = this.from;
+        int end = this.to;
+        if (fromElement != null) {
+            start = search(fromElement);
+        }
+        if (toElement != null) {
+            if (fromElement != null && fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("Lower key is greater than upper key");
+            }
+            end = search(toElement);
+        }
+        return new TupleSortedSet<T>(this.tuples, start, end);
+    }
+
+
+    /*
+     * Index of the first tuple of this set which is not less than the key
+     * (this.to if there is none).
+     */
+    private int search(final Tuple key) {
+        int low = this.from;
+        int high = this.to;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (this.tuples[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+}
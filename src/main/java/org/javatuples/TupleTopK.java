@@ -0,0 +1,461 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ * <p>
+ * Selection of the <tt>k</tt> greatest tuples of a sequence, without sorting
+ * the whole sequence.
+ * </p>
+ * <p>
+ * Tuples are offered one at a time and kept in a bounded min-heap of size
+ * <tt>k</tt>, whose root is the smallest tuple kept so far: most tuples of a
+ * large sequence are rejected with a single comparison against it. In order
+ * to select the <tt>k</tt> smallest tuples, use a reversed comparator.
+ * </p>
+ * <p>
+ * When ordering by a numeric position, the <tt>byLongPosition</tt> and
+ * <tt>byDoublePosition</tt> variants extract the key only once per offered
+ * tuple and keep it in a primitive array alongside the heap, so that no
+ * comparator is ever called.
+ * </p>
+ * <p>
+ * Instances are accumulators: they can be filled in several threads (one
+ * instance per thread), combined with {@link #merge(TupleTopK)}, and
+ * finished with {@link #toList()}. {@link #offerAll(List, ExecutorService, int)}
+ * does exactly that for a list. Instances are not thread-safe.
+ * </p>
+ *
+ * @param <T> the type of the selected tuples
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleTopK<T extends Tuple> {
+
+    private static final int COMPARATOR = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+
+    private final int k;
+    private final int mode;
+    private final Comparator<? super T> comparator;
+    private final int pos;
+
+    private int size = 0;
+    private final Object[] heap;
+    private final long[] longKeys;
+    private final double[] doubleKeys;
+
+
+
+    /**
+     * <p>
+     * Select the <tt>k</tt> greatest tuples according to a comparator.
+     * </p>
+     *
+     * @param <T> the type of the selected tuples
+     * @param k the number of tuples to be selected
+     * @param comparator the comparator
+     * @return the new, empty, selection
+     */
+    public static <T extends Tuple> TupleTopK<T> of(final int k, final Comparator<? super T> comparator) {
+        if (comparator == null) {
+            throw new IllegalArgumentException("Comparator cannot be null");
+        }
+        return new TupleTopK<T>(k, COMPARATOR, comparator, -1);
+    }
+
+
+    /**
+     * <p>
+     * Select the <tt>k</tt> tuples with the greatest values at a specific
+     * position, according to their natural ordering.
+     * </p>
+     *
+     * @param <T> the type of the selected tuples
+     * @param k the number of tuples to be selected
+     * @param pos the position of the values to be compared
+     * @return the new, empty, selection
+     */
+    public static <T extends Tuple> TupleTopK<T> byPosition(final int k, final int pos) {
+        return new TupleTopK<T>(k, COMPARATOR, TupleComparators.<T>byPosition(pos), pos);
+    }
+
+
+    /**
+     * <p>
+     * Select the <tt>k</tt> tuples with the greatest integral numbers at a
+     * specific position (compared as <tt>long</tt>).
+     * </p>
+     *
+     * @param <T> the type of the selected tuples
+     * @param k the number of tuples to be selected
+     * @param pos the position of the numbers to be compared
+     * @return the new, empty, selection
+     */
+    public static <T extends Tuple> TupleTopK<T> byLongPosition(final int k, final int pos) {
+        return new TupleTopK<T>(k, LONG, null, pos);
+    }
+
+
+    /**
+     * <p>
+     * Select the <tt>k</tt> tuples with the greatest numbers at a specific
+     * position (compared as <tt>double</tt>).
+     * </p>
+     *
+     * @param <T> the type of the selected tuples
+     * @param k the number of tuples to be selected
+     * @param pos the position of the numbers to be compared
+     * @return the new, empty, selection
+     */
+    public static <T extends Tuple> TupleTopK<T> byDoublePosition(final int k, final int pos) {
+        return new TupleTopK<T>(k, DOUBLE, null, pos);
+    }
+
+
+
+
+    private TupleTopK(final int k, final int mode, final Comparator<? super T> comparator, final int pos) {
+        super();
+        if (k <= 0) {
+            throw new IllegalArgumentException("Number of tuples to be selected must be positive. Is " + k);
+        }
+        if (mode != COMPARATOR && pos < 0) {
+            throw new IllegalArgumentException("Position cannot be negative: " + pos);
+        }
+        this.k = k;
+        this.mode = mode;
+        this.comparator = comparator;
+        this.pos = pos;
+        this.heap = new Object[k];
+        this.longKeys = (mode == LONG) ? new long[k] : null;
+        this.doubleKeys = (mode == DOUBLE) ? new double[k] : null;
+    }
+
+
+    private TupleTopK<T> emptyCopy() {
+        return new TupleTopK<T>(this.k, this.mode, this.comparator, this.pos);
+    }
+
+
+
+
+    /**
+     * <p>
+     * Offer a tuple to the selection.
+     * </p>
+     *
+     * @param tuple the tuple
+     * @return <tt>true</tt> if the tuple is (at this moment) part of the selection
+     */
+    public boolean offer(final T tuple) {
+        if (tuple == null) {
+            throw new IllegalArgumentException("Cannot select null tuples");
+        }
+        switch (this.mode) {
+            case LONG:
+                return offerLong(tuple, number(tuple).longValue());
+            case DOUBLE:
+                return offerDouble(tuple, number(tuple).doubleValue());
+            default:
+                return offerObject(tuple);
+        }
+    }
+
+
+    public void offerAll(final Iterable<? extends T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+        for (final T tuple : tuples) {
+            offer(tuple);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Offer all the tuples in a list, in parallel: the list is split into
+     * <tt>partitions</tt> contiguous ranges, each one is selected from on the
+     * specified executor, and the partial selections are then merged into
+     * this one.
+     * </p>
+     *
+     * @param tuples the tuples
+     * @param executor the executor the partitions will be processed on
+     * @param partitions the number of partitions to split the list into
+     */
+    public void offerAll(final List<? extends T> tuples, final ExecutorService executor, final int partitions) {
+
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+
+        final int[] bounds = ParallelTasks.bounds(tuples.size(), partitions);
+        final List<Callable<TupleTopK<T>>> tasks = new ArrayList<Callable<TupleTopK<T>>>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final List<? extends T> partition = tuples.subList(bounds[i], bounds[i + 1]);
+            tasks.add(new Callable<TupleTopK<T>>() {
+                public TupleTopK<T> call() {
+                    final TupleTopK<T> topK = emptyCopy();
+                    topK.offerAll(partition);
+                    return topK;
+                }
+            });
+        }
+
+        for (final TupleTopK<T> topK : ParallelTasks.invokeAll(executor, tasks)) {
+            merge(topK);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     * Offer all the tuples selected by another instance (created in the same
+     * way as this one) to this selection.
+     * </p>
+     *
+     * @param other the other selection
+     * @return this selection
+     */
+    public TupleTopK<T> merge(final TupleTopK<T> other) {
+        if (other == null) {
+            throw new IllegalArgumentException("Other selection cannot be null");
+        }
+        if (other.mode != this.mode || other.pos != this.pos ||
+                (this.comparator == null ? other.comparator != null : !this.comparator.equals(other.comparator))) {
+            throw new IllegalArgumentException("Cannot merge selections with different orderings");
+        }
+        for (int i = 0; i < other.size; i++) {
+            final T tuple = other.tupleAt(i);
+            switch (this.mode) {
+                case LONG:
+                    offerLong(tuple, other.longKeys[i]);
+                    break;
+                case DOUBLE:
+                    offerDouble(tuple, other.doubleKeys[i]);
+                    break;
+                default:
+                    offerObject(tuple);
+            }
+        }
+        return this;
+    }
+
+
+    public int size() {
+        return this.size;
+    }
+
+
+    /**
+     * <p>
+     * Return the selected tuples, from greatest to smallest.
+     * </p>
+     *
+     * @return the selected tuples
+     */
+    public List<T> toList() {
+        final TupleTopK<T> copy = emptyCopy();
+        copy.size = this.size;
+        System.arraycopy(this.heap, 0, copy.heap, 0, this.size);
+        if (this.longKeys != null) {
+            System.arraycopy(this.longKeys, 0, copy.longKeys, 0, this.size);
+        }
+        if (this.doubleKeys != null) {
+            System.arraycopy(this.doubleKeys, 0, copy.doubleKeys, 0, this.size);
+        }
+        // Popping the minimum repeatedly gives the ascending order, so fill from the end
+        final Object[] result = new Object[this.size];
+        for (int i = this.size - 1; i >= 0; i--) {
+            result[i] = copy.heap[0];
+            copy.removeRoot();
+        }
+        final List<T> list = new ArrayList<T>(result.length);
+        for (final Object tuple : result) {
+            list.add(copy.cast(tuple));
+        }
+        return list;
+    }
+
+
+
+
+    private Number number(final T tuple) {
+        final Object value = tuple.getValue(this.pos);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(
+                    "Value at position " + this.pos + " is not a number: " + value);
+        }
+        return (Number) value;
+    }
+
+
+    private boolean offerObject(final T tuple) {
+        if (this.size < this.k) {
+            this.heap[this.size] = tuple;
+            siftUp(this.size++);
+            return true;
+        }
+        if (this.comparator.compare(tuple, tupleAt(0)) <= 0) {
+            return false;
+        }
+        this.heap[0] = tuple;
+        siftDown(0);
+        return true;
+    }
+
+
+    private boolean offerLong(final T tuple, final long key) {
+        if (this.size < this.k) {
+            this.heap[this.size] = tuple;
+            this.longKeys[this.size] = key;
+            siftUp(this.size++);
+            return true;
+        }
+        if (key <= this.longKeys[0]) {
+            return false;
+        }
+        this.heap[0] = tuple;
+        this.longKeys[0] = key;
+        siftDown(0);
+        return true;
+    }
+
+
+    private boolean offerDouble(final T tuple, final double key) {
+        if (this.size < this.k) {
+            this.heap[this.size] = tuple;
+            this.doubleKeys[this.size] = key;
+            siftUp(this.size++);
+            return true;
+        }
+        if (Double.compare(key, this.doubleKeys[0]) <= 0) {
+            return false;
+        }
+        this.heap[0] = tuple;
+        this.doubleKeys[0] = key;
+        siftDown(0);
+        return true;
+    }
+
+
+    private void removeRoot() {
+        final int last = --this.size;
+        move(last, 0);
+        this.heap[last] = null;
+        if (last > 0) {
+            siftDown(0);
+        }
+    }
+
+
+    private void siftUp(final int index) {
+        int i = index;
+        while (i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if (less(i, parent)) {
+                swap(i, parent);
+                i = parent;
+            } else {
+                return;
+            }
+        }
+    }
+
+
+    private void siftDown(final int index) {
+        int i = index;
+        while (true) {
+            final int left = 2 * i + 1;
+            if (left >= this.size) {
+                return;
+            }
+            final int right = left + 1;
+            final int smallest = (right < this.size && less(right, left)) ? right : left;
+            if (!less(smallest, i)) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+
+    private boolean less(final int i, final int j) {
+        switch (this.mode) {
+            case LONG:
+                return this.longKeys[i] < this.longKeys[j];
+            case DOUBLE:
+                return Double.compare(this.doubleKeys[i], this.doubleKeys[j]) < 0;
+            default:
+                return this.comparator.compare(tupleAt(i), tupleAt(j)) < 0;
+        }
+    }
+
+
+    private void swap(final int i, final int j) {
+        final Object tuple = this.heap[i];
+        this.heap[i] = this.heap[j];
+        this.heap[j] = tuple;
+        if (this.longKeys != null) {
+            final long key = this.longKeys[i];
+            this.longKeys[i] = this.longKeys[j];
+            this.longKeys[j] = key;
+        } else if (this.doubleKeys != null) {
+            final double key = this.doubleKeys[i];
+            this.doubleKeys[i] = this.doubleKeys[j];
+            this.doubleKeys[j] = key;
+        }
+    }
+
+
+    private void move(final int from, final int to) {
+        this.heap[to] = this.heap[from];
+        if (this.longKeys != null) {
+            this.longKeys[to] = this.longKeys[from];
+        } else if (this.doubleKeys != null) {
+            this.doubleKeys[to] = this.doubleKeys[from];
+        }
+    }
+
+
+    private T tupleAt(final int i) {
+        return cast(this.heap[i]);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private T cast(final Object tuple) {
+        return (T) tuple;
+    }
+
+}
@@ -0,0 +1,85 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+
+/**
+ * <p>
+ * Marks an interface as the definition of a named tuple type. At compile
+ * time, the <tt>org.javatuples.processor.TupleTypeProcessor</tt> annotation
+ * processor generates a final class implementing the interface:
+ * </p>
+ * <pre>
+ *     &#64;TupleType
+ *     public interface Point {
+ *         int x();
+ *         int y();
+ *         String label();
+ *     }
+ * </pre>
+ * <p>
+ * generates a <tt>PointTuple</tt> class in the same package, with one
+ * <tt>private final</tt> field per method of the interface (primitive if the
+ * method returns a primitive type), a constructor taking the values in
+ * declaration order, <tt>equals</tt>, <tt>hashCode</tt> and <tt>toString</tt>
+ * methods with the same results as those of the equivalent tuple, conversion
+ * to and from the tuple class of the same size (<tt>Tuple3</tt> in this
+ * example), and a binary codec (<tt>writeTo</tt> and <tt>readFrom</tt>).
+ * The codec encodes values as {@link TupleCodec#writeValue(java.io.DataOutput, Object)}
+ * does, so values which need Java serialization can only be read back with
+ * <tt>readFrom(DataInput, ClassFilter)</tt>.
+ * </p>
+ * <p>
+ * Only the methods declared in the interface itself are considered. These
+ * must take no parameters and return a value, and there must be between one
+ * and ten of them. Their names cannot start with <tt>$</tt>, which is
+ * reserved for the generated code.
+ * </p>
+ * <p>
+ * The processor ships in the separate <tt>javatuples-processor</tt> artifact,
+ * which must be put on the annotation processor path of the compiler
+ * (<tt>javac -processorpath javatuples-processor.jar</tt>). It is not
+ * registered in this library, so compiling against it never runs the
+ * processor implicitly.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface TupleType {
+
+    /**
+     * <p>
+     * Simple name of the generated class. By default, the name of the
+     * interface followed by <tt>Tuple</tt>.
+     * </p>
+     */
+    String name() default "";
+
+}
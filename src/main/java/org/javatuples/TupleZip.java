@@ -0,0 +1,486 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+
+/**
+ * <p>
+ * Conversion between columns (lists or arrays of values) and lists of
+ * tuples.
+ * </p>
+ * <p>
+ * The <tt>zip</tt> methods return lazy, read-only, random access list views:
+ * no tuple is created until it is accessed, and every access creates a new
+ * one. Zipped columns must all have the same size. Arrays and random access
+ * lists are not copied, so changes to them are visible through the views
+ * (other lists are copied when creating the view). Views can be turned into
+ * lists of actual tuples with {@link #materialize(List)}, or in parallel with
+ * {@link #materialize(List, ExecutorService, int)}.
+ * </p>
+ * <p>
+ * The <tt>unzip</tt> methods go in the opposite direction, extracting the
+ * values at each position of a list of tuples into columns.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleZip {
+
+    // Below this size, parallel materialization does not pay off
+    static final int PARALLEL_THRESHOLD = 8192;
+
+
+
+
+    public static <A,B> List<Tuple2<A,B>> zip(final List<A> a, final List<B> b) {
+        checkSizes(a, b);
+        return new ListZip2<A,B>(randomAccess(a), randomAccess(b));
+    }
+
+
+    public static <A,B,C> List<Tuple3<A,B,C>> zip(final List<A> a, final List<B> b, final List<C> c) {
+        checkSizes(a, b);
+        checkSizes(a, c);
+        return new ListZip3<A,B,C>(randomAccess(a), randomAccess(b), randomAccess(c));
+    }
+
+
+    public static <A,B> List<Tuple2<A,B>> zip(final A[] a, final B[] b) {
+        checkNotNull(a, b);
+        return zip(Arrays.asList(a), Arrays.asList(b));
+    }
+
+
+    public static <A,B,C> List<Tuple3<A,B,C>> zip(final A[] a, final B[] b, final C[] c) {
+        checkNotNull(a, b);
+        checkNotNull(a, c);
+        return zip(Arrays.asList(a), Arrays.asList(b), Arrays.asList(c));
+    }
+
+
+    public static List<Tuple2<Long,Long>> zip(final long[] a, final long[] b) {
+        checkNotNull(a, b);
+        checkSizes(a.length, b.length);
+        return new LongZip2(a, b);
+    }
+
+
+    public static List<Tuple2<Integer,Integer>> zip(final int[] a, final int[] b) {
+        checkNotNull(a, b);
+        checkSizes(a.length, b.length);
+        return new IntZip2(a, b);
+    }
+
+
+    public static List<Tuple2<Double,Double>> zip(final double[] a, final double[] b) {
+        checkNotNull(a, b);
+        checkSizes(a.length, b.length);
+        return new DoubleZip2(a, b);
+    }
+
+
+
+
+    /**
+     * <p>
+     * Create a list with all the tuples of a (possibly lazy) list.
+     * </p>
+     *
+     * @param <T> the type of the tuples
+     * @param tuples the list of tuples
+     * @return a new fixed-size, random access list with the same tuples
+     */
+    public static <T> List<T> materialize(final List<T> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("List cannot be null");
+        }
+        return fixedSizeList(tuples.toArray());
+    }
+
+
+    /**
+     * <p>
+     * Create a list with all the tuples of a (possibly lazy) list, creating
+     * them in parallel on the specified executor. Lists shorter than a few
+     * thousand elements, or not supporting fast random access, are
+     * materialized in the calling thread.
+     * </p>
+     *
+     * @param <T> the type of the tuples
+     * @param tuples the list of tuples
+     * @param executor the executor the partitions will be processed on
+     * @param partitions the number of partitions
+     * @return a new fixed-size, random access list with the same tuples
+     */
+    public static <T> List<T> materialize(
+            final List<T> tuples, final ExecutorService executor, final int partitions) {
+
+        if (tuples == null) {
+            throw new IllegalArgumentException("List cannot be null");
+        }
+
+        final int size = tuples.size();
+        if (size < PARALLEL_THRESHOLD || !(tuples instanceof RandomAccess)) {
+            return materialize(tuples);
+        }
+
+        final Object[] result = new Object[size];
+        final int[] bounds = ParallelTasks.bounds(size, partitions);
+        final List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(bounds.length - 1);
+        for (int i = 0; i < bounds.length - 1; i++) {
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            tasks.add(new Callable<Object>() {
+                public Object call() {
+                    for (int j = from; j < to; j++) {
+                        result[j] = tuples.get(j);
+                    }
+                    return null;
+                }
+            });
+        }
+        ParallelTasks.invokeAll(executor, tasks);
+
+        return fixedSizeList(result);
+
+    }
+
+
+
+
+    public static <A,B> Tuple2<List<A>,List<B>> unzip2(final List<? extends Tuple2<A,B>> tuples) {
+        checkTuples(tuples);
+        final List<A> a = new ArrayList<A>(tuples.size());
+        final List<B> b = new ArrayList<B>(tuples.size());
+        for (final Tuple2<A,B> tuple : tuples) {
+            a.add(tuple.getValue0());
+            b.add(tuple.getValue1());
+        }
+        return Tuple2.with(a, b);
+    }
+
+
+    public static <A,B,C> Tuple3<List<A>,List<B>,List<C>> unzip3(final List<? extends Tuple3<A,B,C>> tuples) {
+        checkTuples(tuples);
+        final List<A> a = new ArrayList<A>(tuples.size());
+        final List<B> b = new ArrayList<B>(tuples.size());
+        final List<C> c = new ArrayList<C>(tuples.size());
+        for (final Tuple3<A,B,C> tuple : tuples) {
+            a.add(tuple.getValue0());
+            b.add(tuple.getValue1());
+            c.add(tuple.getValue2());
+        }
+        return Tuple3.with(a, b, c);
+    }
+
+
+    /**
+     * <p>
+     * Extract the values at every position of a list of tuples of the same
+     * size (of any class, including <tt>TupleN</tt>) into columns.
+     * </p>
+     *
+     * @param tuples the tuples
+     * @return one list per position, empty if there are no tuples
+     */
+    public static List<List<Object>> unzip(final List<? extends Tuple> tuples) {
+
+        checkTuples(tuples);
+        if (tuples.isEmpty()) {
+            return new ArrayList<List<Object>>(0);
+        }
+
+        final int arity = tuples.get(0).getSize();
+        final List<List<Object>> columns = new ArrayList<List<Object>>(arity);
+        for (int i = 0; i < arity; i++) {
+            columns.add(new ArrayList<Object>(tuples.size()));
+        }
+        for (final Tuple tuple : tuples) {
+            if (tuple.getSize() != arity) {
+                throw new IllegalArgumentException(
+                        "All tuples must have the same size. Expected " + arity + ", found " + tuple.getSize());
+            }
+            for (int i = 0; i < arity; i++) {
+                columns.get(i).add(tuple.getValue(i));
+            }
+        }
+        return columns;
+
+    }
+
+
+    /**
+     * <p>
+     * Extract the (non-null) numbers at a position of a list of tuples into
+     * a <tt>long[]</tt>.
+     * </p>
+     *
+     * @param tuples the tuples
+     * @param pos the position
+     * @return the column
+     */
+    public static long[] unzipLongs(final List<? extends Tuple> tuples, final int pos) {
+        checkTuples(tuples);
+        final long[] column = new long[tuples.size()];
+        int i = 0;
+        for (final Tuple tuple : tuples) {
+            column[i++] = number(tuple, pos).longValue();
+        }
+        return column;
+    }
+
+
+    /**
+     * <p>
+     * Extract the (non-null) numbers at a position of a list of tuples into
+     * an <tt>int[]</tt>.
+     * </p>
+     *
+     * @param tuples the tuples
+     * @param pos the position
+     * @return the column
+     */
+    public static int[] unzipInts(final List<? extends Tuple> tuples, final int pos) {
+        checkTuples(tuples);
+        final int[] column = new int[tuples.size()];
+        int i = 0;
+        for (final Tuple tuple : tuples) {
+            column[i++] = number(tuple, pos).intValue();
+        }
+        return column;
+    }
+
+
+    /**
+     * <p>
+     * Extract the (non-null) numbers at a position of a list of tuples into
+     * a <tt>double[]</tt>.
+     * </p>
+     *
+     * @param tuples the tuples
+     * @param pos the position
+     * @return the column
+     */
+    public static double[] unzipDoubles(final List<? extends Tuple> tuples, final int pos) {
+        checkTuples(tuples);
+        final double[] column = new double[tuples.size()];
+        int i = 0;
+        for (final Tuple tuple : tuples) {
+            column[i++] = number(tuple, pos).doubleValue();
+        }
+        return column;
+    }
+
+
+
+
+    private static Number number(final Tuple tuple, final int pos) {
+        final Object value = tuple.getValue(pos);
+        if (!(value instanceof Number)) {
+            throw new IllegalArgumentException(
+                    "Value at position " + pos + " is not a number: " + value);
+        }
+        return (Number) value;
+    }
+
+
+    private static <E> List<E> randomAccess(final List<E> list) {
+        // Views index the columns directly, so they must be random access
+        if (list instanceof RandomAccess) {
+            return list;
+        }
+        return new ArrayList<E>(list);
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> fixedSizeList(final Object[] values) {
+        return (List<T>) Arrays.asList(values);
+    }
+
+
+    private static void checkNotNull(final Object... columns) {
+        for (final Object column : columns) {
+            if (column == null) {
+                throw new IllegalArgumentException("Columns cannot be null");
+            }
+        }
+    }
+
+
+    private static void checkTuples(final List<?> tuples) {
+        if (tuples == null) {
+            throw new IllegalArgumentException("Tuples cannot be null");
+        }
+    }
+
+
+    private static void checkSizes(final List<?> a, final List<?> b) {
+        checkNotNull(a, b);
+        checkSizes(a.size(), b.size());
+    }
+
+
+    private static void checkSizes(final int a, final int b) {
+        if (a != b) {
+            throw new IllegalArgumentException("Columns must have the same size. Sizes are " + a + " and " + b);
+        }
+    }
+
+
+
+
+    private static final class ListZip2<A,B> extends AbstractList<Tuple2<A,B>> implements RandomAccess {
+
+        private final List<A> a;
+        private final List<B> b;
+
+        ListZip2(final List<A> a, final List<B> b) {
+            super();
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Tuple2<A,B> get(final int index) {
+            return new Tuple2<A,B>(this.a.get(index), this.b.get(index));
+        }
+
+        @Override
+        public int size() {
+            return this.a.size();
+        }
+
+    }
+
+
+    private static final class ListZip3<A,B,C> extends AbstractList<Tuple3<A,B,C>> implements RandomAccess {
+
+        private final List<A> a;
+        private final List<B> b;
+        private final List<C> c;
+
+        ListZip3(final List<A> a, final List<B> b, final List<C> c) {
+            super();
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+
+        @Override
+        public Tuple3<A,B,C> get(final int index) {
+            return new Tuple3<A,B,C>(this.a.get(index), this.b.get(index), this.c.get(index));
+        }
+
+        @Override
+        public int size() {
+            return this.a.size();
+        }
+
+    }
+
+
+    private static final class LongZip2 extends AbstractList<Tuple2<Long,Long>> implements RandomAccess {
+
+        private final long[] a;
+        private final long[] b;
+
+        LongZip2(final long[] a, final long[] b) {
+            super();
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Tuple2<Long,Long> get(final int index) {
+            return new Tuple2<Long,Long>(Long.valueOf(this.a[index]), Long.valueOf(this.b[index]));
+        }
+
+        @Override
+        public int size() {
+            return this.a.length;
+        }
+
+    }
+
+
+    private static final class IntZip2 extends AbstractList<Tuple2<Integer,Integer>> implements RandomAccess {
+
+        private final int[] a;
+        private final int[] b;
+
+        IntZip2(final int[] a, final int[] b) {
+            super();
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Tuple2<Integer,Integer> get(final int index) {
+            return new Tuple2<Integer,Integer>(Integer.valueOf(this.a[index]), Integer.valueOf(this.b[index]));
+        }
+
+        @Override
+        public int size() {
+            return this.a.length;
+        }
+
+    }
+
+
+    private static final class DoubleZip2 extends AbstractList<Tuple2<Double,Double>> implements RandomAccess {
+
+        private final double[] a;
+        private final double[] b;
+
+        DoubleZip2(final double[] a, final double[] b) {
+            super();
+            this.a = a;
+            this.b = b;
+        }
+
+        @Override
+        public Tuple2<Double,Double> get(final int index) {
+            return new Tuple2<Double,Double>(Double.valueOf(this.a[index]), Double.valueOf(this.b[index]));
+        }
+
+        @Override
+        public int size() {
+            return this.a.length;
+        }
+
+    }
+
+
+
+    private TupleZip() {
+        super();
+    }
+
+}
@@ -0,0 +1,62 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * <p>
+ * What blocking calls of {@link SharedTupleQueue} and {@link TupleRingBuffer}
+ * do while they wait for room (producers) or tuples (consumers).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public enum WaitStrategy {
+
+    /** Spin without pausing: lowest latency, one busy core per waiting side. */
+    BUSY_SPIN,
+    /** Spin for a while, then yield the processor between checks. */
+    YIELD,
+    /** Spin for a while, then park the thread for short periods. */
+    PARK;
+
+    private static final int SPIN_ATTEMPTS = 100;
+    private static final long PARK_NANOS = 50000L;
+
+
+    /*
+     * Called after every unsuccessful attempt of a waiting call, numbered
+     * from zero.
+     */
+    void idle(final int attempt) {
+        if (this == BUSY_SPIN || attempt < SPIN_ATTEMPTS) {
+            return;
+        }
+        if (this == YIELD) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(PARK_NANOS);
+        }
+    }
+
+}
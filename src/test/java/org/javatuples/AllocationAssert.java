@@ -0,0 +1,189 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import junit.framework.Assert;
+
+
+/**
+ * <p>
+ * Assertions on the number of heap bytes allocated by an operation, for
+ * regression tests which fail when a hot path starts allocating. Allocations
+ * are measured with <tt>com.sun.management.ThreadMXBean</tt>, which counts
+ * the bytes allocated by the current thread.
+ * </p>
+ * <p>
+ * Operations are called many times, and the allocations are checked once
+ * the JIT has had a chance to compile them, so that the budgets are those
+ * of compiled code. On JVMs which cannot measure allocations, the
+ * assertions do nothing (see {@link #isSupported()}).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+final class AllocationAssert {
+
+    /**
+     * <p>
+     * Operation whose allocations are measured. It returns a value derived
+     * from its work, so that the JIT cannot remove it.
+     * </p>
+     */
+    interface Operation {
+
+        public long run() throws Exception;
+
+    }
+
+    private static final int WARMUP_CALLS = 20000;
+    private static final int MEASURED_CALLS = 10000;
+    private static final long TIMEOUT_MILLIS = 10000L;
+
+    private static volatile long sink = 0L;
+
+
+
+    /**
+     * <p>
+     * Return whether the JVM can measure the bytes allocated by a thread.
+     * </p>
+     *
+     * @return whether allocations can be measured
+     */
+    static boolean isSupported() {
+        final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+            return false;
+        }
+        final com.sun.management.ThreadMXBean sunThreads = (com.sun.management.ThreadMXBean) threads;
+        return sunThreads.isThreadAllocatedMemorySupported() && sunThreads.isThreadAllocatedMemoryEnabled();
+    }
+
+
+    /**
+     * <p>
+     * Return whether the JIT compiles hot code with escape analysis, so that
+     * objects which do not escape a compiled method can be scalar-replaced.
+     * </p>
+     *
+     * @return whether escape analysis is available
+     */
+    static boolean isEscapeAnalysisEnabled() {
+        if (System.getProperty("java.vm.info", "").indexOf("interpreted") >= 0) {
+            return false;
+        }
+        try {
+            final com.sun.management.HotSpotDiagnosticMXBean diagnostic = ManagementFactory.newPlatformMXBeanProxy(
+                    ManagementFactory.getPlatformMBeanServer(), "com.sun.management:type=HotSpotDiagnostic",
+                    com.sun.management.HotSpotDiagnosticMXBean.class);
+            return "true".equals(diagnostic.getVMOption("DoEscapeAnalysis").getValue())
+                    && Integer.parseInt(diagnostic.getVMOption("TieredStopAtLevel").getValue()) >= 4;
+        } catch (final Exception e) {
+            // Not a HotSpot server VM
+            return false;
+        }
+    }
+
+
+    /**
+     * <p>
+     * Call an operation many times and return the number of bytes it
+     * allocates per call, rounded down.
+     * </p>
+     *
+     * @param calls the number of calls
+     * @param operation the operation
+     * @return the bytes allocated per call
+     * @throws Exception if the operation fails
+     */
+    static long measure(final int calls, final Operation operation) throws Exception {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+
+        // Reading the counter may allocate by itself
+        long before = threads.getThreadAllocatedBytes(threadId);
+        final long overhead = threads.getThreadAllocatedBytes(threadId) - before;
+
+        long checksum = 0L;
+        before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < calls; i++) {
+            checksum += operation.run();
+        }
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before - overhead;
+        sink += checksum;
+        return Math.max(0L, allocated) / calls;
+    }
+
+
+    /**
+     * <p>
+     * Assert that an operation allocates exactly the specified number of
+     * bytes per call once compiled. Operations allocating more are measured
+     * again until the JIT has compiled them or a timeout expires; operations
+     * allocating less fail at once, as their budget should be lowered.
+     * </p>
+     *
+     * @param name the name of the operation, for failure messages
+     * @param bytesPerCall the allocation budget
+     * @param operation the operation
+     * @throws Exception if the operation fails
+     */
+    static void assertAllocates(final String name, final long bytesPerCall, final Operation operation)
+            throws Exception {
+        if (!isSupported()) {
+            return;
+        }
+        measure(WARMUP_CALLS, operation);
+        final long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        long allocated = measure(MEASURED_CALLS, operation);
+        while (allocated > bytesPerCall && System.currentTimeMillis() < deadline) {
+            allocated = measure(MEASURED_CALLS, operation);
+        }
+        if (allocated != bytesPerCall) {
+            Assert.fail(name + " allocates " + allocated + " bytes per call. Budget is " + bytesPerCall);
+        }
+    }
+
+
+    /**
+     * <p>
+     * Assert that an operation does not allocate once compiled.
+     * </p>
+     *
+     * @param name the name of the operation, for failure messages
+     * @param operation the operation
+     * @throws Exception if the operation fails
+     */
+    static void assertAllocationFree(final String name, final Operation operation) throws Exception {
+        assertAllocates(name, 0L, operation);
+    }
+
+
+
+    private AllocationAssert() {
+        super();
+    }
+
+}
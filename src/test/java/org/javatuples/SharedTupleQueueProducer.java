@@ -0,0 +1,62 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples;
+
+import java.io.File;
+
+
+/**
+ * <p>
+ * Producing process for the multi-process tests of {@link SharedTupleQueue}.
+ * It attaches to a queue as one of several producers, and puts
+ * <tt>(producer, i)</tt> tuples for <tt>i</tt> from 0 to <tt>count - 1</tt>.
+ * </p>
+ * <p>
+ * Arguments: queue file, producer id, count.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+final class SharedTupleQueueProducer {
+
+
+
+    public static void main(final String[] args) throws Exception {
+        final File file = new File(args[0]);
+        final Integer producer = Integer.valueOf(args[1]);
+        final int count = Integer.parseInt(args[2]);
+        final SharedTupleQueue queue = SharedTupleQueue.attach(file, WaitStrategy.YIELD, true);
+        try {
+            for (int i = 0; i < count; i++) {
+                queue.put(Tuple2.with(producer, Integer.valueOf(i)));
+            }
+        } finally {
+            queue.close();
+        }
+    }
+
+
+
+    private SharedTupleQueueProducer() {
+        super();
+    }
+
+}
@@ -19,11 +19,43 @@
  */
 package org.javatuples;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.TestCase;
 
@@ -172,4 +204,1698 @@ public class Test extends TestCase {
     
     
 
+
+    public void testJoins() throws Exception {
+
+        final List<Tuple2<Integer,String>> left = new ArrayList<Tuple2<Integer,String>>();
+        left.add(Tuple2.with(Integer.valueOf(1), "a"));
+        left.add(Tuple2.with(Integer.valueOf(2), "b"));
+        left.add(Tuple2.with((Integer)null, "c"));
+        left.add(Tuple2.with(Integer.valueOf(3), "d"));
+
+        final List<KeyValue<Integer,Double>> right = new ArrayList<KeyValue<Integer,Double>>();
+        right.add(KeyValue.with(Integer.valueOf(1), Double.valueOf(1.0)));
+        right.add(KeyValue.with(Integer.valueOf(3), Double.valueOf(3.0)));
+        right.add(KeyValue.with(Integer.valueOf(1), Double.valueOf(1.5)));
+
+        final List<Tuple> inner = new ArrayList<Tuple>();
+        for (final Tuple tuple : TupleJoins.innerJoin(left, 0, right, 0)) {
+            inner.add(tuple);
+        }
+        assertEquals(Arrays.asList(
+                Tuple4.with(Integer.valueOf(1), "a", Integer.valueOf(1), Double.valueOf(1.0)),
+                Tuple4.with(Integer.valueOf(1), "a", Integer.valueOf(1), Double.valueOf(1.5)),
+                Tuple4.with(Integer.valueOf(3), "d", Integer.valueOf(3), Double.valueOf(3.0))), inner);
+
+        final List<Tuple> outer = new ArrayList<Tuple>();
+        for (final Tuple tuple : TupleJoins.leftJoin(left, 0, right, 0)) {
+            outer.add(tuple);
+        }
+        assertEquals(5, outer.size());
+        assertEquals(Tuple4.with(Integer.valueOf(2), "b", null, null), outer.get(2));
+        assertEquals(Tuple4.with(null, "c", null, null), outer.get(3));
+
+        final List<Tuple2<Integer,String>> semi = new ArrayList<Tuple2<Integer,String>>();
+        for (final Tuple2<Integer,String> tuple : TupleJoins.semiJoin(left, 0, right, 0)) {
+            semi.add(tuple);
+        }
+        assertEquals(Arrays.asList(left.get(0), left.get(3)), semi);
+
+        // Left joins have the same shape with an empty right input, if its size is given
+        final List<KeyValue<Integer,Double>> noRight = new ArrayList<KeyValue<Integer,Double>>();
+        final List<Tuple> padded = new ArrayList<Tuple>();
+        for (final Tuple tuple : TupleJoins.leftJoin(left, 0, noRight, 0, 2)) {
+            padded.add(tuple);
+        }
+        assertEquals(4, padded.size());
+        assertEquals(Tuple4.with(Integer.valueOf(1), "a", null, null), padded.get(0));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            assertEquals(inner, TupleJoins.innerJoin(left, 0, right, 0, executor, 3));
+            assertEquals(outer, TupleJoins.leftJoin(left, 0, right, 0, executor, 3));
+            assertEquals(outer, TupleJoins.leftJoin(left, 0, right, 0, 2, executor, 3));
+            assertEquals(padded, TupleJoins.leftJoin(left, 0, noRight, 0, 2, executor, 3));
+            assertEquals(semi, TupleJoins.semiJoin(left, 0, right, 0, executor, 3));
+        } finally {
+            executor.shutdown();
+        }
+
+        try {
+            TupleJoins.leftJoin(left, 0, noRight, 0);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            TupleJoins.leftJoin(left, 0, right, 0, 3);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+    }
+
+
+    public void testAggregator() throws Exception {
+
+        final List<Tuple3<String,Integer,Double>> tuples = new ArrayList<Tuple3<String,Integer,Double>>();
+        for (int i = 0; i < 1000; i++) {
+            tuples.add(Tuple3.with("k" + (i % 100), Integer.valueOf(i), (i % 2 == 0) ? Double.valueOf(i) : null));
+        }
+
+        final TupleAggregator aggregator =
+            TupleAggregator.groupBy(0).count().sum(1).min(1).max(1).avg(2).countDistinct(1);
+
+        final List<Tuple> rows = aggregator.aggregate(tuples);
+        assertEquals(100, rows.size());
+        assertEquals(
+                Tuple7.with("k0", Long.valueOf(10), Long.valueOf(4500), Integer.valueOf(0), Integer.valueOf(900),
+                            Double.valueOf(450.0), Long.valueOf(10)),
+                rows.get(0));
+        assertEquals(
+                Tuple7.with("k1", Long.valueOf(10), Long.valueOf(4510), Integer.valueOf(1), Integer.valueOf(901),
+                            null, Long.valueOf(10)),
+                rows.get(1));
+
+        final Set<Tuple> expected = new HashSet<Tuple>(rows);
+
+        final List<Tuple> spilledRows = aggregator.withSpilling(null, 7).aggregate(tuples);
+        assertEquals(100, spilledRows.size());
+        assertEquals(expected, new HashSet<Tuple>(spilledRows));
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Tuple> parallelRows = aggregator.aggregate(tuples, executor, 4);
+            assertEquals(expected, new HashSet<Tuple>(parallelRows));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(
+                Collections.singletonList(Unit.with(Long.valueOf(1000))),
+                TupleAggregator.groupBy().count().aggregate(tuples));
+
+        // Positions and results are not limited to the sizes of Unit..Tuple10
+        final Object[] wide = new Object[12];
+        for (int i = 0; i < wide.length; i++) {
+            wide[i] = Integer.valueOf(i);
+        }
+        TupleAggregator wideAggregator = TupleAggregator.groupBy(11, 10);
+        for (int i = 0; i < 10; i++) {
+            wideAggregator = wideAggregator.sum(i);
+        }
+        final List<Tuple> wideRows = wideAggregator.aggregate(Arrays.asList(Tuple.of(wide), Tuple.of(wide)));
+        assertEquals(1, wideRows.size());
+        assertEquals(TupleN.class, wideRows.get(0).getClass());
+        assertEquals(12, wideRows.get(0).getSize());
+        assertEquals(Long.valueOf(18), wideRows.get(0).getValue(11));
+
+    }
+
+
+    public void testExternalSorter() throws Exception {
+
+        final Random random = new Random(28);
+        final List<Tuple3<Integer,String,Long>> tuples = new ArrayList<Tuple3<Integer,String,Long>>();
+        for (int i = 0; i < 5000; i++) {
+            tuples.add(Tuple3.with(Integer.valueOf(random.nextInt(100)), "s" + random.nextInt(10), Long.valueOf(i)));
+        }
+
+        final List<Tuple3<Integer,String,Long>> expected = new ArrayList<Tuple3<Integer,String,Long>>(tuples);
+        Collections.sort(expected);
+
+        final TupleExternalSorter<Tuple3<Integer,String,Long>> sorter =
+            new TupleExternalSorter<Tuple3<Integer,String,Long>>(300);
+        try {
+            sorter.addAll(tuples);
+            final List<Tuple3<Integer,String,Long>> result = new ArrayList<Tuple3<Integer,String,Long>>();
+            for (final Iterator<Tuple3<Integer,String,Long>> it = sorter.sort(); it.hasNext(); ) {
+                result.add(it.next());
+            }
+            assertEquals(expected, result);
+            assertEquals(16, sorter.getStatistics().getRunsSpilled());
+        } finally {
+            sorter.close();
+        }
+
+        // Sorting only by position 0 must keep the input order of equal elements,
+        // also across several merge passes
+        final Comparator<Tuple3<Integer,String,Long>> byFirst = new Comparator<Tuple3<Integer,String,Long>>() {
+            public int compare(final Tuple3<Integer,String,Long> o1, final Tuple3<Integer,String,Long> o2) {
+                return o1.getValue0().compareTo(o2.getValue0());
+            }
+        };
+        final List<Tuple3<Integer,String,Long>> stableExpected = new ArrayList<Tuple3<Integer,String,Long>>(tuples);
+        Collections.sort(stableExpected, byFirst);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        final TupleExternalSorter<Tuple3<Integer,String,Long>> stableSorter =
+            new TupleExternalSorter<Tuple3<Integer,String,Long>>(byFirst, 20, null, executor);
+        try {
+            stableSorter.addAll(tuples);
+            final List<Tuple3<Integer,String,Long>> result = new ArrayList<Tuple3<Integer,String,Long>>();
+            for (final Iterator<Tuple3<Integer,String,Long>> it = stableSorter.sort(); it.hasNext(); ) {
+                result.add(it.next());
+            }
+            assertEquals(stableExpected, result);
+            // 249 runs: one pass merging them in groups of 64, and the final merge
+            assertEquals(2, stableSorter.getStatistics().getMergePasses());
+        } finally {
+            stableSorter.close();
+            executor.shutdown();
+        }
+
+    }
+
+
+    public void testMerge() throws Exception {
+
+        final List<Tuple2<String,Integer>> shard0 = Arrays.asList(
+                Tuple2.with("a", Integer.valueOf(1)), Tuple2.with("c", Integer.valueOf(1)), Tuple2.with("d", Integer.valueOf(1)));
+        final List<Tuple2<String,Integer>> shard1 = new ArrayList<Tuple2<String,Integer>>();
+        final List<Tuple2<String,Integer>> shard2 = Arrays.asList(
+                Tuple2.with("b", Integer.valueOf(2)), Tuple2.with("c", Integer.valueOf(2)));
+
+        final List<Iterator<Tuple2<String,Integer>>> sources = new ArrayList<Iterator<Tuple2<String,Integer>>>();
+        sources.add(shard0.iterator());
+        sources.add(shard1.iterator());
+        sources.add(shard2.iterator());
+
+        final Comparator<Tuple2<String,Integer>> byKey = TupleComparators.byPosition(0);
+        final TupleMerge.Combiner<Tuple2<String,Integer>> summing = new TupleMerge.Combiner<Tuple2<String,Integer>>() {
+            public Tuple2<String,Integer> combine(final Tuple2<String,Integer> accumulated, final Tuple2<String,Integer> next) {
+                return accumulated.setAt1(Integer.valueOf(accumulated.getValue1().intValue() + next.getValue1().intValue()));
+            }
+        };
+
+        final List<Tuple2<String,Integer>> combined = new ArrayList<Tuple2<String,Integer>>();
+        for (final Iterator<Tuple2<String,Integer>> it = TupleMerge.merge(sources, byKey, summing); it.hasNext(); ) {
+            combined.add(it.next());
+        }
+        assertEquals(Arrays.asList(
+                Tuple2.with("a", Integer.valueOf(1)), Tuple2.with("b", Integer.valueOf(2)),
+                Tuple2.with("c", Integer.valueOf(3)), Tuple2.with("d", Integer.valueOf(1))), combined);
+
+        sources.clear();
+        sources.add(shard0.iterator());
+        sources.add(shard2.iterator());
+        final List<Tuple2<String,Integer>> distinct = new ArrayList<Tuple2<String,Integer>>();
+        for (final Iterator<Tuple2<String,Integer>> it = TupleMerge.mergeDistinct(sources, byKey); it.hasNext(); ) {
+            distinct.add(it.next());
+        }
+        assertEquals(Arrays.asList(shard0.get(0), shard2.get(0), shard0.get(1), shard0.get(2)), distinct);
+
+    }
+
+
+    public void testTopK() throws Exception {
+
+        final Random random = new Random(30);
+        final List<Tuple3<String,Long,Double>> rows = new ArrayList<Tuple3<String,Long,Double>>();
+        for (int i = 0; i < 10000; i++) {
+            rows.add(Tuple3.with("r" + i, Long.valueOf(random.nextInt(1000)), Double.valueOf(random.nextDouble())));
+        }
+
+        final List<Tuple3<String,Long,Double>> sorted = new ArrayList<Tuple3<String,Long,Double>>(rows);
+        Collections.sort(sorted, Collections.reverseOrder(TupleComparators.<Tuple3<String,Long,Double>>byPosition(2)));
+        final List<Tuple3<String,Long,Double>> expected = sorted.subList(0, 100);
+
+        final TupleTopK<Tuple3<String,Long,Double>> byComparator = TupleTopK.byPosition(100, 2);
+        byComparator.offerAll(rows);
+        assertEquals(expected, byComparator.toList());
+
+        final TupleTopK<Tuple3<String,Long,Double>> byDouble = TupleTopK.byDoublePosition(100, 2);
+        byDouble.offerAll(rows);
+        assertEquals(expected, byDouble.toList());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final TupleTopK<Tuple3<String,Long,Double>> parallel = TupleTopK.byDoublePosition(100, 2);
+            parallel.offerAll(rows, executor, 8);
+            assertEquals(expected, parallel.toList());
+        } finally {
+            executor.shutdown();
+        }
+
+        final TupleTopK<Tuple3<String,Long,Double>> byLong = TupleTopK.byLongPosition(5, 1);
+        byLong.offerAll(rows);
+        assertEquals(5, byLong.size());
+        assertEquals(999L, byLong.toList().get(0).getValue1().longValue());
+
+        final TupleTopK<Tuple3<String,Long,Double>> smallest =
+            TupleTopK.of(3, Collections.reverseOrder(TupleComparators.<Tuple3<String,Long,Double>>byPosition(2)));
+        smallest.offerAll(rows);
+        Collections.reverse(sorted);
+        assertEquals(sorted.subList(0, 3), smallest.toList());
+
+        final TupleTopK<Tuple3<String,Long,Double>> otherSmallest =
+            TupleTopK.of(3, Collections.reverseOrder(TupleComparators.<Tuple3<String,Long,Double>>byPosition(2)));
+        otherSmallest.offer(Tuple3.with("min", Long.valueOf(0), Double.valueOf(-1.0)));
+        assertEquals("min", smallest.merge(otherSmallest).toList().get(0).getValue0());
+        try {
+            smallest.merge(TupleTopK.of(3, TupleComparators.<Tuple3<String,Long,Double>>byPosition(2)));
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected: different comparators
+        }
+
+    }
+
+
+    public void testPackedTuple() throws Exception {
+
+        final PackedTuple layout =
+            PackedTuple.with(
+                    PackedTuple.booleanField(), PackedTuple.enumField(TimeUnit.class),
+                    PackedTuple.intField(-500, 500), PackedTuple.charField());
+        assertTrue(layout.isSingleLong());
+        assertEquals(1 + 3 + 10 + 16, layout.getBits());
+
+        final Random random = new Random(31);
+        final TimeUnit[] units = TimeUnit.values();
+        final List<Tuple4<Boolean,TimeUnit,Integer,Character>> tuples =
+            new ArrayList<Tuple4<Boolean,TimeUnit,Integer,Character>>();
+        for (int i = 0; i < 200; i++) {
+            tuples.add(Tuple4.with(
+                    Boolean.valueOf(random.nextBoolean()), units[random.nextInt(units.length)],
+                    Integer.valueOf(random.nextInt(1001) - 500), Character.valueOf((char) random.nextInt(65536))));
+        }
+
+        for (final Tuple4<Boolean,TimeUnit,Integer,Character> tuple : tuples) {
+            final long packed = layout.pack(tuple);
+            assertEquals(tuple, layout.unpack(packed));
+            assertEquals(tuple.getValue2().longValue(), layout.getLong(packed, 2));
+            assertEquals(tuple.getValue1(), layout.getValue(packed, 1));
+            for (final Tuple4<Boolean,TimeUnit,Integer,Character> other : tuples) {
+                assertEquals(
+                        Integer.signum(tuple.compareTo(other)),
+                        Integer.signum(PackedTuple.compare(packed, layout.pack(other))));
+            }
+        }
+
+        final long packed = layout.pack(tuples.get(0));
+        assertEquals(Tuple4.with(
+                tuples.get(0).getValue0(), tuples.get(0).getValue1(), Integer.valueOf(-500), tuples.get(0).getValue3()),
+                layout.unpack(layout.setLong(packed, 2, -500)));
+
+        try {
+            layout.pack(Tuple4.with(Boolean.TRUE, TimeUnit.SECONDS, Integer.valueOf(501), Character.valueOf('a')));
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        final PackedTuple wide =
+            PackedTuple.with(
+                    PackedTuple.intField(0, 1000), PackedTuple.longField(Long.MIN_VALUE, Long.MAX_VALUE),
+                    PackedTuple.byteField());
+        assertFalse(wide.isSingleLong());
+        final Tuple3<Integer,Long,Byte> t1 =
+            Tuple3.with(Integer.valueOf(7), Long.valueOf(-123456789012345L), Byte.valueOf((byte) -3));
+        final Tuple3<Integer,Long,Byte> t2 =
+            Tuple3.with(Integer.valueOf(7), Long.valueOf(123456789012345L), Byte.valueOf((byte) -3));
+        final long h1 = wide.packHigh(t1);
+        final long l1 = wide.packLow(t1);
+        assertEquals(t1, wide.unpack(h1, l1));
+        assertEquals(-123456789012345L, wide.getLong(h1, l1, 1));
+        assertTrue(PackedTuple.compare(h1, l1, wide.packHigh(t2), wide.packLow(t2)) < 0);
+
+        final PackedTupleMap<String> map = new PackedTupleMap<String>(layout);
+        for (final Tuple4<Boolean,TimeUnit,Integer,Character> tuple : tuples) {
+            map.put(tuple, tuple.toString());
+        }
+        assertEquals(new HashSet<Tuple>(tuples).size(), map.size());
+        for (final Tuple4<Boolean,TimeUnit,Integer,Character> tuple : tuples) {
+            assertEquals(tuple.toString(), map.get(layout.pack(tuple)));
+        }
+        for (int i = 0; i < 100; i++) {
+            map.remove(tuples.get(i));
+        }
+        for (int i = 100; i < tuples.size(); i++) {
+            assertTrue(map.containsKey(tuples.get(i)));
+        }
+        assertEquals(new HashSet<Tuple>(tuples.subList(100, tuples.size())), new HashSet<Tuple>(map.keys()));
+
+    }
+
+
+    public void testSchema() throws Exception {
+
+        final TupleSchema schema = TupleSchema.define(int.class, String.class, double.class, boolean.class);
+        assertEquals(4, schema.getSize());
+        assertEquals(TupleSchema.define(int.class, String.class, double.class, boolean.class), schema);
+
+        final Tuple4<Integer,String,Double,Boolean> tuple =
+            Tuple4.with(Integer.valueOf(-42), "forty-two", Double.valueOf(4.2), Boolean.TRUE);
+        final TupleSchema.Row row = schema.fromTuple(tuple);
+        final TupleSchema.Row built =
+            schema.builder().setInt(0, -42).set(1, "forty-two").setDouble(2, 4.2).setBoolean(3, true).build();
+
+        assertEquals(row, built);
+        assertEquals(tuple.hashCode(), row.hashCode());
+        assertEquals(tuple, row.toTuple());
+        assertEquals(tuple.toString(), row.toString());
+        assertEquals(-42, row.getInt(0));
+        assertEquals(4.2, row.getDouble(2), 0.0);
+        assertTrue(row.getBoolean(3));
+        assertEquals("forty-two", ((org.javatuples.valueintf.IValue1<?>) row).getValue1());
+        assertEquals(Double.valueOf(4.2), ((org.javatuples.valueintf.IValue2<?>) row).getValue2());
+        assertFalse(row instanceof org.javatuples.valueintf.IValue4<?>);
+
+        try {
+            row.getInt(2);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            schema.newRow(null, "a", Double.valueOf(1.0), Boolean.FALSE);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        final Random random = new Random(32);
+        final List<Tuple4<Integer,String,Double,Boolean>> tuples = new ArrayList<Tuple4<Integer,String,Double,Boolean>>();
+        final List<TupleSchema.Row> rows = new ArrayList<TupleSchema.Row>();
+        for (int i = 0; i < 500; i++) {
+            final Tuple4<Integer,String,Double,Boolean> t =
+                Tuple4.with(
+                        Integer.valueOf(random.nextInt(5) - 2), "s" + random.nextInt(3),
+                        Double.valueOf(random.nextInt(3) - 1.5), Boolean.valueOf(random.nextBoolean()));
+            tuples.add(t);
+            rows.add(schema.fromTuple(t));
+        }
+        Collections.sort(tuples);
+        Collections.sort(rows);
+        for (int i = 0; i < tuples.size(); i++) {
+            assertEquals(tuples.get(i), rows.get(i).toTuple());
+        }
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        for (final TupleSchema.Row r : rows) {
+            schema.write(out, r);
+        }
+        out.close();
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (final TupleSchema.Row r : rows) {
+            assertEquals(r, schema.read(in));
+        }
+
+    }
+
+
+    public void testTupleN() throws Exception {
+
+        assertEquals(Unit.with("a"), Tuple.of("a"));
+        assertEquals(Tuple3.with("a", "b", "c"), Tuple.of("a", "b", "c"));
+        assertEquals(Tuple10.class, Tuple.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9).getClass());
+
+        final Object[] values = new Object[40];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Integer.valueOf(i);
+        }
+        final Tuple tuple = Tuple.of(values);
+        assertEquals(TupleN.class, tuple.getClass());
+        assertEquals(40, tuple.getSize());
+        assertEquals(Integer.valueOf(39), tuple.getValue(39));
+        values[0] = "changed";
+        assertEquals(Integer.valueOf(0), tuple.getValue(0));
+
+        final Tuple same = TupleN.fromCollection(Arrays.asList(tuple.toArray()));
+        assertEquals(tuple, same);
+        assertEquals(tuple.hashCode(), same.hashCode());
+        assertEquals(Arrays.asList(tuple.toArray()).toString(), tuple.toString());
+        values[0] = Integer.valueOf(0);
+        values[39] = Integer.valueOf(40);
+        assertTrue(tuple.compareTo(Tuple.of(values)) < 0);
+        assertTrue(tuple.compareTo(TupleN.fromArray(ArrayUtils.subarray(values, 0, 39))) > 0);
+
+        assertEquals(tuple, TupleCodec.decode(TupleCodec.encode(tuple)));
+        assertEquals(tuple, SerializationUtils.clone(tuple));
+
+        try {
+            TupleN.fromArray(new Object[] { "a", "b" });
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Tuple.of();
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+    }
+
+
+    public void testFactory() throws Exception {
+
+        final Object[] row = new Object[] { "id", Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3), "end" };
+        assertEquals(Tuple3.with(Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3)),
+                TupleFactory.fromArray(row, 1, 3));
+        assertEquals(Unit.with("end"), TupleFactory.fromArray(row, 4, 1));
+        assertEquals(Tuple5.class, TupleFactory.fromArray(row).getClass());
+
+        final Object[] wide = new Object[30];
+        for (int i = 0; i < wide.length; i++) {
+            wide[i] = Integer.valueOf(i);
+        }
+        for (int length = 1; length <= 20; length++) {
+            final Tuple copied = TupleFactory.fromArray(wide, 5, length);
+            final Tuple adopted = TupleFactory.adopt(ArrayUtils.subarray(wide, 5, 5 + length));
+            assertEquals(length, copied.getSize());
+            assertEquals(copied, adopted);
+            assertEquals(copied.getClass(), adopted.getClass());
+            assertEquals(Integer.valueOf(5 + length - 1), copied.getValue(length - 1));
+        }
+
+        final Object[] owned = new Object[] { "a", "b" };
+        final Tuple2<?,?> pair = (Tuple2<?,?>) TupleFactory.adopt(owned);
+        assertEquals("b", pair.getValue1());
+        assertEquals(Tuple2.with("a", "b"), pair);
+
+        try {
+            TupleFactory.fromArray(row, 3, 3);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            TupleFactory.adopt(new Object[0]);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        final List<Tuple> joined = new ArrayList<Tuple>();
+        for (final Tuple t : TupleJoins.innerJoin(
+                Arrays.asList(TupleFactory.fromArray(wide, 0, 8)), 0, Arrays.asList(TupleFactory.fromArray(wide, 0, 6)), 0)) {
+            joined.add(t);
+        }
+        assertEquals(1, joined.size());
+        assertEquals(14, joined.get(0).getSize());
+
+    }
+
+
+    public void testRanges() throws Exception {
+
+        final Integer[] array = new Integer[100];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = Integer.valueOf(i);
+        }
+        final List<Integer> arrayList = new ArrayList<Integer>(Arrays.asList(array));
+        final List<Integer> linkedList = new LinkedList<Integer>(arrayList);
+
+        assertEquals(Tuple3.with(Integer.valueOf(40), Integer.valueOf(41), Integer.valueOf(42)),
+                Tuple3.fromArray(array, 40));
+        assertEquals(Tuple3.fromArray(array, 97), Tuple3.fromList(arrayList, 97));
+        assertEquals(Tuple3.fromArray(array, 97), Tuple3.fromList(linkedList, 97));
+        assertEquals(Tuple10.fromArray(array, 90), Tuple10.fromIterable(arrayList, 90));
+        assertEquals(Unit.with(Integer.valueOf(99)), Unit.fromList(linkedList, 99));
+        assertEquals(Tuple5.fromIterable(linkedList, 20), Tuple5.fromList(arrayList, 20));
+        // Lenient behaviour of fromIterable is kept for short lists
+        assertEquals(Tuple2.with(Integer.valueOf(99), null), Tuple2.fromIterable(arrayList, 99));
+
+        try {
+            Tuple3.fromArray(array, 98);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Tuple3.fromList(linkedList, -1);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        assertEquals(Tuple4.fromArray(array, 10), TupleFactory.fromList(linkedList, 10, 4));
+        assertEquals(15, TupleFactory.fromList(arrayList, 3, 15).getSize());
+
+        for (final List<Integer> list : Arrays.asList(arrayList, linkedList)) {
+            int count = 0;
+            for (final Tuple window : TupleFactory.window(list, 3, 2)) {
+                assertEquals(Tuple3.fromArray(array, count * 2), window);
+                count++;
+            }
+            assertEquals(49, count);
+        }
+        final Iterator<Tuple> windows = TupleFactory.window(arrayList, 12, 50).iterator();
+        assertEquals(TupleFactory.fromArray(array, 0, 12), windows.next());
+        assertEquals(TupleFactory.fromArray(array, 50, 12), windows.next());
+        assertFalse(windows.hasNext());
+        assertFalse(TupleFactory.window(arrayList, 101, 1).iterator().hasNext());
+
+    }
+
+
+    public void testZip() throws Exception {
+
+        final long[] ids = new long[20000];
+        final long[] counts = new long[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = i;
+            counts[i] = i * 10L;
+        }
+
+        final List<Tuple2<Long,Long>> zipped = TupleZip.zip(ids, counts);
+        assertEquals(ids.length, zipped.size());
+        assertEquals(Tuple2.with(Long.valueOf(7), Long.valueOf(70)), zipped.get(7));
+        counts[7] = -1L;
+        assertEquals(Long.valueOf(-1L), zipped.get(7).getValue1());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Tuple2<Long,Long>> parallel = TupleZip.materialize(zipped, executor, 8);
+            assertEquals(zipped, parallel);
+            assertEquals(new ArrayList<Tuple2<Long,Long>>(zipped), TupleZip.materialize(zipped));
+        } finally {
+            executor.shutdown();
+        }
+
+        assertTrue(Arrays.equals(ids, TupleZip.unzipLongs(zipped, 0)));
+        assertTrue(Arrays.equals(counts, TupleZip.unzipLongs(zipped, 1)));
+
+        final List<String> names = new LinkedList<String>(Arrays.asList("a", "b", "c"));
+        final List<Tuple3<String,Integer,Double>> triples =
+            TupleZip.zip(names, Arrays.asList(1, 2, 3), Arrays.asList(new Double[] { 1.5, 2.5, 3.5 }));
+        assertEquals(Tuple3.with("b", Integer.valueOf(2), Double.valueOf(2.5)), triples.get(1));
+
+        final Tuple3<List<String>,List<Integer>,List<Double>> columns = TupleZip.unzip3(triples);
+        assertEquals(names, columns.getValue0());
+        assertEquals(Arrays.asList(1, 2, 3), columns.getValue1());
+        assertEquals(Arrays.asList(2.5, 3.5), columns.getValue2().subList(1, 3));
+        assertEquals(Arrays.<Object>asList("a", "b", "c"), TupleZip.unzip(triples).get(0));
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, TupleZip.unzipInts(triples, 1)));
+        assertEquals(Arrays.asList("x", "y"), TupleZip.unzip2(TupleZip.zip(new String[] { "x", "y" }, new Integer[] { 0, 1 })).getValue0());
+
+        try {
+            TupleZip.zip(new int[2], new int[3]);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+    }
+
+
+    public void testProducts() throws Exception {
+
+        final List<String> letters = Arrays.asList("a", "b", "c");
+        final Set<Integer> numbers = new LinkedHashSet<Integer>(Arrays.asList(1, 2));
+        final List<Boolean> flags = Arrays.asList(Boolean.TRUE, Boolean.FALSE);
+
+        final List<Tuple3<String,Integer,Boolean>> grid = TupleProducts.cartesian(letters, numbers, flags);
+        final List<Tuple3<String,Integer,Boolean>> expected = new ArrayList<Tuple3<String,Integer,Boolean>>();
+        for (final String letter : letters) {
+            for (final Integer number : numbers) {
+                for (final Boolean flag : flags) {
+                    expected.add(Tuple3.with(letter, number, flag));
+                }
+            }
+        }
+        assertEquals(12, grid.size());
+        assertEquals(expected, grid);
+        assertEquals(expected.get(7), grid.get(7));
+        assertEquals(expected.subList(4, 9), grid.subList(4, 9));
+        assertEquals(
+                Collections.<Tuple>unmodifiableList(expected),
+                TupleProducts.cartesian(Arrays.<Iterable<?>>asList(letters, numbers, flags)));
+        assertTrue(TupleProducts.cartesian(letters, new ArrayList<String>()).isEmpty());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Integer> range = new ArrayList<Integer>();
+            for (int i = 0; i < 100; i++) {
+                range.add(Integer.valueOf(i));
+            }
+            final List<Tuple2<Integer,Integer>> big = TupleProducts.cartesian(range, range);
+            assertEquals(new ArrayList<Tuple2<Integer,Integer>>(big), TupleZip.materialize(big, executor, 4));
+        } finally {
+            executor.shutdown();
+        }
+
+        final List<Integer> elements = Arrays.asList(0, 1, 2, 3, 4, 5, 6);
+        final List<Tuple> combinations = TupleProducts.combinations(elements, 3);
+        assertEquals(35, combinations.size());
+        final List<Tuple> iterated = new ArrayList<Tuple>(combinations);
+        final List<Tuple> indexed = new ArrayList<Tuple>();
+        for (int i = 0; i < combinations.size(); i++) {
+            indexed.add(combinations.get(i));
+        }
+        assertEquals(iterated, indexed);
+        assertEquals(Tuple3.with(0, 1, 2), iterated.get(0));
+        assertEquals(Tuple3.with(0, 1, 3), iterated.get(1));
+        assertEquals(Tuple3.with(4, 5, 6), iterated.get(34));
+        assertEquals(35, new HashSet<Tuple>(iterated).size());
+        assertEquals(1, TupleProducts.combinations(elements, 7).size());
+        assertTrue(TupleProducts.combinations(elements, 8).isEmpty());
+        assertEquals(Unit.with(6), TupleProducts.combinations(new LinkedList<Integer>(elements), 1).get(6));
+
+    }
+
+
+    public void testAppendTo() throws Exception {
+
+        final Tuple3<String,Object,Tuple2<Integer,Object>> tuple =
+            Tuple3.with("a", null, Tuple2.with(Integer.valueOf(1), (Object) Arrays.asList("x", "y")));
+        final String expected = "[a, null, [1, [x, y]]]";
+        assertEquals(expected, tuple.toString());
+        assertEquals(Arrays.asList(tuple.toArray()).toString(), tuple.toString());
+
+        final StringBuilder strBuilder = new StringBuilder("tuple=");
+        assertSame(strBuilder, tuple.appendTo(strBuilder));
+        assertEquals("tuple=" + expected, strBuilder.toString());
+
+        final StringWriter writer = new StringWriter();
+        tuple.appendTo(writer).append('!');
+        assertEquals(expected + "!", writer.toString());
+
+        final TupleFormatter masking = new TupleFormatter() {
+            public void formatValue(final Appendable out, final int pos, final Object value) throws IOException {
+                out.append((pos == 0) ? "***" : String.valueOf(value));
+            }
+        };
+        assertEquals("[***, null, [1, [x, y]]]", tuple.appendTo(new StringBuilder(), masking).toString());
+        assertEquals("[***, 2]", Tuple2.with("secret", Integer.valueOf(2)).appendTo(new StringWriter(), masking).toString());
+
+        final Tuple2<String,Integer> logged = Tuple2.with("request", Integer.valueOf(42));
+        final String cached = logged.toStringCached();
+        assertEquals(logged.toString(), cached);
+        assertSame(cached, logged.toStringCached());
+
+    }
+
+
+    public void testSlices() {
+        final Tuple4<String,Integer,String,Long> tuple = Tuple4.with("a", Integer.valueOf(1), "b", Long.valueOf(2L));
+        final List<Object> view = tuple.asList();
+        assertEquals(4, view.size());
+        assertEquals(Arrays.asList("a", Integer.valueOf(1), "b", Long.valueOf(2L)), view);
+        assertTrue(view instanceof RandomAccess);
+        try {
+            view.set(0, "x");
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            // expected
+        }
+        assertEquals(view, tuple.toList());
+        final List<Object> slice = tuple.slice(1, 3);
+        assertEquals(Arrays.asList(Integer.valueOf(1), "b"), slice);
+        assertEquals(Arrays.asList("b"), slice.subList(1, 2));
+        assertEquals(0, tuple.slice(4, 4).size());
+        try {
+            tuple.slice(2, 5);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            slice.get(2);
+            fail();
+        } catch (final IndexOutOfBoundsException e) {
+            // expected
+        }
+        final Object[] buffer = new Object[6];
+        assertEquals(5, tuple.toArray(buffer, 1));
+        assertNull(buffer[0]);
+        assertEquals("a", buffer[1]);
+        assertEquals(Long.valueOf(2L), buffer[4]);
+        try {
+            tuple.toArray(buffer, 3);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+
+    public void testBulkContains() {
+        final Tuple3<String,Integer,String> tuple = Tuple3.with("a", Integer.valueOf(1), null);
+        assertTrue(tuple.contains(null));
+        assertTrue(tuple.containsAll(Arrays.asList("a", null)));
+        assertFalse(tuple.containsAll(new HashSet<Object>(Arrays.asList("a", "b", "c", "d"))));
+        assertTrue(tuple.containsAll("a", Integer.valueOf(1)));
+        assertTrue(tuple.containsAny(new HashSet<Object>(Arrays.asList("x", Integer.valueOf(1)))));
+        assertFalse(tuple.containsAny(Arrays.asList("x", "y")));
+        assertTrue(tuple.containsAny("x", "a"));
+        assertFalse(tuple.containsAny());
+
+        // Sets which do not compare their elements with equals
+        final Comparator<Object> byIdentity = new Comparator<Object>() {
+            public int compare(final Object o1, final Object o2) {
+                final int h1 = System.identityHashCode(o1);
+                final int h2 = System.identityHashCode(o2);
+                return (h1 < h2) ? -1 : ((h1 == h2) ? 0 : 1);
+            }
+        };
+        final Set<Object> identitySet = new TreeSet<Object>(byIdentity);
+        identitySet.add(new String("a"));
+        identitySet.add(new String("a"));
+        identitySet.add(new String("a"));
+        identitySet.add(Integer.valueOf(1));
+        assertEquals(4, identitySet.size());
+        assertTrue(tuple.containsAll(identitySet));
+        final Set<String> caseInsensitiveSet = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        caseInsensitiveSet.add("A");
+        assertFalse(tuple.containsAny(caseInsensitiveSet));
+        assertTrue(tuple.intersects(Tuple2.with(Integer.valueOf(1), "z")));
+        assertFalse(tuple.intersects(Tuple2.with(Integer.valueOf(2), "z")));
+        assertEquals(2, tuple.indexOf(null));
+        assertEquals(1, tuple.lastIndexOf(Integer.valueOf(1)));
+
+        final TupleMatcher matcher = TupleMatcher.of("a", "b", Integer.valueOf(1));
+        assertEquals(3, matcher.getSize());
+        assertTrue(matcher.matchesAny(tuple));
+        assertFalse(matcher.matchesAll(tuple));
+        assertTrue(matcher.matchesAll(Tuple2.with("b", Integer.valueOf(1))));
+        assertTrue(matcher.matchesAt(tuple, 0));
+        assertFalse(matcher.matchesAt(tuple, 2));
+        assertFalse(matcher.isContainedIn(tuple));
+        assertTrue(TupleMatcher.of(Arrays.asList("a", null)).isContainedIn(tuple));
+        final List<Tuple2<String,Integer>> pairs = new ArrayList<Tuple2<String,Integer>>();
+        for (int i = 0; i < 10; i++) {
+            pairs.add(Tuple2.with("k" + i, Integer.valueOf(i)));
+        }
+        assertEquals(pairs.subList(0, 2), TupleMatcher.of("k0", Integer.valueOf(1)).filterAny(pairs));
+        assertEquals(0, matcher.filterAll(pairs).size());
+    }
+
+
+    public void testIndex() {
+        final List<Tuple3<String,Integer,String>> rows = new ArrayList<Tuple3<String,Integer,String>>();
+        rows.add(Tuple3.with("a", Integer.valueOf(1), "x"));
+        rows.add(Tuple3.with("a", Integer.valueOf(2), "y"));
+        rows.add(Tuple3.with("b", Integer.valueOf(1), "z"));
+        rows.add(Tuple3.with("a", Integer.valueOf(1), "w"));
+        rows.add(Tuple3.with((String) null, Integer.valueOf(3), "n"));
+
+        final TupleIndex<Tuple3<String,Integer,String>> hash = TupleIndex.hash(rows, 0, 1);
+        assertFalse(hash.isSorted());
+        assertEquals(5, hash.size());
+        assertEquals(4, hash.getKeyCount());
+        assertEquals(Arrays.asList(rows.get(0), rows.get(3)), hash.find("a", Integer.valueOf(1)));
+        assertTrue(Arrays.equals(new int[] { 0, 3 }, hash.findRowIds("a", Integer.valueOf(1))));
+        assertEquals(Arrays.asList(rows.get(4)), hash.find(null, Integer.valueOf(3)));
+        assertEquals(0, hash.find("c", Integer.valueOf(1)).size());
+        try {
+            hash.findPrefix("a");
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            // expected
+        }
+        assertTrue(hash.delete(0));
+        assertFalse(hash.delete(0));
+        assertNull(hash.getRow(0));
+        assertEquals(Arrays.asList(rows.get(3)), hash.find("a", Integer.valueOf(1)));
+        assertEquals(0, hash.insert(Tuple3.with("c", Integer.valueOf(1), "v")));
+        assertTrue(hash.remove(rows.get(3)));
+        assertEquals(0, hash.find("a", Integer.valueOf(1)).size());
+
+        final TupleIndex<Tuple3<String,Integer,String>> sorted = TupleIndex.sorted(rows, 0, 1);
+        assertTrue(sorted.isSorted());
+        assertEquals(Arrays.asList(rows.get(0), rows.get(3), rows.get(1)), sorted.findPrefix("a"));
+        assertEquals(Arrays.asList(rows.get(0), rows.get(3)), sorted.findPrefix("a", Integer.valueOf(1)));
+        assertEquals(Arrays.asList(rows.get(4)), sorted.findPrefix((Object) null));
+        assertEquals(Arrays.asList(rows.get(0), rows.get(3), rows.get(1), rows.get(2)),
+                sorted.findRange(new Object[] { "a" }, true, new Object[] { "b" }, true));
+        assertEquals(Arrays.asList(rows.get(1)),
+                sorted.findRange(new Object[] { "a", Integer.valueOf(1) }, false, new Object[] { "b" }, false));
+        assertEquals(Arrays.asList(rows.get(4), rows.get(0), rows.get(3)),
+                sorted.findRange(null, false, new Object[] { "a", Integer.valueOf(2) }, false));
+        assertEquals(Arrays.asList(rows.get(2)),
+                sorted.findRange(new Object[] { "a" }, false, null, false));
+        assertEquals(0, sorted.findRange(new Object[] { "b" }, true, new Object[] { "a" }, true).size());
+        sorted.delete(1);
+        assertEquals(Arrays.asList(rows.get(0), rows.get(3)), sorted.findPrefix("a"));
+        sorted.clear();
+        assertEquals(0, sorted.size());
+        assertEquals(0, sorted.findPrefix("a").size());
+
+        // A key which cannot be compared leaves no row behind
+        final TupleIndex<Tuple2<Object,String>> mixed = TupleIndex.sorted(0);
+        assertEquals(0, mixed.insert(Tuple2.with((Object) "a", "x")));
+        try {
+            mixed.insert(Tuple2.with((Object) Integer.valueOf(1), "y"));
+            fail();
+        } catch (final ClassCastException e) {
+            // expected
+        }
+        assertEquals(1, mixed.size());
+        assertEquals(1, mixed.getKeyCount());
+        assertNull(mixed.getRow(1));
+        assertFalse(mixed.delete(1));
+        assertEquals(1, mixed.insert(Tuple2.with((Object) "b", "z")));
+        assertTrue(mixed.delete(1));
+        assertEquals(1, mixed.size());
+    }
+
+
+    public void testPrefixes() {
+        final List<Tuple3<String,Integer,String>> tuples = new ArrayList<Tuple3<String,Integer,String>>();
+        tuples.add(Tuple3.with("b", Integer.valueOf(1), "x"));
+        tuples.add(Tuple3.with("a", Integer.valueOf(2), "y"));
+        tuples.add(Tuple3.with("a", Integer.valueOf(1), "z"));
+        tuples.add(Tuple3.with("a", Integer.valueOf(1), "w"));
+        tuples.add(Tuple3.with("c", Integer.valueOf(0), "v"));
+
+        final TreeSet<Tuple3<String,Integer,String>> treeSet = new TreeSet<Tuple3<String,Integer,String>>(tuples);
+        assertEquals(Arrays.asList(tuples.get(3), tuples.get(2)),
+                new ArrayList<Tuple3<String,Integer,String>>(
+                        TuplePrefixes.withPrefix(treeSet, "a", Integer.valueOf(1))));
+        assertEquals(3, TuplePrefixes.withPrefix(treeSet, "a").size());
+        assertEquals(1, TuplePrefixes.withPrefix(treeSet, "a", Integer.valueOf(1), "w").size());
+        assertEquals(0, TuplePrefixes.withPrefix(treeSet, "d").size());
+        assertTrue(TuplePrefixes.lowerBound("a").compareTo(tuples.get(2)) < 0);
+        assertTrue(tuples.get(2).compareTo(TuplePrefixes.upperBound("a")) < 0);
+        assertTrue(tuples.get(0).compareTo(TuplePrefixes.upperBound("a")) > 0);
+        assertTrue(TuplePrefixes.upperBound("a", Integer.valueOf(1), "z").compareTo(tuples.get(2)) > 0);
+
+        // Bounds are only equal to bounds of the same kind, like compareTo
+        assertEquals(TuplePrefixes.lowerBound("a", "b"), TuplePrefixes.lowerBound("a", "b"));
+        assertEquals(TuplePrefixes.lowerBound("a", "b").hashCode(), TuplePrefixes.lowerBound("a", "b").hashCode());
+        assertFalse(TuplePrefixes.lowerBound("a", "b").equals(TuplePrefixes.upperBound("a", "b")));
+        assertFalse(TuplePrefixes.lowerBound("a", "b").hashCode() == TuplePrefixes.upperBound("a", "b").hashCode());
+        assertFalse(TuplePrefixes.lowerBound("a", "b").equals(Tuple2.with("a", "b")));
+        assertEquals("lowerBound[a, b]", TuplePrefixes.lowerBound("a", "b").toString());
+        assertEquals("upperBound[a]", TuplePrefixes.upperBound("a").toString());
+        assertEquals("[a, b]", Tuple2.with("a", "b").toString());
+
+        final TupleSortedSet<Tuple3<String,Integer,String>> sortedSet = TupleSortedSet.of(tuples);
+        assertEquals(new ArrayList<Tuple3<String,Integer,String>>(treeSet),
+                new ArrayList<Tuple3<String,Integer,String>>(sortedSet));
+        assertEquals(5, TupleSortedSet.of(treeSet).size());
+        final List<Tuple3<String,Integer,String>> duplicated = new ArrayList<Tuple3<String,Integer,String>>(tuples);
+        duplicated.addAll(tuples);
+        assertEquals(treeSet.size(), TupleSortedSet.of(duplicated).size());
+        assertTrue(sortedSet.contains(tuples.get(1)));
+        assertFalse(sortedSet.contains(Tuple3.with("a", Integer.valueOf(1), "q")));
+        assertEquals(tuples.get(3), sortedSet.first());
+        assertEquals(tuples.get(4), sortedSet.last());
+        assertEquals(tuples.get(1), sortedSet.get(2));
+        assertEquals(Arrays.asList(tuples.get(3), tuples.get(2), tuples.get(1)),
+                new ArrayList<Tuple3<String,Integer,String>>(sortedSet.withPrefix("a")));
+        assertEquals(Arrays.asList(tuples.get(3), tuples.get(2)),
+                new ArrayList<Tuple3<String,Integer,String>>(sortedSet.withPrefix("a").withPrefix("a", Integer.valueOf(1))));
+        assertEquals(2, sortedSet.headSet(tuples.get(1)).size());
+        assertEquals(2, sortedSet.tailSet(tuples.get(0)).size());
+        assertEquals(Arrays.asList(tuples.get(1), tuples.get(0)),
+                new ArrayList<Tuple3<String,Integer,String>>(sortedSet.subSet(tuples.get(1), tuples.get(4))));
+        assertEquals(0, sortedSet.withPrefix("z").size());
+        assertEquals(new HashSet<Tuple3<String,Integer,String>>(treeSet), sortedSet);
+    }
+
+
+    public void testOffHeapTree() throws Exception {
+        final Object[] ordered = new Object[] {
+                null, Boolean.FALSE, Boolean.TRUE, Integer.valueOf(Integer.MIN_VALUE), Integer.valueOf(-1),
+                Integer.valueOf(0), Integer.valueOf(7), Long.valueOf(-5L), Long.valueOf(3L),
+                Double.valueOf(Double.NEGATIVE_INFINITY), Double.valueOf(-2.5), Double.valueOf(0.0),
+                Double.valueOf(1.5), Double.valueOf(Double.NaN), "", "\u0000", "a", "a\u0000", "ab", "b" };
+        for (int i = 0; i < ordered.length; i++) {
+            final byte[] encoded = TupleKeyEncoding.encode(Tuple2.with(ordered[i], "x"));
+            assertEquals(Tuple2.with(ordered[i], "x"), TupleKeyEncoding.decode(encoded));
+            if (i > 0) {
+                final byte[] previous = TupleKeyEncoding.encode(Tuple2.with(ordered[i - 1], "x"));
+                assertTrue(String.valueOf(ordered[i]), TupleKeyEncoding.compare(previous, encoded) < 0);
+            }
+        }
+        assertEquals(Unit.with("\uD83D\uDE00"), TupleKeyEncoding.decode(TupleKeyEncoding.encode(Unit.with("\uD83D\uDE00"))));
+        try {
+            TupleKeyEncoding.encode(Unit.with("a\uD83D"));
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected: unpaired surrogate
+        }
+        try {
+            TupleKeyEncoding.decode(new byte[] { 0x31, (byte) 0xC3, 0x00, 0x01 });
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected: truncated UTF-8 sequence
+        }
+
+        final Map<Tuple3<Long,Integer,String>,byte[]> entries = new HashMap<Tuple3<Long,Integer,String>,byte[]>();
+        for (int i = 0; i < 2000; i++) {
+            entries.put(Tuple3.with(Long.valueOf(i / 100), Integer.valueOf(i % 100), "s" + i),
+                    ("v" + i).getBytes("UTF-8"));
+        }
+        final OffHeapTupleTree tree = OffHeapTupleTree.bulkLoad(entries);
+        assertEquals(2000L, tree.size());
+        assertEquals("v1234", new String(tree.get(Tuple3.with(Long.valueOf(12), Integer.valueOf(34), "s1234")), "UTF-8"));
+        assertNull(tree.get(Tuple3.with(Long.valueOf(12), Integer.valueOf(34), "s1")));
+
+        final File file = File.createTempFile("javatuples", ".tree");
+        try {
+            final OffHeapTupleTree.Builder builder = OffHeapTupleTree.newBuilder(file, 512);
+            for (final KeyValue<Tuple,byte[]> entry : tree.range(null, null)) {
+                builder.add(entry.getKey(), entry.getValue());
+            }
+            try {
+                builder.add(Tuple3.with(Long.valueOf(0), Integer.valueOf(0), "s0"), new byte[0]);
+                fail();
+            } catch (final IllegalArgumentException e) {
+                // expected: keys out of order
+            }
+            builder.build().close();
+            // The file belongs to the tree once built
+            builder.close();
+
+            final OffHeapTupleTree reopened = OffHeapTupleTree.open(file);
+            try {
+                assertEquals(2000L, reopened.size());
+                assertEquals(512, reopened.getPageSize());
+                assertTrue(reopened.getHeight() > 2);
+                for (final Map.Entry<Tuple3<Long,Integer,String>,byte[]> entry : entries.entrySet()) {
+                    assertTrue(Arrays.equals(entry.getValue(), reopened.get(entry.getKey())));
+                }
+                int count = 0;
+                Tuple previous = null;
+                for (final KeyValue<Tuple,byte[]> entry : reopened.prefix(Long.valueOf(7))) {
+                    assertEquals(Long.valueOf(7), entry.getKey().getValue(0));
+                    if (previous != null) {
+                        assertTrue(previous.compareTo(entry.getKey()) < 0);
+                    }
+                    previous = entry.getKey();
+                    count++;
+                }
+                assertEquals(100, count);
+                final List<Tuple> range = new ArrayList<Tuple>();
+                for (final KeyValue<Tuple,byte[]> entry : reopened.range(
+                        Tuple3.with(Long.valueOf(3), Integer.valueOf(98), "s398"),
+                        Tuple3.with(Long.valueOf(4), Integer.valueOf(1), "s401"))) {
+                    range.add(entry.getKey());
+                }
+                assertEquals(Arrays.asList(
+                        Tuple3.with(Long.valueOf(3), Integer.valueOf(98), "s398"),
+                        Tuple3.with(Long.valueOf(3), Integer.valueOf(99), "s399"),
+                        Tuple3.with(Long.valueOf(4), Integer.valueOf(0), "s400")), range);
+                assertFalse(reopened.prefix(Long.valueOf(20)).iterator().hasNext());
+            } finally {
+                reopened.close();
+            }
+
+            // Closing an unfinished builder aborts it
+            final OffHeapTupleTree.Builder aborted = OffHeapTupleTree.newBuilder(file, 512);
+            aborted.add(Unit.with("a"), new byte[0]);
+            aborted.close();
+            aborted.close();
+            try {
+                aborted.add(Unit.with("b"), new byte[0]);
+                fail();
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+            try {
+                aborted.build();
+                fail();
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            file.delete();
+        }
+        assertEquals(0L, OffHeapTupleTree.newBuilder(1024).build().size());
+    }
+
+
+    public void testLog() throws Exception {
+        final File directory = File.createTempFile("javatuples", ".log");
+        directory.delete();
+        try {
+            final TupleLog<String,Integer> log = new TupleLog<String,Integer>(directory, 512L, 2, true);
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            final CountDownLatch start = new CountDownLatch(1);
+            for (int t = 0; t < 4; t++) {
+                final int thread = t;
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < 100; i++) {
+                            log.append("k" + thread + "-" + (i % 10), Integer.valueOf(i));
+                        }
+                        return null;
+                    }
+                }));
+            }
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+            log.append(KeyValue.with("k0-0", (Integer) null));
+            assertEquals(39, log.getState().size());
+            assertEquals(Integer.valueOf(99), log.get("k3-9"));
+            // Appends waiting while another thread syncs share the next sync
+            assertTrue(String.valueOf(log.getSyncCount()), log.getSyncCount() < 401L);
+            log.close();
+            log.close();
+            try {
+                log.append("x", Integer.valueOf(1));
+                fail();
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+            try {
+                log.snapshot();
+                fail();
+            } catch (final IllegalStateException e) {
+                // expected
+            }
+
+            // Snapshots have replaced the oldest segments
+            assertTrue(directory.list(new FilenameFilter() {
+                public boolean accept(final File dir, final String name) {
+                    return name.startsWith("snapshot-");
+                }
+            }).length == 1);
+
+            // Tear the last record
+            final File[] segments = directory.listFiles(new FilenameFilter() {
+                public boolean accept(final File dir, final String name) {
+                    return name.endsWith(".seg");
+                }
+            });
+            Arrays.sort(segments);
+            final RandomAccessFile last = new RandomAccessFile(segments[segments.length - 1], "rw");
+            last.seek(last.length());
+            last.writeInt(100);
+            last.writeInt(12345);
+            last.write(new byte[] { 1, 2, 3 });
+            last.close();
+
+            final TupleLog<String,Integer> reopened = new TupleLog<String,Integer>(directory, 512L, 2, false);
+            assertEquals(39, reopened.getState().size());
+            assertNull(reopened.get("k0-0"));
+            assertEquals(Integer.valueOf(95), reopened.get("k2-5"));
+            assertTrue(reopened.getReplayedRecords() < 401L);
+            reopened.append("k0-0", Integer.valueOf(-1));
+            reopened.snapshot();
+            reopened.append("k9", Integer.valueOf(9));
+            reopened.close();
+
+            final TupleLog<String,Integer> recovered = new TupleLog<String,Integer>(directory);
+            assertEquals(41, recovered.getState().size());
+            assertEquals(Integer.valueOf(-1), recovered.get("k0-0"));
+            assertEquals(1L, recovered.getReplayedRecords());
+            recovered.close();
+        } finally {
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+    }
+
+
+    public void testSharedQueue() throws Exception {
+        final File file = File.createTempFile("javatuples", ".queue", SharedTupleQueue.getDefaultDirectory());
+        try {
+            final SharedTupleQueue producer =
+                    SharedTupleQueue.create(file, 8, 64, WaitStrategy.YIELD);
+            final SharedTupleQueue consumer =
+                    SharedTupleQueue.attach(file, WaitStrategy.PARK);
+            assertEquals(8, consumer.getCapacity());
+            assertNull(consumer.poll());
+            for (int i = 0; i < 8; i++) {
+                assertTrue(producer.offer(Unit.with(Integer.valueOf(i))));
+            }
+            assertFalse(producer.offer(Unit.with(Integer.valueOf(8))));
+            assertEquals(8, consumer.size());
+            for (int i = 0; i < 8; i++) {
+                assertEquals(Unit.with(Integer.valueOf(i)), consumer.poll());
+            }
+            try {
+                producer.offer(Unit.with(new String(new char[100])));
+                fail();
+            } catch (final IllegalArgumentException e) {
+                // expected
+            }
+            try {
+                producer.offer(Unit.with(new Date(0L)));
+                fail();
+            } catch (final TupleIOException e) {
+                // expected: no Java serialization
+            }
+            assertNull(consumer.poll());
+
+            final int count = 20000;
+            final ExecutorService executor = Executors.newSingleThreadExecutor();
+            final Future<?> future = executor.submit(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        producer.put(Tuple4.with("msg", Integer.valueOf(i), Long.valueOf(-i), Boolean.valueOf(i % 2 == 0)));
+                    }
+                }
+            });
+            for (int i = 0; i < count; i++) {
+                assertEquals(Tuple4.with("msg", Integer.valueOf(i), Long.valueOf(-i), Boolean.valueOf(i % 2 == 0)),
+                        consumer.take());
+            }
+            future.get();
+            executor.shutdown();
+            assertEquals(0, consumer.size());
+
+            // A Java-serialized value written by another process is rejected
+            final long sequence = 8 + count;
+            final byte[] serialized = TupleCodec.encode(Unit.with(new Date(0L)));
+            final RandomAccessFile raw = new RandomAccessFile(file, "rw");
+            try {
+                final ByteBuffer mapped = raw.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, raw.length());
+                final int slot = 192 + (int) (sequence % 8) * 64;
+                mapped.putInt(slot, serialized.length);
+                for (int i = 0; i < serialized.length; i++) {
+                    mapped.put(slot + 4 + i, serialized[i]);
+                }
+                mapped.order(ByteOrder.nativeOrder()).putLong(64, sequence + 1);
+            } finally {
+                raw.close();
+            }
+            try {
+                consumer.poll();
+                fail();
+            } catch (final TupleIOException e) {
+                // expected
+            }
+
+            producer.close();
+            consumer.close();
+
+            // Several producing processes
+            final int sharedCount = 5000;
+            final SharedTupleQueue shared =
+                    SharedTupleQueue.create(file, 16, 64, WaitStrategy.YIELD, true);
+            final Process process = new ProcessBuilder(
+                    new File(new File(System.getProperty("java.home"), "bin"), "java").getPath(),
+                    "-cp", System.getProperty("java.class.path"),
+                    SharedTupleQueueProducer.class.getName(), file.getPath(), "1", String.valueOf(sharedCount))
+                    .redirectErrorStream(true).start();
+            final ExecutorService sharedExecutor = Executors.newSingleThreadExecutor();
+            final Future<?> sharedFuture = sharedExecutor.submit(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < sharedCount; i++) {
+                        shared.put(Tuple2.with(Integer.valueOf(0), Integer.valueOf(i)));
+                    }
+                }
+            });
+            // Tuples of every producer arrive in order, none lost
+            final int[] next = new int[2];
+            final long deadline = System.currentTimeMillis() + 60000L;
+            while (next[0] + next[1] < 2 * sharedCount) {
+                final Tuple2<?,?> tuple = (Tuple2<?,?>) shared.poll();
+                if (tuple == null) {
+                    assertTrue("Timed out waiting for the producers", System.currentTimeMillis() < deadline);
+                    Thread.yield();
+                    continue;
+                }
+                final int producerId = ((Integer) tuple.getValue0()).intValue();
+                assertEquals(Integer.valueOf(next[producerId]++), tuple.getValue1());
+            }
+            sharedFuture.get();
+            sharedExecutor.shutdown();
+            final int exitCode = process.waitFor();
+            final ByteArrayOutputStream output = new ByteArrayOutputStream();
+            final byte[] outputBuffer = new byte[4096];
+            for (int n = process.getInputStream().read(outputBuffer); n >= 0;
+                    n = process.getInputStream().read(outputBuffer)) {
+                output.write(outputBuffer, 0, n);
+            }
+            assertEquals(output.toString(), 0, exitCode);
+            assertEquals(0, shared.size());
+            shared.close();
+
+            final File empty = File.createTempFile("javatuples", ".queue");
+            try {
+                SharedTupleQueue.attach(empty, WaitStrategy.PARK);
+                fail();
+            } catch (final IOException e) {
+                // expected: not a queue
+            } finally {
+                empty.delete();
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+
+    public void testRingBuffer() throws Exception {
+        final MutableTuple mutable = new MutableTuple(2);
+        mutable.set(0, "a").set(1, Integer.valueOf(1));
+        assertEquals(Tuple2.with("a", Integer.valueOf(1)), mutable.toTuple());
+        mutable.setAll(Tuple2.with("b", Integer.valueOf(2)));
+        assertEquals("b", mutable.get(0));
+        assertEquals(Integer.valueOf(2), mutable.<Integer>getAs(1));
+        assertNull(mutable.clear().get(1));
+
+        final TupleRingBuffer ring = new TupleRingBuffer(4, 2, false, WaitStrategy.YIELD);
+        final TupleRingBuffer.Consumer first = ring.newConsumer();
+        final TupleRingBuffer.Consumer second = ring.newConsumer(first);
+        final long hi = ring.claim(3);
+        assertEquals(2, hi);
+        for (long seq = hi - 2; seq <= hi; seq++) {
+            ring.get(seq).set(0, "x").set(1, Long.valueOf(seq));
+        }
+        assertEquals(-1, first.available());
+        ring.publish(hi - 2, hi);
+        assertEquals(-1, second.available());
+        final List<Object> seen = new ArrayList<Object>();
+        final TupleRingBuffer.Handler collect = new TupleRingBuffer.Handler() {
+            public void onTuple(final MutableTuple tuple, final long sequence, final boolean endOfBatch) {
+                seen.add(tuple.get(1));
+            }
+        };
+        assertEquals(3, first.processBatch(collect, false));
+        assertEquals(2, second.available());
+        assertEquals(0, first.processBatch(collect, false));
+        assertEquals(3, second.processBatch(collect, false));
+        assertEquals(6, seen.size());
+
+        // Two pipeline stages and two producers, wrapping around the ring many times
+        final int count = 20000;
+        final TupleRingBuffer shared = new TupleRingBuffer(64, 2, true, WaitStrategy.YIELD);
+        final TupleRingBuffer.Consumer doubler = shared.newConsumer();
+        final TupleRingBuffer.Consumer summer = shared.newConsumer(doubler);
+        final ExecutorService executor = Executors.newFixedThreadPool(3);
+        final List<Future<?>> producers = new ArrayList<Future<?>>();
+        for (int p = 0; p < 2; p++) {
+            final String name = "producer" + p;
+            producers.add(executor.submit(new Runnable() {
+                public void run() {
+                    for (int i = 0; i < count; i++) {
+                        shared.publish(Tuple2.with(name, Integer.valueOf(i)));
+                    }
+                }
+            }));
+        }
+        final Future<?> doubling = executor.submit(new Runnable() {
+            public void run() {
+                final TupleRingBuffer.Handler handler = new TupleRingBuffer.Handler() {
+                    public void onTuple(final MutableTuple tuple, final long sequence, final boolean endOfBatch) {
+                        tuple.set(1, Integer.valueOf(2 * tuple.<Integer>getAs(1).intValue()));
+                    }
+                };
+                while (doubler.getSequence() < 2 * count - 1) {
+                    doubler.processBatch(handler, true);
+                }
+            }
+        });
+        final long[] sums = new long[1];
+        final TupleRingBuffer.Handler summing = new TupleRingBuffer.Handler() {
+            public void onTuple(final MutableTuple tuple, final long sequence, final boolean endOfBatch) {
+                sums[0] += tuple.<Integer>getAs(1).intValue();
+            }
+        };
+        while (summer.getSequence() < 2 * count - 1) {
+            summer.processBatch(summing, true);
+        }
+        for (final Future<?> future : producers) {
+            future.get();
+        }
+        doubling.get();
+        executor.shutdown();
+        assertEquals(2L * count * (count - 1), sums[0]);
+    }
+
+
+    public void testPool() throws Exception {
+        final TuplePool pool = new TuplePool(2, false);
+        final TuplePool.Lease first = pool.acquire(3);
+        first.getTuple().set(0, "a");
+        first.release();
+        try {
+            first.release();
+            fail();
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        final TuplePool.Lease second = pool.acquire(3);
+        final TuplePool.Lease third = pool.acquire(3);
+        assertNull(second.getTuple().get(0));
+        assertEquals(3, third.getTuple().getSize());
+        assertNotSame(second.getTuple(), third.getTuple());
+        assertEquals(1, pool.getHits());
+        assertEquals(2, pool.getMisses());
+        second.release();
+        third.release();
+        pool.acquire(5).release();
+        assertEquals(3, pool.getMisses());
+
+        // A stale lease cannot release or read a tuple which has been leased
+        // again
+        final TuplePool.Lease stale = pool.acquire(5);
+        stale.release();
+        final TuplePool.Lease current = pool.acquire(5);
+        assertEquals(3, pool.getMisses());
+        current.getTuple().set(0, "current");
+        try {
+            stale.release();
+            fail();
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        try {
+            stale.getTuple();
+            fail();
+        } catch (final IllegalStateException e) {
+            // expected
+        }
+        assertEquals("current", current.getTuple().get(0));
+        current.release();
+        if (AllocationAssert.isEscapeAnalysisEnabled()) {
+            // The new lease of every acquisition does not escape
+            AllocationAssert.assertAllocationFree("TuplePool acquire and release", new AllocationAssert.Operation() {
+                public long run() {
+                    final TuplePool.Lease lease = pool.acquire(3);
+                    try {
+                        return lease.getTuple().set(0, "a").getSize();
+                    } finally {
+                        lease.release();
+                    }
+                }
+            });
+        }
+
+        final TuplePool debugPool = new TuplePool(2, true);
+        final TuplePool.Lease lease = debugPool.acquire(2);
+        lease.release();
+        try {
+            lease.release();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertNotNull(e.getCause());
+        }
+        final TuplePool.Lease[] held = new TuplePool.Lease[] { debugPool.acquire(2) };
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<?> future = executor.submit(new Runnable() {
+            public void run() {
+                held[0].release();
+            }
+        });
+        try {
+            future.get();
+            fail();
+        } catch (final ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.shutdown();
+        held[0].release();
+        debugPool.checkLeaks();
+
+        held[0] = debugPool.acquire(3);
+        held[0] = null;
+        for (int i = 0; i < 50 && debugPool.getLeakCount() == 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(1, debugPool.getLeakCount());
+        try {
+            debugPool.checkLeaks();
+            fail();
+        } catch (final IllegalStateException e) {
+            assertTrue(e.getCause().getMessage().startsWith("Tuple leased by"));
+        }
+        debugPool.checkLeaks();
+    }
+
+
+    public void testEscapeAnalysis() throws Exception {
+        // Tuples used for returning several values from an inlined method must
+        // not be allocated once the caller is compiled with escape analysis
+        if (!AllocationAssert.isEscapeAnalysisEnabled()) {
+            return;
+        }
+        AllocationAssert.assertAllocationFree("Tuple2 returned from an inlined method",
+                new AllocationAssert.Operation() {
+                    public long run() {
+                        return sumDivisions(100);
+                    }
+                });
+    }
+
+
+    private static long sumDivisions(final int count) {
+        long sum = 0L;
+        for (int i = 0; i < count; i++) {
+            final Tuple2<Integer,Integer> result = divide(i, 7);
+            sum += result.getValue0().intValue() + result.getValue1().intValue();
+        }
+        return sum;
+    }
+
+
+    private static Tuple2<Integer,Integer> divide(final int dividend, final int divisor) {
+        // Values below 128 are cached by Integer.valueOf
+        return Tuple2.with(Integer.valueOf((dividend / divisor) & 127), Integer.valueOf(dividend % divisor));
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public void testAllocationBudgets() throws Exception {
+        final Tuple[] tuples = createAllocationTestTuples();
+        final Tuple[] copies = createAllocationTestTuples();
+
+        final Unit<Integer> unit = (Unit<Integer>) tuples[0];
+        AllocationAssert.assertAllocationFree("Unit.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(unit.getValue0());
+            }
+        });
+        final Tuple2<Integer,Integer> tuple2 = (Tuple2<Integer,Integer>) tuples[1];
+        AllocationAssert.assertAllocationFree("Tuple2.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple2.getValue0()) + ref(tuple2.getValue1());
+            }
+        });
+        final Tuple3<Integer,Integer,Integer> tuple3 = (Tuple3<Integer,Integer,Integer>) tuples[2];
+        AllocationAssert.assertAllocationFree("Tuple3.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple3.getValue0()) + ref(tuple3.getValue1()) + ref(tuple3.getValue2());
+            }
+        });
+        final Tuple4<Integer,Integer,Integer,Integer> tuple4 = (Tuple4<Integer,Integer,Integer,Integer>) tuples[3];
+        AllocationAssert.assertAllocationFree("Tuple4.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple4.getValue0()) + ref(tuple4.getValue1()) + ref(tuple4.getValue2())
+                        + ref(tuple4.getValue3());
+            }
+        });
+        final Tuple5<Integer,Integer,Integer,Integer,Integer> tuple5 =
+                (Tuple5<Integer,Integer,Integer,Integer,Integer>) tuples[4];
+        AllocationAssert.assertAllocationFree("Tuple5.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple5.getValue0()) + ref(tuple5.getValue1()) + ref(tuple5.getValue2())
+                        + ref(tuple5.getValue3()) + ref(tuple5.getValue4());
+            }
+        });
+        final Tuple6<Integer,Integer,Integer,Integer,Integer,Integer> tuple6 =
+                (Tuple6<Integer,Integer,Integer,Integer,Integer,Integer>) tuples[5];
+        AllocationAssert.assertAllocationFree("Tuple6.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple6.getValue0()) + ref(tuple6.getValue1()) + ref(tuple6.getValue2())
+                        + ref(tuple6.getValue3()) + ref(tuple6.getValue4()) + ref(tuple6.getValue5());
+            }
+        });
+        final Tuple7<Integer,Integer,Integer,Integer,Integer,Integer,Integer> tuple7 =
+                (Tuple7<Integer,Integer,Integer,Integer,Integer,Integer,Integer>) tuples[6];
+        AllocationAssert.assertAllocationFree("Tuple7.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple7.getValue0()) + ref(tuple7.getValue1()) + ref(tuple7.getValue2())
+                        + ref(tuple7.getValue3()) + ref(tuple7.getValue4()) + ref(tuple7.getValue5())
+                        + ref(tuple7.getValue6());
+            }
+        });
+        final Tuple8<Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer> tuple8 =
+                (Tuple8<Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer>) tuples[7];
+        AllocationAssert.assertAllocationFree("Tuple8.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple8.getValue0()) + ref(tuple8.getValue1()) + ref(tuple8.getValue2())
+                        + ref(tuple8.getValue3()) + ref(tuple8.getValue4()) + ref(tuple8.getValue5())
+                        + ref(tuple8.getValue6()) + ref(tuple8.getValue7());
+            }
+        });
+        final Tuple9<Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer> tuple9 =
+                (Tuple9<Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer>) tuples[8];
+        AllocationAssert.assertAllocationFree("Tuple9.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple9.getValue0()) + ref(tuple9.getValue1()) + ref(tuple9.getValue2())
+                        + ref(tuple9.getValue3()) + ref(tuple9.getValue4()) + ref(tuple9.getValue5())
+                        + ref(tuple9.getValue6()) + ref(tuple9.getValue7()) + ref(tuple9.getValue8());
+            }
+        });
+        final Tuple10<Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer> tuple10 =
+                (Tuple10<Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer,Integer>) tuples[9];
+        AllocationAssert.assertAllocationFree("Tuple10.getValueN", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(tuple10.getValue0()) + ref(tuple10.getValue1()) + ref(tuple10.getValue2())
+                        + ref(tuple10.getValue3()) + ref(tuple10.getValue4()) + ref(tuple10.getValue5())
+                        + ref(tuple10.getValue6()) + ref(tuple10.getValue7()) + ref(tuple10.getValue8())
+                        + ref(tuple10.getValue9());
+            }
+        });
+        final KeyValue<Integer,Integer> keyValue = (KeyValue<Integer,Integer>) tuples[10];
+        AllocationAssert.assertAllocationFree("KeyValue.getKey/getValue", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(keyValue.getKey()) + ref(keyValue.getValue());
+            }
+        });
+        final LabelValue<Integer,Integer> labelValue = (LabelValue<Integer,Integer>) tuples[11];
+        AllocationAssert.assertAllocationFree("LabelValue.getLabel/getValue", new AllocationAssert.Operation() {
+            public long run() {
+                return ref(labelValue.getLabel()) + ref(labelValue.getValue());
+            }
+        });
+
+        for (int i = 0; i < tuples.length; i++) {
+            final Tuple tuple = tuples[i];
+            final Tuple copy = copies[i];
+            final Object last = tuple.getValue(tuple.getSize() - 1);
+            final String name = tuple.getClass().getSimpleName();
+            AllocationAssert.assertAllocationFree(name + ".getValue(int)", new AllocationAssert.Operation() {
+                public long run() {
+                    long checksum = 0L;
+                    for (int pos = 0; pos < tuple.getSize(); pos++) {
+                        checksum += ref(tuple.getValue(pos));
+                    }
+                    return checksum;
+                }
+            });
+            AllocationAssert.assertAllocationFree(name + ".hashCode", new AllocationAssert.Operation() {
+                public long run() {
+                    return tuple.hashCode();
+                }
+            });
+            AllocationAssert.assertAllocationFree(name + ".equals", new AllocationAssert.Operation() {
+                public long run() {
+                    return (tuple.equals(copy) ? 1L : 0L);
+                }
+            });
+            AllocationAssert.assertAllocationFree(name + ".compareTo", new AllocationAssert.Operation() {
+                public long run() {
+                    return tuple.compareTo(copy);
+                }
+            });
+            AllocationAssert.assertAllocationFree(name + ".contains", new AllocationAssert.Operation() {
+                public long run() {
+                    return (tuple.contains(last) ? 1L : 0L);
+                }
+            });
+            AllocationAssert.assertAllocationFree(name + ".indexOf", new AllocationAssert.Operation() {
+                public long run() {
+                    return tuple.indexOf(last);
+                }
+            });
+        }
+    }
+
+
+    private static Tuple[] createAllocationTestTuples() {
+        final Integer[] values = new Integer[12];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Integer.valueOf(i);
+        }
+        final Integer[] v = values;
+        return new Tuple[] {
+            Unit.with(v[0]),
+            Tuple2.with(v[0], v[1]),
+            Tuple3.with(v[0], v[1], v[2]),
+            Tuple4.with(v[0], v[1], v[2], v[3]),
+            Tuple5.with(v[0], v[1], v[2], v[3], v[4]),
+            Tuple6.with(v[0], v[1], v[2], v[3], v[4], v[5]),
+            Tuple7.with(v[0], v[1], v[2], v[3], v[4], v[5], v[6]),
+            Tuple8.with(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7]),
+            Tuple9.with(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8]),
+            Tuple10.with(v[0], v[1], v[2], v[3], v[4], v[5], v[6], v[7], v[8], v[9]),
+            KeyValue.with(v[0], v[1]),
+            LabelValue.with(v[0], v[1]),
+            Tuple.of((Object[]) v)
+        };
+    }
+
+
+    private static long ref(final Object value) {
+        return (value == null ? 0L : 1L);
+    }
+
+
+    public void testCodecValidation() throws Exception {
+        try {
+            TupleCodec.encode(null);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // expected
+        }
+
+        // Byte array value declaring a length of 2^31 - 1 bytes
+        final byte[] corrupt = new byte[] { 1, 11, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 1, 2 };
+        try {
+            TupleCodec.decode(corrupt);
+            fail();
+        } catch (final TupleIOException e) {
+            // expected: end of input, without allocating the declared length
+        }
+        // Negative length
+        corrupt[6] = 0x0F;
+        try {
+            TupleCodec.decode(corrupt);
+            fail();
+        } catch (final TupleIOException e) {
+            // expected
+        }
+
+        final Tuple2<String,Object> tuple = Tuple2.with("a", (Object) new Date(0L));
+        final byte[] bytes = TupleCodec.encode(tuple);
+        try {
+            TupleCodec.decode(bytes);
+            fail();
+        } catch (final TupleIOException e) {
+            // expected: Java serialization not allowed by default
+        }
+        assertEquals(tuple, TupleCodec.decode(bytes, TupleCodec.ALL_CLASSES));
+        assertEquals(tuple, TupleCodec.decode(bytes, new TupleCodec.ClassFilter() {
+            public boolean accept(final String className) {
+                return className.equals("java.util.Date");
+            }
+        }));
+        try {
+            TupleCodec.decode(bytes, new TupleCodec.ClassFilter() {
+                public boolean accept(final String className) {
+                    return false;
+                }
+            });
+            fail();
+        } catch (final TupleIOException e) {
+            assertTrue(e.getCause() instanceof InvalidClassException);
+        }
+    }
+
+
 }
@@ -0,0 +1,100 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+
+/**
+ * <p>
+ * Minimal benchmark harness. Benchmarks in this package are plain
+ * <tt>main</tt> classes (they are not run by the test suite), and can be
+ * launched after <tt>mvn test-compile</tt> with:
+ * </p>
+ * <pre>
+ *     java -cp target/classes:target/test-classes org.javatuples.benchmark.TupleMergeBenchmark
+ * </pre>
+ * <p>
+ * Each operation is run a number of times for warming up the JIT, and then
+ * measured. Operations return a value derived from their work, which is
+ * accumulated so that it cannot be optimized away.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class Benchmark {
+
+    private static volatile long sink = 0L;
+
+
+
+    public interface Operation {
+
+        public long run() throws Exception;
+
+    }
+
+
+
+    /**
+     * <p>
+     * Run an operation and print its average time.
+     * </p>
+     *
+     * @param name the name to be printed
+     * @param warmups the number of unmeasured executions
+     * @param iterations the number of measured executions
+     * @param operationsPerIteration the number of operations each execution
+     *        performs, for printing time per operation
+     * @param operation the operation to be measured
+     * @return the average time per operation, in nanoseconds
+     * @throws Exception if the operation fails
+     */
+    public static double run(
+            final String name, final int warmups, final int iterations,
+            final long operationsPerIteration, final Operation operation) throws Exception {
+
+        long checksum = 0L;
+        for (int i = 0; i < warmups; i++) {
+            checksum += operation.run();
+        }
+
+        final long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            checksum += operation.run();
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        sink += checksum;
+
+        final double nanosPerOperation = ((double) elapsed) / iterations / operationsPerIteration;
+        System.out.println(
+                String.format("%-50s %12.2f ns/op %14.0f ops/s",
+                        name, Double.valueOf(nanosPerOperation), Double.valueOf(1000000000.0 / nanosPerOperation)));
+        return nanosPerOperation;
+
+    }
+
+
+
+    private Benchmark() {
+        super();
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+import java.lang.management.ManagementFactory;
+
+import org.javatuples.Tuple;
+import org.javatuples.Tuple2;
+import org.javatuples.Tuple3;
+
+
+/**
+ * <p>
+ * Measures the time and the heap allocated per call when small tuples are
+ * used to return several values from a method. When the method is inlined
+ * and the tuple does not escape, the JIT should scalar-replace it, and the
+ * allocated bytes per call should be zero.
+ * </p>
+ * <p>
+ * The decisions of the JIT can be checked with:
+ * </p>
+ * <pre>
+ *     java -XX:+UnlockDiagnosticVMOptions -XX:+PrintCompilation -XX:+PrintInlining ...
+ * </pre>
+ * <p>
+ * and, on debug builds of the JVM only, with
+ * <tt>-XX:+PrintEliminateAllocations</tt>. Running with
+ * <tt>-XX:-DoEscapeAnalysis</tt> shows the cost of the allocations.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class EscapeAnalysisBenchmark {
+
+    private static final int OPERATIONS = 1000000;
+    private static final Integer[] VALUES = new Integer[128];
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = Integer.valueOf(i);
+        }
+    }
+
+    private static volatile Tuple escaped = null;
+
+
+
+    public static void main(final String[] args) throws Exception {
+
+        run("Tuple2 returned, not escaping", new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final Tuple2<Integer,Integer> result = divide(i, 7);
+                    checksum += result.getValue0().intValue() + result.getValue1().intValue();
+                }
+                return checksum;
+            }
+        });
+
+        run("Tuple3 returned, not escaping", new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final Tuple3<Integer,Integer,Integer> result = split(i);
+                    checksum += result.getValue0().intValue() + result.getValue2().intValue();
+                }
+                return checksum;
+            }
+        });
+
+        run("Tuple2 returned, compared and hashed", new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final Tuple2<Integer,Integer> result = divide(i, 7);
+                    checksum += result.hashCode() + (result.equals(divide(i + 7, 7)) ? 1 : 0);
+                }
+                return checksum;
+            }
+        });
+
+        run("Tuple2 returned, escaping", new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final Tuple2<Integer,Integer> result = divide(i, 7);
+                    escaped = result;
+                    checksum += result.getValue0().intValue();
+                }
+                return checksum;
+            }
+        });
+
+    }
+
+
+
+    private static void run(final String name, final Benchmark.Operation operation) throws Exception {
+        final com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final long threadId = Thread.currentThread().getId();
+        // Warm up separately, so that the allocations measured are those of compiled code
+        for (int i = 0; i < 20; i++) {
+            operation.run();
+        }
+        final long before = threads.getThreadAllocatedBytes(threadId);
+        Benchmark.run(name, 0, 20, OPERATIONS, operation);
+        final long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        System.out.println(String.format("%-50s %12.2f bytes/op",
+                "", Double.valueOf(((double) allocated) / 20 / OPERATIONS)));
+    }
+
+
+    private static Tuple2<Integer,Integer> divide(final int dividend, final int divisor) {
+        return Tuple2.with(VALUES[(dividend / divisor) & 127], VALUES[dividend % divisor]);
+    }
+
+
+    private static Tuple3<Integer,Integer,Integer> split(final int value) {
+        return Tuple3.with(VALUES[value & 127], VALUES[(value >>> 7) & 127], VALUES[(value >>> 14) & 127]);
+    }
+
+
+
+    private EscapeAnalysisBenchmark() {
+        super();
+    }
+
+}
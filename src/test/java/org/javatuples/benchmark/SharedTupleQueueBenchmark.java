@@ -0,0 +1,119 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+import java.io.File;
+
+import org.javatuples.SharedTupleQueue;
+import org.javatuples.Tuple;
+import org.javatuples.Tuple4;
+import org.javatuples.WaitStrategy;
+
+
+/**
+ * <p>
+ * Measures the round trip time of a <tt>Tuple4</tt> sent through a
+ * {@link SharedTupleQueue} and echoed back through a second one, by a
+ * thread attached to both queue files as a separate process would be. Half
+ * the round trip is the handoff latency.
+ * </p>
+ * <p>
+ * The wait strategy can be passed as argument (<tt>BUSY_SPIN</tt> by
+ * default, which needs at least two idle cores).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class SharedTupleQueueBenchmark {
+
+    private static final int ROUND_TRIPS = 20000;
+
+
+
+    public static void main(final String[] args) throws Exception {
+
+        final WaitStrategy waitStrategy = (args.length > 0 ?
+                WaitStrategy.valueOf(args[0]) : WaitStrategy.BUSY_SPIN);
+
+        final File requestFile = File.createTempFile("javatuples-request", ".queue", SharedTupleQueue.getDefaultDirectory());
+        final File responseFile = File.createTempFile("javatuples-response", ".queue", SharedTupleQueue.getDefaultDirectory());
+        try {
+
+            final SharedTupleQueue requests =
+                    SharedTupleQueue.create(requestFile, 1024, 128, waitStrategy);
+            final SharedTupleQueue responses =
+                    SharedTupleQueue.create(responseFile, 1024, 128, waitStrategy);
+
+            final SharedTupleQueue echoRequests =
+                    SharedTupleQueue.attach(requestFile, waitStrategy);
+            final SharedTupleQueue echoResponses =
+                    SharedTupleQueue.attach(responseFile, waitStrategy);
+            final Thread echo = new Thread(new Runnable() {
+                public void run() {
+                    while (true) {
+                        final Tuple request = echoRequests.take();
+                        echoResponses.put(request);
+                        if (request.getValue(0) == null) {
+                            return;
+                        }
+                    }
+                }
+            });
+            echo.setDaemon(true);
+            echo.start();
+
+            final Tuple4<String,Integer,Long,Boolean> message =
+                    Tuple4.with("quote", Integer.valueOf(42), Long.valueOf(123456789L), Boolean.TRUE);
+
+            for (int round = 0; round < 3; round++) {
+                Benchmark.run("round trip (2 handoffs), " + waitStrategy, 2, 5, ROUND_TRIPS, new Benchmark.Operation() {
+                    public long run() {
+                        long checksum = 0L;
+                        for (int i = 0; i < ROUND_TRIPS; i++) {
+                            requests.put(message);
+                            checksum += responses.take().getSize();
+                        }
+                        return checksum;
+                    }
+                });
+            }
+
+            requests.put(Tuple4.with(null, null, null, null));
+            responses.take();
+            requests.close();
+            responses.close();
+            echoRequests.close();
+            echoResponses.close();
+
+        } finally {
+            requestFile.delete();
+            responseFile.delete();
+        }
+
+    }
+
+
+
+    private SharedTupleQueueBenchmark() {
+        super();
+    }
+
+}
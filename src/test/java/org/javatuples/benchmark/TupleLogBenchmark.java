@@ -0,0 +1,136 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.javatuples.TupleLog;
+
+
+/**
+ * <p>
+ * Measures the append throughput of {@link TupleLog} with synchronous
+ * appends (group commit) and 1 to 16 writer threads, and the number of
+ * appends sharing every <tt>fsync</tt>. A final run measures asynchronous
+ * appends, and another one measures recovery.
+ * </p>
+ * <p>
+ * Results depend mostly on the sync latency of the disk holding the
+ * temporary directory (use <tt>-Djava.io.tmpdir</tt> for choosing it).
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleLogBenchmark {
+
+    private static final int APPENDS_PER_THREAD = 2000;
+
+
+
+    public static void main(final String[] args) throws Exception {
+
+        for (final int threads : new int[] { 1, 2, 4, 8, 16 }) {
+            run("sync appends, " + threads + " writer threads", threads, true);
+        }
+        run("async appends, 16 writer threads", 16, false);
+
+    }
+
+
+
+    private static void run(final String name, final int threads, final boolean sync) throws Exception {
+
+        final File directory = File.createTempFile("javatuples-log", "");
+        directory.delete();
+        try {
+
+            final TupleLog<Long,String> log = new TupleLog<Long,String>(
+                    directory, TupleLog.DEFAULT_SEGMENT_BYTES, TupleLog.DEFAULT_SNAPSHOT_SEGMENTS, sync);
+            final ExecutorService executor = Executors.newFixedThreadPool(threads);
+            final CountDownLatch start = new CountDownLatch(1);
+            final List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < threads; t++) {
+                final long base = (long) t * APPENDS_PER_THREAD;
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch (final InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        }
+                        for (int i = 0; i < APPENDS_PER_THREAD; i++) {
+                            log.append(Long.valueOf(base + i), "value-" + i);
+                        }
+                    }
+                }));
+            }
+
+            final long startNanos = System.nanoTime();
+            start.countDown();
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+            log.flush();
+            final long elapsed = System.nanoTime() - startNanos;
+            executor.shutdown();
+            final long syncs = log.getSyncCount();
+            log.close();
+
+            final long appends = (long) threads * APPENDS_PER_THREAD;
+            System.out.println(
+                    String.format("%-40s %12.0f appends/s %8.1f appends/sync",
+                            name, Double.valueOf(appends * 1000000000.0 / elapsed),
+                            Double.valueOf(((double) appends) / Math.max(1L, syncs))));
+
+            final long recoveryStart = System.nanoTime();
+            final TupleLog<Long,String> reopened = new TupleLog<Long,String>(directory);
+            final long recoveryElapsed = System.nanoTime() - recoveryStart;
+            System.out.println(
+                    String.format("%-40s %12.0f records/s",
+                            "  recovery", Double.valueOf(reopened.getReplayedRecords() * 1000000000.0 / recoveryElapsed)));
+            reopened.close();
+
+        } finally {
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    file.delete();
+                }
+            }
+            directory.delete();
+        }
+
+    }
+
+
+
+    private TupleLogBenchmark() {
+        super();
+    }
+
+}
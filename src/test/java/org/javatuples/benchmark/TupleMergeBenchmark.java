@@ -0,0 +1,172 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import org.javatuples.Tuple2;
+import org.javatuples.TupleComparators;
+import org.javatuples.TupleMerge;
+
+
+/**
+ * <p>
+ * Compares {@link TupleMerge} with the usual <tt>PriorityQueue</tt>-based
+ * k-way merge, for different numbers of sources.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleMergeBenchmark {
+
+    private static final int TOTAL = 1000000;
+
+
+
+    public static void main(final String[] args) throws Exception {
+        for (final int k : new int[] { 4, 16, 64 }) {
+            final List<List<Tuple2<Long,Integer>>> shards = createShards(k);
+            Benchmark.run("TupleMerge, " + k + " sources", 5, 10, TOTAL, new Benchmark.Operation() {
+                public long run() {
+                    return consume(TupleMerge.merge(iterators(shards)));
+                }
+            });
+            Benchmark.run("PriorityQueue, " + k + " sources", 5, 10, TOTAL, new Benchmark.Operation() {
+                public long run() {
+                    return consume(new PriorityQueueMerge<Tuple2<Long,Integer>>(
+                            iterators(shards), TupleComparators.<Tuple2<Long,Integer>>natural()));
+                }
+            });
+        }
+    }
+
+
+
+    private static List<List<Tuple2<Long,Integer>>> createShards(final int k) {
+        final Random random = new Random(k);
+        final List<List<Tuple2<Long,Integer>>> shards = new ArrayList<List<Tuple2<Long,Integer>>>(k);
+        for (int i = 0; i < k; i++) {
+            // Keys are sorted before creating the tuples, so that these are laid out
+            // in memory in iteration order and cache misses do not dominate the results
+            final long[] keys = new long[TOTAL / k];
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = random.nextInt(TOTAL);
+            }
+            Arrays.sort(keys);
+            final List<Tuple2<Long,Integer>> shard = new ArrayList<Tuple2<Long,Integer>>(keys.length);
+            for (int j = 0; j < keys.length; j++) {
+                shard.add(Tuple2.with(Long.valueOf(keys[j]), Integer.valueOf(j)));
+            }
+            shards.add(shard);
+        }
+        return shards;
+    }
+
+
+    private static List<Iterator<Tuple2<Long,Integer>>> iterators(final List<List<Tuple2<Long,Integer>>> shards) {
+        final List<Iterator<Tuple2<Long,Integer>>> iterators =
+                new ArrayList<Iterator<Tuple2<Long,Integer>>>(shards.size());
+        for (final List<Tuple2<Long,Integer>> shard : shards) {
+            iterators.add(shard.iterator());
+        }
+        return iterators;
+    }
+
+
+    private static long consume(final Iterator<Tuple2<Long,Integer>> iterator) {
+        long checksum = 0L;
+        while (iterator.hasNext()) {
+            checksum += iterator.next().getValue1().intValue();
+        }
+        return checksum;
+    }
+
+
+
+
+    private static final class PriorityQueueMerge<T> implements Iterator<T> {
+
+        private final List<Iterator<T>> sources;
+        private final PriorityQueue<Head<T>> queue;
+
+
+        PriorityQueueMerge(final List<Iterator<T>> sources, final Comparator<? super T> comparator) {
+            super();
+            this.sources = sources;
+            this.queue = new PriorityQueue<Head<T>>(sources.size(), new Comparator<Head<T>>() {
+                public int compare(final Head<T> o1, final Head<T> o2) {
+                    final int comparison = comparator.compare(o1.value, o2.value);
+                    return (comparison != 0) ? comparison : (o1.source - o2.source);
+                }
+            });
+            for (int i = 0; i < sources.size(); i++) {
+                if (sources.get(i).hasNext()) {
+                    this.queue.add(new Head<T>(sources.get(i).next(), i));
+                }
+            }
+        }
+
+        public boolean hasNext() {
+            return !this.queue.isEmpty();
+        }
+
+        public T next() {
+            final Head<T> head = this.queue.poll();
+            final Iterator<T> source = this.sources.get(head.source);
+            if (source.hasNext()) {
+                this.queue.add(new Head<T>(source.next(), head.source));
+            }
+            return head.value;
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+    }
+
+
+    private static final class Head<T> {
+
+        final T value;
+        final int source;
+
+        Head(final T value, final int source) {
+            super();
+            this.value = value;
+            this.source = source;
+        }
+
+    }
+
+
+
+    private TupleMergeBenchmark() {
+        super();
+    }
+
+}
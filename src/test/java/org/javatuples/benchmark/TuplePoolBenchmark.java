@@ -0,0 +1,138 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+import org.javatuples.MutableTuple;
+import org.javatuples.Tuple3;
+import org.javatuples.TuplePool;
+
+
+/**
+ * <p>
+ * Compares leasing temporary tuples from a {@link TuplePool} with creating
+ * them, both when the JIT can remove the allocation (the tuple does not
+ * escape the compiled method) and when it cannot (the tuple is passed to a
+ * method which is not inlined). Run it with <tt>-XX:-DoEscapeAnalysis</tt>
+ * to see the cost of creation without scalar replacement.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TuplePoolBenchmark {
+
+    private static final int OPERATIONS = 1000000;
+    private static final Integer[] VALUES = new Integer[128];
+    static {
+        for (int i = 0; i < VALUES.length; i++) {
+            VALUES[i] = Integer.valueOf(i);
+        }
+    }
+
+    private static final TuplePool POOL = new TuplePool();
+
+
+
+    public static void main(final String[] args) throws Exception {
+
+        Benchmark.run("Tuple3.with, not escaping", 20, 20, OPERATIONS, new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final Tuple3<Integer,Integer,Integer> tuple =
+                            Tuple3.with(VALUES[i & 127], VALUES[(i + 1) & 127], VALUES[(i + 2) & 127]);
+                    checksum += tuple.getValue0().intValue() + tuple.getValue2().intValue();
+                }
+                return checksum;
+            }
+        });
+
+        Benchmark.run("new MutableTuple, not escaping", 20, 20, OPERATIONS, new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final MutableTuple tuple = new MutableTuple(3);
+                    fill(tuple, i);
+                    checksum += tuple.<Integer>getAs(0).intValue() + tuple.<Integer>getAs(2).intValue();
+                }
+                return checksum;
+            }
+        });
+
+        Benchmark.run("new MutableTuple, escaping", 20, 20, OPERATIONS, new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final MutableTuple tuple = new MutableTuple(3);
+                    fill(tuple, i);
+                    checksum += consume(tuple);
+                }
+                return checksum;
+            }
+        });
+
+        Benchmark.run("TuplePool lease, escaping", 20, 20, OPERATIONS, new Benchmark.Operation() {
+            public long run() {
+                long checksum = 0L;
+                for (int i = 0; i < OPERATIONS; i++) {
+                    final TuplePool.Lease lease = POOL.acquire(3);
+                    try {
+                        fill(lease.getTuple(), i);
+                        checksum += consume(lease.getTuple());
+                    } finally {
+                        lease.release();
+                    }
+                }
+                return checksum;
+            }
+        });
+
+        System.out.println(String.format("Pool hits: %d, misses: %d",
+                Long.valueOf(POOL.getHits()), Long.valueOf(POOL.getMisses())));
+
+    }
+
+
+
+    private static void fill(final MutableTuple tuple, final int i) {
+        tuple.set(0, VALUES[i & 127]).set(1, VALUES[(i + 1) & 127]).set(2, VALUES[(i + 2) & 127]);
+    }
+
+
+    // Too large to be inlined: the tuple escapes the calling method
+    private static long consume(final MutableTuple tuple) {
+        long checksum = 0L;
+        for (int i = 0; i < tuple.getSize(); i++) {
+            final Integer value = tuple.getAs(i);
+            checksum = checksum * 31 + value.intValue();
+            if (checksum < 0) {
+                checksum = -checksum;
+            }
+        }
+        return checksum;
+    }
+
+
+
+    private TuplePoolBenchmark() {
+        super();
+    }
+
+}
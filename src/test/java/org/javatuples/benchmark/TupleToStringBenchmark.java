@@ -0,0 +1,110 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2010, The JAVATUPLES team (http://www.javatuples.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.javatuples.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.javatuples.Tuple4;
+
+
+/**
+ * <p>
+ * Compares the ways of turning tuples into text: the previous
+ * <tt>toString()</tt> implementation (<tt>List.toString()</tt> on the tuple
+ * values), the current one, <tt>appendTo</tt> on a reused builder, and
+ * <tt>toStringCached()</tt>.
+ * </p>
+ *
+ * @since 1.3
+ *
+ */
+public final class TupleToStringBenchmark {
+
+    private static final int COUNT = 10000;
+
+
+
+    public static void main(final String[] args) throws Exception {
+
+        final List<Tuple4<String,Integer,Long,String>> tuples = new ArrayList<Tuple4<String,Integer,Long,String>>(COUNT);
+        // The previous implementation called toString() on an Arrays.asList() view of the values
+        final List<List<Object>> valueLists = new ArrayList<List<Object>>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            tuples.add(Tuple4.with("GET", Integer.valueOf(200 + i % 5), Long.valueOf(1000000L + i), "/api/items/" + i));
+            valueLists.add(Arrays.asList(tuples.get(i).toArray()));
+        }
+
+        for (int round = 0; round < 2; round++) {
+
+            Benchmark.run("List.toString() (previous toString)", 20, 50, COUNT, new Benchmark.Operation() {
+                public long run() {
+                    long length = 0L;
+                    for (final List<Object> valueList : valueLists) {
+                        length += valueList.toString().length();
+                    }
+                    return length;
+                }
+            });
+
+            Benchmark.run("toString()", 20, 50, COUNT, new Benchmark.Operation() {
+                public long run() {
+                    long length = 0L;
+                    for (final Tuple4<String,Integer,Long,String> tuple : tuples) {
+                        length += tuple.toString().length();
+                    }
+                    return length;
+                }
+            });
+
+            Benchmark.run("appendTo(StringBuilder), reused builder", 20, 50, COUNT, new Benchmark.Operation() {
+                private final StringBuilder strBuilder = new StringBuilder(256);
+                public long run() {
+                    long length = 0L;
+                    for (final Tuple4<String,Integer,Long,String> tuple : tuples) {
+                        this.strBuilder.setLength(0);
+                        length += tuple.appendTo(this.strBuilder).length();
+                    }
+                    return length;
+                }
+            });
+
+            Benchmark.run("toStringCached()", 20, 50, COUNT, new Benchmark.Operation() {
+                public long run() {
+                    long length = 0L;
+                    for (final Tuple4<String,Integer,Long,String> tuple : tuples) {
+                        length += tuple.toStringCached().length();
+                    }
+                    return length;
+                }
+            });
+
+        }
+
+    }
+
+
+
+    private TupleToStringBenchmark() {
+        super();
+    }
+
+}